@@ -2,8 +2,10 @@ package io.virusafe.configuration;
 
 import io.virusafe.repository.EncryptionUserDetailsRepositoryFacade;
 import io.virusafe.repository.NoEncryptionUserDetailsRepositoryFacade;
+import io.virusafe.repository.RequestScopedUserDetailsRepositoryFacade;
 import io.virusafe.repository.UserDetailsRepository;
 import io.virusafe.repository.UserDetailsRepositoryFacade;
+import io.virusafe.security.encryption.KeyVersionedSymmetricEncryptionProvider;
 import io.virusafe.security.encryption.SymmetricEncryptionProvider;
 import io.virusafe.security.encryption.SymmetricEncryptionProviderImpl;
 import lombok.Getter;
@@ -15,21 +17,40 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class EncryptionConfiguration {
 
     /**
      * Provide a SymmetricEncryptionProvider bean with name identificationNumber,
-     * registered for encryption of personal data. Uses a provided encryption key and configured algorithms.
+     * registered for encryption of personal data. Every encrypted value is prefixed with the id of its key,
+     * so values encrypted with retired keys can still be decrypted with the right key directly.
+     * Uses the configured key registry and algorithms.
      *
-     * @param encryptionKey                     the symmetric key to use for encryption
+     * @param symmetricKeyProperties            the autowired key registry configuration properties
      * @param encryptionConfigurationProperties the autowired algorithm configuration properties
      * @return the personal data SymmetricEncryptionProvider
      */
     @Bean("identificationNumber")
-    public SymmetricEncryptionProvider createEncryptionProvider(
-            @Value("${encryption.symmetric.key}") final String encryptionKey,
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    public KeyVersionedSymmetricEncryptionProvider createEncryptionProvider(
+            final SymmetricKeyProperties symmetricKeyProperties,
             final EncryptionAlgorithmProperties encryptionConfigurationProperties) {
+        Map<String, SymmetricEncryptionProvider> providersByKeyId = new HashMap<>();
+        symmetricKeyProperties.getRetiredKeys().forEach((keyId, key) ->
+                providersByKeyId.put(keyId, createProvider(key, encryptionConfigurationProperties)));
+        providersByKeyId.put(symmetricKeyProperties.getKeyId(),
+                createProvider(symmetricKeyProperties.getKey(), encryptionConfigurationProperties));
+        return new KeyVersionedSymmetricEncryptionProvider(symmetricKeyProperties.getKeyId(), providersByKeyId,
+                symmetricKeyProperties.getLegacyKeyIds());
+    }
+
+    private SymmetricEncryptionProvider createProvider(final String encryptionKey,
+                                                       final EncryptionAlgorithmProperties encryptionConfigurationProperties) {
         return new SymmetricEncryptionProviderImpl(
                 encryptionKey,
                 encryptionConfigurationProperties.getDigest(),
@@ -50,16 +71,13 @@ public class EncryptionConfiguration {
     public SymmetricEncryptionProvider createRegisterEncryptionProvider(
             @Value("${register.integration.kafka.symmetric.key}") final String encryptionKey,
             final EncryptionAlgorithmProperties encryptionConfigurationProperties) {
-        return new SymmetricEncryptionProviderImpl(
-                encryptionKey,
-                encryptionConfigurationProperties.getDigest(),
-                encryptionConfigurationProperties.getEncryption(),
-                encryptionConfigurationProperties.getKey());
+        return createProvider(encryptionKey, encryptionConfigurationProperties);
     }
 
     /**
      * Provide an encrypting UserDetailsRepositoryFacade bean to encrypt/decrypt personal information data
      * when communicating with the UserDetailsRepository.
+     * Users are looked up and decrypted at most once per request.
      * Usage of this bean is configurable by the encryption.provider.enable property.
      *
      * @param symmetricEncryptionProvider  the autowired identificationNumber-named SymmetricEncryptionProvider bean to use
@@ -73,12 +91,13 @@ public class EncryptionConfiguration {
             @Qualifier("identificationNumber") final SymmetricEncryptionProvider symmetricEncryptionProvider,
             final UserDetailsRepository userDetailsRepository,
             @Value("${encryption.iv.identification.number}") final String identificationNumberIVVector) {
-        return new EncryptionUserDetailsRepositoryFacade(symmetricEncryptionProvider, userDetailsRepository,
-                identificationNumberIVVector);
+        return new RequestScopedUserDetailsRepositoryFacade(new EncryptionUserDetailsRepositoryFacade(
+                symmetricEncryptionProvider, userDetailsRepository, identificationNumberIVVector));
     }
 
     /**
      * Provide a non-encrypting UserDetailsRepositoryFacade bean for straight communication with the UserDetailsRepository.
+     * Users are looked up at most once per request.
      * Usage of this bean is configurable by the encryption.provider.enable property.
      *
      * @param userDetailsRepository the autowired UserDetailsRepository to communicate with
@@ -88,7 +107,8 @@ public class EncryptionConfiguration {
     @ConditionalOnProperty(value = "encryption.provider.enable", havingValue = "false", matchIfMissing = true)
     public UserDetailsRepositoryFacade createNoEncryptionRepositoryFacade(
             final UserDetailsRepository userDetailsRepository) {
-        return new NoEncryptionUserDetailsRepositoryFacade(userDetailsRepository);
+        return new RequestScopedUserDetailsRepositoryFacade(
+                new NoEncryptionUserDetailsRepositoryFacade(userDetailsRepository));
     }
 
     @Configuration
@@ -100,4 +120,16 @@ public class EncryptionConfiguration {
         private String encryption;
         private String key;
     }
-}
\ No newline at end of file
+
+    @Configuration
+    @ConfigurationProperties(prefix = "encryption.symmetric")
+    @Getter
+    @Setter
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    public static class SymmetricKeyProperties {
+        private String key;
+        private String keyId;
+        private Map<String, String> retiredKeys = new HashMap<>();
+        private List<String> legacyKeyIds = new ArrayList<>();
+    }
+}
@@ -7,6 +7,7 @@ import com.google.firebase.messaging.FirebaseMessaging;
 import io.virusafe.service.pushnotification.LogOnlyPushNotificationService;
 import io.virusafe.service.pushnotification.PushNotificationService;
 import io.virusafe.service.pushnotification.PushNotificationServiceImpl;
+import io.virusafe.service.pushnotification.PushTokenPruningService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,11 +33,16 @@ public class FirebaseConfiguration {
      * create FirebaseMessaging bean
      *
      * @param keyPath
+     * @param pushTokenPruningService the service clearing the tokens Firebase reports as dead
+     * @param maxConcurrentRequests   the maximum number of multicast messages sent to Firebase at the same time
      * @return
      */
     @Bean
     @ConditionalOnProperty(value = "firebase.push-notifications.enabled", havingValue = "true")
-    public PushNotificationService createPushNotificationService(@Value("${firebase.key.path}") final String keyPath) {
+    public PushNotificationService createPushNotificationService(
+            @Value("${firebase.key.path}") final String keyPath,
+            final PushTokenPruningService pushTokenPruningService,
+            @Value("${firebase.push-notifications.max-concurrent-requests:4}") final int maxConcurrentRequests) {
         try (InputStream in = Files.newInputStream(Path.of(keyPath))) {
             FirebaseOptions options = new FirebaseOptions.Builder()
                     .setCredentials(GoogleCredentials.fromStream(in)).build();
@@ -50,7 +56,8 @@ public class FirebaseConfiguration {
             throw new BeanInitializationException(formattedExceptionMessage, e);
         }
 
-        return new PushNotificationServiceImpl(FirebaseMessaging.getInstance());
+        return new PushNotificationServiceImpl(FirebaseMessaging.getInstance(), pushTokenPruningService,
+                maxConcurrentRequests);
     }
 
     /**
@@ -1,5 +1,7 @@
 package io.virusafe.configuration;
 
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -10,6 +12,10 @@ import org.springframework.context.annotation.Configuration;
 @Getter
 @Setter
 public class RateLimitConfiguration {
+    private static final int DEFAULT_REGISTRATION_THROTTLE_MAX_ENTRIES = 100_000;
+    private static final long DEFAULT_REGISTRATION_PHONE_NUMBER_OVERFLOW_LIMIT = 1_000L;
+    private static final long DEFAULT_REGISTRATION_REMOTE_ADDRESS_OVERFLOW_LIMIT = 30_000L;
+
     private long questionnaireSubmitLimit;
     private long questionnaireSubmitBucketSize;
     private long locationUpdateLimit;
@@ -22,4 +28,92 @@ public class RateLimitConfiguration {
     private long pushTokenUpdateBucketSize;
     private long proximityUpdateLimit;
     private long proximityUpdateBucketSize;
+    private long registrationPhoneNumberLimit;
+    private long registrationPhoneNumberBucketSize;
+    private long registrationRemoteAddressLimit;
+    private long registrationRemoteAddressBucketSize;
+    private int registrationThrottleMaxEntries = DEFAULT_REGISTRATION_THROTTLE_MAX_ENTRIES;
+    private long registrationPhoneNumberOverflowLimit = DEFAULT_REGISTRATION_PHONE_NUMBER_OVERFLOW_LIMIT;
+    private long registrationRemoteAddressOverflowLimit = DEFAULT_REGISTRATION_REMOTE_ADDRESS_OVERFLOW_LIMIT;
+    private RateLimitAlgorithm questionnaireSubmitAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    private RateLimitAlgorithm locationUpdateAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    private RateLimitAlgorithm pinRequestAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    private RateLimitAlgorithm personalInfoUpdateAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    private RateLimitAlgorithm pushTokenUpdateAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    private RateLimitAlgorithm proximityUpdateAlgorithm = RateLimitAlgorithm.FIXED_WINDOW;
+
+    /**
+     * Get the configured request limit for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the maximum number of requests within a single bucket
+     */
+    public long getLimit(final RateLimitType type) {
+        switch (type) {
+            case QUESTIONNAIRE:
+                return questionnaireSubmitLimit;
+            case GPS_LOCATION:
+                return locationUpdateLimit;
+            case PROXIMITY:
+                return proximityUpdateLimit;
+            case PIN:
+                return pinRequestLimit;
+            case PERSONAL_INFORMATION:
+                return personalInfoUpdateLimit;
+            case PUSH_TOKEN:
+                return pushTokenUpdateLimit;
+            default:
+                throw new IllegalArgumentException("Unsupported rate limit type " + type);
+        }
+    }
+
+    /**
+     * Get the configured bucket size for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the bucket size, in seconds
+     */
+    public long getBucketSize(final RateLimitType type) {
+        switch (type) {
+            case QUESTIONNAIRE:
+                return questionnaireSubmitBucketSize;
+            case GPS_LOCATION:
+                return locationUpdateBucketSize;
+            case PROXIMITY:
+                return proximityUpdateBucketSize;
+            case PIN:
+                return pinRequestBucketSize;
+            case PERSONAL_INFORMATION:
+                return personalInfoUpdateBucketSize;
+            case PUSH_TOKEN:
+                return pushTokenUpdateBucketSize;
+            default:
+                throw new IllegalArgumentException("Unsupported rate limit type " + type);
+        }
+    }
+
+    /**
+     * Get the configured rate limit algorithm for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the algorithm used to count requests against the limit
+     */
+    public RateLimitAlgorithm getAlgorithm(final RateLimitType type) {
+        switch (type) {
+            case QUESTIONNAIRE:
+                return questionnaireSubmitAlgorithm;
+            case GPS_LOCATION:
+                return locationUpdateAlgorithm;
+            case PROXIMITY:
+                return proximityUpdateAlgorithm;
+            case PIN:
+                return pinRequestAlgorithm;
+            case PERSONAL_INFORMATION:
+                return personalInfoUpdateAlgorithm;
+            case PUSH_TOKEN:
+                return pushTokenUpdateAlgorithm;
+            default:
+                throw new IllegalArgumentException("Unsupported rate limit type " + type);
+        }
+    }
 }
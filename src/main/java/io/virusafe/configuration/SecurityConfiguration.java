@@ -5,6 +5,7 @@ import io.virusafe.security.filter.FilterChainExceptionHandlingFilter;
 import io.virusafe.security.filter.JwtAuthenticationFilter;
 import io.virusafe.security.mdc.MdcFilter;
 import io.virusafe.service.userdetails.UserDetailsService;
+import io.virusafe.service.userdetails.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -23,10 +24,20 @@ import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
 
+    /**
+     * Endpoints accessible without authentication.
+     */
+    public static final List<String> PERMITTED_ENDPOINTS = List.of(
+            "/token",
+            "/token/refresh",
+            "/pin");
+
     private final JwtAuthenticationFilter jwtAuthFilter;
 
     private final ClientIdFilter clientIdFilter;
@@ -46,14 +57,16 @@ public class SecurityConfiguration {
      * @param jwtConfiguration       the autowired JwtConfiguration to be used by authentication filters
      * @param exceptionResolver      the autowired HandlerExceptionResolver
      * @param userDetailsService     the autowired UserDetailsService to use for validating users during authentication
+     * @param userPrincipalCache     the autowired UserPrincipalCache holding recently validated users
      * @param authenticationProvider the autowired AuthenticationProvider to use for basic authentication
      */
     @Autowired
     public SecurityConfiguration(final JwtConfiguration jwtConfiguration,
                                  final @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
                                  final UserDetailsService userDetailsService,
+                                 final UserPrincipalCache userPrincipalCache,
                                  final AuthenticationProvider authenticationProvider) {
-        this.jwtAuthFilter = new JwtAuthenticationFilter(jwtConfiguration, userDetailsService);
+        this.jwtAuthFilter = new JwtAuthenticationFilter(jwtConfiguration, userDetailsService, userPrincipalCache);
         this.clientIdFilter = new ClientIdFilter(jwtConfiguration);
         this.filterChainExceptionHandlingFilter = new FilterChainExceptionHandlingFilter(exceptionResolver);
         this.mdcFilter = new MdcFilter();
@@ -71,10 +84,7 @@ public class SecurityConfiguration {
                     .and()
                     .authorizeRequests()
                     // Don't authorize access to token-related endpoints.
-                    .mvcMatchers(
-                            "/token",
-                            "/token/refresh",
-                            "/pin")
+                    .mvcMatchers(PERMITTED_ENDPOINTS.toArray(new String[0]))
                     .permitAll()
                     .anyRequest().authenticated()
                     .and()
@@ -0,0 +1,40 @@
+package io.virusafe.configuration;
+
+import io.virusafe.security.interceptor.RateLimitInterceptor;
+import io.virusafe.security.interceptor.RemoteAddressThrottleInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private static final String TOKEN_REFRESH_ENDPOINT = "/token/refresh";
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final RemoteAddressThrottleInterceptor remoteAddressThrottleInterceptor;
+
+    /**
+     * Construct web MVC configuration using beans
+     *
+     * @param rateLimitInterceptor             the interceptor applying rate limits ahead of request body parsing
+     * @param remoteAddressThrottleInterceptor the interceptor throttling unauthenticated endpoints by remote address
+     */
+    @Autowired
+    public WebMvcConfiguration(final RateLimitInterceptor rateLimitInterceptor,
+                               final RemoteAddressThrottleInterceptor remoteAddressThrottleInterceptor) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.remoteAddressThrottleInterceptor = remoteAddressThrottleInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        // Every active user refreshes tokens, often from behind a shared carrier NAT address, and a refresh only
+        // succeeds with a valid refresh token, so it's left out of the remote address throttle.
+        registry.addInterceptor(remoteAddressThrottleInterceptor)
+                .addPathPatterns(SecurityConfiguration.PERMITTED_ENDPOINTS)
+                .excludePathPatterns(TOKEN_REFRESH_ENDPOINT);
+        registry.addInterceptor(rateLimitInterceptor);
+    }
+}
@@ -2,12 +2,17 @@ package io.virusafe.controller;
 
 import io.swagger.annotations.ApiOperation;
 import io.virusafe.domain.dto.CustomPushNotificationDTO;
+import io.virusafe.domain.dto.PushCampaignStatusDTO;
 import io.virusafe.domain.dto.PushNotificationRequestDTO;
 import io.virusafe.domain.query.QuestionnaireQuery;
 import io.virusafe.mapper.QuestionnaireQueryMapper;
+import io.virusafe.service.notification.PushCampaignService;
 import io.virusafe.service.notification.PushNotificationSenderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,37 +28,69 @@ public class PushNotificationController {
 
     private final PushNotificationSenderService pushNotificationService;
 
+    private final PushCampaignService pushCampaignService;
+
     private final QuestionnaireQueryMapper questionnaireQueryMapper;
 
     /**
-     * Construct a new PushNotificationController, using the autowired PushNotificationSenderService, QuestionnaireQueryMapper.
+     * Construct a new PushNotificationController, using the autowired PushNotificationSenderService,
+     * PushCampaignService, QuestionnaireQueryMapper.
      *
      * @param pushNotificationService  the PushNotificationSenderService to use
+     * @param pushCampaignService      the PushCampaignService to use
      * @param questionnaireQueryMapper the QuestionnaireQueryMapper to use
      */
     public PushNotificationController(
             final PushNotificationSenderService pushNotificationService,
+            final PushCampaignService pushCampaignService,
             final QuestionnaireQueryMapper questionnaireQueryMapper) {
         this.pushNotificationService = pushNotificationService;
+        this.pushCampaignService = pushCampaignService;
         this.questionnaireQueryMapper = questionnaireQueryMapper;
     }
 
     /**
      * POST /query endpoint. Submits a PushNotificationRequestDTO which contains a set of query specifications.
+     * The notifications are sent by a background push campaign job, whose progress can be followed by its id.
      *
      * @param pushNotificationRequestDTO describes the query specifications
+     * @return the status of the submitted push campaign
      */
     @PostMapping(value = "/query")
     @ApiOperation(value = "Send a new push notification depending on a set of custom query params")
-    @ResponseStatus(HttpStatus.OK)
-    public void sendPushNotification(final @Valid @RequestBody PushNotificationRequestDTO pushNotificationRequestDTO) {
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public PushCampaignStatusDTO sendPushNotification(
+            final @Valid @RequestBody PushNotificationRequestDTO pushNotificationRequestDTO) {
 
         QuestionnaireQuery questionnaireQuery = questionnaireQueryMapper
                 .mapQuestionnaireQueryDTOToQuestionnaireQuery(pushNotificationRequestDTO.getQuestionnaireQuery());
 
-        pushNotificationService
-                .sendCustomPushNotifications(questionnaireQuery, pushNotificationRequestDTO.getMessage(),
-                        pushNotificationRequestDTO.getTitle(), pushNotificationRequestDTO.isReverseQueryResults());
+        return pushCampaignService.submit(questionnaireQuery, pushNotificationRequestDTO.getTitle(),
+                pushNotificationRequestDTO.getMessage(), pushNotificationRequestDTO.isReverseQueryResults());
+    }
+
+    /**
+     * GET /campaigns/{jobId} endpoint. Reports the progress of a push campaign.
+     *
+     * @param jobId the id of the push campaign job
+     * @return the job status
+     */
+    @GetMapping(value = "/campaigns/{jobId}")
+    @ApiOperation(value = "Get the progress of a push campaign")
+    public PushCampaignStatusDTO getPushCampaignStatus(@PathVariable final String jobId) {
+        return pushCampaignService.getStatus(jobId);
+    }
+
+    /**
+     * DELETE /campaigns/{jobId} endpoint. Cancels a queued or running push campaign.
+     *
+     * @param jobId the id of the push campaign job
+     * @return the job status
+     */
+    @DeleteMapping(value = "/campaigns/{jobId}")
+    @ApiOperation(value = "Cancel a push campaign")
+    public PushCampaignStatusDTO cancelPushCampaign(@PathVariable final String jobId) {
+        return pushCampaignService.cancel(jobId);
     }
 
     /**
@@ -14,6 +14,7 @@ import io.virusafe.exception.model.ValidationErrorDTO;
 import io.virusafe.security.advice.QuestionnaireTimeout;
 import io.virusafe.security.principal.UserPrincipal;
 import io.virusafe.service.questionnaire.QuestionnaireService;
+import io.virusafe.service.userdetails.UserDetailsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -30,7 +31,6 @@ import springfox.documentation.annotations.ApiIgnore;
 
 import javax.validation.Valid;
 import java.util.List;
-import java.util.Objects;
 
 @RestController
 @RequestMapping("/questionnaire")
@@ -44,14 +44,20 @@ public class QuestionnaireController {
 
     private final QuestionnaireService questionnaireService;
 
+    private final UserDetailsService userDetailsService;
+
     /**
-     * Construct a new QuestionnaireController, using the autowired QuestionnaireService bean.
+     * Construct a new QuestionnaireController, using the autowired QuestionnaireService
+     * and UserDetailsService beans.
      *
      * @param questionnaireService the QuestionnaireService to use
+     * @param userDetailsService   the UserDetailsService to use
      */
     @Autowired
-    public QuestionnaireController(final QuestionnaireService questionnaireService) {
+    public QuestionnaireController(final QuestionnaireService questionnaireService,
+                                   final UserDetailsService userDetailsService) {
         this.questionnaireService = questionnaireService;
+        this.userDetailsService = userDetailsService;
     }
 
     /**
@@ -102,7 +108,7 @@ public class QuestionnaireController {
         log.info("POST request for /questionnaire. UserID: {}", userGuid);
 
         // If not identification number is present for the user, throw an exception as we can't submit their questionnaire.
-        if (Objects.isNull(userPrincipal.getIdentificationNumber())) {
+        if (!userDetailsService.hasIdentificationNumber(userGuid)) {
             throw new InvalidPersonalInformationException(userGuid);
         }
         questionnaireService.postQuestionnaire(questionnairePostDTO, userGuid);
@@ -0,0 +1,66 @@
+package io.virusafe.controller;
+
+import io.swagger.annotations.ApiOperation;
+import io.virusafe.domain.dto.ReEncryptionStatusDTO;
+import io.virusafe.service.encryption.ReEncryptionService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/reEncryption")
+@ConditionalOnProperty(value = "encryption.provider.enable", havingValue = "true")
+public class ReEncryptionController {
+
+    private final ReEncryptionService reEncryptionService;
+
+    /**
+     * Construct a new ReEncryptionController, using the autowired ReEncryptionService.
+     *
+     * @param reEncryptionService the ReEncryptionService to use
+     */
+    public ReEncryptionController(final ReEncryptionService reEncryptionService) {
+        this.reEncryptionService = reEncryptionService;
+    }
+
+    /**
+     * POST endpoint. Starts re-encrypting all identification numbers with the current key in the background.
+     *
+     * @param fromId the optional user id to continue after, instead of the checkpoint of the last unfinished job
+     * @return the status of the started job
+     */
+    @PostMapping
+    @ApiOperation(value = "Start re-encrypting identification numbers with the current key")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReEncryptionStatusDTO startReEncryption(@RequestParam(required = false) final Long fromId) {
+        return reEncryptionService.start(fromId);
+    }
+
+    /**
+     * GET endpoint. Reports the progress of the current or last re-encryption job.
+     *
+     * @return the job status
+     */
+    @GetMapping
+    @ApiOperation(value = "Get the progress of the re-encryption job")
+    public ReEncryptionStatusDTO getReEncryptionStatus() {
+        return reEncryptionService.getStatus();
+    }
+
+    /**
+     * DELETE endpoint. Stops the running re-encryption job after its current chunk.
+     *
+     * @return the job status
+     */
+    @DeleteMapping
+    @ApiOperation(value = "Stop the re-encryption job")
+    public ReEncryptionStatusDTO stopReEncryption() {
+        return reEncryptionService.stop();
+    }
+}
@@ -11,9 +11,9 @@ import io.virusafe.domain.dto.PinGenerationDTO;
 import io.virusafe.domain.dto.PushTokenDTO;
 import io.virusafe.domain.dto.TokenGenerationDTO;
 import io.virusafe.domain.dto.TokenRefreshDTO;
-import io.virusafe.exception.UnverifiablePinException;
 import io.virusafe.exception.model.ErrorDTO;
 import io.virusafe.exception.model.ValidationErrorDTO;
+import io.virusafe.security.advice.PhoneNumberThrottle;
 import io.virusafe.security.advice.PinRateLimit;
 import io.virusafe.security.advice.PushTokenRateLimit;
 import io.virusafe.security.principal.UserPrincipal;
@@ -66,12 +66,13 @@ public class RegistrationController {
 
     /**
      * POST /pin endpoint. Submits a PIN generation request for a passed phone number.
-     * Rate limit defined by the {@link PinRateLimit} annotation.
+     * Rate limit defined by the {@link PinRateLimit} and {@link PhoneNumberThrottle} annotations.
      *
      * @param pinGenerationDTO the phone number to generate a PIN for
      */
     @PostMapping(value = "/pin")
     @PinRateLimit
+    @PhoneNumberThrottle
     @ApiOperation(value = "Generate a verification PIN and send it to the given phone number")
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "PIN created and request sent to the SMS service"),
@@ -90,11 +91,13 @@ public class RegistrationController {
     /**
      * POST /token endpoint. Generates an access token and refresh token for a given phone number and PIN,
      * provided that they match.
+     * Rate limit defined by the {@link PhoneNumberThrottle} annotation.
      *
      * @param tokenGenerationDTO the phone number and PIN to generate a token for
      * @return the generated access token and refresh token
      */
     @PostMapping(value = "/token")
+    @PhoneNumberThrottle
     @ApiOperation(value = "Verify that the passed PIN and phone number match and generate an access token")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "clientId", value = "Client ID", paramType = "header", example = SwaggerConstants.CLIENT_ID, required = true)
@@ -103,6 +106,7 @@ public class RegistrationController {
             @ApiResponse(code = 201, message = "PIN matches, JWT generated"),
             @ApiResponse(code = 401, message = SwaggerConstants.UNAUTHORIZED_MESSAGE, response = ErrorDTO.class),
             @ApiResponse(code = 403, message = SwaggerConstants.ACCESS_FORBIDDEN_MESSAGE, response = ErrorDTO.class),
+            @ApiResponse(code = 429, message = SwaggerConstants.RATE_LIMIT_EXCEEDED_MESSAGE, response = ErrorDTO.class),
             @ApiResponse(code = 438, message = "Could not verify matching PIN and phone number",
                     response = ErrorDTO.class)
     })
@@ -111,14 +115,10 @@ public class RegistrationController {
             final @Valid @RequestBody TokenGenerationDTO tokenGenerationDTO) {
         log.info("POST request for /token. Phone number: {}", tokenGenerationDTO.getPhoneNumber());
 
-        if (pinService.verifyPin(tokenGenerationDTO.getPhoneNumber(), tokenGenerationDTO.getPin())) {
-            AccessTokenDTO tokenResponseDTO = tokenService.generateToken(tokenGenerationDTO.getPhoneNumber());
-            // Invalidate all current PINs after we've generated a token successfully.
-            pinService.invalidatePins(tokenGenerationDTO.getPhoneNumber());
-            return new ResponseEntity<>(tokenResponseDTO, HttpStatus.CREATED);
-        } else {
-            throw new UnverifiablePinException(tokenGenerationDTO.getPhoneNumber(), tokenGenerationDTO.getPin());
-        }
+        // Verifies the PIN, invalidates all current PINs and generates the token in a single transaction.
+        AccessTokenDTO tokenResponseDTO = tokenService.generateToken(tokenGenerationDTO.getPhoneNumber(),
+                tokenGenerationDTO.getPin());
+        return new ResponseEntity<>(tokenResponseDTO, HttpStatus.CREATED);
     }
 
     /**
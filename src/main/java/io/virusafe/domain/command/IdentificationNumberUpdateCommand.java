@@ -0,0 +1,17 @@
+package io.virusafe.domain.command;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class IdentificationNumberUpdateCommand {
+
+    private Long userId;
+
+    private String previousIdentificationNumber;
+
+    private String identificationNumber;
+}
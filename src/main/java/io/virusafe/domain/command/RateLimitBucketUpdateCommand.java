@@ -0,0 +1,22 @@
+package io.virusafe.domain.command;
+
+import io.virusafe.domain.entity.RateLimitType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class RateLimitBucketUpdateCommand {
+
+    private Long userId;
+
+    private RateLimitType type;
+
+    private LocalDateTime bucketEnd;
+
+    private long bucketCount;
+}
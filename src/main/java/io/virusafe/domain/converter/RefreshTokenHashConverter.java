@@ -0,0 +1,34 @@
+package io.virusafe.domain.converter;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Stores Base64 encoded refresh token hashes as raw bytes in a fixed-width binary column, so they can be looked up
+ * through a compact unique index. Hashes are right-padded with zero bytes (or truncated) to the column width,
+ * the same way the database pads shorter values, so lookups by a hash match the stored value.
+ */
+@Converter
+public class RefreshTokenHashConverter implements AttributeConverter<String, byte[]> {
+
+    public static final int HASH_LENGTH = 64;
+
+    @Override
+    public byte[] convertToDatabaseColumn(final String refreshTokenHash) {
+        if (Objects.isNull(refreshTokenHash)) {
+            return null;
+        }
+        return Arrays.copyOf(Base64.getDecoder().decode(refreshTokenHash), HASH_LENGTH);
+    }
+
+    @Override
+    public String convertToEntityAttribute(final byte[] refreshTokenHash) {
+        if (Objects.isNull(refreshTokenHash)) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(refreshTokenHash);
+    }
+}
@@ -0,0 +1,14 @@
+package io.virusafe.domain.dto;
+
+/**
+ * Request body carrying the phone number of an unauthenticated user.
+ */
+public interface PhoneNumberRequest {
+
+    /**
+     * Get the phone number in the request.
+     *
+     * @return the phone number
+     */
+    String getPhoneNumber();
+}
@@ -8,7 +8,7 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 
 @Data
-public class PinGenerationDTO {
+public class PinGenerationDTO implements PhoneNumberRequest {
 
     @ApiModelProperty(example = SwaggerConstants.DEFAULT_PHONE_NUMBER)
     @NotNull(message = "Phone number is required")
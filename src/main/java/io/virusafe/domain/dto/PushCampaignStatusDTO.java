@@ -0,0 +1,42 @@
+package io.virusafe.domain.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+public class PushCampaignStatusDTO {
+
+    private String jobId;
+    private State state;
+    private String title;
+    private boolean reverseQueryResults;
+    private long matchedUsers;
+    private long audienceSize;
+    private long resolvedTokens;
+    private long sentCount;
+    private long failedCount;
+    private Map<String, Long> errorCodes;
+    private long deadTokens;
+    private long prunedTokens;
+    private double tokensPerSecond;
+    private String error;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    /**
+     * Enum representing the lifecycle of a push campaign job.
+     */
+    public enum State {
+        QUEUED,
+        RUNNING,
+        CANCELLING,
+        CANCELLED,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package io.virusafe.domain.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class PushNotificationResultDTO {
+
+    private long successCount;
+    private long failureCount;
+    private long chunkCount;
+    private long failedChunkCount;
+    // Number of tokens that failed with each Firebase error code.
+    private Map<String, Long> errorCodes;
+    // Number of failed tokens Firebase reported as unregistered or invalid, and of users they were cleared from.
+    private long deadTokenCount;
+    private long prunedCount;
+}
@@ -0,0 +1,36 @@
+package io.virusafe.domain.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ReEncryptionStatusDTO {
+
+    private State state;
+    private String keyId;
+    private long fromId;
+    private long lastProcessedId;
+    private long maxId;
+    private long scannedRows;
+    private long reEncryptedRows;
+    private long alreadyCurrentRows;
+    private long failedRows;
+    private double rowsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    /**
+     * Enum representing the lifecycle of a re-encryption job.
+     */
+    public enum State {
+        IDLE,
+        RUNNING,
+        STOPPING,
+        STOPPED,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,60 @@
+package io.virusafe.domain.entity;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import java.time.LocalDateTime;
+
+/**
+ * The current personal information consent of a user, i.e. the latest entry of the user's audit trail.
+ * Kept up to date together with the audit trail, so push audiences can filter on it without reading the trail.
+ */
+@Entity
+@Table(name = "personal_information_consent_state")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+public class PersonalInformationConsentState {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String userGuid;
+
+    @Version
+    private Long version;
+
+    @Enumerated(EnumType.STRING)
+    private PersonalInformationConsentAction action;
+
+    private LocalDateTime changedOn;
+
+    /**
+     * All args constructor for PersonalInformationConsentState.
+     * Can be used as a Lombok builder.
+     *
+     * @param userGuid  the user GUID this consent state is for
+     * @param action    the latest audit action
+     * @param changedOn the time of the latest audit change
+     */
+    @Builder
+    public PersonalInformationConsentState(final String userGuid,
+                                           final PersonalInformationConsentAction action,
+                                           final LocalDateTime changedOn) {
+        this.userGuid = userGuid;
+        this.action = action;
+        this.changedOn = changedOn;
+    }
+}
@@ -7,21 +7,21 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
-import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.persistence.Version;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rate_limits")
+@Table(name = "rate_limits", uniqueConstraints = @UniqueConstraint(
+        name = "rate_limits_user_details_id_type_indx", columnNames = {"user_details_id", "type"}))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -35,9 +35,8 @@ public class RateLimit {
     @Version
     private Long version;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_details_id")
-    private UserDetails userDetails;
+    @Column(name = "user_details_id")
+    private Long userDetailsId;
 
     @Enumerated(EnumType.STRING)
     private RateLimitType type;
@@ -49,17 +48,17 @@ public class RateLimit {
      * Construct rate limit
      *
      * @param id
-     * @param userDetails
+     * @param userDetailsId
      * @param type
      * @param lastUpdateTime
      * @param bucketCount
      */
     @Builder
-    public RateLimit(final Long id, final UserDetails userDetails, final RateLimitType type,
+    public RateLimit(final Long id, final Long userDetailsId, final RateLimitType type,
                      final LocalDateTime lastUpdateTime,
                      final Long bucketCount) {
         this.id = id;
-        this.userDetails = userDetails;
+        this.userDetailsId = userDetailsId;
         this.type = type;
         this.lastUpdateTime = lastUpdateTime;
         this.bucketCount = bucketCount;
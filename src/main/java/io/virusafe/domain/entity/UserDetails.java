@@ -2,6 +2,7 @@ package io.virusafe.domain.entity;
 
 import io.virusafe.domain.Gender;
 import io.virusafe.domain.IdentificationType;
+import io.virusafe.domain.converter.RefreshTokenHashConverter;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -11,6 +12,7 @@ import lombok.Setter;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
@@ -67,12 +69,15 @@ public class UserDetails {
 
     private String pushToken;
 
-    @OneToMany(mappedBy = "userDetails", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "userDetails", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private List<RegistrationPin> registrationPins = new ArrayList<>();
 
     private String tokenSecret;
+
+    @Column(name = "refresh_token_hash", columnDefinition = "binary(" + RefreshTokenHashConverter.HASH_LENGTH + ")")
+    @Convert(converter = RefreshTokenHashConverter.class)
     private String refreshToken;
 
     /**
@@ -129,6 +134,8 @@ public class UserDetails {
 
     /**
      * Get all of the user's registration PINs, wrapped in an unmodifiable list.
+     * PINs are loaded lazily, so this is only usable within an open session or after a fetch join.
+     * Use RegistrationPinRepository to work with the PINs of a loaded user.
      *
      * @return the user's registration PINs
      */
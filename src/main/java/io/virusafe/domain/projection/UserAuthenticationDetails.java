@@ -0,0 +1,43 @@
+package io.virusafe.domain.projection;
+
+/**
+ * Read model holding only the user details needed to authenticate a JWT.
+ * Loading it skips the registration PINs and the encrypted personal information of the user.
+ */
+public interface UserAuthenticationDetails {
+
+    /**
+     * Get the user's DB ID.
+     *
+     * @return the user's DB ID
+     */
+    Long getId();
+
+    /**
+     * Get the user's GUID.
+     *
+     * @return the user's GUID
+     */
+    String getUserGuid();
+
+    /**
+     * Get the user's phone number.
+     *
+     * @return the user's phone number
+     */
+    String getPhoneNumber();
+
+    /**
+     * Get the user's current token secret.
+     *
+     * @return the user's token secret
+     */
+    String getTokenSecret();
+
+    /**
+     * Get the user's created date.
+     *
+     * @return the user's created date
+     */
+    Long getCreatedDate();
+}
@@ -0,0 +1,20 @@
+package io.virusafe.domain.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Read model holding a user's push token together with the keys needed to page through and filter push audiences.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class UserPushToken {
+
+    private Long userId;
+
+    private String userGuid;
+
+    private String pushToken;
+}
@@ -0,0 +1,16 @@
+package io.virusafe.exception;
+
+/**
+ * Push campaign queue full exception, thrown when a push campaign can't be queued until a queued one has started.
+ */
+public class PushCampaignQueueFullException extends RuntimeException {
+    /**
+     * Construct push campaign queue full exception
+     *
+     * @param message the exception message
+     * @param cause   the rejection by the campaign executor
+     */
+    public PushCampaignQueueFullException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
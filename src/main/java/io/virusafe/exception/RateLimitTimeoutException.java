@@ -2,6 +2,8 @@ package io.virusafe.exception;
 
 public class RateLimitTimeoutException extends RuntimeException {
 
+    private static final long MILLIS_PER_SECOND = 1000L;
+
     /**
      * Construct a new RateLimitTimeoutException for a given number of seconds.
      *
@@ -10,4 +12,15 @@ public class RateLimitTimeoutException extends RuntimeException {
     public RateLimitTimeoutException(final long timeoutSeconds) {
         super(String.valueOf(timeoutSeconds));
     }
+
+    /**
+     * Construct a new RateLimitTimeoutException for a given number of milliseconds, rounded up to whole seconds,
+     * so that clients retrying after the mentioned time are not rejected again.
+     *
+     * @param timeoutMillis the timeout milliseconds
+     * @return the exception
+     */
+    public static RateLimitTimeoutException fromMillis(final long timeoutMillis) {
+        return new RateLimitTimeoutException((timeoutMillis + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND);
+    }
 }
@@ -3,6 +3,7 @@ package io.virusafe.exception.handler;
 import io.jsonwebtoken.JwtException;
 import io.virusafe.exception.EncryptionProviderException;
 import io.virusafe.exception.InvalidPersonalInformationException;
+import io.virusafe.exception.PushCampaignQueueFullException;
 import io.virusafe.exception.PushNotificationException;
 import io.virusafe.exception.QueryExecuteException;
 import io.virusafe.exception.QueryParseException;
@@ -288,6 +289,21 @@ public class GlobalExceptionHandler {
                 .body(errorDTO);
     }
 
+    /**
+     * Reroute push campaign queue full exceptions to HTTP 503, as the campaign can be submitted again later.
+     *
+     * @param pushCampaignQueueFullException the caught exception
+     * @return ResponseEntity of HTTP Status 503, containing error details
+     */
+    @ExceptionHandler({PushCampaignQueueFullException.class})
+    public final ResponseEntity<ErrorDTO> handlePushCampaignQueueFullException(
+            final PushCampaignQueueFullException pushCampaignQueueFullException) {
+        logException(pushCampaignQueueFullException);
+        ErrorDTO errorDTO = ErrorDTO.fromExceptionBuilder().exception(pushCampaignQueueFullException).build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(errorDTO);
+    }
+
     private List<String> filterExceptionStacktrace(final Exception exception) {
         // Print the first N elements of the stacktrace that contain the predefined prefix.
         return Arrays.stream(exception.getStackTrace())
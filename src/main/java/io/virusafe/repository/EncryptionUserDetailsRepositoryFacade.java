@@ -1,14 +1,12 @@
 package io.virusafe.repository;
 
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.security.encryption.SymmetricEncryptionProvider;
-import io.virusafe.security.encryption.SymmetricEncryptionProviderImpl;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 
 @Slf4j
 public class EncryptionUserDetailsRepositoryFacade implements UserDetailsRepositoryFacade {
@@ -17,9 +15,6 @@ public class EncryptionUserDetailsRepositoryFacade implements UserDetailsReposit
     private final UserDetailsRepository userDetailsRepository;
     private final String identificationNumberIVVector;
 
-    private final SymmetricEncryptionProvider backupProvider = new SymmetricEncryptionProviderImpl(
-            "encryption.symmetric.key", "SHA-256", "AES/CBC/PKCS5Padding", "AES");
-
     /**
      * Construct a new EncryptionUserDetailsRepositoryFacade, using the provided SymmetricEncryptionProvider to
      * handle encryption, UserDetailsRepository to communicate with the data layer and encryption initialization vector.
@@ -44,17 +39,29 @@ public class EncryptionUserDetailsRepositoryFacade implements UserDetailsReposit
         return decodeDetails(userDetailsRepository.findByUserGuid(userGuid));
     }
 
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(final String userGuid) {
+        return userDetailsRepository.findAuthenticationDetailsByUserGuid(userGuid);
+    }
+
+    @Override
+    public boolean hasIdentificationNumber(final String userGuid) {
+        return userDetailsRepository.existsByUserGuidWithIdentificationNumber(userGuid);
+    }
+
     @Override
     public Optional<UserDetails> findByPhoneNumber(final String phoneNumber) {
         return decodeDetails(userDetailsRepository.findByPhoneNumber(phoneNumber));
     }
 
     @Override
-    public Optional<UserDetails> findByPhoneNumberAndValidPin(final String phoneNumber,
-                                                              final String pin,
-                                                              final LocalDateTime time) {
-        return decodeDetails(userDetailsRepository
-                .findByPhoneNumberAndValidPin(phoneNumber, pin, time));
+    public Optional<Long> findIdByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepository.findIdByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepository.findAuthenticationDetailsByPhoneNumber(phoneNumber);
     }
 
     @Override
@@ -66,15 +73,10 @@ public class EncryptionUserDetailsRepositoryFacade implements UserDetailsReposit
         if (userDetailsOpt.isPresent()) {
             UserDetails userDetails = userDetailsOpt.get();
             try {
-                return decode(userDetails, symmetricEncryptionProvider);
+                return decode(userDetails);
             } catch (Exception e) {
                 log.error("Cannot decode data for user {}", userDetails.getUserGuid());
-                try {
-                    return decode(userDetails, backupProvider);
-                } catch (Exception ex) {
-                    log.error("Cannot decode data for user with backup key {}", userDetails.getUserGuid());
-                    userDetails.setIdentificationNumberPlain(null);
-                }
+                userDetails.setIdentificationNumberPlain(null);
             }
         }
         return userDetailsOpt;
@@ -85,11 +87,10 @@ public class EncryptionUserDetailsRepositoryFacade implements UserDetailsReposit
         userDetailsRepository.save(encode(userDetails));
     }
 
-    private Optional<UserDetails> decode(final UserDetails userDetails,
-                                         final SymmetricEncryptionProvider encryptionProvider) {
+    private Optional<UserDetails> decode(final UserDetails userDetails) {
         if (Objects.nonNull(userDetails.getIdentificationNumber())) {
             userDetails.setIdentificationNumberPlain(
-                    encryptionProvider.decrypt(userDetails.getIdentificationNumber(),
+                    symmetricEncryptionProvider.decrypt(userDetails.getIdentificationNumber(),
                             identificationNumberIVVector));
         } else {
             userDetails.setIdentificationNumberPlain(null);
@@ -109,7 +110,17 @@ public class EncryptionUserDetailsRepositoryFacade implements UserDetailsReposit
     }
 
     @Override
-    public Set<String> findAllPushTokensByUserGuid(final Set<String> userGuids, final boolean reverse) {
-        return userDetailsRepository.findAllPushTokensByUserGuids(userGuids, reverse);
+    public boolean updateTokenDetails(final String userGuid, final String tokenSecret,
+                                      final String refreshTokenHash) {
+        return userDetailsRepository.updateTokenDetails(userGuid, tokenSecret, refreshTokenHash) > 0;
+    }
+
+    @Override
+    public boolean updatePushToken(final String userGuid, final String pushToken) {
+        if (userDetailsRepository.updatePushToken(userGuid, pushToken) == 0) {
+            return false;
+        }
+        userDetailsRepository.clearPushTokenOfOtherUsers(userGuid, pushToken);
+        return true;
     }
 }
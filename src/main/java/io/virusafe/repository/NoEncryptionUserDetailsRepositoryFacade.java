@@ -1,12 +1,11 @@
 package io.virusafe.repository;
 
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Set;
 
 @Slf4j
 public class NoEncryptionUserDetailsRepositoryFacade implements UserDetailsRepositoryFacade {
@@ -30,17 +29,29 @@ public class NoEncryptionUserDetailsRepositoryFacade implements UserDetailsRepos
         return decodeDetails(userDetailsRepository.findByUserGuid(userGuid));
     }
 
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(final String userGuid) {
+        return userDetailsRepository.findAuthenticationDetailsByUserGuid(userGuid);
+    }
+
+    @Override
+    public boolean hasIdentificationNumber(final String userGuid) {
+        return userDetailsRepository.existsByUserGuidWithIdentificationNumber(userGuid);
+    }
+
     @Override
     public Optional<UserDetails> findByPhoneNumber(final String phoneNumber) {
         return decodeDetails(userDetailsRepository.findByPhoneNumber(phoneNumber));
     }
 
     @Override
-    public Optional<UserDetails> findByPhoneNumberAndValidPin(final String phoneNumber,
-                                                              final String pin,
-                                                              final LocalDateTime time) {
-        return decodeDetails(userDetailsRepository
-                .findByPhoneNumberAndValidPin(phoneNumber, pin, time));
+    public Optional<Long> findIdByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepository.findIdByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepository.findAuthenticationDetailsByPhoneNumber(phoneNumber);
     }
 
     @Override
@@ -68,7 +79,17 @@ public class NoEncryptionUserDetailsRepositoryFacade implements UserDetailsRepos
     }
 
     @Override
-    public Set<String> findAllPushTokensByUserGuid(final Set<String> userGuids, final boolean reverse) {
-        return userDetailsRepository.findAllPushTokensByUserGuids(userGuids, reverse);
+    public boolean updateTokenDetails(final String userGuid, final String tokenSecret,
+                                      final String refreshTokenHash) {
+        return userDetailsRepository.updateTokenDetails(userGuid, tokenSecret, refreshTokenHash) > 0;
+    }
+
+    @Override
+    public boolean updatePushToken(final String userGuid, final String pushToken) {
+        if (userDetailsRepository.updatePushToken(userGuid, pushToken) == 0) {
+            return false;
+        }
+        userDetailsRepository.clearPushTokenOfOtherUsers(userGuid, pushToken);
+        return true;
     }
 }
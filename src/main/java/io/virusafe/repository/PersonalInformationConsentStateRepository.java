@@ -0,0 +1,38 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.entity.PersonalInformationConsentState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PersonalInformationConsentStateRepository
+        extends JpaRepository<PersonalInformationConsentState, String> {
+
+    /**
+     * Insert or update the current consent of a user in a single statement, so that concurrent first-time consent
+     * changes for the same user don't fail on the primary key. A change older than the stored one is ignored.
+     * Assignments are evaluated in order, so changed_on is still the stored time when action is set.
+     *
+     * @param userGuid  the user GUID
+     * @param action    the name of the latest audit action
+     * @param changedOn the time of the latest audit change
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO personal_information_consent_state (user_guid, version, action, changed_on) " +
+            "VALUES (:userGuid, 0, :action, :changedOn) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "version = COALESCE(version, 0) + 1, " +
+            "action = IF(changed_on IS NULL OR changed_on <= VALUES(changed_on), VALUES(action), action), " +
+            "changed_on = GREATEST(COALESCE(changed_on, VALUES(changed_on)), VALUES(changed_on))",
+            nativeQuery = true)
+    void upsertConsentState(@Param("userGuid") String userGuid,
+                            @Param("action") String action,
+                            @Param("changedOn") LocalDateTime changedOn);
+}
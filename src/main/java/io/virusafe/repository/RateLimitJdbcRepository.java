@@ -0,0 +1,132 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.command.RateLimitBucketUpdateCommand;
+import io.virusafe.domain.entity.RateLimitType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access to the rate_limits table, for statements that can't be expressed through JPA.
+ */
+@Repository
+public class RateLimitJdbcRepository {
+
+    private static final int INSERTED_ROW = 1;
+    private static final long NEW_BUCKET_COUNT = 1L;
+
+    // Rolls over or increments the bucket in a single statement. The new bucket count is passed through
+    // LAST_INSERT_ID(expr) so that it's returned to the client as the generated key of the statement.
+    // Assignments are evaluated in order, so last_update_time is still the old bucket end when bucket_count is set.
+    private static final String UPSERT_BUCKET = "INSERT INTO rate_limits "
+            + "(version, user_details_id, type, last_update_time, bucket_count) VALUES (0, ?, ?, ?, 1) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "version = COALESCE(version, 0) + 1, "
+            + "bucket_count = LAST_INSERT_ID(IF(last_update_time IS NULL OR last_update_time < ?, 1, "
+            + "LEAST(COALESCE(bucket_count, 0) + 1, ? + 1))), "
+            + "last_update_time = IF(last_update_time IS NULL OR last_update_time < ?, "
+            + "VALUES(last_update_time), last_update_time)";
+
+    private static final String WRITE_BUCKET = "INSERT INTO rate_limits "
+            + "(version, user_details_id, type, last_update_time, bucket_count) VALUES (0, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "version = COALESCE(version, 0) + 1, "
+            + "last_update_time = VALUES(last_update_time), "
+            + "bucket_count = VALUES(bucket_count)";
+
+    private static final String SELECT_BUCKET_END = "SELECT last_update_time FROM rate_limits "
+            + "WHERE user_details_id = ? AND type = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PreparedStatementCreatorFactory upsertBucketFactory;
+
+    /**
+     * Construct rate limit JDBC repository.
+     *
+     * @param jdbcTemplate the JdbcTemplate to execute statements with
+     */
+    @Autowired
+    public RateLimitJdbcRepository(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertBucketFactory = new PreparedStatementCreatorFactory(UPSERT_BUCKET,
+                Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP);
+        this.upsertBucketFactory.setReturnGeneratedKeys(true);
+    }
+
+    /**
+     * Atomically count a request against the bucket for a given user and type, starting a new bucket if the
+     * existing one has expired. The count is capped at one above the limit, so that rejected requests keep
+     * reporting an exceeded bucket without growing it further.
+     *
+     * @param userId          the user details id
+     * @param type            the rate limit type
+     * @param limit           the maximum number of requests allowed within a single bucket
+     * @param newBucketEnd    the bucket end to use if a new bucket is started
+     * @param calculationTime the time of the request
+     * @return the bucket count after the request has been counted
+     */
+    public long upsertBucket(final Long userId, final RateLimitType type, final long limit,
+                             final LocalDateTime newBucketEnd, final LocalDateTime calculationTime) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        Timestamp calculationTimestamp = Timestamp.valueOf(calculationTime);
+        int affectedRows = jdbcTemplate.update(upsertBucketFactory.newPreparedStatementCreator(List.of(
+                userId, type.name(), Timestamp.valueOf(newBucketEnd), calculationTimestamp, limit,
+                calculationTimestamp)), keyHolder);
+        // A newly inserted row always starts with a single request and reports its id as the generated key.
+        if (affectedRows == INSERTED_ROW) {
+            return NEW_BUCKET_COUNT;
+        }
+        return firstKey(keyHolder);
+    }
+
+    /**
+     * Find the current bucket end for a given user and type.
+     *
+     * @param userId the user details id
+     * @param type   the rate limit type
+     * @return the bucket end, if a bucket exists
+     */
+    public Optional<LocalDateTime> findBucketEnd(final Long userId, final RateLimitType type) {
+        return jdbcTemplate.query(SELECT_BUCKET_END,
+                (resultSet, rowNum) -> resultSet.getTimestamp(1), userId, type.name())
+                .stream()
+                .filter(Objects::nonNull)
+                .map(Timestamp::toLocalDateTime)
+                .findFirst();
+    }
+
+    /**
+     * Write the given bucket states, overwriting any existing buckets for the same user and type.
+     * Statements are sent to the database in JDBC batches.
+     *
+     * @param commands  the bucket states to write
+     * @param batchSize the maximum number of statements per JDBC batch
+     */
+    public void writeBuckets(final List<RateLimitBucketUpdateCommand> commands, final int batchSize) {
+        jdbcTemplate.batchUpdate(WRITE_BUCKET, commands, batchSize, (statement, command) -> {
+            statement.setLong(1, command.getUserId());
+            statement.setString(2, command.getType().name());
+            statement.setTimestamp(3, Timestamp.valueOf(command.getBucketEnd()));
+            statement.setLong(4, command.getBucketCount());
+        });
+    }
+
+    private long firstKey(final KeyHolder keyHolder) {
+        List<Map<String, Object>> keyList = keyHolder.getKeyList();
+        if (keyList.isEmpty() || keyList.get(0).isEmpty()) {
+            throw new IllegalStateException("No bucket count returned for rate limit upsert");
+        }
+        return ((Number) keyList.get(0).values().iterator().next()).longValue();
+    }
+}
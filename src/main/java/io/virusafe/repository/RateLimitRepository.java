@@ -11,12 +11,12 @@ import java.util.Optional;
 public interface RateLimitRepository extends JpaRepository<RateLimit, Long> {
 
     /**
-     * Find rate limit by userId and type
+     * Find rate limit by user details id and type
      *
-     * @param userId
+     * @param userDetailsId
      * @param type
      * @return
      */
-    Optional<RateLimit> findByUserDetails_IdAndType(Long userId, RateLimitType type);
+    Optional<RateLimit> findByUserDetailsIdAndType(Long userDetailsId, RateLimitType type);
 
 }
@@ -0,0 +1,90 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.entity.RegistrationPin;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RegistrationPinRepository extends JpaRepository<RegistrationPin, Long> {
+
+    String USER_DETAILS_ID = "userDetailsId";
+    String TIME = "time";
+
+    /**
+     * Check whether a user has a matching PIN, valid until at least a given time.
+     *
+     * @param userDetailsId the DB ID of the user to search PINs for
+     * @param pin           the PIN to search for
+     * @param validityTime  the validity time to check registration PINs against
+     * @return true if a matching valid PIN was found, false otherwise
+     */
+    @Query("SELECT CASE WHEN COUNT(rp) > 0 THEN true ELSE false END FROM RegistrationPin rp " +
+            "WHERE rp.userDetails.id = :userDetailsId " +
+            "AND rp.pin = :pin " +
+            "AND rp.validUntil >= :validityTime")
+    boolean existsValidPinByUserDetailsId(@Param(USER_DETAILS_ID) Long userDetailsId,
+                                          @Param("pin") String pin,
+                                          @Param("validityTime") LocalDateTime validityTime);
+
+    /**
+     * Find the IDs of a user's PINs which are still valid after a given time, latest expiring first.
+     *
+     * @param userDetailsId the DB ID of the user to search PINs for
+     * @param time          the time to check PIN validity against
+     * @return the IDs of all active PINs, ordered by validity descending
+     */
+    @Query("SELECT rp.id FROM RegistrationPin rp " +
+            "WHERE rp.userDetails.id = :userDetailsId AND rp.validUntil > :time " +
+            "ORDER BY rp.validUntil DESC")
+    List<Long> findActivePinIdsByUserDetailsId(@Param(USER_DETAILS_ID) Long userDetailsId,
+                                               @Param(TIME) LocalDateTime time);
+
+    /**
+     * Expire the given PINs at a given time, unless they have already expired before it.
+     *
+     * @param ids  the IDs of the PINs to expire
+     * @param time the time to expire the PINs at
+     * @return the number of expired PINs
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RegistrationPin rp SET rp.validUntil = :time, rp.version = COALESCE(rp.version, 0) + 1 " +
+            "WHERE rp.id IN (:ids) AND rp.validUntil > :time")
+    int expirePinsByIdIn(@Param("ids") List<Long> ids, @Param(TIME) LocalDateTime time);
+
+    /**
+     * Expire all of a user's PINs at a given time, unless they have already expired before it.
+     *
+     * @param userDetailsId the DB ID of the user to expire PINs for
+     * @param time          the time to expire the PINs at
+     * @return the number of expired PINs
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RegistrationPin rp SET rp.validUntil = :time, rp.version = COALESCE(rp.version, 0) + 1 " +
+            "WHERE rp.userDetails.id = :userDetailsId AND rp.validUntil > :time")
+    int expireActivePinsByUserDetailsId(@Param(USER_DETAILS_ID) Long userDetailsId,
+                                        @Param(TIME) LocalDateTime time);
+
+    /**
+     * Insert a new PIN for a user, without loading the user or any of their other PINs.
+     *
+     * @param userDetailsId the DB ID of the user the PIN is for
+     * @param pin           the PIN
+     * @param validUntil    the PIN's validity
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_registration_tokens (user_details_id, pin, valid_until, version) " +
+            "VALUES (:userDetailsId, :pin, :validUntil, 0)", nativeQuery = true)
+    void insertPin(@Param(USER_DETAILS_ID) Long userDetailsId,
+                   @Param("pin") String pin,
+                   @Param("validUntil") LocalDateTime validUntil);
+}
@@ -0,0 +1,143 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * UserDetailsRepositoryFacade decorator keeping a request-scoped UserDetailsIdentityMap
+ * in front of another facade.
+ * Within a web request each user is read and decrypted at most once, however many filters, advices
+ * and services look them up. Outside of web requests, all calls go straight to the decorated facade.
+ */
+public class RequestScopedUserDetailsRepositoryFacade implements UserDetailsRepositoryFacade {
+
+    public static final String IDENTITY_MAP_ATTRIBUTE =
+            RequestScopedUserDetailsRepositoryFacade.class.getName() + ".IDENTITY_MAP";
+
+    private final UserDetailsRepositoryFacade userDetailsRepositoryFacade;
+
+    /**
+     * Construct a new RequestScopedUserDetailsRepositoryFacade, decorating the provided facade.
+     *
+     * @param userDetailsRepositoryFacade the UserDetailsRepositoryFacade to load users through
+     */
+    public RequestScopedUserDetailsRepositoryFacade(final UserDetailsRepositoryFacade userDetailsRepositoryFacade) {
+        this.userDetailsRepositoryFacade = userDetailsRepositoryFacade;
+    }
+
+    @Override
+    public Optional<UserDetails> findByUserGuid(final String userGuid) {
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.isNull(identityMap)) {
+            return userDetailsRepositoryFacade.findByUserGuid(userGuid);
+        }
+        return identityMap.findByUserGuid(userGuid, userDetailsRepositoryFacade::findByUserGuid);
+    }
+
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(final String userGuid) {
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.isNull(identityMap)) {
+            return userDetailsRepositoryFacade.findAuthenticationDetailsByUserGuid(userGuid);
+        }
+        return identityMap.findAuthenticationDetailsByUserGuid(userGuid,
+                userDetailsRepositoryFacade::findAuthenticationDetailsByUserGuid);
+    }
+
+    @Override
+    public boolean hasIdentificationNumber(final String userGuid) {
+        // Answer from an already loaded user if possible, without loading one just for this check.
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.nonNull(identityMap)) {
+            Optional<UserDetails> loadedUser = identityMap.getLoadedByUserGuid(userGuid);
+            if (loadedUser.isPresent()) {
+                return Objects.nonNull(loadedUser.get().getIdentificationNumber());
+            }
+        }
+        return userDetailsRepositoryFacade.hasIdentificationNumber(userGuid);
+    }
+
+    @Override
+    public Optional<UserDetails> findByPhoneNumber(final String phoneNumber) {
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.isNull(identityMap)) {
+            return userDetailsRepositoryFacade.findByPhoneNumber(phoneNumber);
+        }
+        return identityMap.findByPhoneNumber(phoneNumber, userDetailsRepositoryFacade::findByPhoneNumber);
+    }
+
+    @Override
+    public Optional<Long> findIdByPhoneNumber(final String phoneNumber) {
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.isNull(identityMap)) {
+            return userDetailsRepositoryFacade.findIdByPhoneNumber(phoneNumber);
+        }
+        return identityMap.findIdByPhoneNumber(phoneNumber, userDetailsRepositoryFacade::findIdByPhoneNumber);
+    }
+
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepositoryFacade.findAuthenticationDetailsByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public Optional<UserDetails> findByRefreshToken(final String refreshTokenHash) {
+        // Refresh tokens change on every use, so they aren't worth keying by, but the user they resolve to is.
+        Optional<UserDetails> userDetails = userDetailsRepositoryFacade.findByRefreshToken(refreshTokenHash);
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.nonNull(identityMap)) {
+            userDetails.ifPresent(identityMap::register);
+        }
+        return userDetails;
+    }
+
+    @Override
+    public void save(final UserDetails userDetails) {
+        userDetailsRepositoryFacade.save(userDetails);
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.nonNull(identityMap)) {
+            identityMap.evict(userDetails);
+        }
+    }
+
+    @Override
+    public boolean updateTokenDetails(final String userGuid, final String tokenSecret,
+                                      final String refreshTokenHash) {
+        boolean updated = userDetailsRepositoryFacade.updateTokenDetails(userGuid, tokenSecret, refreshTokenHash);
+        evictByUserGuid(userGuid);
+        return updated;
+    }
+
+    @Override
+    public boolean updatePushToken(final String userGuid, final String pushToken) {
+        boolean updated = userDetailsRepositoryFacade.updatePushToken(userGuid, pushToken);
+        evictByUserGuid(userGuid);
+        return updated;
+    }
+
+    private void evictByUserGuid(final String userGuid) {
+        UserDetailsIdentityMap identityMap = getIdentityMap();
+        if (Objects.nonNull(identityMap)) {
+            identityMap.evictByUserGuid(userGuid);
+        }
+    }
+
+    private UserDetailsIdentityMap getIdentityMap() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (Objects.isNull(requestAttributes)) {
+            return null;
+        }
+        UserDetailsIdentityMap identityMap = (UserDetailsIdentityMap) requestAttributes
+                .getAttribute(IDENTITY_MAP_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (Objects.isNull(identityMap)) {
+            identityMap = new UserDetailsIdentityMap();
+            requestAttributes.setAttribute(IDENTITY_MAP_ATTRIBUTE, identityMap, RequestAttributes.SCOPE_REQUEST);
+        }
+        return identityMap;
+    }
+}
@@ -0,0 +1,145 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Identity map of the users looked up during a single request.
+ * Every user is registered under all of their keys, so that a user loaded by phone number
+ * is also found by GUID and vice versa. Negative lookups are remembered as well.
+ * Not thread-safe, as it's meant to be confined to the thread handling the request.
+ */
+@SuppressWarnings("PMD.UseConcurrentHashMap")
+public class UserDetailsIdentityMap {
+
+    private final Map<String, Optional<UserDetails>> usersByGuid = new HashMap<>();
+    private final Map<String, Optional<UserDetails>> usersByPhoneNumber = new HashMap<>();
+    private final Map<String, Optional<Long>> idsByPhoneNumber = new HashMap<>();
+    private final Map<String, Optional<UserAuthenticationDetails>> authenticationDetailsByGuid = new HashMap<>();
+
+    /**
+     * Find a user by GUID, loading them only if they haven't been looked up yet.
+     *
+     * @param userGuid the user GUID to search for
+     * @param loader   the function to load the user with, if needed
+     * @return Optional containing either the found UserDetails or empty if nothing was found
+     */
+    public Optional<UserDetails> findByUserGuid(final String userGuid,
+                                                final Function<String, Optional<UserDetails>> loader) {
+        Optional<UserDetails> userDetails = usersByGuid.get(userGuid);
+        if (Objects.isNull(userDetails)) {
+            userDetails = loader.apply(userGuid);
+            userDetails.ifPresentOrElse(this::register, () -> usersByGuid.put(userGuid, Optional.empty()));
+        }
+        return userDetails;
+    }
+
+    /**
+     * Find a user by phone number, loading them only if they haven't been looked up yet.
+     *
+     * @param phoneNumber the phone number to search for
+     * @param loader      the function to load the user with, if needed
+     * @return Optional containing either the found UserDetails or empty if nothing was found
+     */
+    public Optional<UserDetails> findByPhoneNumber(final String phoneNumber,
+                                                   final Function<String, Optional<UserDetails>> loader) {
+        Optional<UserDetails> userDetails = usersByPhoneNumber.get(phoneNumber);
+        if (Objects.isNull(userDetails)) {
+            userDetails = loader.apply(phoneNumber);
+            userDetails.ifPresentOrElse(this::register, () -> usersByPhoneNumber.put(phoneNumber, Optional.empty()));
+        }
+        return userDetails;
+    }
+
+    /**
+     * Find a user's ID by phone number, loading it only if neither it nor the user have been looked up yet.
+     *
+     * @param phoneNumber the phone number to search for
+     * @param loader      the function to load the ID with, if needed
+     * @return Optional containing either the found user ID or empty if nothing was found
+     */
+    public Optional<Long> findIdByPhoneNumber(final String phoneNumber,
+                                              final Function<String, Optional<Long>> loader) {
+        Optional<Long> userId = idsByPhoneNumber.get(phoneNumber);
+        if (Objects.isNull(userId)) {
+            userId = loader.apply(phoneNumber);
+            idsByPhoneNumber.put(phoneNumber, userId);
+        }
+        return userId;
+    }
+
+    /**
+     * Find a user's authentication details by GUID, loading them only if they haven't been looked up yet.
+     *
+     * @param userGuid the user GUID to search for
+     * @param loader   the function to load the authentication details with, if needed
+     * @return Optional containing either the found UserAuthenticationDetails or empty if nothing was found
+     */
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(
+            final String userGuid, final Function<String, Optional<UserAuthenticationDetails>> loader) {
+        Optional<UserAuthenticationDetails> authenticationDetails = authenticationDetailsByGuid.get(userGuid);
+        if (Objects.isNull(authenticationDetails)) {
+            authenticationDetails = loader.apply(userGuid);
+            authenticationDetailsByGuid.put(userGuid, authenticationDetails);
+        }
+        return authenticationDetails;
+    }
+
+    /**
+     * Get a user by GUID, only if they have already been loaded.
+     *
+     * @param userGuid the user GUID to search for
+     * @return Optional containing either the loaded UserDetails or empty if they haven't been loaded
+     */
+    public Optional<UserDetails> getLoadedByUserGuid(final String userGuid) {
+        return usersByGuid.getOrDefault(userGuid, Optional.empty());
+    }
+
+    /**
+     * Register a user that has been loaded outside of the identity map under all of their keys.
+     *
+     * @param userDetails the loaded user
+     */
+    public void register(final UserDetails userDetails) {
+        usersByGuid.put(userDetails.getUserGuid(), Optional.of(userDetails));
+        usersByPhoneNumber.put(userDetails.getPhoneNumber(), Optional.of(userDetails));
+        idsByPhoneNumber.put(userDetails.getPhoneNumber(), Optional.ofNullable(userDetails.getId()));
+    }
+
+    /**
+     * Evict a user that has just been saved, so that their next lookup reads the saved state.
+     * The user's ID is kept, as neither it nor the phone number it's looked up by can change.
+     *
+     * @param userDetails the saved user
+     */
+    public void evict(final UserDetails userDetails) {
+        usersByGuid.remove(userDetails.getUserGuid());
+        usersByPhoneNumber.remove(userDetails.getPhoneNumber());
+        authenticationDetailsByGuid.remove(userDetails.getUserGuid());
+        if (Objects.nonNull(userDetails.getId())) {
+            idsByPhoneNumber.put(userDetails.getPhoneNumber(), Optional.of(userDetails.getId()));
+        } else {
+            idsByPhoneNumber.remove(userDetails.getPhoneNumber());
+        }
+    }
+
+    /**
+     * Evict a user that has just been updated without being loaded, so that their next lookup reads the updated
+     * state. The user's ID is kept, as neither it nor the phone number it's looked up by can change.
+     *
+     * @param userGuid the GUID of the updated user
+     */
+    public void evictByUserGuid(final String userGuid) {
+        Optional<UserDetails> userDetails = usersByGuid.remove(userGuid);
+        if (Objects.nonNull(userDetails)) {
+            userDetails.ifPresent(loadedUser -> usersByPhoneNumber.remove(loadedUser.getPhoneNumber()));
+        }
+        authenticationDetailsByGuid.remove(userGuid);
+    }
+}
@@ -0,0 +1,182 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.command.IdentificationNumberUpdateCommand;
+import io.virusafe.domain.projection.UserPushToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Plain JDBC access to the user_details table, for bulk maintenance that shouldn't go through the entity layer.
+ */
+@Repository
+public class UserDetailsJdbcRepository {
+
+    private static final long NO_USERS = 0L;
+
+    private static final String SELECT_IDENTIFICATION_NUMBERS = "SELECT id, identification_number FROM user_details "
+            + "WHERE id > ? AND identification_number IS NOT NULL ORDER BY id LIMIT ?";
+
+    private static final String SELECT_MAX_ID = "SELECT MAX(id) FROM user_details";
+
+    // Only users whose current consent is granted may receive push notifications.
+    private static final String SELECT_GRANTED_PUSH_TOKENS = "SELECT ud.id, ud.user_guid, ud.push_token "
+            + "FROM user_details ud "
+            + "JOIN personal_information_consent_state pics ON pics.user_guid = ud.user_guid "
+            + "WHERE pics.action = 'GRANTED' AND ud.push_token IS NOT NULL AND ud.push_token <> '' ";
+
+    private static final String SELECT_GRANTED_PUSH_TOKENS_BETWEEN = SELECT_GRANTED_PUSH_TOKENS
+            + "AND ud.id BETWEEN ? AND ? ORDER BY ud.id";
+
+    private static final String SELECT_GRANTED_PUSH_TOKENS_BY_IDS = SELECT_GRANTED_PUSH_TOKENS
+            + "AND ud.id IN (%s) ORDER BY ud.id";
+
+    private static final String SELECT_IDS_BY_USER_GUIDS = "SELECT id FROM user_details WHERE user_guid IN (%s)";
+
+    private static final RowMapper<UserPushToken> USER_PUSH_TOKEN_MAPPER = (resultSet, rowNum) ->
+            UserPushToken.builder()
+                    .userId(resultSet.getLong(1))
+                    .userGuid(resultSet.getString(2))
+                    .pushToken(resultSet.getString(3))
+                    .build();
+
+    // Only overwrites values that haven't changed since they were read, so a concurrent save always wins.
+    // The version is left untouched on purpose, so that live updates of the same user never fail on it.
+    private static final String UPDATE_IDENTIFICATION_NUMBER = "UPDATE user_details SET identification_number = ? "
+            + "WHERE id = ? AND identification_number = ?";
+
+    // Matches on the token itself, so a user that has registered a new token in the meantime keeps it.
+    private static final String CLEAR_PUSH_TOKEN = "UPDATE user_details SET push_token = NULL WHERE push_token = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Construct user details JDBC repository.
+     *
+     * @param jdbcTemplate the JdbcTemplate to execute statements with
+     */
+    @Autowired
+    public UserDetailsJdbcRepository(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find the next page of stored identification numbers, ordered by user id.
+     *
+     * @param afterId the id of the last user of the previous page, or 0 for the first page
+     * @param limit   the maximum number of users to return
+     * @return update commands holding the user id and the stored identification number
+     */
+    public List<IdentificationNumberUpdateCommand> findIdentificationNumbersAfter(final long afterId, final int limit) {
+        return jdbcTemplate.query(SELECT_IDENTIFICATION_NUMBERS,
+                (resultSet, rowNum) -> IdentificationNumberUpdateCommand.builder()
+                        .userId(resultSet.getLong(1))
+                        .previousIdentificationNumber(resultSet.getString(2))
+                        .build(),
+                afterId, limit);
+    }
+
+    /**
+     * Find the push tokens of users in a range of ids that have granted consent, ordered by user id.
+     *
+     * @param fromId the lowest user id to return
+     * @param toId   the highest user id to return
+     * @return the push tokens with their user's id and GUID
+     */
+    public List<UserPushToken> findGrantedPushTokensBetween(final long fromId, final long toId) {
+        return jdbcTemplate.query(SELECT_GRANTED_PUSH_TOKENS_BETWEEN, USER_PUSH_TOKEN_MAPPER, fromId, toId);
+    }
+
+    /**
+     * Find the push tokens of the given users that have granted consent, ordered by user id.
+     * Every id is bound as a separate parameter, so callers should pass them in bounded slices.
+     *
+     * @param userIds the ids of the users to search for
+     * @return the push tokens with their user's id and GUID
+     */
+    public List<UserPushToken> findGrantedPushTokensByIds(final List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(String.format(SELECT_GRANTED_PUSH_TOKENS_BY_IDS, placeholders(userIds.size())),
+                USER_PUSH_TOKEN_MAPPER, userIds.toArray());
+    }
+
+    /**
+     * Find the ids of the users with the given GUIDs. GUIDs without a user are skipped.
+     * Every GUID is bound as a separate parameter, so callers should pass them in bounded slices.
+     *
+     * @param userGuids the GUIDs of the users to search for
+     * @return the ids of the users found
+     */
+    public List<Long> findIdsByUserGuids(final List<String> userGuids) {
+        if (userGuids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.queryForList(String.format(SELECT_IDS_BY_USER_GUIDS, placeholders(userGuids.size())),
+                Long.class, userGuids.toArray());
+    }
+
+    /**
+     * Find the highest user id currently in use.
+     *
+     * @return the highest user id, or 0 if there are no users
+     */
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject(SELECT_MAX_ID, Long.class);
+        return Objects.isNull(maxId) ? NO_USERS : maxId;
+    }
+
+    /**
+     * Replace stored identification numbers, unless they have been changed since they were read.
+     * Statements are sent to the database in JDBC batches.
+     *
+     * @param commands  the identification numbers to write
+     * @param batchSize the maximum number of statements per JDBC batch
+     * @return the number of updated users
+     */
+    public int updateIdentificationNumbers(final List<IdentificationNumberUpdateCommand> commands,
+                                           final int batchSize) {
+        int[][] updateCounts = jdbcTemplate.batchUpdate(UPDATE_IDENTIFICATION_NUMBER, commands, batchSize,
+                (statement, command) -> {
+                    statement.setString(1, command.getIdentificationNumber());
+                    statement.setLong(2, command.getUserId());
+                    statement.setString(3, command.getPreviousIdentificationNumber());
+                });
+        return countUpdated(updateCounts);
+    }
+
+    /**
+     * Clear push tokens that can no longer receive notifications, from every user still holding them.
+     * Statements are sent to the database in JDBC batches.
+     *
+     * @param pushTokens the push tokens to clear
+     * @param batchSize  the maximum number of statements per JDBC batch
+     * @return the number of users whose push token was cleared
+     */
+    public int clearPushTokens(final Collection<String> pushTokens, final int batchSize) {
+        int[][] updateCounts = jdbcTemplate.batchUpdate(CLEAR_PUSH_TOKEN, pushTokens, batchSize,
+                (statement, pushToken) -> statement.setString(1, pushToken));
+        return countUpdated(updateCounts);
+    }
+
+    @SuppressWarnings("PMD.UseVarargs")
+    private static int countUpdated(final int[][] updateCounts) {
+        return Arrays.stream(updateCounts)
+                .flatMapToInt(Arrays::stream)
+                .map(count -> count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0))
+                .sum();
+    }
+
+    private static String placeholders(final int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
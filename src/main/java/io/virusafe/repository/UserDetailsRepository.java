@@ -1,25 +1,20 @@
 package io.virusafe.repository;
 
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Set;
 
 @Repository
 public interface UserDetailsRepository extends JpaRepository<UserDetails, Long>, JpaSpecificationExecutor<UserDetails> {
 
-    String USER_GUIDS = "userGuids";
-    String GRANTED_CHECK = " and 'GRANTED' = (select pica.action from personal_information_consent_audit pica " +
-            "                   where pica.user_guid=ud.user_guid " +
-            "                   ORDER BY pica.changed_on DESC " +
-            "                       LIMIT 1)";
-
     /**
      * Find UserDetails by user GUID, returning empty Optional if not found.
      *
@@ -28,6 +23,39 @@ public interface UserDetailsRepository extends JpaRepository<UserDetails, Long>,
      */
     Optional<UserDetails> findByUserGuid(String userGuid);
 
+    /**
+     * Find the details needed to authenticate a user by user GUID, without loading the UserDetails entity.
+     *
+     * @param userGuid the user GUID to search for
+     * @return Optional containing either the found UserAuthenticationDetails or empty if nothing was found
+     */
+    @Query("SELECT ud.id AS id, ud.userGuid AS userGuid, ud.phoneNumber AS phoneNumber, " +
+            "ud.tokenSecret AS tokenSecret, ud.createdDate AS createdDate " +
+            "FROM UserDetails ud WHERE ud.userGuid = :userGuid")
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(@Param("userGuid") String userGuid);
+
+    /**
+     * Find the details needed to authenticate a user by phone number, without loading the UserDetails entity.
+     *
+     * @param phoneNumber the phone number to search for
+     * @return Optional containing either the found UserAuthenticationDetails or empty if nothing was found
+     */
+    @Query("SELECT ud.id AS id, ud.userGuid AS userGuid, ud.phoneNumber AS phoneNumber, " +
+            "ud.tokenSecret AS tokenSecret, ud.createdDate AS createdDate " +
+            "FROM UserDetails ud WHERE ud.phoneNumber = :phoneNumber")
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(
+            @Param("phoneNumber") String phoneNumber);
+
+    /**
+     * Check whether the user with a given GUID has an identification number, without decrypting it.
+     *
+     * @param userGuid the user GUID to search for
+     * @return true if the user exists and has an identification number, false otherwise
+     */
+    @Query("SELECT CASE WHEN COUNT(ud) > 0 THEN true ELSE false END FROM UserDetails ud " +
+            "WHERE ud.userGuid = :userGuid AND ud.identificationNumber IS NOT NULL")
+    boolean existsByUserGuidWithIdentificationNumber(@Param("userGuid") String userGuid);
+
     /**
      * Find UserDetails by phone number, returning empty Optional if not found.
      *
@@ -37,25 +65,17 @@ public interface UserDetailsRepository extends JpaRepository<UserDetails, Long>,
     Optional<UserDetails> findByPhoneNumber(String phoneNumber);
 
     /**
-     * Find UserDetails by phone number, registration PIN and PIN validity check time.
-     * Only returns UserDetails if the registration PIN is valid until after the provided validity check time.
+     * Find the id of the user with a given phone number, without loading the UserDetails entity.
      *
-     * @param phoneNumber  the phone number to search for
-     * @param pin          the PIN to search for
-     * @param validityTime the validity time to check registration PINs against
-     * @return Optional containing either the found UserDetails or empty if nothing was found
+     * @param phoneNumber the phone number to search for
+     * @return Optional containing either the found user id or empty if nothing was found
      */
-    @Query("SELECT ud FROM UserDetails ud " +
-            "INNER JOIN FETCH ud.registrationPins registrationPin " +
-            "WHERE ud.phoneNumber = :phoneNumber " +
-            "AND registrationPin.pin = :pin " +
-            "AND registrationPin.validUntil >= :validityTime")
-    Optional<UserDetails> findByPhoneNumberAndValidPin(@Param("phoneNumber") String phoneNumber,
-                                                       @Param("pin") String pin,
-                                                       @Param("validityTime") LocalDateTime validityTime);
+    @Query("SELECT ud.id FROM UserDetails ud WHERE ud.phoneNumber = :phoneNumber")
+    Optional<Long> findIdByPhoneNumber(@Param("phoneNumber") String phoneNumber);
 
     /**
      * Find UserDetails by refresh token, returning empty Optional if not found.
+     * The hash is stored in a fixed-width binary column with a unique index, so this is a point lookup.
      *
      * @param refreshTokenHash the refresh token to search for
      * @return Optional containing either the found UserDetails or empty if nothing was found
@@ -63,43 +83,48 @@ public interface UserDetailsRepository extends JpaRepository<UserDetails, Long>,
     Optional<UserDetails> findByRefreshToken(String refreshTokenHash);
 
     /**
-     * Find push tokens by userGuids.
+     * Update a user's token secret and refresh token hash, without loading or rewriting the rest of the user.
+     * The version is incremented like on any other write of the user.
      *
-     * @param userGuids userGuids to search for
-     * @param notIn     if true it will invert logic
+     * @param userGuid         the GUID of the user to update
+     * @param tokenSecret      the new token secret
+     * @param refreshTokenHash the new refresh token hash
+     * @return the number of updated users
      */
-    default Set<String> findAllPushTokensByUserGuids(final Set<String> userGuids, final boolean notIn) {
-        if (!notIn) {
-            return findAllPushTokensByUserGuidIn(userGuids);
-        }
-        if (!userGuids.isEmpty()) {
-            return findAllPushTokensByUserGuidNotIn(userGuids);
-        }
-        return findAllPushTokens();
-    }
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserDetails ud SET ud.tokenSecret = :tokenSecret, ud.refreshToken = :refreshTokenHash, " +
+            "ud.version = COALESCE(ud.version, 0) + 1 WHERE ud.userGuid = :userGuid")
+    int updateTokenDetails(@Param("userGuid") String userGuid,
+                           @Param("tokenSecret") String tokenSecret,
+                           @Param("refreshTokenHash") String refreshTokenHash);
 
     /**
-     * Find push tokens by userGuids.
+     * Update a user's push token, without loading or rewriting the rest of the user.
+     * The version is incremented like on any other write of the user.
      *
-     * @param userGuids userGuids to search for
+     * @param userGuid  the GUID of the user to update
+     * @param pushToken the new push token
+     * @return the number of updated users
      */
-    @Query(value = "select ud.push_token from user_details ud where ud.push_token is not null " +
-            " and ud.user_guid in (:userGuids) " + GRANTED_CHECK, nativeQuery = true)
-    Set<String> findAllPushTokensByUserGuidIn(@Param(USER_GUIDS) Set<String> userGuids);
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserDetails ud SET ud.pushToken = :pushToken, ud.version = COALESCE(ud.version, 0) + 1 " +
+            "WHERE ud.userGuid = :userGuid")
+    int updatePushToken(@Param("userGuid") String userGuid, @Param("pushToken") String pushToken);
 
     /**
-     * Find reversed results for push tokens by userGuids.
+     * Clear a push token from every user but the given one, so that a device re-registered under another user is
+     * only sent notifications once. The lookup by push token is served by user_details_push_token_indx.
+     * The version is incremented like on any other write of the user.
      *
-     * @param userGuids userGuids to search for
-     */
-    @Query(value = "select ud.push_token from user_details ud where ud.push_token is not null " +
-            " and ud.user_guid not in (:userGuids) " + GRANTED_CHECK, nativeQuery = true)
-    Set<String> findAllPushTokensByUserGuidNotIn(@Param(USER_GUIDS) Set<String> userGuids);
-
-    /**
-     * Find all push tokens.
+     * @param userGuid  the GUID of the user keeping the push token
+     * @param pushToken the push token to clear
+     * @return the number of updated users
      */
-    @Query(value = "select ud.push_token from user_details ud where ud.push_token is not null " +
-            GRANTED_CHECK, nativeQuery = true)
-    Set<String> findAllPushTokens();
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserDetails ud SET ud.pushToken = NULL, ud.version = COALESCE(ud.version, 0) + 1 " +
+            "WHERE ud.pushToken = :pushToken AND ud.userGuid <> :userGuid")
+    int clearPushTokenOfOtherUsers(@Param("userGuid") String userGuid, @Param("pushToken") String pushToken);
 }
@@ -1,10 +1,9 @@
 package io.virusafe.repository;
 
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Set;
 
 public interface UserDetailsRepositoryFacade {
 
@@ -16,6 +15,23 @@ public interface UserDetailsRepositoryFacade {
      */
     Optional<UserDetails> findByUserGuid(String userGuid);
 
+    /**
+     * Find the details needed to authenticate a user by user GUID, returning empty Optional if not found.
+     * Nothing is decrypted, as none of the returned details are encrypted.
+     *
+     * @param userGuid the user GUID to search for
+     * @return Optional containing either the found UserAuthenticationDetails or empty if nothing was found
+     */
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(String userGuid);
+
+    /**
+     * Check whether the user with a given GUID has an identification number, without decrypting it.
+     *
+     * @param userGuid the user GUID to search for
+     * @return true if the user exists and has an identification number, false otherwise
+     */
+    boolean hasIdentificationNumber(String userGuid);
+
     /**
      * Find UserDetails by phone number, returning empty Optional if not found.
      *
@@ -25,15 +41,21 @@ public interface UserDetailsRepositoryFacade {
     Optional<UserDetails> findByPhoneNumber(String phoneNumber);
 
     /**
-     * Find UserDetails by phone number, registration PIN and PIN validity check time.
-     * Only returns UserDetails if the registration PIN is valid until after the provided validity check time.
+     * Find the id of the user with a given phone number, returning empty Optional if not found.
      *
      * @param phoneNumber the phone number to search for
-     * @param pin         the PIN to search for
-     * @param time        the validity time to check registration PINs against
-     * @return Optional containing either the found UserDetails or empty if nothing was found
+     * @return Optional containing either the found user id or empty if nothing was found
+     */
+    Optional<Long> findIdByPhoneNumber(String phoneNumber);
+
+    /**
+     * Find the details needed to authenticate a user by phone number, returning empty Optional if not found.
+     * Nothing is decrypted, as none of the returned details are encrypted.
+     *
+     * @param phoneNumber the phone number to search for
+     * @return Optional containing either the found UserAuthenticationDetails or empty if nothing was found
      */
-    Optional<UserDetails> findByPhoneNumberAndValidPin(String phoneNumber, String pin, LocalDateTime time);
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(String phoneNumber);
 
     /**
      * Find UserDetails by refresh token, returning empty Optional if not found.
@@ -51,9 +73,22 @@ public interface UserDetailsRepositoryFacade {
     void save(UserDetails userDetails);
 
     /**
-     * Find push tokens by userGuids.
+     * Update only a user's token secret and refresh token hash, without loading the user.
+     *
+     * @param userGuid         the GUID of the user to update
+     * @param tokenSecret      the new token secret
+     * @param refreshTokenHash the new refresh token hash
+     * @return true if the user was found and updated, false otherwise
+     */
+    boolean updateTokenDetails(String userGuid, String tokenSecret, String refreshTokenHash);
+
+    /**
+     * Update only a user's push token, without loading the user.
+     * The push token is cleared from any other user holding it, so every token belongs to at most one user.
      *
-     * @param userGuids userGuids to search for
+     * @param userGuid  the GUID of the user to update
+     * @param pushToken the new push token
+     * @return true if the user was found and updated, false otherwise
      */
-    Set<String> findAllPushTokensByUserGuid(Set<String> userGuids, final boolean reverse);
+    boolean updatePushToken(String userGuid, String pushToken);
 }
@@ -0,0 +1,48 @@
+package io.virusafe.security.advice;
+
+import io.virusafe.domain.dto.PhoneNumberRequest;
+import io.virusafe.service.ratelimit.throttle.RegistrationThrottleService;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Phone number throttle advice. Runs ahead of the other rate limit advices, so throttled requests
+ * don't reach the database.
+ */
+@Component
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PhoneNumberThrottleAdvice {
+
+    private final RegistrationThrottleService registrationThrottleService;
+
+    /**
+     * Construct phone number throttle advice using beans
+     *
+     * @param registrationThrottleService
+     */
+    @Autowired
+    public PhoneNumberThrottleAdvice(final RegistrationThrottleService registrationThrottleService) {
+        this.registrationThrottleService = registrationThrottleService;
+    }
+
+    /**
+     * Around advice over all methods annotated with PhoneNumberThrottle
+     *
+     * @param joinPoint
+     * @param phoneNumberRequest
+     * @return
+     * @throws Throwable
+     */
+    @Around("@annotation(io.virusafe.security.advice.PhoneNumberThrottle) && args(phoneNumberRequest,..)")
+    public Object phoneNumberThrottle(final ProceedingJoinPoint joinPoint, final PhoneNumberRequest phoneNumberRequest)
+            throws Throwable {
+        registrationThrottleService.registerPhoneNumberRequest(phoneNumberRequest.getPhoneNumber());
+        return joinPoint.proceed();
+    }
+}
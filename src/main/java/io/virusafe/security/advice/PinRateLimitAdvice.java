@@ -3,8 +3,6 @@ package io.virusafe.security.advice;
 import io.virusafe.configuration.RateLimitConfiguration;
 import io.virusafe.domain.dto.PinGenerationDTO;
 import io.virusafe.domain.entity.RateLimitType;
-import io.virusafe.domain.entity.UserDetails;
-import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculator;
 import io.virusafe.security.principal.UserPrincipal;
 import io.virusafe.service.ratelimit.RateLimitService;
 import io.virusafe.service.userdetails.UserDetailsService;
@@ -14,7 +12,6 @@ import org.aspectj.lang.annotation.Aspect;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.Clock;
 import java.util.Optional;
 
 /**
@@ -24,22 +21,21 @@ import java.util.Optional;
 @Aspect
 public class PinRateLimitAdvice extends RateLimitAdvice {
 
+    private final UserDetailsService userDetailsService;
+
     /**
      * Construct pin rate limit advice using beans
      *
      * @param rateLimitConfiguration
      * @param userDetailsService
      * @param rateLimitService
-     * @param systemClock
-     * @param rateLimitBucketCalculator
      */
     @Autowired
     public PinRateLimitAdvice(final RateLimitConfiguration rateLimitConfiguration,
                               final UserDetailsService userDetailsService,
-                              final RateLimitService rateLimitService,
-                              final Clock systemClock,
-                              final RateLimitBucketCalculator rateLimitBucketCalculator) {
-        super(rateLimitConfiguration, userDetailsService, rateLimitService, systemClock, rateLimitBucketCalculator);
+                              final RateLimitService rateLimitService) {
+        super(rateLimitConfiguration, rateLimitService);
+        this.userDetailsService = userDetailsService;
     }
 
     /**
@@ -54,16 +50,15 @@ public class PinRateLimitAdvice extends RateLimitAdvice {
     public Object pinRateLimit(final ProceedingJoinPoint joinPoint, final PinGenerationDTO pinGenerationDTO)
             throws Throwable {
 
-        Optional<UserDetails> userDetails = this.userDetailsService
-                .findByPhoneNumber(pinGenerationDTO.getPhoneNumber());
+        Optional<Long> userId = this.userDetailsService
+                .findIdByPhoneNumber(pinGenerationDTO.getPhoneNumber());
 
         UserPrincipal userPrincipal = null;
         // Populate userPrincipal from the DB if this user is already registered so that we can apply rate limit.
-        if (userDetails.isPresent()) {
+        if (userId.isPresent()) {
             userPrincipal = UserPrincipal.builder()
-                    .userId(userDetails.get().getId())
-                    .userGuid(userDetails.get().getUserGuid())
-                    .phoneNumber(userDetails.get().getPhoneNumber())
+                    .userId(userId.get())
+                    .phoneNumber(pinGenerationDTO.getPhoneNumber())
                     .build();
         }
 
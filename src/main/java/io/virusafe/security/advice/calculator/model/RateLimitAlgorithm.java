@@ -0,0 +1,19 @@
+package io.virusafe.security.advice.calculator.model;
+
+/**
+ * Algorithms available for counting requests against a rate limit.
+ */
+public enum RateLimitAlgorithm {
+    /**
+     * Fixed time windows, started by the first request after the previous window expires.
+     */
+    FIXED_WINDOW,
+    /**
+     * Sliding window counter, weighing the previous window's count by its overlap with the sliding window.
+     */
+    SLIDING_WINDOW,
+    /**
+     * Generic cell rate algorithm, spacing requests evenly while allowing a burst of up to the limit.
+     */
+    GCRA
+}
@@ -0,0 +1,33 @@
+package io.virusafe.security.advice.calculator.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Mutable, primitive state of a single rate limit bucket.
+ * Instances are not thread-safe, so callers are expected to guard them against concurrent access.
+ * How the fields are interpreted depends on the {@link RateLimitAlgorithm} applied to the bucket; the previous bucket
+ * count is only used by sliding windows and is not persisted by the database backed stores, which therefore refuse
+ * sliding windows at startup.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RateLimitBucket {
+
+    private long bucketEnd;
+    private long bucketCount;
+    private long previousBucketCount;
+
+    /**
+     * Construct a rate limit bucket with existing state.
+     *
+     * @param bucketEnd   the bucket's upper bound, in epoch milliseconds
+     * @param bucketCount the number of requests counted in the bucket
+     */
+    public RateLimitBucket(final long bucketEnd, final long bucketCount) {
+        this.bucketEnd = bucketEnd;
+        this.bucketCount = bucketCount;
+    }
+}
@@ -0,0 +1,47 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generic cell rate algorithm (GCRA) rate limit calculator. Each request is assigned an emission interval of the
+ * bucket size divided by the limit, and the bucket end holds the theoretical arrival time of the next request.
+ * Requests are allowed as long as the theoretical arrival time stays within one bucket size of the calculation time,
+ * which allows bursts of up to the limit, but spreads further requests evenly instead of resetting at window edges.
+ * The bucket count is not used.
+ */
+@Service
+public class GcraRateLimitBucketCalculator implements RateLimitBucketCalculator {
+
+    private static final long MIN_INTERVAL = 1L;
+    private static final long MIN_TIMEOUT = 1L;
+
+    @Override
+    public long calculate(final RateLimitBucket bucket, final long calculationTime, final long limit,
+                          final long bucketSize) {
+        // Without any allowed requests there is no emission interval, so reject the request for a whole bucket.
+        if (limit <= 0) {
+            return Math.max(MIN_TIMEOUT, bucketSize);
+        }
+        long emissionInterval = Math.max(MIN_INTERVAL, bucketSize / limit);
+        long theoreticalArrivalTime = Math.max(bucket.getBucketEnd(), calculationTime) + emissionInterval;
+        long allowedAt = theoreticalArrivalTime - bucketSize;
+        if (allowedAt > calculationTime) {
+            return Math.max(MIN_TIMEOUT, allowedAt - calculationTime);
+        }
+        bucket.setBucketEnd(theoreticalArrivalTime);
+        return 0L;
+    }
+
+    @Override
+    public boolean isExpired(final RateLimitBucket bucket, final long calculationTime, final long bucketSize) {
+        // A theoretical arrival time in the past allows a full burst, same as an empty bucket.
+        return bucket.getBucketEnd() < calculationTime;
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.GCRA;
+    }
+}
@@ -1,9 +1,7 @@
 package io.virusafe.security.advice.calculator.service;
 
-import io.virusafe.domain.entity.RateLimit;
-
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
 
 /**
  * Rate limit calculator
@@ -11,17 +9,33 @@ import java.time.temporal.ChronoUnit;
 public interface RateLimitBucketCalculator {
 
     /**
-     * For a given time, calculate whether it should be added to an existing bucket or if a new time bucket
-     * should be created.
+     * For a given time, calculate whether the request should be added to the existing bucket or if a new time bucket
+     * should be created, and count the request if it's within the limit.
+     * The bucket is updated in place; it is left untouched when the request is over the limit.
+     *
+     * @param bucket          the bucket state to update
+     * @param calculationTime the time to check, in epoch milliseconds
+     * @param limit           the maximum number of requests allowed within a single bucket
+     * @param bucketSize      the bucket size to use when initializing time buckets, in milliseconds
+     * @return 0 if the request was counted, otherwise the positive number of milliseconds until the bucket expires
+     */
+    long calculate(RateLimitBucket bucket, long calculationTime, long limit, long bucketSize);
+
+    /**
+     * Check whether a bucket no longer holds any state that could affect calculations from the given time onwards,
+     * so that it can be safely discarded.
+     *
+     * @param bucket          the bucket state to check
+     * @param calculationTime the time to check, in epoch milliseconds
+     * @param bucketSize      the bucket size used for the bucket, in milliseconds
+     * @return true if the bucket is expired
+     */
+    boolean isExpired(RateLimitBucket bucket, long calculationTime, long bucketSize);
+
+    /**
+     * Get the algorithm implemented by this calculator.
      *
-     * @param calculationTime  the time to check
-     * @param rateLimit        the rate limit
-     * @param bucketSize       the bucket size to use when initializing time buckets
-     * @param bucketChronoUnit the chrono unit to use when sizing new time buckets
-     * @return the calculated bucket's upper bound and request size.
+     * @return the rate limit algorithm
      */
-    RateLimit calculate(LocalDateTime calculationTime,
-                        RateLimit rateLimit,
-                        Long bucketSize,
-                        ChronoUnit bucketChronoUnit);
+    RateLimitAlgorithm getAlgorithm();
 }
@@ -1,40 +1,45 @@
 package io.virusafe.security.advice.calculator.service;
 
-import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.Objects;
-
 /**
- * Default rate limit calculator
+ * Default rate limit calculator, using fixed time windows.
  */
 @Service
 public class RateLimitBucketCalculatorImpl implements RateLimitBucketCalculator {
 
-    @Override
-    public RateLimit calculate(final LocalDateTime calculationTime,
-                               final RateLimit rateLimit,
-                               final Long bucketSize,
-                               final ChronoUnit bucketChronoUnit) {
-
-        LocalDateTime bucketTime = calculationTime;
-        long bucketCount = 1L;
+    private static final long MIN_TIMEOUT = 1L;
 
-        // If no bucket time has been passed or the bucket is no longer valid, create new bucket (with count 1).
-        if (Objects.isNull(rateLimit.getLastUpdateTime()) || rateLimit.getLastUpdateTime().isBefore(bucketTime)) {
-            bucketTime = bucketTime.plus(bucketSize, bucketChronoUnit);
-        } else {
-            bucketTime = rateLimit.getLastUpdateTime();
-            // If existing bucket time is set but has no count, initialize it with count 1.
-            // Otherwise, add 1 to the existing count.
-            if (Objects.nonNull(rateLimit.getBucketCount())) {
-                bucketCount += rateLimit.getBucketCount();
+    @Override
+    public long calculate(final RateLimitBucket bucket, final long calculationTime, final long limit,
+                          final long bucketSize) {
+        // If no bucket time has been set or the bucket is no longer valid, create new bucket (with count 1).
+        if (isExpired(bucket, calculationTime, bucketSize)) {
+            // A new bucket can't hold any requests either when no requests are allowed at all.
+            if (limit <= 0) {
+                return Math.max(MIN_TIMEOUT, bucketSize);
             }
+            bucket.setBucketEnd(calculationTime + bucketSize);
+            bucket.setBucketCount(1L);
+            return 0L;
+        }
+        // If bucket size has been exceeded, leave the bucket as is and report the time until it expires.
+        if (bucket.getBucketCount() >= limit) {
+            return Math.max(MIN_TIMEOUT, bucket.getBucketEnd() - calculationTime);
         }
-        rateLimit.setLastUpdateTime(bucketTime);
-        rateLimit.setBucketCount(bucketCount);
-        return rateLimit;
+        bucket.setBucketCount(bucket.getBucketCount() + 1);
+        return 0L;
+    }
+
+    @Override
+    public boolean isExpired(final RateLimitBucket bucket, final long calculationTime, final long bucketSize) {
+        return bucket.getBucketEnd() < calculationTime;
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.FIXED_WINDOW;
     }
 }
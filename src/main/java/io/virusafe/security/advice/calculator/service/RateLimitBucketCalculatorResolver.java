@@ -0,0 +1,55 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the rate limit calculator to use for a rate limit type, based on the algorithm configured for it.
+ */
+@Service
+public class RateLimitBucketCalculatorResolver {
+
+    private final Map<RateLimitAlgorithm, RateLimitBucketCalculator> calculators;
+    private final RateLimitConfiguration rateLimitConfiguration;
+
+    /**
+     * Construct rate limit calculator resolver.
+     *
+     * @param rateLimitBucketCalculators the available calculators, one per algorithm
+     * @param rateLimitConfiguration     the rate limit configuration, holding the algorithm per type
+     */
+    @Autowired
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    public RateLimitBucketCalculatorResolver(final List<RateLimitBucketCalculator> rateLimitBucketCalculators,
+                                             final RateLimitConfiguration rateLimitConfiguration) {
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        // The map itself is never modified after construction, so a plain EnumMap is safe to share.
+        Map<RateLimitAlgorithm, RateLimitBucketCalculator> algorithmCalculators =
+                new EnumMap<>(RateLimitAlgorithm.class);
+        rateLimitBucketCalculators.forEach(calculator -> algorithmCalculators.put(calculator.getAlgorithm(),
+                calculator));
+        this.calculators = algorithmCalculators;
+    }
+
+    /**
+     * Get the calculator for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the calculator implementing the algorithm configured for the type
+     */
+    public RateLimitBucketCalculator getCalculator(final RateLimitType type) {
+        RateLimitAlgorithm algorithm = rateLimitConfiguration.getAlgorithm(type);
+        RateLimitBucketCalculator calculator = calculators.get(algorithm);
+        if (calculator == null) {
+            throw new IllegalStateException("No rate limit calculator available for algorithm " + algorithm);
+        }
+        return calculator;
+    }
+}
@@ -0,0 +1,76 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sliding window counter rate limit calculator. Requests are counted in consecutive windows, and the count of the
+ * previous window is weighed by how much of it still overlaps the sliding window ending at the calculation time.
+ * This avoids the double bursts fixed windows allow around window edges, while keeping constant state per bucket.
+ */
+@Service
+public class SlidingWindowRateLimitBucketCalculator implements RateLimitBucketCalculator {
+
+    private static final long MIN_TIMEOUT = 1L;
+
+    @Override
+    public long calculate(final RateLimitBucket bucket, final long calculationTime, final long limit,
+                          final long bucketSize) {
+        // No request fits into any window, so reject the request for a whole bucket.
+        if (limit <= 0) {
+            return Math.max(MIN_TIMEOUT, bucketSize);
+        }
+        // Advance the window on local values only, so that rejected requests leave the bucket untouched.
+        long bucketEnd = bucket.getBucketEnd();
+        long bucketCount = bucket.getBucketCount();
+        long previousBucketCount = bucket.getPreviousBucketCount();
+        if (isExpired(bucket, calculationTime, bucketSize)) {
+            // No history left, so start a fresh window at the calculation time.
+            bucketEnd = calculationTime + bucketSize;
+            bucketCount = 0L;
+            previousBucketCount = 0L;
+        } else if (bucketEnd < calculationTime) {
+            // The current window has ended, so it becomes the previous one.
+            bucketEnd += bucketSize;
+            previousBucketCount = bucketCount;
+            bucketCount = 0L;
+        }
+        // The previous window still overlaps the sliding window for the time left until the current window ends.
+        // Compare the weighted count scaled by the bucket size, so that no fractions are involved.
+        if (bucketCount < limit
+                && previousBucketCount * (bucketEnd - calculationTime) < (limit - bucketCount) * bucketSize) {
+            bucket.setBucketEnd(bucketEnd);
+            bucket.setBucketCount(bucketCount + 1);
+            bucket.setPreviousBucketCount(previousBucketCount);
+            return 0L;
+        }
+        return Math.max(MIN_TIMEOUT,
+                calculateRetryTime(bucketEnd, bucketCount, previousBucketCount, limit, bucketSize) - calculationTime);
+    }
+
+    @Override
+    public boolean isExpired(final RateLimitBucket bucket, final long calculationTime, final long bucketSize) {
+        // Once the window after the current one has ended too, neither of the counts carries any weight.
+        return bucket.getBucketEnd() + bucketSize < calculationTime;
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.SLIDING_WINDOW;
+    }
+
+    private long calculateRetryTime(final long bucketEnd, final long bucketCount, final long previousBucketCount,
+                                    final long limit, final long bucketSize) {
+        if (bucketCount >= limit) {
+            // The current window is full, so wait until its own weight as the previous window drops enough.
+            return bucketEnd + bucketSize - ceilDiv(limit * bucketSize, bucketCount) + 1;
+        }
+        // Otherwise wait until the weight of the previous window drops enough to fit another request.
+        return bucketEnd - ceilDiv((limit - bucketCount) * bucketSize, previousBucketCount) + 1;
+    }
+
+    private static long ceilDiv(final long dividend, final long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
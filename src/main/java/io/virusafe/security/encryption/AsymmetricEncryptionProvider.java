@@ -1,5 +1,7 @@
 package io.virusafe.security.encryption;
 
+import java.util.List;
+
 /**
  * Encripth using asymmetric algorithm
  */
@@ -19,4 +21,20 @@ public interface AsymmetricEncryptionProvider {
      * @return
      */
     String decrypt(String data);
+
+    /**
+     * Encrypt a batch of data, possibly in parallel
+     *
+     * @param data the values to encrypt
+     * @return the encrypted values, in the same order
+     */
+    List<String> encryptAll(List<String> data);
+
+    /**
+     * Decrypt a batch of data, possibly in parallel
+     *
+     * @param data the values to decrypt
+     * @return the decrypted values, in the same order
+     */
+    List<String> decryptAll(List<String> data);
 }
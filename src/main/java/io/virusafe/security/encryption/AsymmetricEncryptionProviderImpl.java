@@ -1,6 +1,7 @@
 package io.virusafe.security.encryption;
 
 import io.virusafe.exception.EncryptionProviderException;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -8,6 +9,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.Key;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
@@ -15,20 +17,36 @@ import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 
 /**
- * Default asymmetric encryption provider
+ * Default asymmetric encryption provider.
+ * Safe for concurrent use without locking: initialized ciphers are kept in a pool per operation and borrowed for
+ * a single call, so concurrent calls never share a cipher. Batches are split over a fork-join pool.
  */
+@Slf4j
+@SuppressWarnings("PMD.DoNotUseThreads")
 public class AsymmetricEncryptionProviderImpl implements AsymmetricEncryptionProvider {
 
+    private static final int BATCH_THRESHOLD = 8;
+
     private final PrivateKey privateKey;
     private final PublicKey publicKey;
     private final String algorithm;
+    private final BlockingQueue<Cipher> encryptCiphers;
+    private final BlockingQueue<Cipher> decryptCiphers;
+    private final ForkJoinPool forkJoinPool;
 
     /**
-     * Construct asymmetric encryption provider
+     * Construct asymmetric encryption provider, running batches on the common fork-join pool.
      *
      * @param privateKeyData
      * @param publicKeyData
@@ -36,9 +54,27 @@ public class AsymmetricEncryptionProviderImpl implements AsymmetricEncryptionPro
      */
     public AsymmetricEncryptionProviderImpl(final String privateKeyData, final String publicKeyData,
                                             final String algorithm) {
+        this(privateKeyData, publicKeyData, algorithm, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construct asymmetric encryption provider
+     *
+     * @param privateKeyData the Base64 encoded PKCS8 private key
+     * @param publicKeyData  the Base64 encoded X509 public key
+     * @param algorithm      the key and cipher algorithm
+     * @param forkJoinPool   the pool to run batches on
+     */
+    public AsymmetricEncryptionProviderImpl(final String privateKeyData, final String publicKeyData,
+                                            final String algorithm, final ForkJoinPool forkJoinPool) {
         privateKey = readPrivateRsaKey(privateKeyData, algorithm);
         publicKey = readPublicRsaKey(publicKeyData, algorithm);
         this.algorithm = algorithm;
+        this.forkJoinPool = forkJoinPool;
+        // One idle cipher per thread that can run at the same time is enough, extra ones are left to the GC.
+        int poolSize = Math.max(forkJoinPool.getParallelism(), Runtime.getRuntime().availableProcessors());
+        this.encryptCiphers = new ArrayBlockingQueue<>(poolSize);
+        this.decryptCiphers = new ArrayBlockingQueue<>(poolSize);
     }
 
     @Override
@@ -51,30 +87,85 @@ public class AsymmetricEncryptionProviderImpl implements AsymmetricEncryptionPro
         return decrypt(data, publicKey);
     }
 
-    private synchronized String encrypt(final String plainText, final PrivateKey privateKey) {
+    @Override
+    public List<String> encryptAll(final List<String> data) {
+        return runAll(data, this::encrypt);
+    }
+
+    @Override
+    public List<String> decryptAll(final List<String> data) {
+        return runAll(data, this::decrypt);
+    }
+
+    private String encrypt(final String plainText, final PrivateKey privateKey) {
+        Objects.requireNonNull(plainText);
+        Cipher cipher = borrowCipher(encryptCiphers, Cipher.ENCRYPT_MODE, privateKey);
         try {
-            Objects.requireNonNull(plainText);
-            Cipher cipher = Cipher.getInstance(algorithm);
-            cipher.init(Cipher.ENCRYPT_MODE, privateKey);
             byte[] encStr = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+            returnCipher(encryptCiphers, cipher);
             return Base64.getEncoder().encodeToString(encStr);
-        } catch (NoSuchAlgorithmException | InvalidKeyException | NoSuchPaddingException | BadPaddingException | IllegalBlockSizeException e) {
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
             throw new EncryptionProviderException("Cannot encrypt data with RSA ", e);
         }
     }
 
-    private synchronized String decrypt(final String encData, final PublicKey publicKey) {
+    private String decrypt(final String encData, final PublicKey publicKey) {
+        Objects.requireNonNull(encData);
+        Cipher cipher = borrowCipher(decryptCiphers, Cipher.DECRYPT_MODE, publicKey);
         try {
-            Objects.requireNonNull(encData);
-            Cipher cipher = Cipher.getInstance(algorithm);
-            cipher.init(Cipher.DECRYPT_MODE, publicKey);
             byte[] decStr = cipher.doFinal(Base64.getDecoder().decode(encData));
+            returnCipher(decryptCiphers, cipher);
             return new String(decStr, StandardCharsets.UTF_8);
-        } catch (NoSuchAlgorithmException | InvalidKeyException | NoSuchPaddingException | BadPaddingException | IllegalBlockSizeException e) {
+        } catch (IllegalArgumentException | BadPaddingException | IllegalBlockSizeException e) {
             throw new EncryptionProviderException("Cannot decrypt data with RSA ", e);
         }
     }
 
+    /**
+     * Take an idle cipher from the pool, or create one if all ciphers are in use. A cipher resets to its
+     * initialized state after doFinal, so pooled ciphers don't need to be initialized again.
+     * Ciphers that failed are not returned to the pool, so a cipher left in an unknown state is never reused.
+     */
+    private Cipher borrowCipher(final BlockingQueue<Cipher> ciphers, final int mode, final Key key) {
+        Cipher cipher = ciphers.poll();
+        if (Objects.nonNull(cipher)) {
+            return cipher;
+        }
+        try {
+            cipher = Cipher.getInstance(algorithm);
+            cipher.init(mode, key);
+            return cipher;
+        } catch (NoSuchAlgorithmException | InvalidKeyException | NoSuchPaddingException e) {
+            throw new EncryptionProviderException(mode == Cipher.ENCRYPT_MODE
+                    ? "Cannot encrypt data with RSA " : "Cannot decrypt data with RSA ", e);
+        }
+    }
+
+    private List<String> runAll(final List<String> data, final UnaryOperator<String> operation) {
+        String[] results = new String[data.size()];
+        if (data.size() <= BATCH_THRESHOLD) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = operation.apply(data.get(i));
+            }
+        } else {
+            // A parallel stream started from a task of the pool is split over that pool's workers.
+            forkJoinPool.submit(() -> IntStream.range(0, results.length)
+                    .parallel()
+                    .forEach(i -> results[i] = operation.apply(data.get(i))))
+                    .join();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Return a cipher to its pool. Ciphers created while the pool was empty are dropped when it's full again.
+     */
+    private static void returnCipher(final BlockingQueue<Cipher> ciphers, final Cipher cipher) {
+        if (!ciphers.offer(cipher)) {
+            log.trace("Cipher pool is full, dropping cipher");
+        }
+    }
+
     private static PublicKey readPublicRsaKey(final String publicKey, final String algorithm) {
         try {
             KeyFactory keyFactory = KeyFactory.getInstance(algorithm);
@@ -0,0 +1,134 @@
+package io.virusafe.security.encryption;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thread-confined cache of message digests and initialized MACs, with hex and Base64 encoding helpers.
+ * <p>
+ * Provider lookups are done once per algorithm (or MAC key) and thread; every later call on the same thread reuses
+ * the instance, which is safe because each operation here completes the digest or MAC and thereby resets it.
+ * MAC keys are compared by value, so they should come from configuration rather than be created per request.
+ */
+public final class CryptoUtils {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private static final ThreadLocal<Map<SecretKey, Mac>> MACS = ThreadLocal.withInitial(HashMap::new);
+
+    private CryptoUtils() {
+    }
+
+    /**
+     * Create a MAC key from a UTF-8 secret, to be kept and reused for all calls with that secret.
+     *
+     * @param algorithm the MAC algorithm the key is for
+     * @param secret    the secret
+     * @return the MAC key
+     */
+    public static SecretKey macKey(final String algorithm, final String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm);
+    }
+
+    /**
+     * Digest data with this thread's instance of the given algorithm.
+     *
+     * @param algorithm the digest algorithm
+     * @param data      the data to digest
+     * @return the digest
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     */
+    public static byte[] digest(final String algorithm, final byte[] data) throws NoSuchAlgorithmException {
+        Map<String, MessageDigest> digests = DIGESTS.get();
+        MessageDigest messageDigest = digests.get(algorithm);
+        if (messageDigest == null) {
+            messageDigest = MessageDigest.getInstance(algorithm);
+            digests.put(algorithm, messageDigest);
+        }
+        return messageDigest.digest(data);
+    }
+
+    /**
+     * Digest the UTF-8 bytes of a text and Base64 encode the result.
+     *
+     * @param algorithm the digest algorithm
+     * @param text      the text to digest
+     * @return the Base64 encoded digest
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     */
+    public static String digestToBase64(final String algorithm, final String text) throws NoSuchAlgorithmException {
+        return toBase64(digest(algorithm, text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Compute a MAC with this thread's instance initialized with the given key.
+     *
+     * @param key  the MAC key, whose algorithm selects the MAC
+     * @param data the data to authenticate
+     * @return the MAC
+     * @throws NoSuchAlgorithmException if the key's algorithm is not available
+     * @throws InvalidKeyException      if the key is not valid for its algorithm
+     */
+    public static byte[] mac(final SecretKey key, final byte[] data) throws NoSuchAlgorithmException,
+            InvalidKeyException {
+        Map<SecretKey, Mac> macs = MACS.get();
+        Mac mac = macs.get(key);
+        if (mac == null) {
+            mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            macs.put(key, mac);
+        }
+        return mac.doFinal(data);
+    }
+
+    /**
+     * Compute a MAC of the UTF-8 bytes of a text and hex encode the result.
+     *
+     * @param key  the MAC key, whose algorithm selects the MAC
+     * @param text the text to authenticate
+     * @return the lower-case hex encoded MAC
+     * @throws NoSuchAlgorithmException if the key's algorithm is not available
+     * @throws InvalidKeyException      if the key is not valid for its algorithm
+     */
+    public static String macToHex(final SecretKey key, final String text) throws NoSuchAlgorithmException,
+            InvalidKeyException {
+        return toHex(mac(key, text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Encode bytes as lower-case hex.
+     *
+     * @param bytes the bytes to encode
+     * @return the hex string
+     */
+    public static String toHex(final byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Encode bytes as Base64.
+     *
+     * @param bytes the bytes to encode
+     * @return the Base64 string
+     */
+    public static String toBase64(final byte[] bytes) {
+        return BASE64_ENCODER.encodeToString(bytes);
+    }
+}
@@ -0,0 +1,102 @@
+package io.virusafe.security.encryption;
+
+import io.virusafe.exception.EncryptionProviderException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Symmetric encryption provider that prefixes every cipher text with the id of the key that produced it,
+ * e.g. "2:cipherText", so that a value is always decrypted with the right key directly, even after key rotation.
+ * New values are always encrypted with the current key.
+ * Values written before key ids were introduced carry no prefix. These are decrypted with the configured
+ * legacy keys, in order, until they are re-encrypted with the current key.
+ */
+public class KeyVersionedSymmetricEncryptionProvider implements SymmetricEncryptionProvider {
+    public static final char KEY_ID_SEPARATOR = ':';
+
+    private final String currentKeyId;
+    private final String currentKeyPrefix;
+    private final SymmetricEncryptionProvider currentProvider;
+    private final Map<String, SymmetricEncryptionProvider> providersByKeyId;
+    private final List<SymmetricEncryptionProvider> legacyProviders = new ArrayList<>();
+
+    /**
+     * Construct a new KeyVersionedSymmetricEncryptionProvider over a registry of key id to SymmetricEncryptionProvider.
+     *
+     * @param currentKeyId     the id of the key used for all new encryptions
+     * @param providersByKeyId the SymmetricEncryptionProvider for each known key id
+     * @param legacyKeyIds     the ids of the keys to try, in order, for values without a key id prefix
+     */
+    public KeyVersionedSymmetricEncryptionProvider(final String currentKeyId,
+                                                   final Map<String, SymmetricEncryptionProvider> providersByKeyId,
+                                                   final List<String> legacyKeyIds) {
+        providersByKeyId.keySet().forEach(keyId -> {
+            if (keyId.isEmpty() || keyId.indexOf(KEY_ID_SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("Invalid encryption key id " + keyId);
+            }
+        });
+        this.currentKeyId = currentKeyId;
+        this.currentKeyPrefix = currentKeyId + KEY_ID_SEPARATOR;
+        this.providersByKeyId = Collections.unmodifiableMap(new HashMap<>(providersByKeyId));
+        this.currentProvider = getProvider(currentKeyId);
+        legacyKeyIds.forEach(keyId -> legacyProviders.add(getProvider(keyId)));
+    }
+
+    private SymmetricEncryptionProvider getProvider(final String keyId) {
+        SymmetricEncryptionProvider provider = providersByKeyId.get(keyId);
+        if (Objects.isNull(provider)) {
+            throw new EncryptionProviderException("Unknown encryption key id " + keyId);
+        }
+        return provider;
+    }
+
+    /**
+     * Get the id of the key used for all new encryptions.
+     *
+     * @return the current key id
+     */
+    public String getCurrentKeyId() {
+        return currentKeyId;
+    }
+
+    /**
+     * Check whether a value was encrypted with the current key, so it needs no re-encryption.
+     *
+     * @param data the encrypted value
+     * @return true if the value carries the current key id
+     */
+    public boolean isEncryptedWithCurrentKey(final String data) {
+        return data.startsWith(currentKeyPrefix);
+    }
+
+    @Override
+    public String encrypt(final String data, final String iv) {
+        return currentKeyPrefix + currentProvider.encrypt(data, iv);
+    }
+
+    @Override
+    public String decrypt(final String data, final String iv) {
+        int separatorIndex = data.indexOf(KEY_ID_SEPARATOR);
+        if (separatorIndex < 0) {
+            return decryptLegacy(data, iv);
+        }
+        return getProvider(data.substring(0, separatorIndex)).decrypt(data.substring(separatorIndex + 1), iv);
+    }
+
+    private String decryptLegacy(final String data, final String iv) {
+        EncryptionProviderException lastException = null;
+        for (SymmetricEncryptionProvider legacyProvider : legacyProviders) {
+            try {
+                return legacyProvider.decrypt(data, iv);
+            } catch (EncryptionProviderException e) {
+                lastException = e;
+            }
+        }
+        throw new EncryptionProviderException("Cannot Decode text without a key id", lastException);
+    }
+}
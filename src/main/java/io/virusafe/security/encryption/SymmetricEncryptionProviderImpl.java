@@ -15,19 +15,21 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Default symmetric encryption provider
+ * Default symmetric encryption provider.
+ * Safe for concurrent use without locking: every thread gets its own Cipher and MessageDigest instances,
+ * while the secret key spec and the IV spec for each IV string are computed once and shared.
  */
 public class SymmetricEncryptionProviderImpl implements SymmetricEncryptionProvider {
     private static final int IV_KEY_LENGTH = 16;
 
-    //we use it only in synchronized environment
-    @SuppressWarnings("PMD.AvoidMessageDigestField")
-    private final MessageDigest digest;
-    private final byte[] encKey;
-    private final String encryptionAlgorithm;
-    private final String keyAlgorithm;
+    private final SecretKeySpec keySpec;
+    private final ThreadLocal<MessageDigest> digest;
+    private final ThreadLocal<Cipher> cipher;
+    private final Map<String, IvParameterSpec> ivSpecs = new ConcurrentHashMap<>();
 
     /**
      * Construct symmetric encryption provider
@@ -39,13 +41,13 @@ public class SymmetricEncryptionProviderImpl implements SymmetricEncryptionProvi
      */
     public SymmetricEncryptionProviderImpl(final String key, final String digestAlgorithm,
                                            final String encryptionAlgorithm, final String keyAlgorithm) {
-        this.digest = getMessageDigest(digestAlgorithm);
-        this.encKey = digest.digest(key.getBytes(StandardCharsets.UTF_8));
-        this.encryptionAlgorithm = encryptionAlgorithm;
-        this.keyAlgorithm = keyAlgorithm;
+        this.keySpec = new SecretKeySpec(
+                getMessageDigest(digestAlgorithm).digest(key.getBytes(StandardCharsets.UTF_8)), keyAlgorithm);
+        this.digest = ThreadLocal.withInitial(() -> getMessageDigest(digestAlgorithm));
+        this.cipher = ThreadLocal.withInitial(() -> getCipher(encryptionAlgorithm));
     }
 
-    private MessageDigest getMessageDigest(final String digestAlgorithm) {
+    private static MessageDigest getMessageDigest(final String digestAlgorithm) {
         try {
             return MessageDigest.getInstance(digestAlgorithm);
         } catch (NoSuchAlgorithmException e) {
@@ -53,35 +55,47 @@ public class SymmetricEncryptionProviderImpl implements SymmetricEncryptionProvi
         }
     }
 
+    private static Cipher getCipher(final String encryptionAlgorithm) {
+        try {
+            return Cipher.getInstance(encryptionAlgorithm);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new EncryptionProviderException("Can't find encryption algorithm", e);
+        }
+    }
+
     @Override
-    public synchronized String encrypt(final String data, final String iv) {
+    public String encrypt(final String data, final String iv) {
         try {
-            final Cipher cipher = Cipher.getInstance(encryptionAlgorithm);
-            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(encKey, keyAlgorithm),
-                    new IvParameterSpec(getFirst16Bytes(iv)));
+            final Cipher threadCipher = cipher.get();
+            threadCipher.init(Cipher.ENCRYPT_MODE, keySpec, getIvSpec(iv));
 
-            byte[] cipherText = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            byte[] cipherText = threadCipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(cipherText);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | BadPaddingException | IllegalBlockSizeException | InvalidKeyException | InvalidAlgorithmParameterException e) {
+        } catch (EncryptionProviderException | BadPaddingException | IllegalBlockSizeException | InvalidKeyException | InvalidAlgorithmParameterException e) {
             throw new EncryptionProviderException("Cannot Encode text", e);
         }
     }
 
     @Override
-    public synchronized String decrypt(final String data, final String iv) {
+    public String decrypt(final String data, final String iv) {
         try {
-            final Cipher cipher = Cipher.getInstance(encryptionAlgorithm);
-            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(encKey, keyAlgorithm),
-                    new IvParameterSpec(getFirst16Bytes(iv)));
-            byte[] plainText = cipher.doFinal(Base64.getDecoder().decode(data));
+            final Cipher threadCipher = cipher.get();
+            threadCipher.init(Cipher.DECRYPT_MODE, keySpec, getIvSpec(iv));
+            byte[] plainText = threadCipher.doFinal(Base64.getDecoder().decode(data));
             return new String(plainText, StandardCharsets.UTF_8);
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | BadPaddingException | IllegalBlockSizeException | InvalidKeyException | InvalidAlgorithmParameterException e) {
+        } catch (EncryptionProviderException | IllegalArgumentException | BadPaddingException | IllegalBlockSizeException
+                | InvalidKeyException | InvalidAlgorithmParameterException e) {
             throw new EncryptionProviderException("Cannot Decode text", e);
         }
     }
 
-    private byte[] getFirst16Bytes(final String iv) {
-        byte[] digestKey = digest.digest(iv.getBytes(StandardCharsets.UTF_8));
-        return Arrays.copyOf(digestKey, IV_KEY_LENGTH);
+    private IvParameterSpec getIvSpec(final String iv) {
+        // IV strings come from configuration, so there are only a handful of them to cache.
+        return ivSpecs.computeIfAbsent(iv, this::createIvSpec);
+    }
+
+    private IvParameterSpec createIvSpec(final String iv) {
+        byte[] digestKey = digest.get().digest(iv.getBytes(StandardCharsets.UTF_8));
+        return new IvParameterSpec(Arrays.copyOf(digestKey, IV_KEY_LENGTH));
     }
-}
\ No newline at end of file
+}
@@ -5,11 +5,12 @@ import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.virusafe.configuration.JwtConfiguration;
-import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.exception.InvalidClaimJwtException;
 import io.virusafe.exception.InvalidSignatureJwtException;
 import io.virusafe.security.principal.UserPrincipal;
 import io.virusafe.service.userdetails.UserDetailsService;
+import io.virusafe.service.userdetails.UserPrincipalCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +23,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * JWT validation filter
@@ -39,17 +41,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
 
+    private final UserPrincipalCache userPrincipalCache;
+
     /**
      * Constructor JWT validation filter using beans.
      *
      * @param jwtConfiguration
      * @param userDetailsService
+     * @param userPrincipalCache
      */
     public JwtAuthenticationFilter(final JwtConfiguration jwtConfiguration,
-                                   final UserDetailsService userDetailsService) {
+                                   final UserDetailsService userDetailsService,
+                                   final UserPrincipalCache userPrincipalCache) {
         this.jwtConfiguration = jwtConfiguration;
         this.jwtParser = Jwts.parserBuilder().setSigningKey(jwtConfiguration.getSecretKey()).build();
         this.userDetailsService = userDetailsService;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     @Override
@@ -80,31 +87,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throw new InvalidClaimJwtException(GUID_CLAIM_READABLE);
         }
         Long createdOn = parseCreatedOn(claims);
+        String tokenSecret = claims.get(jwtConfiguration.getSecretClaim(), String.class);
+
+        // Skip the database if the same claims have been validated recently.
+        Optional<UserPrincipal> cachedPrincipal = userPrincipalCache.get(userGuid, tokenSecret, createdOn);
+        if (cachedPrincipal.isPresent()) {
+            setPrincipalToSpringSecurityContext(cachedPrincipal.get());
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        UserDetails dbUser = getDbUserByGuid(userGuid);
+        long invalidationStamp = userPrincipalCache.getInvalidationStamp();
+        UserAuthenticationDetails dbUser = getDbUserByGuid(userGuid);
 
         validateCreatedOn(createdOn, dbUser);
-        validateTokenSecret(claims, dbUser);
+        validateTokenSecret(tokenSecret, dbUser);
 
-        setPrincipalToSpringSecurityContext(dbUser);
+        UserPrincipal userPrincipal = buildPrincipal(dbUser);
+        userPrincipalCache.put(invalidationStamp, dbUser.getTokenSecret(), dbUser.getCreatedDate(), userPrincipal);
+        // Use a separate instance for this request, so the cached one can't be changed through the security context.
+        setPrincipalToSpringSecurityContext(buildPrincipal(dbUser));
 
         filterChain.doFilter(request, response);
     }
 
-    private UserDetails getDbUserByGuid(final String userGuid) {
-        return userDetailsService.findByUserGuid(userGuid).orElseThrow(
+    private UserAuthenticationDetails getDbUserByGuid(final String userGuid) {
+        return userDetailsService.findAuthenticationDetailsByUserGuid(userGuid).orElseThrow(
                 () -> new InvalidClaimJwtException(GUID_CLAIM_READABLE)
         );
     }
 
-    private void validateTokenSecret(final Claims claims, final UserDetails dbUser) {
-        String tokenSecret = claims.get(jwtConfiguration.getSecretClaim(), String.class);
+    private void validateTokenSecret(final String tokenSecret, final UserAuthenticationDetails dbUser) {
         if (Objects.isNull(tokenSecret) || !tokenSecret.equals(dbUser.getTokenSecret())) {
             throw new InvalidClaimJwtException(SECRET_CLAIM_READABLE);
         }
     }
 
-    private void validateCreatedOn(final Long createdOn, final UserDetails dbUser) {
+    private void validateCreatedOn(final Long createdOn, final UserAuthenticationDetails dbUser) {
         if (!createdOn.equals(dbUser.getCreatedDate())) {
             log.error(
                     "Creation date [{}] different than expected [{}]", createdOn, dbUser.getCreatedDate());
@@ -121,14 +140,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
-    private void setPrincipalToSpringSecurityContext(final UserDetails dbUser) {
-        UserPrincipal userPrincipal = UserPrincipal.builder()
+    private UserPrincipal buildPrincipal(final UserAuthenticationDetails dbUser) {
+        return UserPrincipal.builder()
                 .userId(dbUser.getId())
                 .phoneNumber(dbUser.getPhoneNumber())
                 .userGuid(dbUser.getUserGuid())
-                .identificationNumber(dbUser.getIdentificationNumberPlain())
                 .build();
+    }
 
+    private void setPrincipalToSpringSecurityContext(final UserPrincipal userPrincipal) {
         // Build UsernamePasswordAuthenticationToken, setting the fetched DB user as principal.
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
                 userPrincipal, null, Collections.emptyList());
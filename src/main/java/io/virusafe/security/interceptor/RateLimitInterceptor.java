@@ -0,0 +1,97 @@
+package io.virusafe.security.interceptor;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.LocationTimeout;
+import io.virusafe.security.advice.PersonalInfoRateLimit;
+import io.virusafe.security.advice.ProximityRateLimit;
+import io.virusafe.security.advice.PushTokenRateLimit;
+import io.virusafe.security.advice.QuestionnaireTimeout;
+import io.virusafe.security.principal.UserPrincipal;
+import io.virusafe.service.ratelimit.RateLimitService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rate limit interceptor for handler methods annotated with one of the principal rate limit annotations.
+ * The request is counted against the authenticated user's bucket before the handler's arguments are resolved,
+ * so requests over the limit are rejected without reading and validating their body.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final long NO_RATE_LIMIT = 0L;
+    private static final Map<Class<? extends Annotation>, RateLimitType> RATE_LIMIT_ANNOTATIONS = Map.of(
+            QuestionnaireTimeout.class, RateLimitType.QUESTIONNAIRE,
+            LocationTimeout.class, RateLimitType.GPS_LOCATION,
+            ProximityRateLimit.class, RateLimitType.PROXIMITY,
+            PersonalInfoRateLimit.class, RateLimitType.PERSONAL_INFORMATION,
+            PushTokenRateLimit.class, RateLimitType.PUSH_TOKEN
+    );
+
+    private final RateLimitConfiguration rateLimitConfiguration;
+    private final RateLimitService rateLimitService;
+
+    /**
+     * Construct rate limit interceptor using beans
+     *
+     * @param rateLimitConfiguration the rate limit configuration
+     * @param rateLimitService       the rate limit service to register requests with
+     */
+    @Autowired
+    public RateLimitInterceptor(final RateLimitConfiguration rateLimitConfiguration,
+                                final RateLimitService rateLimitService) {
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        this.rateLimitService = rateLimitService;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        for (Map.Entry<Class<? extends Annotation>, RateLimitType> rateLimitAnnotation
+                : RATE_LIMIT_ANNOTATIONS.entrySet()) {
+            if (((HandlerMethod) handler).hasMethodAnnotation(rateLimitAnnotation.getKey())) {
+                rateLimit(rateLimitAnnotation.getValue());
+            }
+        }
+        return true;
+    }
+
+    private void rateLimit(final RateLimitType type) {
+        long limit = rateLimitConfiguration.getLimit(type);
+        long bucketSize = rateLimitConfiguration.getBucketSize(type);
+        if (limit == NO_RATE_LIMIT || bucketSize == NO_RATE_LIMIT) {
+            return;
+        }
+
+        // If there's no registered user, then they don't have any registered attempts and can proceed.
+        UserPrincipal userPrincipal = getUserPrincipal();
+        if (userPrincipal == null || userPrincipal.getUserId() == null) {
+            return;
+        }
+
+        // Count the request against the user's current bucket, failing with an exception if the limit is reached.
+        rateLimitService.registerRequest(userPrincipal.getUserId(), type, limit, bucketSize);
+    }
+
+    private UserPrincipal getUserPrincipal() {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (Objects.nonNull(authentication) && authentication.getPrincipal() instanceof UserPrincipal) {
+            return (UserPrincipal) authentication.getPrincipal();
+        }
+        return null;
+    }
+}
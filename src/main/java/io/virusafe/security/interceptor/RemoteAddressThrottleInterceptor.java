@@ -0,0 +1,36 @@
+package io.virusafe.security.interceptor;
+
+import io.virusafe.service.ratelimit.throttle.RegistrationThrottleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Remote address throttle interceptor for the unauthenticated registration endpoints.
+ * Requests are counted against their remote address before the body is read.
+ */
+@Component
+public class RemoteAddressThrottleInterceptor implements HandlerInterceptor {
+
+    private final RegistrationThrottleService registrationThrottleService;
+
+    /**
+     * Construct remote address throttle interceptor using beans
+     *
+     * @param registrationThrottleService the registration throttle service to register requests with
+     */
+    @Autowired
+    public RemoteAddressThrottleInterceptor(final RegistrationThrottleService registrationThrottleService) {
+        this.registrationThrottleService = registrationThrottleService;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) {
+        registrationThrottleService.registerRemoteAddressRequest(request.getRemoteAddr());
+        return true;
+    }
+}
@@ -15,22 +15,17 @@ public class UserPrincipal {
 
     private String userGuid;
 
-    private String identificationNumber;
-
     /**
      * Create user principal
      *
      * @param userId
      * @param phoneNumber
      * @param userGuid
-     * @param identificationNumber
      */
     @Builder
-    public UserPrincipal(final Long userId, final String phoneNumber, final String userGuid,
-                         final String identificationNumber) {
+    public UserPrincipal(final Long userId, final String phoneNumber, final String userGuid) {
         this.userId = userId;
         this.phoneNumber = phoneNumber;
         this.userGuid = userGuid;
-        this.identificationNumber = identificationNumber;
     }
 }
@@ -2,6 +2,7 @@ package io.virusafe.security.provider;
 
 import io.virusafe.configuration.JwtConfiguration;
 import io.virusafe.domain.entity.AuthenticationUser;
+import io.virusafe.security.encryption.CryptoUtils;
 import io.virusafe.service.authentication.AuthenticationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,10 +14,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,10 +48,7 @@ public class DatabaseAuthenticationProvider implements AuthenticationProvider {
         String password = authentication.getCredentials().toString();
         String passwordHash = null;
         try {
-            MessageDigest encodingMessageDigest = MessageDigest.getInstance(jwtConfiguration.getHashAlgorithm());
-            passwordHash = Base64.getEncoder()
-                    .encodeToString(encodingMessageDigest.digest(
-                            password.getBytes(StandardCharsets.UTF_8)));
+            passwordHash = CryptoUtils.digestToBase64(jwtConfiguration.getHashAlgorithm(), password);
         } catch (NoSuchAlgorithmException e) {
             log.error("Could not encode password so authentication will fail {}", e.getMessage());
             return null;
@@ -3,8 +3,10 @@ package io.virusafe.service.audit;
 import io.virusafe.domain.entity.PersonalInformationConsentAction;
 import io.virusafe.domain.entity.PersonalInformationConsentAudit;
 import io.virusafe.repository.PersonalInformationConsentAuditRepository;
+import io.virusafe.repository.PersonalInformationConsentStateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
@@ -13,23 +15,29 @@ import java.time.LocalDateTime;
 public class PersonalInformationConsentAuditServiceImpl implements PersonalInformationConsentAuditService {
 
     private final PersonalInformationConsentAuditRepository personalInformationConsentAuditRepository;
+    private final PersonalInformationConsentStateRepository personalInformationConsentStateRepository;
     private final Clock systemClock;
 
     /**
      * Construct a new PersonalInformationConsentAuditServiceImpl,
-     * using the autowired PersonalInformationConsentAuditRepository and system clock.
+     * using the autowired PersonalInformationConsentAuditRepository, PersonalInformationConsentStateRepository
+     * and system clock.
      *
      * @param personalInformationConsentAuditRepository the autowired PersonalInformationConsentAuditRepository bean to use for communicating with the DB
+     * @param personalInformationConsentStateRepository the autowired PersonalInformationConsentStateRepository bean to keep the current consent in
      * @param systemClock                               the system clock to use for audit times
      */
     @Autowired
     public PersonalInformationConsentAuditServiceImpl(final PersonalInformationConsentAuditRepository personalInformationConsentAuditRepository,
+                                                      final PersonalInformationConsentStateRepository personalInformationConsentStateRepository,
                                                       final Clock systemClock) {
         this.personalInformationConsentAuditRepository = personalInformationConsentAuditRepository;
+        this.personalInformationConsentStateRepository = personalInformationConsentStateRepository;
         this.systemClock = systemClock;
     }
 
     @Override
+    @Transactional
     public PersonalInformationConsentAudit addAuditTrailEntry(final String userGuid,
                                                               final PersonalInformationConsentAction action) {
 
@@ -40,6 +48,11 @@ public class PersonalInformationConsentAuditServiceImpl implements PersonalInfor
                 .build();
         personalInformationConsentAuditRepository.save(auditEntry);
 
+        // The current consent is kept next to the trail, so push audiences don't have to find each user's latest entry.
+        // It's upserted rather than read and saved, so concurrent first-time changes don't roll back the audit entry.
+        personalInformationConsentStateRepository.upsertConsentState(userGuid, action.name(),
+                auditEntry.getChangedOn());
+
         return auditEntry;
     }
 }
@@ -0,0 +1,29 @@
+package io.virusafe.service.encryption;
+
+import io.virusafe.domain.dto.ReEncryptionStatusDTO;
+
+public interface ReEncryptionService {
+
+    /**
+     * Start re-encrypting all stored identification numbers with the current key in the background.
+     * If a job is already running, it is left running.
+     *
+     * @param fromId the user id to continue after, or null to resume from the checkpoint of the last unfinished job
+     * @return the status of the running job
+     */
+    ReEncryptionStatusDTO start(Long fromId);
+
+    /**
+     * Get the progress of the current or last re-encryption job.
+     *
+     * @return the job status
+     */
+    ReEncryptionStatusDTO getStatus();
+
+    /**
+     * Stop the running re-encryption job after its current chunk. It can be resumed later from its checkpoint.
+     *
+     * @return the job status
+     */
+    ReEncryptionStatusDTO stop();
+}
@@ -0,0 +1,296 @@
+package io.virusafe.service.encryption;
+
+import io.virusafe.domain.command.IdentificationNumberUpdateCommand;
+import io.virusafe.domain.dto.ReEncryptionStatusDTO;
+import io.virusafe.domain.dto.ReEncryptionStatusDTO.State;
+import io.virusafe.exception.EncryptionProviderException;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import io.virusafe.security.encryption.KeyVersionedSymmetricEncryptionProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-encrypts stored identification numbers with the current key, so that retired keys and the legacy key
+ * fallback of the read path can be switched off after a key rotation.
+ * Users are walked in chunks ordered by id. Each chunk is re-encrypted in parallel by a worker pool and written
+ * back in JDBC batches, and the job is throttled to a maximum number of rows per second so it doesn't compete
+ * with live traffic. Values already encrypted with the current key are skipped, so the job can safely be
+ * stopped, resumed from its checkpoint or run again.
+ */
+@Service
+@ConditionalOnProperty(value = "encryption.provider.enable", havingValue = "true")
+@Slf4j
+public class ReEncryptionServiceImpl implements ReEncryptionService {
+
+    private static final long START_ID = 0L;
+    private static final long NO_THROTTLE = 0L;
+
+    private final UserDetailsJdbcRepository userDetailsJdbcRepository;
+    private final KeyVersionedSymmetricEncryptionProvider encryptionProvider;
+    private final String identificationNumberIVVector;
+    private final Clock systemClock;
+    private final int chunkSize;
+    private final int batchSize;
+    private final long maxRowsPerSecond;
+    private final int parallelism;
+    private final ThreadPoolTaskExecutor coordinator;
+    private final ThreadPoolTaskExecutor workers;
+
+    private ReEncryptionJob currentJob;
+
+    /**
+     * Construct re-encryption service.
+     *
+     * @param userDetailsJdbcRepository    the user details JDBC repository, used to read and write in bulk
+     * @param encryptionProvider           the identificationNumber-named key versioned encryption provider
+     * @param identificationNumberIVVector the initialization vector for identification number
+     * @param systemClock                  the clock to report progress against
+     * @param chunkSize                    the number of users read and re-encrypted at a time
+     * @param batchSize                    the maximum number of updates per JDBC batch
+     * @param maxRowsPerSecond             the maximum number of users processed per second, or 0 for no limit
+     * @param parallelism                  the number of worker threads, or 0 to use one per available processor
+     */
+    @Autowired
+    public ReEncryptionServiceImpl(final UserDetailsJdbcRepository userDetailsJdbcRepository,
+                                   @Qualifier("identificationNumber")
+                                   final KeyVersionedSymmetricEncryptionProvider encryptionProvider,
+                                   @Value("${encryption.iv.identification.number}") final String identificationNumberIVVector,
+                                   final Clock systemClock,
+                                   @Value("${encryption.re-encryption.chunk-size:1000}") final int chunkSize,
+                                   @Value("${encryption.re-encryption.batch-size:200}") final int batchSize,
+                                   @Value("${encryption.re-encryption.max-rows-per-second:2000}") final long maxRowsPerSecond,
+                                   @Value("${encryption.re-encryption.parallelism:0}") final int parallelism) {
+        this.userDetailsJdbcRepository = userDetailsJdbcRepository;
+        this.encryptionProvider = encryptionProvider;
+        this.identificationNumberIVVector = identificationNumberIVVector;
+        this.systemClock = systemClock;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.coordinator = createExecutor(1, "ReEncryption-");
+        this.workers = createExecutor(this.parallelism, "ReEncryptionWorker-");
+    }
+
+    private static ThreadPoolTaskExecutor createExecutor(final int poolSize, final String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setDaemon(true);
+        // Request threads should always get the CPU before the re-encryption job does.
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public synchronized ReEncryptionStatusDTO start(final Long fromId) {
+        if (Objects.nonNull(currentJob) && currentJob.isActive()) {
+            return currentJob.toStatus(systemClock);
+        }
+        long resumeFromId = Objects.nonNull(fromId) ? fromId : getCheckpoint();
+        ReEncryptionJob job = new ReEncryptionJob(encryptionProvider.getCurrentKeyId(), resumeFromId,
+                userDetailsJdbcRepository.findMaxId(), systemClock.instant());
+        currentJob = job;
+        log.info("Starting re-encryption with key {} after user id {}", job.keyId, resumeFromId);
+        coordinator.execute(() -> run(job));
+        return job.toStatus(systemClock);
+    }
+
+    private long getCheckpoint() {
+        if (Objects.isNull(currentJob) || currentJob.state.get() == State.COMPLETED) {
+            return START_ID;
+        }
+        return currentJob.lastProcessedId.get();
+    }
+
+    @Override
+    public synchronized ReEncryptionStatusDTO getStatus() {
+        if (Objects.isNull(currentJob)) {
+            return ReEncryptionStatusDTO.builder()
+                    .state(State.IDLE)
+                    .keyId(encryptionProvider.getCurrentKeyId())
+                    .build();
+        }
+        return currentJob.toStatus(systemClock);
+    }
+
+    @Override
+    public synchronized ReEncryptionStatusDTO stop() {
+        if (Objects.nonNull(currentJob)) {
+            currentJob.state.compareAndSet(State.RUNNING, State.STOPPING);
+        }
+        return getStatus();
+    }
+
+    /**
+     * Stop the running job and its threads on shutdown. The job can be resumed after a restart by passing the
+     * last reported checkpoint as the starting id.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        stop();
+        coordinator.shutdown();
+        workers.shutdown();
+    }
+
+    private void run(final ReEncryptionJob job) {
+        try {
+            long lastId = job.fromId;
+            while (job.state.get() == State.RUNNING) {
+                long chunkStartMillis = systemClock.millis();
+                List<IdentificationNumberUpdateCommand> chunk =
+                        userDetailsJdbcRepository.findIdentificationNumbersAfter(lastId, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                List<IdentificationNumberUpdateCommand> updates = reEncrypt(chunk, job);
+                if (!updates.isEmpty()) {
+                    // Users saved by live traffic in the meantime are skipped, they already use the current key.
+                    job.reEncryptedRows.addAndGet(
+                            userDetailsJdbcRepository.updateIdentificationNumbers(updates, batchSize));
+                }
+                lastId = chunk.get(chunk.size() - 1).getUserId();
+                job.lastProcessedId.set(lastId);
+                job.scannedRows.addAndGet(chunk.size());
+                throttle(chunk.size(), chunkStartMillis);
+            }
+            job.finish(job.state.get() == State.STOPPING ? State.STOPPED : State.COMPLETED, systemClock.instant());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(State.STOPPED, systemClock.instant());
+        } catch (RuntimeException e) {
+            log.error("Re-encryption failed after user id {}", job.lastProcessedId.get(), e);
+            job.finish(State.FAILED, systemClock.instant());
+        }
+        log.info("Re-encryption finished: {}", job.toStatus(systemClock));
+        if (job.state.get() == State.COMPLETED && job.failedRows.get() == 0) {
+            log.info("All identification numbers use key {}, the legacy key fallback can be switched off", job.keyId);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private List<IdentificationNumberUpdateCommand> reEncrypt(final List<IdentificationNumberUpdateCommand> chunk,
+                                                              final ReEncryptionJob job) throws InterruptedException {
+        int sliceSize = (chunk.size() + parallelism - 1) / parallelism;
+        List<Future<List<IdentificationNumberUpdateCommand>>> slices = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<IdentificationNumberUpdateCommand> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(workers.submit(() -> reEncryptSlice(slice, job)));
+        }
+        List<IdentificationNumberUpdateCommand> updates = new ArrayList<>(chunk.size());
+        for (Future<List<IdentificationNumberUpdateCommand>> slice : slices) {
+            try {
+                updates.addAll(slice.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Re-encryption worker failed", e);
+            }
+        }
+        return updates;
+    }
+
+    private List<IdentificationNumberUpdateCommand> reEncryptSlice(final List<IdentificationNumberUpdateCommand> slice,
+                                                                   final ReEncryptionJob job) {
+        List<IdentificationNumberUpdateCommand> updates = new ArrayList<>(slice.size());
+        for (IdentificationNumberUpdateCommand command : slice) {
+            if (encryptionProvider.isEncryptedWithCurrentKey(command.getPreviousIdentificationNumber())) {
+                job.alreadyCurrentRows.incrementAndGet();
+                continue;
+            }
+            try {
+                String identificationNumber = encryptionProvider.decrypt(
+                        command.getPreviousIdentificationNumber(), identificationNumberIVVector);
+                command.setIdentificationNumber(
+                        encryptionProvider.encrypt(identificationNumber, identificationNumberIVVector));
+                updates.add(command);
+            } catch (EncryptionProviderException e) {
+                job.failedRows.incrementAndGet();
+                log.warn("Cannot re-encrypt identification number of user {}", command.getUserId());
+            }
+        }
+        return updates;
+    }
+
+    private void throttle(final int rows, final long chunkStartMillis) throws InterruptedException {
+        if (maxRowsPerSecond <= NO_THROTTLE) {
+            return;
+        }
+        long minimumMillis = TimeUnit.SECONDS.toMillis(rows) / maxRowsPerSecond;
+        long remainingMillis = minimumMillis - (systemClock.millis() - chunkStartMillis);
+        if (remainingMillis > 0) {
+            TimeUnit.MILLISECONDS.sleep(remainingMillis);
+        }
+    }
+
+    private static final class ReEncryptionJob {
+        private final String keyId;
+        private final long fromId;
+        private final long maxId;
+        private final Instant startedAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
+        private final AtomicLong scannedRows = new AtomicLong();
+        private final AtomicLong reEncryptedRows = new AtomicLong();
+        private final AtomicLong alreadyCurrentRows = new AtomicLong();
+        private final AtomicLong failedRows = new AtomicLong();
+        private final AtomicLong lastProcessedId;
+        private final AtomicReference<Instant> finishedAt = new AtomicReference<>();
+
+        private ReEncryptionJob(final String keyId, final long fromId, final long maxId, final Instant startedAt) {
+            this.keyId = keyId;
+            this.fromId = fromId;
+            this.maxId = maxId;
+            this.startedAt = startedAt;
+            this.lastProcessedId = new AtomicLong(fromId);
+        }
+
+        private boolean isActive() {
+            State currentState = state.get();
+            return currentState == State.RUNNING || currentState == State.STOPPING;
+        }
+
+        private void finish(final State finalState, final Instant finishTime) {
+            finishedAt.set(finishTime);
+            state.set(finalState);
+        }
+
+        private ReEncryptionStatusDTO toStatus(final Clock clock) {
+            Optional<Instant> finishTime = Optional.ofNullable(finishedAt.get());
+            Instant endTime = finishTime.orElseGet(clock::instant);
+            long elapsedMillis = Math.max(endTime.toEpochMilli() - startedAt.toEpochMilli(), 1L);
+            return ReEncryptionStatusDTO.builder()
+                    .state(state.get())
+                    .keyId(keyId)
+                    .fromId(fromId)
+                    .lastProcessedId(lastProcessedId.get())
+                    .maxId(maxId)
+                    .scannedRows(scannedRows.get())
+                    .reEncryptedRows(reEncryptedRows.get())
+                    .alreadyCurrentRows(alreadyCurrentRows.get())
+                    .failedRows(failedRows.get())
+                    .rowsPerSecond(scannedRows.get() * (double) TimeUnit.SECONDS.toMillis(1) / elapsedMillis)
+                    .startedAt(LocalDateTime.ofInstant(startedAt, clock.getZone()))
+                    .finishedAt(finishTime.map(time -> LocalDateTime.ofInstant(time, clock.getZone())).orElse(null))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package io.virusafe.service.notification;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compressed set of user ids, used to combine push audiences in memory.
+ * Ids are split by their high 16 bits into containers of up to 65536 ids, in the manner of Roaring bitmaps:
+ * sparse containers keep their ids in a sorted char array and dense ones in a bitmap of 1024 words.
+ * Bitmaps are immutable, set operations return a new bitmap and share unchanged containers.
+ */
+// Containers hold on to the arrays they are built from, they are never exposed outside of the bitmap.
+@SuppressWarnings({"PMD.ArrayIsStoredDirectly", "PMD.UseVarargs"})
+public final class AudienceBitmap {
+
+    private static final int CONTAINER_BITS = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int WORD_BITS = 6;
+    private static final int WORDS = 1 << (CONTAINER_BITS - WORD_BITS);
+    // An array container of this many ids takes as much memory as a bitmap container.
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private static final AudienceBitmap NO_IDS = new AudienceBitmap(new int[0], new Container[0]);
+    private static final Container NO_CONTAINER = new ArrayContainer(new char[0]);
+
+    private final int[] keys;
+    private final Container[] containers;
+
+    private AudienceBitmap(final int[] keys, final Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    /**
+     * Get the empty bitmap.
+     *
+     * @return a bitmap without ids
+     */
+    public static AudienceBitmap empty() {
+        return NO_IDS;
+    }
+
+    /**
+     * Create a bitmap holding the given ids.
+     *
+     * @param ids the ids to add, in any order
+     * @return a bitmap holding the ids
+     */
+    public static AudienceBitmap ofIds(final int... ids) {
+        Builder builder = builder();
+        for (int id : ids) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create a bitmap holding all ids of a closed range.
+     *
+     * @param fromId the first id of the range
+     * @param toId   the last id of the range
+     * @return a bitmap holding the ids from fromId to toId, empty if toId is lower than fromId
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public static AudienceBitmap range(final int fromId, final int toId) {
+        checkId(fromId);
+        if (toId < fromId) {
+            return NO_IDS;
+        }
+        int firstKey = fromId >>> CONTAINER_BITS;
+        int lastKey = toId >>> CONTAINER_BITS;
+        int[] keys = new int[lastKey - firstKey + 1];
+        Container[] containers = new Container[keys.length];
+        for (int key = firstKey; key <= lastKey; key++) {
+            int from = key == firstKey ? fromId & LOW_MASK : 0;
+            int to = key == lastKey ? toId & LOW_MASK : LOW_MASK;
+            long[] words = new long[WORDS];
+            Arrays.fill(words, from >>> WORD_BITS, (to >>> WORD_BITS) + 1, -1L);
+            words[from >>> WORD_BITS] &= -1L << from;
+            words[to >>> WORD_BITS] &= -1L >>> (Long.SIZE - 1 - (to & (Long.SIZE - 1)));
+            keys[key - firstKey] = key;
+            containers[key - firstKey] = container(words);
+        }
+        return new AudienceBitmap(keys, containers);
+    }
+
+    /**
+     * Create a builder that collects ids into a new bitmap.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Check whether the bitmap holds an id.
+     *
+     * @param id the id to look for
+     * @return true if the id is in the bitmap
+     */
+    public boolean contains(final int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, id >>> CONTAINER_BITS);
+        return index >= 0 && containers[index].contains(id & LOW_MASK);
+    }
+
+    /**
+     * Count the ids in the bitmap.
+     *
+     * @return the number of ids
+     */
+    public long cardinality() {
+        long cardinality = 0;
+        for (Container container : containers) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Check whether the bitmap holds no ids.
+     *
+     * @return true if the bitmap is empty
+     */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Union of this bitmap and another one.
+     *
+     * @param other the bitmap to add
+     * @return the ids in either bitmap
+     */
+    public AudienceBitmap union(final AudienceBitmap other) {
+        Merger merger = new Merger(keys.length + other.keys.length);
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                merger.add(keys[i], containers[i++]);
+            } else if (keys[i] > other.keys[j]) {
+                merger.add(other.keys[j], other.containers[j++]);
+            } else {
+                long[] words = containers[i++].toWords();
+                other.containers[j].orInto(words);
+                merger.add(other.keys[j++], container(words));
+            }
+        }
+        while (i < keys.length) {
+            merger.add(keys[i], containers[i++]);
+        }
+        while (j < other.keys.length) {
+            merger.add(other.keys[j], other.containers[j++]);
+        }
+        return merger.build();
+    }
+
+    /**
+     * Intersection of this bitmap and another one.
+     *
+     * @param other the bitmap to intersect with
+     * @return the ids in both bitmaps
+     */
+    public AudienceBitmap intersection(final AudienceBitmap other) {
+        Merger merger = new Merger(Math.min(keys.length, other.keys.length));
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] words = containers[i++].toWords();
+                long[] otherWords = other.containers[j].toWords();
+                for (int word = 0; word < WORDS; word++) {
+                    words[word] &= otherWords[word];
+                }
+                merger.add(other.keys[j++], container(words));
+            }
+        }
+        return merger.build();
+    }
+
+    /**
+     * Difference of this bitmap and another one.
+     *
+     * @param other the bitmap to remove
+     * @return the ids in this bitmap but not in the other one
+     */
+    public AudienceBitmap difference(final AudienceBitmap other) {
+        Merger merger = new Merger(keys.length);
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                long[] words = containers[i].toWords();
+                long[] otherWords = other.containers[j].toWords();
+                for (int word = 0; word < WORDS; word++) {
+                    words[word] &= ~otherWords[word];
+                }
+                merger.add(keys[i], container(words));
+            } else {
+                merger.add(keys[i], containers[i]);
+            }
+        }
+        return merger.build();
+    }
+
+    /**
+     * Complement of this bitmap within a closed range of ids.
+     *
+     * @param fromId the first id of the range
+     * @param toId   the last id of the range
+     * @return the ids from fromId to toId that are not in this bitmap
+     */
+    public AudienceBitmap complement(final int fromId, final int toId) {
+        return range(fromId, toId).difference(this);
+    }
+
+    /**
+     * Pass every id to a consumer, in ascending order.
+     *
+     * @param consumer the consumer of the ids
+     */
+    public void forEach(final IntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach(keys[i] << CONTAINER_BITS, consumer);
+        }
+    }
+
+    /**
+     * Iterate over the ids, in ascending order.
+     *
+     * @return an iterator over the ids
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new BitmapIterator();
+    }
+
+    /**
+     * Stream the ids, in ascending order.
+     *
+     * @return the ids
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    private static void checkId(final int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Audience ids can't be negative: " + id);
+        }
+    }
+
+    /**
+     * Collects ids into a new bitmap. Ids may be added in any order and more than once.
+     */
+    public static final class Builder {
+        private final NavigableMap<Integer, long[]> words = new TreeMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add an id to the bitmap.
+         *
+         * @param id the id to add
+         * @return this builder
+         */
+        public Builder add(final int id) {
+            checkId(id);
+            int low = id & LOW_MASK;
+            words.computeIfAbsent(id >>> CONTAINER_BITS, key -> new long[WORDS])[low >>> WORD_BITS] |= 1L << low;
+            return this;
+        }
+
+        /**
+         * Build the bitmap of all added ids.
+         *
+         * @return the bitmap
+         */
+        public AudienceBitmap build() {
+            int[] keys = words.keySet().stream().mapToInt(Integer::intValue).toArray();
+            Container[] containers = new Container[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                containers[i] = container(words.get(keys[i]).clone());
+            }
+            return new AudienceBitmap(keys, containers);
+        }
+    }
+
+    /**
+     * Collects the non-empty containers of a set operation, in ascending key order.
+     */
+    private static final class Merger {
+        private final int[] keys;
+        private final Container[] containers;
+        private int size;
+
+        private Merger(final int capacity) {
+            keys = new int[capacity];
+            containers = new Container[capacity];
+        }
+
+        private void add(final int key, final Container container) {
+            if (container.cardinality() > 0) {
+                keys[size] = key;
+                containers[size++] = container;
+            }
+        }
+
+        private AudienceBitmap build() {
+            return size == 0 ? NO_IDS : new AudienceBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size));
+        }
+    }
+
+    private static Container container(final long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) {
+            return NO_CONTAINER;
+        }
+        if (cardinality > MAX_ARRAY_SIZE) {
+            return new BitmapContainer(words, cardinality);
+        }
+        char[] values = new char[cardinality];
+        int size = 0;
+        for (int word = 0; word < WORDS; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                values[size] = (char) ((word << WORD_BITS) + Long.numberOfTrailingZeros(bits));
+                size++;
+                bits &= bits - 1;
+            }
+        }
+        return new ArrayContainer(values);
+    }
+
+    /**
+     * Up to 65536 ids sharing their high 16 bits, identified by their low 16 bits.
+     */
+    private interface Container {
+
+        /**
+         * Count the ids in the container.
+         *
+         * @return the number of ids
+         */
+        int cardinality();
+
+        /**
+         * Check whether the container holds an id.
+         *
+         * @param low the low bits of the id
+         * @return true if the id is in the container
+         */
+        boolean contains(int low);
+
+        /**
+         * Copy the container into a new bitmap of 1024 words.
+         *
+         * @return the words, one bit per id
+         */
+        long[] toWords();
+
+        /**
+         * Set the bits of the container's ids in a bitmap of 1024 words.
+         *
+         * @param words the words to update
+         */
+        void orInto(long[] words);
+
+        /**
+         * Pass every id to a consumer, in ascending order.
+         *
+         * @param high     the high bits shared by the ids, already shifted in place
+         * @param consumer the consumer of the ids
+         */
+        void forEach(int high, IntConsumer consumer);
+
+        /**
+         * Find the lowest id in the container from a given one on.
+         *
+         * @param low the low bits of the first id to consider
+         * @return the low bits of the next id, or -1 if there are none
+         */
+        int nextFrom(int low);
+    }
+
+    private static final class ArrayContainer implements Container {
+        private final char[] values;
+
+        private ArrayContainer(final char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        public boolean contains(final int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        public long[] toWords() {
+            long[] words = new long[WORDS];
+            orInto(words);
+            return words;
+        }
+
+        @Override
+        public void orInto(final long[] words) {
+            for (char value : values) {
+                words[value >>> WORD_BITS] |= 1L << value;
+            }
+        }
+
+        @Override
+        public void forEach(final int high, final IntConsumer consumer) {
+            for (char value : values) {
+                consumer.accept(high | value);
+            }
+        }
+
+        @Override
+        public int nextFrom(final int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < values.length ? values[index] : -1;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+        private final int size;
+
+        private BitmapContainer(final long[] words, final int size) {
+            this.words = words;
+            this.size = size;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(final int low) {
+            return (words[low >>> WORD_BITS] & (1L << low)) != 0;
+        }
+
+        @Override
+        public long[] toWords() {
+            return words.clone();
+        }
+
+        @Override
+        public void orInto(final long[] target) {
+            for (int word = 0; word < WORDS; word++) {
+                target[word] |= words[word];
+            }
+        }
+
+        @Override
+        public void forEach(final int high, final IntConsumer consumer) {
+            for (int word = 0; word < WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    consumer.accept(high | ((word << WORD_BITS) + Long.numberOfTrailingZeros(bits)));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        public int nextFrom(final int low) {
+            int word = low >>> WORD_BITS;
+            long bits = words[word] & (-1L << low);
+            while (bits == 0) {
+                word++;
+                if (word == WORDS) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return (word << WORD_BITS) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+
+    /**
+     * Iterates over the ids container by container, without boxing them.
+     */
+    private final class BitmapIterator implements PrimitiveIterator.OfInt {
+        private int containerIndex;
+        private int nextLow = keys.length > 0 ? containers[0].nextFrom(0) : -1;
+
+        @Override
+        public boolean hasNext() {
+            return nextLow >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (nextLow < 0) {
+                throw new NoSuchElementException();
+            }
+            int next = keys[containerIndex] << CONTAINER_BITS | nextLow;
+            nextLow = nextLow < LOW_MASK ? containers[containerIndex].nextFrom(nextLow + 1) : -1;
+            while (nextLow < 0 && containerIndex + 1 < keys.length) {
+                containerIndex++;
+                nextLow = containers[containerIndex].nextFrom(0);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.virusafe.service.notification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Resolves push notification audiences to the push tokens of users that have granted consent.
+ * Audiences are bitmaps of user ids, so they can be combined in memory before any push token is read.
+ */
+public interface PushAudienceService {
+
+    /**
+     * Find the audience made of the given users. GUIDs without a user are skipped.
+     *
+     * @param userGuids the GUIDs of the users in the audience
+     * @return the bitmap of the users' ids
+     */
+    AudienceBitmap findAudience(Set<String> userGuids);
+
+    /**
+     * Add users to an audience that is being built, so that large audiences can be collected a page at a time.
+     * GUIDs without a user are skipped.
+     *
+     * @param audience  the builder of the audience
+     * @param userGuids the GUIDs of the users to add
+     */
+    void addToAudience(AudienceBitmap.Builder audience, Collection<String> userGuids);
+
+    /**
+     * Reverse an audience, so that it holds every user except the ones in it.
+     *
+     * @param audience the audience to reverse
+     * @return the bitmap of the ids of all other users
+     */
+    AudienceBitmap reverse(AudienceBitmap audience);
+
+    /**
+     * Stream the push tokens of an audience in chunks of a fixed size. Tokens are read from the database lazily,
+     * a range of user ids at a time, so only a bounded number of them is held in memory however large the
+     * audience is.
+     *
+     * @param audience the bitmap of the ids of the users in the audience
+     * @return the push tokens of the audience, in chunks of at most the configured chunk size
+     */
+    Stream<List<String>> streamPushTokenChunks(AudienceBitmap audience);
+}
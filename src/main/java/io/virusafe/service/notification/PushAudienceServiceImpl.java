@@ -0,0 +1,162 @@
+package io.virusafe.service.notification;
+
+import io.virusafe.domain.projection.UserPushToken;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Resolves audiences through the user details JDBC repository. GUIDs are turned into user ids once, in slices of
+ * at most one chunk, after which reverse audiences are a complement of the id bitmap instead of a NOT IN clause.
+ * Push tokens are read a chunk of audience ids at a time: dense ids as a single id range, sparse ones by id.
+ */
+@Service
+public class PushAudienceServiceImpl implements PushAudienceService {
+
+    private static final int FIRST_ID = 1;
+    // A range is read when it holds at most this many ids per audience member, otherwise members are read by id.
+    private static final int MAX_RANGE_SPREAD = 2;
+
+    private final UserDetailsJdbcRepository userDetailsJdbcRepository;
+    private final int chunkSize;
+
+    /**
+     * Construct push audience service.
+     *
+     * @param userDetailsJdbcRepository the user details JDBC repository, used to read user ids and push tokens
+     * @param chunkSize                 the number of push tokens read from the database and returned at a time
+     */
+    @Autowired
+    public PushAudienceServiceImpl(final UserDetailsJdbcRepository userDetailsJdbcRepository,
+                                   @Value("${push-notifications.audience.chunk-size:500}") final int chunkSize) {
+        this.userDetailsJdbcRepository = userDetailsJdbcRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public AudienceBitmap findAudience(final Set<String> userGuids) {
+        AudienceBitmap.Builder audience = AudienceBitmap.builder();
+        addToAudience(audience, userGuids);
+        return audience.build();
+    }
+
+    @Override
+    public void addToAudience(final AudienceBitmap.Builder audience, final Collection<String> userGuids) {
+        List<String> guids = new ArrayList<>(userGuids);
+        for (int from = 0; from < guids.size(); from += chunkSize) {
+            userDetailsJdbcRepository.findIdsByUserGuids(guids.subList(from, Math.min(guids.size(), from + chunkSize)))
+                    .forEach(userId -> audience.add(Math.toIntExact(userId)));
+        }
+    }
+
+    @Override
+    public AudienceBitmap reverse(final AudienceBitmap audience) {
+        return audience.complement(FIRST_ID, Math.toIntExact(userDetailsJdbcRepository.findMaxId()));
+    }
+
+    @Override
+    public Stream<List<String>> streamPushTokenChunks(final AudienceBitmap audience) {
+        Iterator<String> pushTokens = stream(new IdSliceIterator(audience.iterator(), chunkSize))
+                .flatMap(userIds -> findPushTokens(audience, userIds))
+                .map(UserPushToken::getPushToken)
+                .iterator();
+        return stream(new ChunkIterator(pushTokens, chunkSize));
+    }
+
+    private Stream<UserPushToken> findPushTokens(final AudienceBitmap audience, final int... userIds) {
+        int fromId = userIds[0];
+        int toId = userIds[userIds.length - 1];
+        if ((long) toId - fromId < (long) userIds.length * MAX_RANGE_SPREAD) {
+            // Users in the range but outside the audience are few, so they are skipped in memory.
+            return userDetailsJdbcRepository.findGrantedPushTokensBetween(fromId, toId).stream()
+                    .filter(pushToken -> audience.contains(Math.toIntExact(pushToken.getUserId())));
+        }
+        return userDetailsJdbcRepository.findGrantedPushTokensByIds(IntStream.of(userIds)
+                .asLongStream()
+                .boxed()
+                .collect(Collectors.toList()))
+                .stream();
+    }
+
+    private static <T> Stream<T> stream(final Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Groups ascending user ids into slices of a fixed size, the last one holding the remainder.
+     */
+    private static final class IdSliceIterator implements Iterator<int[]> {
+        private final PrimitiveIterator.OfInt iterator;
+        private final int sliceSize;
+
+        private IdSliceIterator(final PrimitiveIterator.OfInt iterator, final int sliceSize) {
+            this.iterator = iterator;
+            this.sliceSize = sliceSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public int[] next() {
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int[] slice = new int[sliceSize];
+            int size = 0;
+            while (size < sliceSize && iterator.hasNext()) {
+                slice[size++] = iterator.nextInt();
+            }
+            return Arrays.copyOf(slice, size);
+        }
+    }
+
+    /**
+     * Groups the elements of an iterator into lists of a fixed size, the last one holding the remainder.
+     */
+    private static final class ChunkIterator implements Iterator<List<String>> {
+        private final Iterator<String> iterator;
+        private final int chunkSize;
+
+        private ChunkIterator(final Iterator<String> iterator, final int chunkSize) {
+            this.iterator = iterator;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public List<String> next() {
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<String> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && iterator.hasNext()) {
+                chunk.add(iterator.next());
+            }
+            return chunk;
+        }
+    }
+}
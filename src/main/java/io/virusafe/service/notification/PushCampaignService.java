@@ -0,0 +1,41 @@
+package io.virusafe.service.notification;
+
+import io.virusafe.domain.dto.PushCampaignStatusDTO;
+import io.virusafe.domain.query.QuestionnaireQuery;
+
+/**
+ * Runs push notification campaigns to the users matching a questionnaire query as background jobs.
+ */
+public interface PushCampaignService {
+
+    /**
+     * Submit a push campaign. It is queued and run in the background, the call doesn't wait for it.
+     *
+     * @param questionnaireQuery  the query selecting the users to notify
+     * @param title               the title of the notification
+     * @param message             the message of the notification
+     * @param reverseQueryResults whether to notify every user except the ones matching the query
+     * @return the status of the submitted job, holding its id
+     */
+    PushCampaignStatusDTO submit(QuestionnaireQuery questionnaireQuery, String title, String message,
+                                 boolean reverseQueryResults);
+
+    /**
+     * Get the progress of a push campaign job.
+     *
+     * @param jobId the id of the job
+     * @return the job status
+     * @throws java.util.NoSuchElementException if there is no such job, or it has been evicted from the history
+     */
+    PushCampaignStatusDTO getStatus(String jobId);
+
+    /**
+     * Cancel a push campaign job. A queued job never starts, a running one stops after its current chunk of
+     * push tokens. Finished jobs are left as they are.
+     *
+     * @param jobId the id of the job
+     * @return the job status
+     * @throws java.util.NoSuchElementException if there is no such job, or it has been evicted from the history
+     */
+    PushCampaignStatusDTO cancel(String jobId);
+}
@@ -0,0 +1,296 @@
+package io.virusafe.service.notification;
+
+import io.virusafe.domain.dto.PushCampaignStatusDTO;
+import io.virusafe.domain.dto.PushCampaignStatusDTO.State;
+import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
+import io.virusafe.domain.query.QuestionnaireQuery;
+import io.virusafe.exception.PushCampaignQueueFullException;
+import io.virusafe.service.pushnotification.PushNotificationService;
+import io.virusafe.service.query.QuestionnaireQueryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs push campaigns as background jobs on a bounded executor, so that admin requests return right away.
+ * Every job streams its pipeline: the questionnaire query is scrolled a page at a time into an audience bitmap,
+ * whose push tokens are then read and sent to Firebase a chunk at a time. The progress of the last jobs is kept
+ * in memory, so it is lost on restart.
+ */
+@Service
+@Slf4j
+public class PushCampaignServiceImpl implements PushCampaignService {
+
+    private final QuestionnaireQueryService questionnaireQueryService;
+    private final PushAudienceService pushAudienceService;
+    private final PushNotificationService pushNotificationService;
+    private final Clock systemClock;
+    private final int historySize;
+    private final ThreadPoolTaskExecutor executor;
+
+    @SuppressWarnings("PMD.UseConcurrentHashMap")
+    private final Map<String, PushCampaignJob> jobs = new LinkedHashMap<>();
+
+    /**
+     * Construct push campaign service.
+     *
+     * @param questionnaireQueryService the questionnaire query service, used to find the users matching a query
+     * @param pushAudienceService       the push audience service, used to resolve users to push tokens
+     * @param pushNotificationService   the push notification service, used to send the notifications
+     * @param systemClock               the clock to report progress against
+     * @param parallelism               the number of campaigns run at the same time
+     * @param queueCapacity             the number of campaigns waiting to run before new ones are rejected
+     * @param historySize               the number of finished campaigns whose status is kept
+     */
+    @Autowired
+    public PushCampaignServiceImpl(final QuestionnaireQueryService questionnaireQueryService,
+                                   final PushAudienceService pushAudienceService,
+                                   final PushNotificationService pushNotificationService,
+                                   final Clock systemClock,
+                                   @Value("${push-notifications.campaign.parallelism:2}") final int parallelism,
+                                   @Value("${push-notifications.campaign.queue-capacity:10}") final int queueCapacity,
+                                   @Value("${push-notifications.campaign.history-size:50}") final int historySize) {
+        this.questionnaireQueryService = questionnaireQueryService;
+        this.pushAudienceService = pushAudienceService;
+        this.pushNotificationService = pushNotificationService;
+        this.systemClock = systemClock;
+        this.historySize = historySize;
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setDaemon(true);
+        executor.setThreadNamePrefix("PushCampaign-");
+        executor.initialize();
+    }
+
+    @Override
+    public synchronized PushCampaignStatusDTO submit(final QuestionnaireQuery questionnaireQuery, final String title,
+                                                     final String message, final boolean reverseQueryResults) {
+        PushCampaignJob job = new PushCampaignJob(UUID.randomUUID().toString(), questionnaireQuery,
+                PushNotificationDTO.builder().title(title).body(message).build(), reverseQueryResults,
+                systemClock.instant());
+        try {
+            executor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            throw new PushCampaignQueueFullException("PushNotification Too many push campaigns are queued", e);
+        }
+        jobs.put(job.jobId, job);
+        evictFinishedJobs();
+        log.info("PushNotification Submitted push campaign {} with title '{}'", job.jobId, title);
+        return job.toStatus(systemClock);
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<PushCampaignJob> oldestJobs = jobs.values().iterator();
+        while (jobs.size() > historySize && oldestJobs.hasNext()) {
+            if (!oldestJobs.next().isActive()) {
+                oldestJobs.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized PushCampaignStatusDTO getStatus(final String jobId) {
+        return getJob(jobId).toStatus(systemClock);
+    }
+
+    @Override
+    public synchronized PushCampaignStatusDTO cancel(final String jobId) {
+        PushCampaignJob job = getJob(jobId);
+        job.cancel(systemClock.instant());
+        return job.toStatus(systemClock);
+    }
+
+    private PushCampaignJob getJob(final String jobId) {
+        return Optional.ofNullable(jobs.get(jobId))
+                .orElseThrow(() -> new NoSuchElementException("Push campaign " + jobId + " not found"));
+    }
+
+    /**
+     * Cancel the queued and running jobs and stop their threads on shutdown.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        jobs.values().forEach(job -> job.cancel(systemClock.instant()));
+        executor.shutdown();
+    }
+
+    private void run(final PushCampaignJob job) {
+        if (!job.start(systemClock.instant())) {
+            return;
+        }
+        try {
+            AudienceBitmap.Builder audienceBuilder = AudienceBitmap.builder();
+            questionnaireQueryService.scrollInQuestionnaire(job.questionnaireQuery, userGuids -> {
+                job.checkNotCancelled();
+                job.matchedUsers.addAndGet(userGuids.size());
+                pushAudienceService.addToAudience(audienceBuilder, userGuids);
+            });
+            AudienceBitmap audience = audienceBuilder.build();
+            if (job.reverseQueryResults) {
+                audience = pushAudienceService.reverse(audience);
+            }
+            job.audienceSize.set(audience.cardinality());
+            job.checkNotCancelled();
+
+            // Chunks still being sent when the job is cancelled are let finish, only the remaining ones are skipped.
+            PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                    pushAudienceService.streamPushTokenChunks(audience)
+                            .takeWhile(pushTokens -> !job.isCancelling())
+                            .peek(pushTokens -> job.resolvedTokens.addAndGet(pushTokens.size())),
+                    job.pushNotificationDTO, job::addChunkResult);
+            job.prunedTokens.set(result.getPrunedCount());
+            job.complete(systemClock.instant());
+        } catch (CancellationException e) {
+            job.finish(State.CANCELLED, null, systemClock.instant());
+        } catch (RuntimeException e) {
+            log.error("PushNotification Push campaign {} failed", job.jobId, e);
+            job.finish(State.FAILED, e.getMessage(), systemClock.instant());
+        }
+        log.info("PushNotification Push campaign finished: {}", job.toStatus(systemClock));
+    }
+
+    private static final class PushCampaignJob {
+        private final String jobId;
+        private final QuestionnaireQuery questionnaireQuery;
+        private final PushNotificationDTO pushNotificationDTO;
+        private final boolean reverseQueryResults;
+        private final Instant submittedAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+        private final AtomicLong matchedUsers = new AtomicLong();
+        private final AtomicLong audienceSize = new AtomicLong();
+        private final AtomicLong resolvedTokens = new AtomicLong();
+        private final AtomicLong sentCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong deadTokens = new AtomicLong();
+        private final AtomicLong prunedTokens = new AtomicLong();
+        private final Map<String, Long> errorCodes = new ConcurrentHashMap<>();
+        private final AtomicReference<String> error = new AtomicReference<>();
+        private final AtomicReference<Instant> startedAt = new AtomicReference<>();
+        private final AtomicReference<Instant> finishedAt = new AtomicReference<>();
+
+        private PushCampaignJob(final String jobId, final QuestionnaireQuery questionnaireQuery,
+                                final PushNotificationDTO pushNotificationDTO, final boolean reverseQueryResults,
+                                final Instant submittedAt) {
+            this.jobId = jobId;
+            this.questionnaireQuery = questionnaireQuery;
+            this.pushNotificationDTO = pushNotificationDTO;
+            this.reverseQueryResults = reverseQueryResults;
+            this.submittedAt = submittedAt;
+        }
+
+        private boolean start(final Instant startTime) {
+            if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+                return false;
+            }
+            startedAt.set(startTime);
+            return true;
+        }
+
+        private void cancel(final Instant cancelTime) {
+            if (state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+                finishedAt.set(cancelTime);
+            } else {
+                state.compareAndSet(State.RUNNING, State.CANCELLING);
+            }
+        }
+
+        private boolean isActive() {
+            State currentState = state.get();
+            return currentState == State.QUEUED || currentState == State.RUNNING
+                    || currentState == State.CANCELLING;
+        }
+
+        private boolean isCancelling() {
+            return state.get() == State.CANCELLING;
+        }
+
+        private void checkNotCancelled() {
+            if (isCancelling()) {
+                throw new CancellationException("Push campaign " + jobId + " is cancelled");
+            }
+        }
+
+        private void addChunkResult(final PushNotificationResultDTO chunkResult) {
+            sentCount.addAndGet(chunkResult.getSuccessCount());
+            failedCount.addAndGet(chunkResult.getFailureCount());
+            deadTokens.addAndGet(chunkResult.getDeadTokenCount());
+            chunkResult.getErrorCodes().forEach((errorCode, count) -> errorCodes.merge(errorCode, count, Long::sum));
+        }
+
+        private void complete(final Instant finishTime) {
+            if (isCancelling()) {
+                finish(State.CANCELLED, null, finishTime);
+            } else if (sentCount.get() == 0 && failedCount.get() == 0) {
+                finish(State.FAILED, "PushNotification Cannot find push tokens or user revoked its data", finishTime);
+            } else if (sentCount.get() == 0) {
+                finish(State.FAILED, "PushNotification Could not send push notifications", finishTime);
+            } else {
+                finish(State.COMPLETED, null, finishTime);
+            }
+        }
+
+        private void finish(final State finalState, final String errorMessage, final Instant finishTime) {
+            error.set(errorMessage);
+            finishedAt.set(finishTime);
+            state.set(finalState);
+        }
+
+        private PushCampaignStatusDTO toStatus(final Clock clock) {
+            // The state is written last, so a finished state is always reported along with its finish time.
+            State currentState = state.get();
+            Optional<Instant> startTime = Optional.ofNullable(startedAt.get());
+            Optional<Instant> finishTime = Optional.ofNullable(finishedAt.get());
+            Instant endTime = finishTime.orElseGet(clock::instant);
+            long elapsedMillis = startTime
+                    .map(time -> Math.max(endTime.toEpochMilli() - time.toEpochMilli(), 1L))
+                    .orElse(1L);
+            long processedTokens = sentCount.get() + failedCount.get();
+            return PushCampaignStatusDTO.builder()
+                    .jobId(jobId)
+                    .state(currentState)
+                    .title(pushNotificationDTO.getTitle())
+                    .reverseQueryResults(reverseQueryResults)
+                    .matchedUsers(matchedUsers.get())
+                    .audienceSize(audienceSize.get())
+                    .resolvedTokens(resolvedTokens.get())
+                    .sentCount(sentCount.get())
+                    .failedCount(failedCount.get())
+                    .errorCodes(new TreeMap<>(errorCodes))
+                    .deadTokens(deadTokens.get())
+                    .prunedTokens(prunedTokens.get())
+                    .tokensPerSecond(processedTokens * (double) TimeUnit.SECONDS.toMillis(1) / elapsedMillis)
+                    .error(error.get())
+                    .submittedAt(toLocalDateTime(submittedAt, clock))
+                    .startedAt(startTime.map(time -> toLocalDateTime(time, clock)).orElse(null))
+                    .finishedAt(finishTime.map(time -> toLocalDateTime(time, clock)).orElse(null))
+                    .build();
+        }
+
+        private static LocalDateTime toLocalDateTime(final Instant instant, final Clock clock) {
+            return LocalDateTime.ofInstant(instant, clock.getZone());
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package io.virusafe.service.notification;
 
 import io.virusafe.domain.dto.PushNotificationDTO;
-import io.virusafe.domain.query.QuestionnaireQuery;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import io.virusafe.exception.PushNotificationException;
 import io.virusafe.service.pushnotification.PushNotificationService;
-import io.virusafe.service.query.QuestionnaireQueryService;
-import io.virusafe.service.userdetails.UserDetailsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -15,40 +13,21 @@ import java.util.Set;
 @Slf4j
 public class PushNotificationSenderServiceImpl implements PushNotificationSenderService {
 
-    private final UserDetailsService userDetailsService;
+    private final PushAudienceService pushAudienceService;
 
     private final PushNotificationService pushNotificationService;
 
-    private final QuestionnaireQueryService questionnaireQueryService;
-
     /**
      * Construct PushNotificationSenderServiceImpl using beans
      *
-     * @param userDetailsService
+     * @param pushAudienceService
      * @param pushNotificationService
-     * @param questionnaireQueryService
      */
     public PushNotificationSenderServiceImpl(
-            final UserDetailsService userDetailsService,
-            final PushNotificationService pushNotificationService,
-            final QuestionnaireQueryService questionnaireQueryService) {
-        this.userDetailsService = userDetailsService;
+            final PushAudienceService pushAudienceService,
+            final PushNotificationService pushNotificationService) {
+        this.pushAudienceService = pushAudienceService;
         this.pushNotificationService = pushNotificationService;
-        this.questionnaireQueryService = questionnaireQueryService;
-    }
-
-    @Override
-    public void sendCustomPushNotifications(final QuestionnaireQuery questionnaireQuery, final String title,
-                                            final String message, final boolean reverseQueryResults) {
-        Set<String> userGuids = questionnaireQueryService.searchInQuestionnaire(questionnaireQuery);
-
-        if (userGuids.isEmpty() && !reverseQueryResults) {
-            throw new PushNotificationException("PushNotification Cannot find users by the query in elasticsearch");
-        }
-
-        Set<String> pushTokens = userDetailsService.findPushTokensForUserGuids(userGuids, reverseQueryResults);
-
-        sendNotifications(title, message, pushTokens);
     }
 
     @Override
@@ -58,20 +37,23 @@ public class PushNotificationSenderServiceImpl implements PushNotificationSender
             throw new PushNotificationException("PushNotification Cannot find users by the query in elasticsearch");
         }
 
-        Set<String> pushTokens = userDetailsService.findPushTokensForUserGuids(userGuids, false);
-
-        sendNotifications(title, message, pushTokens);
-    }
+        PushNotificationDTO pushNotificationDTO = PushNotificationDTO.builder().title(title).body(message).build();
+        AudienceBitmap audience = pushAudienceService.findAudience(userGuids);
+        // Tokens are read and sent a chunk at a time, so the whole audience is never held in memory.
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                pushAudienceService.streamPushTokenChunks(audience), pushNotificationDTO);
 
-    private void sendNotifications(final String title, final String message, final Set<String> pushTokens) {
-        if (pushTokens.isEmpty()) {
+        if (result.getSuccessCount() == 0 && result.getFailureCount() == 0) {
             throw new PushNotificationException("PushNotification Cannot find push tokens or user revoked its data");
         }
-
-        pushNotificationService
-                .sendNotificationToTokens(pushTokens, PushNotificationDTO.builder().title(title).body(message).build());
-        log.info("PushNotification Send {} push notifications with title '{}' and message '{}'", pushTokens.size(),
-                title, message);
+        if (result.getSuccessCount() == 0) {
+            throw new PushNotificationException("PushNotification Could not send push notifications, error codes "
+                    + result.getErrorCodes());
+        }
+        log.info(
+                "PushNotification Send {} push notifications with title '{}' and message '{}', {} failed {}, {} pruned",
+                result.getSuccessCount(), title, message, result.getFailureCount(), result.getErrorCodes(),
+                result.getPrunedCount());
     }
 
 }
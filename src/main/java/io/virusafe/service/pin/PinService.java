@@ -14,16 +14,17 @@ public interface PinService {
     /**
      * Verify provided by user pin
      *
-     * @param phoneNumber
+     * @param userDetailsId
      * @param pin
      * @return
      */
-    boolean verifyPin(String phoneNumber, String pin);
+    boolean verifyPin(Long userDetailsId, String pin);
 
     /**
      * invalidate pins for specific user
      *
-     * @param phoneNumber
+     * @param userDetailsId
+     * @return true if any active pins were invalidated
      */
-    void invalidatePins(String phoneNumber);
+    boolean invalidatePins(Long userDetailsId);
 }
@@ -1,7 +1,7 @@
 package io.virusafe.service.pin;
 
-import io.virusafe.domain.entity.RegistrationPin;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.repository.RegistrationPinRepository;
 import io.virusafe.service.pin.generator.PinGenerator;
 import io.virusafe.service.sms.SMSService;
 import io.virusafe.service.userdetails.UserDetailsService;
@@ -13,11 +13,9 @@ import org.springframework.stereotype.Service;
 import java.text.MessageFormat;
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.NoSuchElementException;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -25,9 +23,9 @@ public class PinServiceImpl implements PinService {
 
     private static final String DEFAULT_PIN = "000000";
     private static final String USING_IOS_VALIDATION_NUMBER = "Using iOS validation number {0}";
-    private static final String MISSING_USER_TEMPLATE = "User with phone number {0} is not registered!";
 
     private final UserDetailsService userDetailsService;
+    private final RegistrationPinRepository registrationPinRepository;
     private final PinGenerator pinGenerator;
     private final SMSService smsService;
     private final long pinValidTime;
@@ -39,6 +37,7 @@ public class PinServiceImpl implements PinService {
      * Construct a new PinService, using the autowired beans.
      *
      * @param userDetailsService
+     * @param registrationPinRepository
      * @param pinGenerator
      * @param smsService
      * @param pinValidTime
@@ -47,13 +46,16 @@ public class PinServiceImpl implements PinService {
      * @param systemClock
      */
     @Autowired
-    public PinServiceImpl(final UserDetailsService userDetailsService, final PinGenerator pinGenerator,
+    public PinServiceImpl(final UserDetailsService userDetailsService,
+                          final RegistrationPinRepository registrationPinRepository,
+                          final PinGenerator pinGenerator,
                           final SMSService smsService,
                           @Value("${pin.generation.valid.minutes}") final long pinValidTime,
                           @Value("${ios.validation.process.phone.number:'iOSValidationPhone'}") final String iosValidationPhoneNumber,
                           @Value("${pin.generation.valid.limit}") final long pinValidAmount,
                           final Clock systemClock) {
         this.userDetailsService = userDetailsService;
+        this.registrationPinRepository = registrationPinRepository;
         this.pinGenerator = pinGenerator;
         this.smsService = smsService;
         this.pinValidTime = pinValidTime;
@@ -65,7 +67,9 @@ public class PinServiceImpl implements PinService {
     @Override
     public void generatePin(final String phoneNumber) {
 
-        Optional<UserDetails> userDetails = userDetailsService.findByPhoneNumber(phoneNumber);
+        // If not present in the database, register a new user with the phone number.
+        Long userDetailsId = userDetailsService.findIdByPhoneNumber(phoneNumber)
+                .orElseGet(() -> registerUserDetails(phoneNumber));
 
         String pin = pinGenerator.generatePin();
         if (iosValidationPhoneNumber.equals(phoneNumber)) {
@@ -77,25 +81,16 @@ public class PinServiceImpl implements PinService {
         LocalDateTime timeNow = LocalDateTime.now(systemClock);
         LocalDateTime validUntil = timeNow.plusMinutes(pinValidTime);
 
-        RegistrationPin registrationPin = RegistrationPin.builder()
-                .pin(pin)
-                .validUntil(validUntil)
-                .build();
-
-        // If not present in the database, build new user details with the phone number.
-        UserDetails existingUserDetails = userDetails.orElseGet(() -> buildUserDetails(phoneNumber));
         // Invalidate pins that are going to be active at the same time as the new pin.
-        existingUserDetails.getRegistrationPins()
+        List<Long> pinIdsToExpire = registrationPinRepository.findActivePinIdsByUserDetailsId(userDetailsId, timeNow)
                 .stream()
-                .filter(p -> Objects.nonNull(p.getValidUntil()))
-                .filter(p -> p.getValidUntil().isAfter(timeNow)) // Get all currently valid PINs.
-                .sorted(Comparator.comparing(RegistrationPin::getValidUntil).reversed())
                 .skip(pinValidAmount - 1) // Ensure we have no more than pinValidAmount active PINs.
-                .forEach(p -> p.setValidUntil(timeNow));
+                .collect(Collectors.toList());
+        if (!pinIdsToExpire.isEmpty()) {
+            registrationPinRepository.expirePinsByIdIn(pinIdsToExpire, timeNow);
+        }
 
-        existingUserDetails.addRegistrationPin(registrationPin);
-        registrationPin.setUserDetails(existingUserDetails);
-        userDetailsService.save(existingUserDetails);
+        registrationPinRepository.insertPin(userDetailsId, pin, validUntil);
 
         if (iosValidationPhoneNumber.equals(phoneNumber)) {
             // do not send SMS for iOSValidation
@@ -105,30 +100,21 @@ public class PinServiceImpl implements PinService {
     }
 
     @Override
-    public boolean verifyPin(final String phoneNumber, final String pin) {
-
-        Optional<UserDetails> userDetails = userDetailsService
-                .findByPhoneNumberAndValidPin(phoneNumber, pin, LocalDateTime.now(systemClock));
-        return userDetails.isPresent();
+    public boolean verifyPin(final Long userDetailsId, final String pin) {
+        return registrationPinRepository.existsValidPinByUserDetailsId(userDetailsId, pin,
+                LocalDateTime.now(systemClock));
     }
 
     @Override
-    public void invalidatePins(final String phoneNumber) {
-        UserDetails userDetails = userDetailsService.findByPhoneNumber(phoneNumber)
-                .orElseThrow(
-                        () -> new NoSuchElementException(MessageFormat.format(MISSING_USER_TEMPLATE, phoneNumber))
-                );
-        LocalDateTime timeNow = LocalDateTime.now(systemClock);
-        userDetails.getRegistrationPins()
-                .forEach(pin -> invalidateIfActive(pin, timeNow));
-        userDetailsService.save(userDetails);
+    public boolean invalidatePins(final Long userDetailsId) {
+        return registrationPinRepository.expireActivePinsByUserDetailsId(userDetailsId,
+                LocalDateTime.now(systemClock)) > 0;
     }
 
-    private void invalidateIfActive(final RegistrationPin registrationPin, final LocalDateTime timeNow) {
-        if (Objects.nonNull(registrationPin.getValidUntil()) &&
-                registrationPin.getValidUntil().isAfter(timeNow)) {
-            registrationPin.setValidUntil(timeNow);
-        }
+    private Long registerUserDetails(final String phoneNumber) {
+        UserDetails userDetails = buildUserDetails(phoneNumber);
+        userDetailsService.save(userDetails);
+        return userDetails.getId();
     }
 
     private UserDetails buildUserDetails(final String phoneNumber) {
@@ -1,16 +1,47 @@
 package io.virusafe.service.pushnotification;
 
 import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 public class LogOnlyPushNotificationService implements PushNotificationService {
     @Override
-    public void sendNotificationToTokens(final Set<String> pushTokens, final PushNotificationDTO pushNotificationDTO) {
+    public PushNotificationResultDTO sendNotificationToTokens(final Set<String> pushTokens,
+                                                              final PushNotificationDTO pushNotificationDTO) {
         log.info("LogOnly sendNotificationToTokens push notifications pushTokens {} and messageData {}", pushTokens,
                 pushNotificationDTO);
+        return createResult(pushTokens.size(), 1);
+    }
+
+    @Override
+    public PushNotificationResultDTO sendNotificationToTokenChunks(
+            final Stream<List<String>> pushTokenChunks, final PushNotificationDTO pushNotificationDTO,
+            final Consumer<PushNotificationResultDTO> chunkResultConsumer) {
+        LongSummaryStatistics chunkSizes = pushTokenChunks
+                .peek(pushTokens -> {
+                    log.info("LogOnly sendNotificationToTokenChunks push notifications pushTokens {} and messageData {}",
+                            pushTokens, pushNotificationDTO);
+                    chunkResultConsumer.accept(createResult(pushTokens.size(), 1));
+                })
+                .mapToLong(List::size)
+                .summaryStatistics();
+        return createResult(chunkSizes.getSum(), chunkSizes.getCount());
+    }
+
+    private PushNotificationResultDTO createResult(final long tokenCount, final long chunkCount) {
+        return PushNotificationResultDTO.builder()
+                .successCount(tokenCount)
+                .chunkCount(chunkCount)
+                .errorCodes(Collections.emptyMap())
+                .build();
     }
 
     @Override
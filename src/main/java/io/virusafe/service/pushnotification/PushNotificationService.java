@@ -1,8 +1,12 @@
 package io.virusafe.service.pushnotification;
 
 import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Push Notification Service
@@ -13,8 +17,38 @@ public interface PushNotificationService {
      *
      * @param pushToken
      * @param pushNotificationDTO
+     * @return the aggregated result of sending to every token
+     * @throws io.virusafe.exception.PushNotificationException if the notification couldn't be sent to any token
      */
-    void sendNotificationToTokens(final Set<String> pushToken, final PushNotificationDTO pushNotificationDTO);
+    PushNotificationResultDTO sendNotificationToTokens(final Set<String> pushToken,
+                                                       final PushNotificationDTO pushNotificationDTO);
+
+    /**
+     * Send notification to chunks of tokens, read one at a time. Tokens that couldn't be sent to are reported in
+     * the result instead of failing the whole broadcast.
+     *
+     * @param pushTokenChunks     the push tokens to send to, in chunks
+     * @param pushNotificationDTO the notification to send
+     * @return the aggregated result of sending to every chunk
+     */
+    default PushNotificationResultDTO sendNotificationToTokenChunks(final Stream<List<String>> pushTokenChunks,
+                                                                    final PushNotificationDTO pushNotificationDTO) {
+        return sendNotificationToTokenChunks(pushTokenChunks, pushNotificationDTO, chunkResult -> {
+        });
+    }
+
+    /**
+     * Send notification to chunks of tokens, read one at a time, reporting the result of every chunk as soon as
+     * it is known. Chunk results may be reported from other threads, but never after this method returns.
+     *
+     * @param pushTokenChunks     the push tokens to send to, in chunks
+     * @param pushNotificationDTO the notification to send
+     * @param chunkResultConsumer receives the result of every chunk
+     * @return the aggregated result of sending to every chunk
+     */
+    PushNotificationResultDTO sendNotificationToTokenChunks(Stream<List<String>> pushTokenChunks,
+                                                            PushNotificationDTO pushNotificationDTO,
+                                                            Consumer<PushNotificationResultDTO> chunkResultConsumer);
 
     /**
      * Send notification to topic
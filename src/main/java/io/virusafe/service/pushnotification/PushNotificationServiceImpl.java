@@ -1,5 +1,7 @@
 package io.virusafe.service.pushnotification;
 
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
@@ -9,17 +11,33 @@ import com.google.firebase.messaging.Notification;
 import com.google.firebase.messaging.SendResponse;
 import com.google.firebase.messaging.TopicManagementResponse;
 import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import io.virusafe.exception.PushNotificationException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Sends push notifications through Firebase. Tokens are sent in multicast messages of at most 500 tokens, the limit
+ * of Firebase, without waiting for each message to complete. A semaphore bounds the number of messages in flight,
+ * and the per-message responses are aggregated into one result as they arrive.
+ * Tokens Firebase reports as unregistered or invalid are collected from the per-token responses and pruned in
+ * batches from the sending thread, so they aren't sent to again.
+ */
 @Slf4j
 public class PushNotificationServiceImpl implements PushNotificationService {
 
@@ -27,52 +45,136 @@ public class PushNotificationServiceImpl implements PushNotificationService {
     private static final String COULD_NOT_SEND_PUSH_NOTIFICATION_BATCH_MESSAGE = "Could not send push notification to {0} tokens from {1} : error codes {2}";
     private static final String COULD_NOT_SUBSCRIBE_TO_TOPIC_CODE_MESSAGE = "Could not subscribe to topic: code {0}, message {1}";
     private static final String COULD_NOT_SUBSCRIBE_SOME_TOKENS = "Could not subscribe some tokens: {0}";
+    private static final String INTERRUPTED_WHILE_SENDING = "Interrupted while sending push notifications";
+    private static final String UNKNOWN_ERROR_CODE = "unknown";
+    private static final String UNREGISTERED_ERROR_CODE = "registration-token-not-registered";
+    private static final String INVALID_ARGUMENT_ERROR_CODE = "invalid-argument";
+    private static final int MAX_MULTICAST_TOKENS = 500;
 
     private final FirebaseMessaging firebaseMessaging;
+    private final PushTokenPruningService pushTokenPruningService;
+    private final int maxConcurrentRequests;
 
     /**
      * Construct PushNotificationServiceImpl
      *
-     * @param firebaseMessaging
+     * @param firebaseMessaging       the Firebase messaging client
+     * @param pushTokenPruningService the service clearing the tokens Firebase reports as dead
+     * @param maxConcurrentRequests   the maximum number of multicast messages sent to Firebase at the same time
      */
-    public PushNotificationServiceImpl(final FirebaseMessaging firebaseMessaging) {
+    public PushNotificationServiceImpl(final FirebaseMessaging firebaseMessaging,
+                                       final PushTokenPruningService pushTokenPruningService,
+                                       final int maxConcurrentRequests) {
         this.firebaseMessaging = firebaseMessaging;
+        this.pushTokenPruningService = pushTokenPruningService;
+        this.maxConcurrentRequests = maxConcurrentRequests;
     }
 
     @Override
-    public void sendNotificationToTokens(final Set<String> pushToken, final PushNotificationDTO pushNotificationDTO) {
+    public PushNotificationResultDTO sendNotificationToTokens(final Set<String> pushToken,
+                                                              final PushNotificationDTO pushNotificationDTO) {
         Objects.requireNonNull(pushToken);
         Objects.requireNonNull(pushNotificationDTO);
 
         log.debug("Sending push notification to tokens {}", pushToken);
-        MulticastMessage message = MulticastMessage.builder()
-                .addAllTokens(pushToken)
-                .setNotification(createNotification(pushNotificationDTO))
-                .putData(pushNotificationDTO.getTitle(), pushNotificationDTO.getBody())
-                .build();
-        sendMulticastMessageToFirebase(message);
+        PushNotificationResultDTO result = sendMulticastMessages(List.of(List.copyOf(pushToken)).iterator(),
+                pushNotificationDTO, chunkResult -> {
+                });
+        if (result.getSuccessCount() == 0 && result.getFailureCount() > 0) {
+            String errorMessage = MessageFormat.format(COULD_NOT_SEND_PUSH_NOTIFICATION_BATCH_MESSAGE,
+                    result.getFailureCount(), pushToken.size(), new ArrayList<>(result.getErrorCodes().keySet()));
+            log.error(errorMessage);
+            throw new PushNotificationException(errorMessage);
+        }
+        return result;
     }
 
-    private void sendMulticastMessageToFirebase(final MulticastMessage message) {
-        try {
-            BatchResponse response = firebaseMessaging.sendMulticast(message);
-            if (response.getFailureCount() > 0) {
-                List<String> errorCodes = response.getResponses().stream()
-                        .filter(Predicate.not(SendResponse::isSuccessful))
-                        .map(SendResponse::getException)
-                        .map(FirebaseMessagingException::getErrorCode).distinct()
-                        .collect(Collectors.toList());
+    @Override
+    public PushNotificationResultDTO sendNotificationToTokenChunks(
+            final Stream<List<String>> pushTokenChunks, final PushNotificationDTO pushNotificationDTO,
+            final Consumer<PushNotificationResultDTO> chunkResultConsumer) {
+        Objects.requireNonNull(pushTokenChunks);
+        Objects.requireNonNull(pushNotificationDTO);
 
-                String errorMessage = MessageFormat
-                        .format(COULD_NOT_SEND_PUSH_NOTIFICATION_BATCH_MESSAGE, response.getFailureCount(),
-                                response.getResponses().size(), errorCodes);
-                log.error(errorMessage);
-                throw new PushNotificationException(errorMessage);
+        return sendMulticastMessages(pushTokenChunks.iterator(), pushNotificationDTO, chunkResultConsumer);
+    }
+
+    private PushNotificationResultDTO sendMulticastMessages(
+            final Iterator<List<String>> pushTokenChunks, final PushNotificationDTO pushNotificationDTO,
+            final Consumer<PushNotificationResultDTO> chunkResultConsumer) {
+        Notification notification = createNotification(pushNotificationDTO);
+        Semaphore requests = new Semaphore(maxConcurrentRequests);
+        MulticastResults results = new MulticastResults(chunkResultConsumer);
+        try {
+            while (pushTokenChunks.hasNext()) {
+                List<String> pushTokens = pushTokenChunks.next();
+                for (int from = 0; from < pushTokens.size(); from += MAX_MULTICAST_TOKENS) {
+                    requests.acquire();
+                    sendMulticastMessage(pushTokens.subList(from, Math.min(pushTokens.size(),
+                            from + MAX_MULTICAST_TOKENS)), notification, pushNotificationDTO, requests, results);
+                    if (results.deadTokens.size() >= MAX_MULTICAST_TOKENS) {
+                        pruneDeadTokens(results);
+                    }
+                }
             }
-            log.debug("Multicast push notification Firebase response: {}", response);
-        } catch (FirebaseMessagingException e) {
-            throw createPushNotificationException(e, COULD_NOT_SEND_PUSH_NOTIFICATION_CODE_MESSAGE);
+            // Every message in flight holds a permit, so all of them are complete once every permit is back.
+            requests.acquire(maxConcurrentRequests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PushNotificationException(INTERRUPTED_WHILE_SENDING, e);
+        }
+        pruneDeadTokens(results);
+        PushNotificationResultDTO result = results.toResult();
+        long tokenCount = result.getSuccessCount() + result.getFailureCount();
+        if (result.getFailureCount() > 0) {
+            log.warn("Could not send push notification to {} tokens from {} : error codes {}",
+                    result.getFailureCount(), tokenCount, result.getErrorCodes());
         }
+        log.debug("Multicast push notification Firebase result: {}", result);
+        return result;
+    }
+
+    private void pruneDeadTokens(final MulticastResults results) {
+        List<String> deadTokens = new ArrayList<>();
+        String deadToken = results.deadTokens.poll();
+        while (deadToken != null) {
+            deadTokens.add(deadToken);
+            deadToken = results.deadTokens.poll();
+        }
+        if (deadTokens.isEmpty()) {
+            return;
+        }
+        results.prunedCount.addAndGet(pushTokenPruningService.pruneDeadTokens(deadTokens));
+    }
+
+    private void sendMulticastMessage(final List<String> pushTokens, final Notification notification,
+                                      final PushNotificationDTO pushNotificationDTO, final Semaphore requests,
+                                      final MulticastResults results) {
+        MulticastMessage message = MulticastMessage.builder()
+                .addAllTokens(pushTokens)
+                .setNotification(notification)
+                .putData(pushNotificationDTO.getTitle(), pushNotificationDTO.getBody())
+                .build();
+        ApiFutures.addCallback(firebaseMessaging.sendMulticastAsync(message), new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(final BatchResponse response) {
+                try {
+                    results.addResponse(response, pushTokens);
+                } finally {
+                    requests.release();
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable throwable) {
+                try {
+                    log.error("Could not send multicast push notification to {} tokens", pushTokens.size(), throwable);
+                    results.addFailedChunk(pushTokens.size(), throwable);
+                } finally {
+                    requests.release();
+                }
+            }
+        }, Runnable::run);
     }
 
     private PushNotificationException createPushNotificationException(final FirebaseMessagingException e,
@@ -133,4 +235,96 @@ public class PushNotificationServiceImpl implements PushNotificationService {
             throw createPushNotificationException(e, COULD_NOT_SUBSCRIBE_TO_TOPIC_CODE_MESSAGE);
         }
     }
+
+    /**
+     * Aggregates the responses of multicast messages, which arrive on Firebase threads.
+     */
+    private static final class MulticastResults {
+        private final Consumer<PushNotificationResultDTO> chunkResultConsumer;
+        private final AtomicLong successCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong chunkCount = new AtomicLong();
+        private final AtomicLong failedChunkCount = new AtomicLong();
+        private final Map<String, Long> errorCodes = new ConcurrentHashMap<>();
+        private final AtomicLong deadTokenCount = new AtomicLong();
+        private final AtomicLong prunedCount = new AtomicLong();
+        private final ConcurrentLinkedQueue<String> deadTokens = new ConcurrentLinkedQueue<>();
+
+        private MulticastResults(final Consumer<PushNotificationResultDTO> chunkResultConsumer) {
+            this.chunkResultConsumer = chunkResultConsumer;
+        }
+
+        @SuppressWarnings("PMD.UseConcurrentHashMap")
+        private void addResponse(final BatchResponse response, final List<String> pushTokens) {
+            Map<String, Long> chunkErrorCodes = new TreeMap<>();
+            long chunkDeadTokens = 0;
+            if (response.getFailureCount() > 0) {
+                // Firebase returns the responses in the order of the tokens of the message.
+                List<SendResponse> sendResponses = response.getResponses();
+                for (int index = 0; index < sendResponses.size(); index++) {
+                    SendResponse sendResponse = sendResponses.get(index);
+                    if (sendResponse.isSuccessful()) {
+                        continue;
+                    }
+                    String errorCode = getErrorCode(sendResponse.getException());
+                    chunkErrorCodes.merge(errorCode, 1L, Long::sum);
+                    if (index < pushTokens.size() && isDeadToken(errorCode, response)) {
+                        deadTokens.add(pushTokens.get(index));
+                        chunkDeadTokens++;
+                    }
+                }
+            }
+            add(PushNotificationResultDTO.builder()
+                    .successCount(response.getSuccessCount())
+                    .failureCount(response.getFailureCount())
+                    .chunkCount(1)
+                    .errorCodes(chunkErrorCodes)
+                    .deadTokenCount(chunkDeadTokens)
+                    .build());
+        }
+
+        private static boolean isDeadToken(final String errorCode, final BatchResponse response) {
+            // An invalid message is also reported as an invalid argument, but then it fails for every token alike.
+            return UNREGISTERED_ERROR_CODE.equals(errorCode)
+                    || INVALID_ARGUMENT_ERROR_CODE.equals(errorCode) && response.getSuccessCount() > 0;
+        }
+
+        private void addFailedChunk(final int tokenCount, final Throwable throwable) {
+            add(PushNotificationResultDTO.builder()
+                    .failureCount(tokenCount)
+                    .chunkCount(1)
+                    .failedChunkCount(1)
+                    .errorCodes(Map.of(getErrorCode(throwable), (long) tokenCount))
+                    .build());
+        }
+
+        private void add(final PushNotificationResultDTO chunkResult) {
+            successCount.addAndGet(chunkResult.getSuccessCount());
+            failureCount.addAndGet(chunkResult.getFailureCount());
+            chunkCount.addAndGet(chunkResult.getChunkCount());
+            failedChunkCount.addAndGet(chunkResult.getFailedChunkCount());
+            deadTokenCount.addAndGet(chunkResult.getDeadTokenCount());
+            chunkResult.getErrorCodes().forEach((errorCode, count) -> errorCodes.merge(errorCode, count, Long::sum));
+            chunkResultConsumer.accept(chunkResult);
+        }
+
+        private static String getErrorCode(final Throwable throwable) {
+            String errorCode = throwable instanceof FirebaseMessagingException
+                    ? ((FirebaseMessagingException) throwable).getErrorCode()
+                    : null;
+            return Objects.requireNonNullElse(errorCode, UNKNOWN_ERROR_CODE);
+        }
+
+        private PushNotificationResultDTO toResult() {
+            return PushNotificationResultDTO.builder()
+                    .successCount(successCount.get())
+                    .failureCount(failureCount.get())
+                    .chunkCount(chunkCount.get())
+                    .failedChunkCount(failedChunkCount.get())
+                    .errorCodes(new TreeMap<>(errorCodes))
+                    .deadTokenCount(deadTokenCount.get())
+                    .prunedCount(prunedCount.get())
+                    .build();
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package io.virusafe.service.pushnotification;
+
+import java.util.Collection;
+
+/**
+ * Removes push tokens that Firebase reports as no longer valid, so later notifications aren't sent to them again.
+ */
+public interface PushTokenPruningService {
+
+    /**
+     * Clear dead push tokens from the users holding them. Failures are logged and not rethrown, as pruning
+     * must never fail the sending of notifications.
+     *
+     * @param pushTokens the push tokens to clear
+     * @return the number of users whose push token was cleared
+     */
+    int pruneDeadTokens(Collection<String> pushTokens);
+}
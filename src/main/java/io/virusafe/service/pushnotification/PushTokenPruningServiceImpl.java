@@ -0,0 +1,70 @@
+package io.virusafe.service.pushnotification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+@Service
+@Slf4j
+public class PushTokenPruningServiceImpl implements PushTokenPruningService {
+
+    private static final int NONE_PRUNED = 0;
+
+    private final UserDetailsJdbcRepository userDetailsJdbcRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Counter deadTokenCounter;
+    private final Counter prunedTokenCounter;
+
+    /**
+     * Construct push token pruning service.
+     *
+     * @param userDetailsJdbcRepository the user details JDBC repository, used to clear tokens in bulk
+     * @param meterRegistry             the registry to publish the pruning counters to
+     * @param enabled                   whether dead tokens are cleared, or only counted
+     * @param batchSize                 the maximum number of tokens cleared per JDBC batch
+     */
+    @Autowired
+    public PushTokenPruningServiceImpl(final UserDetailsJdbcRepository userDetailsJdbcRepository,
+                                       final MeterRegistry meterRegistry,
+                                       @Value("${push-notifications.pruning.enabled:true}") final boolean enabled,
+                                       @Value("${push-notifications.pruning.batch-size:500}") final int batchSize) {
+        this.userDetailsJdbcRepository = userDetailsJdbcRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.deadTokenCounter = Counter.builder("push.tokens.dead")
+                .description("Number of push tokens Firebase reported as unregistered or invalid")
+                .register(meterRegistry);
+        this.prunedTokenCounter = Counter.builder("push.tokens.pruned")
+                .description("Number of users whose dead push token was cleared")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int pruneDeadTokens(final Collection<String> pushTokens) {
+        if (pushTokens.isEmpty()) {
+            return NONE_PRUNED;
+        }
+        deadTokenCounter.increment(pushTokens.size());
+        if (!enabled) {
+            return NONE_PRUNED;
+        }
+        try {
+            int prunedCount = userDetailsJdbcRepository.clearPushTokens(pushTokens, batchSize);
+            prunedTokenCounter.increment(prunedCount);
+            log.info("PushNotification Cleared {} dead push tokens", prunedCount);
+            return prunedCount;
+        } catch (DataAccessException e) {
+            // The tokens are reported as dead again on the next notification, so they are pruned then.
+            log.warn("PushNotification Could not clear {} dead push tokens", pushTokens.size(), e);
+            return NONE_PRUNED;
+        }
+    }
+}
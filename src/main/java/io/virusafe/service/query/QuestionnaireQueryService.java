@@ -2,16 +2,20 @@ package io.virusafe.service.query;
 
 import io.virusafe.domain.query.QuestionnaireQuery;
 
-import java.util.Set;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service that help to search in elasticsearch questionnaire index
  */
 public interface QuestionnaireQueryService {
     /**
-     * search questionnaire
+     * Scroll through the questionnaires matching a query, a page of user GUIDs at a time, so that large results
+     * are never held in memory at once. The scroll is released when it ends, also when the consumer throws.
      *
-     * @return
+     * @param query        the query to search with
+     * @param pageConsumer receives the user GUIDs of every page
+     * @return the number of questionnaires read
      */
-    Set<String> searchInQuestionnaire(QuestionnaireQuery query);
+    long scrollInQuestionnaire(QuestionnaireQuery query, Consumer<List<String>> pageConsumer);
 }
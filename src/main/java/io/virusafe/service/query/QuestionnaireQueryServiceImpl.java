@@ -3,12 +3,13 @@ package io.virusafe.service.query;
 import io.virusafe.domain.query.QuestionnaireQuery;
 import io.virusafe.exception.QueryExecuteException;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.client.core.CountRequest;
-import org.elasticsearch.client.core.CountResponse;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
@@ -18,8 +19,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,6 +30,7 @@ public class QuestionnaireQueryServiceImpl implements QuestionnaireQueryService
     private static final String USER_GUID = "userGuid";
     private static final String QUESTIONNAIRE_INDEX = "questionnaire";
     private static final String ELASTICSEARCH_CLIENT_RETURNS_WRONG_RESULTS = "Elasticsearch client returns wrong results!";
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
 
     private final RestHighLevelClient restHighLevelClient;
     private final int batchSize;
@@ -46,54 +49,65 @@ public class QuestionnaireQueryServiceImpl implements QuestionnaireQueryService
     }
 
     @Override
-    public Set<String> searchInQuestionnaire(final QuestionnaireQuery query) {
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public long scrollInQuestionnaire(final QuestionnaireQuery query, final Consumer<List<String>> pageConsumer) {
         SearchSourceBuilder searchSourceBuilder = query.generateQuery();
+        searchSourceBuilder.fetchSource(USER_GUID, null);
+        searchSourceBuilder.size(batchSize);
+        SearchRequest searchRequest = new SearchRequest(QUESTIONNAIRE_INDEX)
+                .source(searchSourceBuilder)
+                .scroll(SCROLL_KEEP_ALIVE);
 
+        String scrollId = null;
+        long readCount = 0;
         try {
-            long maxCount = getDocumentsCount(searchSourceBuilder);
-            int page = 0;
-            Set<String> result = new HashSet<>();
-            while (maxCount > (batchSize * page)) {
-                SearchResponse searchResponse = restHighLevelClient
-                        .search(createSearchRequest(searchSourceBuilder, page), RequestOptions.DEFAULT);
-
-                if (searchResponse == null || !RestStatus.OK.equals(searchResponse.status()) || searchResponse
-                        .getHits() == null) {
-                    throw new QueryExecuteException(ELASTICSEARCH_CLIENT_RETURNS_WRONG_RESULTS);
-                }
-
-                Set<String> data = Arrays.stream(searchResponse.getHits().getHits())
-                        .map(SearchHit::getSourceAsMap)
-                        .map(value -> value.getOrDefault(USER_GUID, ""))
-                        .map(Object::toString)
-                        .collect(Collectors.toSet());
-                result.addAll(data);
-                page++;
+            SearchResponse searchResponse = checkSearchResponse(
+                    restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT));
+            scrollId = searchResponse.getScrollId();
+            while (searchResponse.getHits().getHits().length > 0) {
+                List<String> userGuids = getUserGuids(searchResponse);
+                pageConsumer.accept(userGuids);
+                readCount += userGuids.size();
+                searchResponse = checkSearchResponse(restHighLevelClient.scroll(
+                        new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT));
+                scrollId = searchResponse.getScrollId();
             }
-            return result;
+            return readCount;
         } catch (IOException ioe) {
             log.error("Cannot read data from elastic", ioe);
             throw new QueryExecuteException("Cannot read data from elastic", ioe);
+        } finally {
+            clearScroll(scrollId);
         }
+    }
 
+    private SearchResponse checkSearchResponse(final SearchResponse searchResponse) {
+        if (searchResponse == null || !RestStatus.OK.equals(searchResponse.status()) || searchResponse
+                .getHits() == null) {
+            throw new QueryExecuteException(ELASTICSEARCH_CLIENT_RETURNS_WRONG_RESULTS);
+        }
+        return searchResponse;
     }
 
-    private SearchRequest createSearchRequest(final SearchSourceBuilder searchSourceBuilder, final int page) {
-        SearchRequest searchRequest = new SearchRequest(QUESTIONNAIRE_INDEX);
-        searchSourceBuilder.fetchSource(USER_GUID, null);
-        searchSourceBuilder.size(batchSize);
-        searchSourceBuilder.from(batchSize * page);
-        searchRequest.source(searchSourceBuilder);
-        return searchRequest;
+    private List<String> getUserGuids(final SearchResponse searchResponse) {
+        return Arrays.stream(searchResponse.getHits().getHits())
+                .map(SearchHit::getSourceAsMap)
+                .map(value -> value.getOrDefault(USER_GUID, ""))
+                .map(Object::toString)
+                .collect(Collectors.toList());
     }
 
-    private long getDocumentsCount(final SearchSourceBuilder searchSourceBuilder) throws IOException {
-        CountRequest countRequest = new CountRequest(QUESTIONNAIRE_INDEX);
-        countRequest.source(searchSourceBuilder);
-        CountResponse countResponse = restHighLevelClient.count(countRequest, RequestOptions.DEFAULT);
-        if (countResponse == null || !RestStatus.OK.equals(countResponse.status())) {
-            throw new QueryExecuteException(ELASTICSEARCH_CLIENT_RETURNS_WRONG_RESULTS);
+    private void clearScroll(final String scrollId) {
+        if (Objects.isNull(scrollId)) {
+            return;
+        }
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        try {
+            restHighLevelClient.clearScroll(clearScrollRequest, RequestOptions.DEFAULT);
+        } catch (IOException ioe) {
+            // The scroll expires on its own after its keep-alive.
+            log.warn("Cannot clear elastic scroll", ioe);
         }
-        return countResponse.getCount();
     }
 }
@@ -1,24 +1,16 @@
 package io.virusafe.service.ratelimit;
 
-import io.virusafe.domain.entity.RateLimit;
 import io.virusafe.domain.entity.RateLimitType;
-import io.virusafe.domain.entity.UserDetails;
 
 public interface RateLimitService {
     /**
-     * find rate limit by user details and type.
+     * Register a request for a given user and rate limit type, counting it against the user's current bucket.
      *
-     * @param userDetails
-     * @param type
-     * @return
+     * @param userId      the id of the user making the request
+     * @param type        the rate limit type
+     * @param limit       the maximum number of requests allowed within a single bucket
+     * @param bucketSize  the bucket size, in seconds
+     * @throws io.virusafe.exception.RateLimitTimeoutException if the limit for the current bucket has been reached
      */
-    RateLimit findRateLimitByUserAndType(UserDetails userDetails, RateLimitType type);
-
-    /**
-     * save rate limit
-     *
-     * @param rateLimit
-     * @return
-     */
-    RateLimit save(RateLimit rateLimit);
+    void registerRequest(Long userId, RateLimitType type, long limit, long bucketSize);
 }
@@ -1,38 +1,52 @@
 package io.virusafe.service.ratelimit;
 
-import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.configuration.RateLimitConfiguration;
 import io.virusafe.domain.entity.RateLimitType;
-import io.virusafe.domain.entity.UserDetails;
-import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.service.ratelimit.store.RateLimitStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Objects;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RateLimitServiceImpl implements RateLimitService {
-    private final RateLimitRepository rateLimitRepository;
+    private final RateLimitStore rateLimitStore;
+    private final Clock systemClock;
 
     /**
      * Construct rate limit service.
      *
-     * @param rateLimitRepository
+     * @param rateLimitStore
+     * @param rateLimitConfiguration the rate limit configuration, checked against the algorithms the store supports
+     * @param systemClock
      */
     @Autowired
-    public RateLimitServiceImpl(final RateLimitRepository rateLimitRepository) {
-        this.rateLimitRepository = rateLimitRepository;
+    public RateLimitServiceImpl(final RateLimitStore rateLimitStore,
+                                final RateLimitConfiguration rateLimitConfiguration,
+                                final Clock systemClock) {
+        this.rateLimitStore = rateLimitStore;
+        this.systemClock = systemClock;
+        // Fail at startup rather than silently counting with a different algorithm than the configured one.
+        for (RateLimitType type : RateLimitType.values()) {
+            RateLimitAlgorithm algorithm = rateLimitConfiguration.getAlgorithm(type);
+            if (!rateLimitStore.supports(algorithm)) {
+                throw new IllegalStateException("Rate limit algorithm " + algorithm + " configured for " + type
+                        + " is not supported by " + rateLimitStore.getClass().getSimpleName());
+            }
+        }
     }
 
     @Override
-    public RateLimit findRateLimitByUserAndType(final UserDetails userDetails, final RateLimitType type) {
-        Objects.requireNonNull(userDetails);
-        Objects.requireNonNull(type);
-        return rateLimitRepository.findByUserDetails_IdAndType(userDetails.getId(), type)
-                .orElse(RateLimit.builder().userDetails(userDetails).type(type).build());
-    }
-
-    @Override
-    public RateLimit save(final RateLimit rateLimit) {
-        return rateLimitRepository.save(rateLimit);
+    public void registerRequest(final Long userId, final RateLimitType type, final long limit,
+                                final long bucketSize) {
+        long timeout = rateLimitStore.tryAcquire(userId, type, limit,
+                TimeUnit.SECONDS.toMillis(bucketSize), systemClock.millis());
+        // If bucket size has been exceeded, throw an exception and block access to the endpoint.
+        if (timeout > 0) {
+            throw RateLimitTimeoutException.fromMillis(timeout);
+        }
     }
 }
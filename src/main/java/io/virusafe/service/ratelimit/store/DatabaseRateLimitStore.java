@@ -0,0 +1,81 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Rate limit store keeping buckets in the rate_limits table, loading and saving them on every request.
+ */
+@Component
+@ConditionalOnProperty(value = "update.rate.store", havingValue = "DATABASE")
+public class DatabaseRateLimitStore implements RateLimitStore {
+
+    private static final long NO_TIMEOUT = 0L;
+
+    private final RateLimitRepository rateLimitRepository;
+    private final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver;
+    private final Clock systemClock;
+
+    /**
+     * Construct database rate limit store.
+     *
+     * @param rateLimitRepository               the rate limit repository
+     * @param rateLimitBucketCalculatorResolver the resolver of the calculator to apply to buckets of each type
+     * @param systemClock                       the clock whose zone is used for stored bucket times
+     */
+    @Autowired
+    public DatabaseRateLimitStore(final RateLimitRepository rateLimitRepository,
+                                  final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver,
+                                  final Clock systemClock) {
+        this.rateLimitRepository = rateLimitRepository;
+        this.rateLimitBucketCalculatorResolver = rateLimitBucketCalculatorResolver;
+        this.systemClock = systemClock;
+    }
+
+    @Override
+    public long tryAcquire(final Long userId, final RateLimitType type, final long limit,
+                           final long bucketSize, final long calculationTime) {
+        Objects.requireNonNull(userId);
+        Objects.requireNonNull(type);
+        RateLimit rateLimit = rateLimitRepository.findByUserDetailsIdAndType(userId, type)
+                .orElse(RateLimit.builder().userDetailsId(userId).type(type).build());
+
+        RateLimitBucket bucket = new RateLimitBucket(
+                rateLimit.getLastUpdateTime() == null ? 0L : toEpochMillis(rateLimit.getLastUpdateTime()),
+                rateLimit.getBucketCount() == null ? 0L : rateLimit.getBucketCount());
+        long timeout = rateLimitBucketCalculatorResolver.getCalculator(type)
+                .calculate(bucket, calculationTime, limit, bucketSize);
+        if (timeout == NO_TIMEOUT) {
+            rateLimit.setLastUpdateTime(toLocalDateTime(bucket.getBucketEnd()));
+            rateLimit.setBucketCount(bucket.getBucketCount());
+            rateLimitRepository.save(rateLimit);
+        }
+        return timeout;
+    }
+
+    @Override
+    public boolean supports(final RateLimitAlgorithm algorithm) {
+        // The previous bucket count of sliding windows has no column, so it would be lost on every request.
+        return algorithm != RateLimitAlgorithm.SLIDING_WINDOW;
+    }
+
+    private long toEpochMillis(final LocalDateTime dateTime) {
+        return dateTime.atZone(systemClock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toLocalDateTime(final long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), systemClock.getZone());
+    }
+}
@@ -0,0 +1,112 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculator;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory rate limit store, keeping a bucket per user and rate limit type.
+ * Bucket updates are guarded by a fixed set of striped locks, so requests for different users rarely contend.
+ * Buckets that have expired are periodically evicted.
+ */
+@Component
+@ConditionalOnProperty(value = "update.rate.store", havingValue = "MEMORY", matchIfMissing = true)
+@Slf4j
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final LockStripes lockStripes = new LockStripes();
+    private final Map<RateLimitType, ConcurrentMap<Long, RateLimitBucket>> buckets;
+    private final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver;
+    private final RateLimitConfiguration rateLimitConfiguration;
+    private final Clock systemClock;
+
+    /**
+     * Construct in-memory rate limit store.
+     *
+     * @param rateLimitBucketCalculatorResolver the resolver of the calculator to apply to buckets of each type
+     * @param rateLimitConfiguration            the rate limit configuration, used to determine bucket expiry
+     * @param systemClock                       the clock to evict buckets against
+     */
+    @Autowired
+    @SuppressWarnings({"PMD.UseConcurrentHashMap", "PMD.AvoidInstantiatingObjectsInLoops"})
+    public InMemoryRateLimitStore(final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver,
+                                  final RateLimitConfiguration rateLimitConfiguration,
+                                  final Clock systemClock) {
+        this.rateLimitBucketCalculatorResolver = rateLimitBucketCalculatorResolver;
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        this.systemClock = systemClock;
+        // The map itself is never modified after construction, so a plain EnumMap is safe to share.
+        Map<RateLimitType, ConcurrentMap<Long, RateLimitBucket>> typeBuckets = new EnumMap<>(RateLimitType.class);
+        for (RateLimitType type : RateLimitType.values()) {
+            typeBuckets.put(type, new ConcurrentHashMap<>());
+        }
+        this.buckets = typeBuckets;
+    }
+
+    @Override
+    public long tryAcquire(final Long userId, final RateLimitType type, final long limit,
+                           final long bucketSize, final long calculationTime) {
+        Objects.requireNonNull(userId);
+        Objects.requireNonNull(type);
+        ConcurrentMap<Long, RateLimitBucket> typeBuckets = buckets.get(type);
+        synchronized (lockStripes.lockFor(userId)) {
+            RateLimitBucket bucket = typeBuckets.computeIfAbsent(userId, k -> new RateLimitBucket());
+            return rateLimitBucketCalculatorResolver.getCalculator(type)
+                    .calculate(bucket, calculationTime, limit, bucketSize);
+        }
+    }
+
+    /**
+     * Evict all buckets which have expired and no longer affect rate limit calculations.
+     */
+    @Scheduled(fixedDelayString = "${update.rate.memory-eviction-interval-millis:60000}")
+    public void evictExpiredBuckets() {
+        long calculationTime = systemClock.millis();
+        int evicted = 0;
+        for (Map.Entry<RateLimitType, ConcurrentMap<Long, RateLimitBucket>> typeBuckets : buckets.entrySet()) {
+            long bucketSize = TimeUnit.SECONDS.toMillis(rateLimitConfiguration.getBucketSize(typeBuckets.getKey()));
+            RateLimitBucketCalculator calculator = rateLimitBucketCalculatorResolver.getCalculator(typeBuckets.getKey());
+            evicted += evictExpiredBuckets(typeBuckets.getValue(), calculator, calculationTime, bucketSize);
+        }
+        log.debug("Evicted {} expired rate limit buckets", evicted);
+    }
+
+    private int evictExpiredBuckets(final ConcurrentMap<Long, RateLimitBucket> typeBuckets,
+                                    final RateLimitBucketCalculator calculator, final long calculationTime, final long bucketSize) {
+        int evicted = 0;
+        for (Map.Entry<Long, RateLimitBucket> entry : typeBuckets.entrySet()) {
+            synchronized (lockStripes.lockFor(entry.getKey())) {
+                if (calculator.isExpired(entry.getValue(), calculationTime, bucketSize)
+                        && typeBuckets.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Get the number of buckets currently held for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the number of buckets in memory
+     */
+    public int size(final RateLimitType type) {
+        return buckets.get(type).size();
+    }
+}
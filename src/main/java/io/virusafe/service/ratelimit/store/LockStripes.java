@@ -0,0 +1,34 @@
+package io.virusafe.service.ratelimit.store;
+
+/**
+ * Fixed set of monitor objects, shared between keys by hash, so that unrelated keys rarely contend.
+ */
+public class LockStripes {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Object[] locks;
+
+    /**
+     * Construct lock stripes with the default number of stripes.
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public LockStripes() {
+        this.locks = new Object[DEFAULT_STRIPES];
+        for (int i = 0; i < DEFAULT_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Get the lock guarding a given key.
+     *
+     * @param key the key to lock
+     * @return the monitor object to synchronize on
+     */
+    public Object lockFor(final Object key) {
+        int hash = key.hashCode();
+        // Spread the higher bits, as the stripe index only uses the lowest ones.
+        return locks[(hash ^ (hash >>> 16)) & (DEFAULT_STRIPES - 1)];
+    }
+}
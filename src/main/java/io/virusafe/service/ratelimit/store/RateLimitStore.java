@@ -0,0 +1,33 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+
+/**
+ * Storage for rate limit buckets. Implementations are responsible for counting requests atomically,
+ * so that concurrent requests for the same user and type can't exceed the configured limit.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Try to count a request against the bucket for a given user and rate limit type.
+     *
+     * @param userId          the id of the user the request belongs to
+     * @param type            the rate limit type
+     * @param limit           the maximum number of requests allowed within a single bucket
+     * @param bucketSize      the bucket size, in milliseconds
+     * @param calculationTime the time of the request, in epoch milliseconds
+     * @return 0 if the request was counted, otherwise the positive number of milliseconds until it can be retried
+     */
+    long tryAcquire(Long userId, RateLimitType type, long limit, long bucketSize, long calculationTime);
+
+    /**
+     * Check whether the store keeps all the bucket state a given algorithm relies on.
+     *
+     * @param algorithm the rate limit algorithm
+     * @return true if buckets counted with the algorithm can be kept in this store
+     */
+    default boolean supports(RateLimitAlgorithm algorithm) {
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitJdbcRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Rate limit store keeping buckets in the rate_limits table, rolling over and incrementing a bucket with a single
+ * atomic upsert statement. Concurrent requests for the same user are serialized by the database row lock instead of
+ * failing on optimistic locking.
+ */
+@Component
+@ConditionalOnProperty(value = "update.rate.store", havingValue = "DATABASE_UPSERT")
+public class UpsertRateLimitStore implements RateLimitStore {
+
+    private static final long NO_TIMEOUT = 0L;
+    private static final long MIN_TIMEOUT = 1L;
+
+    private final RateLimitJdbcRepository rateLimitJdbcRepository;
+    private final Clock systemClock;
+
+    /**
+     * Construct upsert rate limit store.
+     *
+     * @param rateLimitJdbcRepository the rate limit JDBC repository
+     * @param systemClock             the clock whose zone is used for stored bucket times
+     */
+    @Autowired
+    public UpsertRateLimitStore(final RateLimitJdbcRepository rateLimitJdbcRepository, final Clock systemClock) {
+        this.rateLimitJdbcRepository = rateLimitJdbcRepository;
+        this.systemClock = systemClock;
+    }
+
+    @Override
+    public long tryAcquire(final Long userId, final RateLimitType type, final long limit,
+                           final long bucketSize, final long calculationTime) {
+        Objects.requireNonNull(userId);
+        Objects.requireNonNull(type);
+        long bucketCount = rateLimitJdbcRepository.upsertBucket(userId, type, limit,
+                toLocalDateTime(calculationTime + bucketSize), toLocalDateTime(calculationTime));
+        if (bucketCount <= limit) {
+            return NO_TIMEOUT;
+        }
+        // Only rejected requests need the bucket end, to report when they can be retried.
+        return rateLimitJdbcRepository.findBucketEnd(userId, type)
+                .map(bucketEnd -> Math.max(MIN_TIMEOUT, toEpochMillis(bucketEnd) - calculationTime))
+                .orElse(MIN_TIMEOUT);
+    }
+
+    @Override
+    public boolean supports(final RateLimitAlgorithm algorithm) {
+        // The upsert statement implements fixed windows itself instead of applying a calculator.
+        return algorithm == RateLimitAlgorithm.FIXED_WINDOW;
+    }
+
+    private long toEpochMillis(final LocalDateTime dateTime) {
+        return dateTime.atZone(systemClock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toLocalDateTime(final long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), systemClock.getZone());
+    }
+}
@@ -0,0 +1,267 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.command.RateLimitBucketUpdateCommand;
+import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitJdbcRepository;
+import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculator;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind rate limit store. Buckets are counted in memory and read through from the rate_limits table on a
+ * miss, while changed buckets are flushed to the database in JDBC batches on a schedule and on shutdown.
+ * Requests never wait for a database write.
+ */
+@Component
+@ConditionalOnProperty(value = "update.rate.store", havingValue = "WRITE_BEHIND")
+@Slf4j
+public class WriteBehindRateLimitStore implements RateLimitStore {
+
+    private static final long NO_TIMEOUT = 0L;
+    private static final long CLEAN = 0L;
+
+    private final LockStripes lockStripes = new LockStripes();
+    private final Map<RateLimitType, ConcurrentMap<Long, WriteBehindBucket>> buckets;
+    private final RateLimitRepository rateLimitRepository;
+    private final RateLimitJdbcRepository rateLimitJdbcRepository;
+    private final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver;
+    private final RateLimitConfiguration rateLimitConfiguration;
+    private final Clock systemClock;
+    private final int batchSize;
+    private final Timer flushLagTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter flushFailureCounter;
+
+    /**
+     * Construct write-behind rate limit store.
+     *
+     * @param rateLimitRepository               the rate limit repository, used to read buckets through
+     * @param rateLimitJdbcRepository           the rate limit JDBC repository, used to write buckets in batches
+     * @param rateLimitBucketCalculatorResolver the resolver of the calculator to apply to buckets of each type
+     * @param rateLimitConfiguration            the rate limit configuration, used to determine bucket expiry
+     * @param systemClock                       the clock to flush and evict buckets against
+     * @param meterRegistry                     the registry to report flush metrics to
+     * @param batchSize                         the maximum number of buckets written per JDBC batch
+     */
+    @Autowired
+    @SuppressWarnings({"PMD.UseConcurrentHashMap", "PMD.AvoidInstantiatingObjectsInLoops"})
+    public WriteBehindRateLimitStore(final RateLimitRepository rateLimitRepository,
+                                     final RateLimitJdbcRepository rateLimitJdbcRepository,
+                                     final RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver,
+                                     final RateLimitConfiguration rateLimitConfiguration,
+                                     final Clock systemClock,
+                                     final MeterRegistry meterRegistry,
+                                     @Value("${update.rate.write-behind.batch-size:500}") final int batchSize) {
+        this.rateLimitRepository = rateLimitRepository;
+        this.rateLimitJdbcRepository = rateLimitJdbcRepository;
+        this.rateLimitBucketCalculatorResolver = rateLimitBucketCalculatorResolver;
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        this.systemClock = systemClock;
+        this.batchSize = batchSize;
+        // The map itself is never modified after construction, so a plain EnumMap is safe to share.
+        Map<RateLimitType, ConcurrentMap<Long, WriteBehindBucket>> typeBuckets = new EnumMap<>(RateLimitType.class);
+        for (RateLimitType type : RateLimitType.values()) {
+            typeBuckets.put(type, new ConcurrentHashMap<>());
+        }
+        this.buckets = typeBuckets;
+        this.flushLagTimer = Timer.builder("rate.limit.write.behind.flush.lag")
+                .description("Time between a rate limit bucket change and its write to the database")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("rate.limit.write.behind.batch.size")
+                .description("Number of rate limit buckets written per JDBC batch")
+                .register(meterRegistry);
+        this.flushFailureCounter = Counter.builder("rate.limit.write.behind.flush.failures")
+                .description("Number of JDBC batches that failed and were retried on the next flush")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public long tryAcquire(final Long userId, final RateLimitType type, final long limit,
+                           final long bucketSize, final long calculationTime) {
+        Objects.requireNonNull(userId);
+        Objects.requireNonNull(type);
+        ConcurrentMap<Long, WriteBehindBucket> typeBuckets = buckets.get(type);
+        WriteBehindBucket bucket = typeBuckets.get(userId);
+        if (bucket == null) {
+            // Read through outside of the lock, so a slow query doesn't block other users sharing the stripe.
+            bucket = loadBucket(userId, type);
+        }
+        synchronized (lockStripes.lockFor(userId)) {
+            // Register the bucket if it was just loaded or evicted since the lookup, otherwise use the registered one.
+            WriteBehindBucket registered = typeBuckets.putIfAbsent(userId, bucket);
+            if (registered != null) {
+                bucket = registered;
+            }
+            long timeout = rateLimitBucketCalculatorResolver.getCalculator(type)
+                .calculate(bucket, calculationTime, limit, bucketSize);
+            if (timeout == NO_TIMEOUT && bucket.getDirtySince() == CLEAN) {
+                bucket.setDirtySince(systemClock.millis());
+            }
+            return timeout;
+        }
+    }
+
+    @Override
+    public boolean supports(final RateLimitAlgorithm algorithm) {
+        // The previous bucket count of sliding windows has no column, so it would be lost whenever a bucket is
+        // evicted and read through again.
+        return algorithm != RateLimitAlgorithm.SLIDING_WINDOW;
+    }
+
+    /**
+     * Write all changed buckets to the database. Buckets from failed batches stay dirty and are retried on the
+     * next flush.
+     */
+    @Scheduled(fixedDelayString = "${update.rate.write-behind.flush-interval-millis:5000}")
+    @PreDestroy
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public synchronized void flush() {
+        List<PendingWrite> pendingWrites = new ArrayList<>();
+        for (Map.Entry<RateLimitType, ConcurrentMap<Long, WriteBehindBucket>> typeBuckets : buckets.entrySet()) {
+            for (Map.Entry<Long, WriteBehindBucket> entry : typeBuckets.getValue().entrySet()) {
+                synchronized (lockStripes.lockFor(entry.getKey())) {
+                    WriteBehindBucket bucket = entry.getValue();
+                    if (bucket.getDirtySince() != CLEAN) {
+                        pendingWrites.add(new PendingWrite(entry.getKey(), bucket, bucket.getDirtySince(),
+                                RateLimitBucketUpdateCommand.builder()
+                                        .userId(entry.getKey())
+                                        .type(typeBuckets.getKey())
+                                        .bucketEnd(toLocalDateTime(bucket.getBucketEnd()))
+                                        .bucketCount(bucket.getBucketCount())
+                                        .build()));
+                        bucket.setDirtySince(CLEAN);
+                    }
+                }
+            }
+        }
+        for (int from = 0; from < pendingWrites.size(); from += batchSize) {
+            writeBatch(pendingWrites.subList(from, Math.min(from + batchSize, pendingWrites.size())));
+        }
+    }
+
+    /**
+     * Evict all buckets which have expired and have already been written to the database.
+     */
+    @Scheduled(fixedDelayString = "${update.rate.memory-eviction-interval-millis:60000}")
+    public void evictExpiredBuckets() {
+        long calculationTime = systemClock.millis();
+        for (Map.Entry<RateLimitType, ConcurrentMap<Long, WriteBehindBucket>> typeBuckets : buckets.entrySet()) {
+            long bucketSize = TimeUnit.SECONDS.toMillis(rateLimitConfiguration.getBucketSize(typeBuckets.getKey()));
+            RateLimitBucketCalculator calculator = rateLimitBucketCalculatorResolver.getCalculator(typeBuckets.getKey());
+            for (Map.Entry<Long, WriteBehindBucket> entry : typeBuckets.getValue().entrySet()) {
+                synchronized (lockStripes.lockFor(entry.getKey())) {
+                    if (entry.getValue().getDirtySince() == CLEAN
+                            && calculator.isExpired(entry.getValue(), calculationTime, bucketSize)) {
+                        typeBuckets.getValue().remove(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of buckets currently held for a given rate limit type.
+     *
+     * @param type the rate limit type
+     * @return the number of buckets in memory
+     */
+    public int size(final RateLimitType type) {
+        return buckets.get(type).size();
+    }
+
+    private void writeBatch(final List<PendingWrite> batch) {
+        try {
+            rateLimitJdbcRepository.writeBuckets(
+                    batch.stream().map(PendingWrite::getCommand).collect(Collectors.toList()), batchSize);
+            batchSizeSummary.record(batch.size());
+            long writeTime = systemClock.millis();
+            batch.forEach(pendingWrite ->
+                    flushLagTimer.record(writeTime - pendingWrite.getDirtySince(), TimeUnit.MILLISECONDS));
+        } catch (DataAccessException e) {
+            log.error("Could not write {} rate limit buckets, will retry on next flush", batch.size(), e);
+            flushFailureCounter.increment();
+            batch.forEach(this::markDirtyAgain);
+        }
+    }
+
+    private void markDirtyAgain(final PendingWrite pendingWrite) {
+        synchronized (lockStripes.lockFor(pendingWrite.getKey())) {
+            WriteBehindBucket bucket = pendingWrite.getBucket();
+            // Keep the original change time, unless the bucket has changed again since.
+            if (bucket.getDirtySince() == CLEAN || bucket.getDirtySince() > pendingWrite.getDirtySince()) {
+                bucket.setDirtySince(pendingWrite.getDirtySince());
+            }
+        }
+    }
+
+    private WriteBehindBucket loadBucket(final Long userId, final RateLimitType type) {
+        WriteBehindBucket bucket = new WriteBehindBucket();
+        rateLimitRepository.findByUserDetailsIdAndType(userId, type)
+                .ifPresent(rateLimit -> copyState(rateLimit, bucket));
+        return bucket;
+    }
+
+    private void copyState(final RateLimit rateLimit, final RateLimitBucket bucket) {
+        if (rateLimit.getLastUpdateTime() != null) {
+            bucket.setBucketEnd(rateLimit.getLastUpdateTime()
+                    .atZone(systemClock.getZone()).toInstant().toEpochMilli());
+        }
+        if (rateLimit.getBucketCount() != null) {
+            bucket.setBucketCount(rateLimit.getBucketCount());
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(final long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), systemClock.getZone());
+    }
+
+    /**
+     * Rate limit bucket which tracks when it was first changed since it was last written to the database.
+     */
+    @Getter
+    @Setter
+    private static class WriteBehindBucket extends RateLimitBucket {
+        private long dirtySince;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class PendingWrite {
+        private final Long key;
+        private final WriteBehindBucket bucket;
+        private final long dirtySince;
+        private final RateLimitBucketUpdateCommand command;
+    }
+}
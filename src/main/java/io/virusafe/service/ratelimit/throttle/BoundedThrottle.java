@@ -0,0 +1,124 @@
+package io.virusafe.service.ratelimit.throttle;
+
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculator;
+import io.virusafe.service.ratelimit.store.LockStripes;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory throttle keeping a rate limit bucket per key, bounded to a maximum number of keys.
+ * Bucket updates are guarded by striped locks, so requests for different keys rarely contend.
+ * Buckets are only dropped once they have expired, so a flood of distinct keys can't reset the limit of another key.
+ * Once the bound is reached, expired buckets are evicted inline to make room. If the throttle is still full, new keys
+ * share a single overflow bucket with its own limit, so a flood degrades service for new keys instead of locking
+ * them out entirely, while keys that already have a bucket keep their own limit.
+ * The bound is checked without a global lock, so concurrent requests may exceed it by a few keys.
+ */
+public class BoundedThrottle {
+
+    // Inline eviction scans every bucket, so while the throttle stays full it runs at most this often.
+    private static final long MIN_INLINE_EVICTION_INTERVAL = 1000L;
+
+    private final LockStripes lockStripes = new LockStripes();
+    private final ConcurrentMap<String, RateLimitBucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitBucket overflowBucket = new RateLimitBucket();
+    private final AtomicLong lastInlineEviction = new AtomicLong();
+    private final int maxEntries;
+    private final RateLimitBucketCalculator rateLimitBucketCalculator;
+
+    /**
+     * Construct bounded throttle.
+     *
+     * @param maxEntries                the maximum number of keys to keep buckets for
+     * @param rateLimitBucketCalculator the calculator to apply to buckets
+     */
+    public BoundedThrottle(final int maxEntries, final RateLimitBucketCalculator rateLimitBucketCalculator) {
+        this.maxEntries = maxEntries;
+        this.rateLimitBucketCalculator = rateLimitBucketCalculator;
+    }
+
+    /**
+     * Count a request against the bucket for the given key, or against the shared overflow bucket if the key has no
+     * bucket and there is no room for a new one.
+     *
+     * @param key             the key to throttle by
+     * @param limit           the maximum number of requests allowed within a single bucket
+     * @param overflowLimit   the maximum number of requests allowed within the overflow bucket, shared by all keys
+     *                        without a bucket while the throttle is full
+     * @param bucketSize      the bucket size, in milliseconds
+     * @param calculationTime the time of the request, in epoch milliseconds
+     * @return 0 if the request was counted, otherwise the positive number of milliseconds until it would be allowed
+     */
+    public long tryAcquire(final String key, final long limit, final long overflowLimit, final long bucketSize,
+                           final long calculationTime) {
+        Objects.requireNonNull(key);
+        if (isFull() && !buckets.containsKey(key)) {
+            // Evict before taking the key's lock, as eviction takes the locks of other stripes.
+            evictInline(calculationTime, bucketSize);
+        }
+        synchronized (lockStripes.lockFor(key)) {
+            RateLimitBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (isFull()) {
+                    return tryAcquireOverflow(overflowLimit, bucketSize, calculationTime);
+                }
+                bucket = new RateLimitBucket();
+                buckets.put(key, bucket);
+            }
+            return rateLimitBucketCalculator.calculate(bucket, calculationTime, limit, bucketSize);
+        }
+    }
+
+    /**
+     * Evict all buckets which have expired and no longer affect rate limit calculations.
+     *
+     * @param calculationTime the time to check, in epoch milliseconds
+     * @param bucketSize      the bucket size used for the buckets, in milliseconds
+     * @return the number of evicted buckets
+     */
+    public int evictExpiredBuckets(final long calculationTime, final long bucketSize) {
+        int evicted = 0;
+        for (Map.Entry<String, RateLimitBucket> entry : buckets.entrySet()) {
+            synchronized (lockStripes.lockFor(entry.getKey())) {
+                if (rateLimitBucketCalculator.isExpired(entry.getValue(), calculationTime, bucketSize)
+                        && buckets.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Get the number of keys currently held.
+     *
+     * @return the number of buckets in memory
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private boolean isFull() {
+        return buckets.size() >= maxEntries;
+    }
+
+    private void evictInline(final long calculationTime, final long bucketSize) {
+        long lastEviction = lastInlineEviction.get();
+        // Only one of the concurrent requests evicts, the others go on with whatever room there is.
+        if (calculationTime - lastEviction >= MIN_INLINE_EVICTION_INTERVAL
+                && lastInlineEviction.compareAndSet(lastEviction, calculationTime)) {
+            evictExpiredBuckets(calculationTime, bucketSize);
+        }
+    }
+
+    private long tryAcquireOverflow(final long overflowLimit, final long bucketSize, final long calculationTime) {
+        synchronized (overflowBucket) {
+            return rateLimitBucketCalculator.calculate(overflowBucket, calculationTime, overflowLimit, bucketSize);
+        }
+    }
+}
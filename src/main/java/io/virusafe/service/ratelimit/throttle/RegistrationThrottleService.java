@@ -0,0 +1,23 @@
+package io.virusafe.service.ratelimit.throttle;
+
+/**
+ * Throttles requests to the unauthenticated registration endpoints, independently of whether the user exists.
+ */
+public interface RegistrationThrottleService {
+
+    /**
+     * Count a registration request for a given phone number.
+     *
+     * @param phoneNumber the phone number in the request
+     * @throws io.virusafe.exception.RateLimitTimeoutException if the limit for the phone number has been reached
+     */
+    void registerPhoneNumberRequest(String phoneNumber);
+
+    /**
+     * Count a registration request from a given remote address.
+     *
+     * @param remoteAddress the address the request originates from
+     * @throws io.virusafe.exception.RateLimitTimeoutException if the limit for the remote address has been reached
+     */
+    void registerRemoteAddressRequest(String remoteAddress);
+}
@@ -0,0 +1,88 @@
+package io.virusafe.service.ratelimit.throttle;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration throttle keeping fixed window buckets per phone number and per remote address in bounded memory,
+ * so floods of registration requests are rejected before reaching the database or the SMS gateway.
+ * Expired buckets are periodically evicted to make room for new phone numbers and remote addresses.
+ */
+@Service
+@Slf4j
+public class RegistrationThrottleServiceImpl implements RegistrationThrottleService {
+
+    private static final long NO_RATE_LIMIT = 0L;
+
+    private final BoundedThrottle phoneNumberThrottle;
+    private final BoundedThrottle remoteAddressThrottle;
+    private final RateLimitConfiguration rateLimitConfiguration;
+    private final Clock systemClock;
+
+    /**
+     * Construct registration throttle service.
+     *
+     * @param rateLimitConfiguration the rate limit configuration, holding the throttle limits and bounds
+     * @param systemClock            the clock to count requests against
+     */
+    @Autowired
+    public RegistrationThrottleServiceImpl(final RateLimitConfiguration rateLimitConfiguration,
+                                           final Clock systemClock) {
+        this.rateLimitConfiguration = rateLimitConfiguration;
+        this.systemClock = systemClock;
+        this.phoneNumberThrottle = new BoundedThrottle(rateLimitConfiguration.getRegistrationThrottleMaxEntries(),
+                new RateLimitBucketCalculatorImpl());
+        this.remoteAddressThrottle = new BoundedThrottle(rateLimitConfiguration.getRegistrationThrottleMaxEntries(),
+                new RateLimitBucketCalculatorImpl());
+    }
+
+    @Override
+    public void registerPhoneNumberRequest(final String phoneNumber) {
+        registerRequest(phoneNumberThrottle, phoneNumber,
+                rateLimitConfiguration.getRegistrationPhoneNumberLimit(),
+                rateLimitConfiguration.getRegistrationPhoneNumberOverflowLimit(),
+                rateLimitConfiguration.getRegistrationPhoneNumberBucketSize());
+    }
+
+    @Override
+    public void registerRemoteAddressRequest(final String remoteAddress) {
+        registerRequest(remoteAddressThrottle, remoteAddress,
+                rateLimitConfiguration.getRegistrationRemoteAddressLimit(),
+                rateLimitConfiguration.getRegistrationRemoteAddressOverflowLimit(),
+                rateLimitConfiguration.getRegistrationRemoteAddressBucketSize());
+    }
+
+    /**
+     * Evict all buckets which have expired and no longer affect throttling.
+     */
+    @Scheduled(fixedDelayString = "${update.rate.memory-eviction-interval-millis:60000}")
+    public void evictExpiredBuckets() {
+        long calculationTime = systemClock.millis();
+        int evicted = phoneNumberThrottle.evictExpiredBuckets(calculationTime,
+                TimeUnit.SECONDS.toMillis(rateLimitConfiguration.getRegistrationPhoneNumberBucketSize()));
+        evicted += remoteAddressThrottle.evictExpiredBuckets(calculationTime,
+                TimeUnit.SECONDS.toMillis(rateLimitConfiguration.getRegistrationRemoteAddressBucketSize()));
+        log.debug("Evicted {} expired registration throttle buckets", evicted);
+    }
+
+    private void registerRequest(final BoundedThrottle throttle, final String key, final long limit,
+                                 final long overflowLimit, final long bucketSize) {
+        if (key == null || limit == NO_RATE_LIMIT || bucketSize == NO_RATE_LIMIT) {
+            return;
+        }
+        long timeout = throttle.tryAcquire(key, limit, overflowLimit, TimeUnit.SECONDS.toMillis(bucketSize),
+                systemClock.millis());
+        // If bucket size has been exceeded, throw an exception and block access to the endpoint.
+        if (timeout > 0) {
+            throw RateLimitTimeoutException.fromMillis(timeout);
+        }
+    }
+}
@@ -7,12 +7,13 @@ import io.virusafe.domain.dto.AccessTokenDTO;
  */
 public interface TokenService {
     /**
-     * Generate token
+     * Generate token in exchange for a valid pin, invalidating all of the user's pins
      *
      * @param phoneNumber
+     * @param pin
      * @return
      */
-    AccessTokenDTO generateToken(String phoneNumber);
+    AccessTokenDTO generateToken(String phoneNumber, String pin);
 
     /**
      * Refresh token using client provided refresh token
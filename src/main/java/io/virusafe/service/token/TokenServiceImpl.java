@@ -8,19 +8,20 @@ import io.jsonwebtoken.Jwts;
 import io.virusafe.configuration.JwtConfiguration;
 import io.virusafe.domain.dto.AccessTokenDTO;
 import io.virusafe.domain.entity.UserDetails;
-import io.virusafe.exception.NoSuchUserException;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+import io.virusafe.exception.UnverifiablePinException;
 import io.virusafe.exception.UnverifiableRefreshTokenException;
+import io.virusafe.security.encryption.CryptoUtils;
+import io.virusafe.service.pin.PinService;
 import io.virusafe.service.userdetails.UserDetailsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.Date;
 import java.util.Objects;
 import java.util.UUID;
@@ -34,6 +35,7 @@ public class TokenServiceImpl implements TokenService {
 
     private final JwtConfiguration jwtConfiguration;
     private final UserDetailsService userDetailsService;
+    private final PinService pinService;
     private final Clock systemClock;
     private final JwtParser jwtParser;
 
@@ -42,39 +44,48 @@ public class TokenServiceImpl implements TokenService {
      *
      * @param jwtConfiguration
      * @param userDetailsService
+     * @param pinService
      * @param systemClock
      */
     @Autowired
     public TokenServiceImpl(final JwtConfiguration jwtConfiguration,
                             final UserDetailsService userDetailsService,
+                            final PinService pinService,
                             final Clock systemClock) {
         this.jwtConfiguration = jwtConfiguration;
         this.userDetailsService = userDetailsService;
+        this.pinService = pinService;
         this.systemClock = systemClock;
         this.jwtParser = Jwts.parserBuilder().setSigningKey(jwtConfiguration.getSecretKey()).build();
     }
 
     @Override
-    public AccessTokenDTO generateToken(final String phoneNumber) {
-        UserDetails userDetails = userDetailsService.findByPhoneNumber(phoneNumber)
-                .orElseThrow(() -> new NoSuchUserException(phoneNumber));
+    @Transactional
+    public AccessTokenDTO generateToken(final String phoneNumber, final String pin) {
+        UserAuthenticationDetails authenticationDetails = userDetailsService
+                .findAuthenticationDetailsByPhoneNumber(phoneNumber)
+                .orElseThrow(() -> new UnverifiablePinException(phoneNumber, pin));
+
+        // Expiring the PINs is what redeems this one, so a PIN exchanged concurrently can't be exchanged again.
+        Long userDetailsId = authenticationDetails.getId();
+        if (!pinService.verifyPin(userDetailsId, pin) || !pinService.invalidatePins(userDetailsId)) {
+            throw new UnverifiablePinException(phoneNumber, pin);
+        }
 
         String tokenSecret = UUID.randomUUID().toString();
-        String accessToken = buildAccessToken(userDetails, tokenSecret);
+        String accessToken = buildAccessToken(authenticationDetails.getUserGuid(),
+                authenticationDetails.getCreatedDate(), authenticationDetails.getPhoneNumber(), tokenSecret);
 
-        String refreshToken = buildRefreshToken(userDetails);
+        String refreshToken = buildRefreshToken(authenticationDetails.getUserGuid());
 
         String refreshTokenHash = null;
         try {
-            MessageDigest encodingMessageDigest = MessageDigest.getInstance(jwtConfiguration.getHashAlgorithm());
-            refreshTokenHash = Base64.getEncoder()
-                    .encodeToString(encodingMessageDigest.digest(
-                            refreshToken.getBytes(StandardCharsets.UTF_8)));
+            refreshTokenHash = CryptoUtils.digestToBase64(jwtConfiguration.getHashAlgorithm(), refreshToken);
         } catch (NoSuchAlgorithmException e) {
             log.error("Could not create encoder so won't save refresh token hash to the DB: {}", e.getMessage());
         }
 
-        userDetailsService.updateTokenDetails(userDetails.getUserGuid(), tokenSecret, refreshTokenHash);
+        userDetailsService.updateTokenDetails(authenticationDetails.getUserGuid(), tokenSecret, refreshTokenHash);
 
         return AccessTokenDTO.builder()
                 .accessToken(accessToken)
@@ -85,10 +96,8 @@ public class TokenServiceImpl implements TokenService {
     @Override
     public AccessTokenDTO refreshToken(final String refreshToken) {
         try {
-            MessageDigest encodingMessageDigest = MessageDigest.getInstance(jwtConfiguration.getHashAlgorithm());
-            String refreshTokenHash = Base64.getEncoder()
-                    .encodeToString(encodingMessageDigest.digest(
-                            refreshToken.getBytes(StandardCharsets.UTF_8)));
+            String refreshTokenHash = CryptoUtils.digestToBase64(jwtConfiguration.getHashAlgorithm(),
+                    refreshToken);
 
             UserDetails userDetails = userDetailsService.findByRefreshToken(refreshTokenHash)
                     .orElseThrow(UnverifiableRefreshTokenException::new);
@@ -96,7 +105,8 @@ public class TokenServiceImpl implements TokenService {
             // Return a new token only if the current one is valid.
             if (isValidRefreshToken(refreshToken, userDetails)) {
                 String tokenSecret = UUID.randomUUID().toString();
-                String accessToken = buildAccessToken(userDetails, tokenSecret);
+                String accessToken = buildAccessToken(userDetails.getUserGuid(), userDetails.getCreatedDate(),
+                        userDetails.getPhoneNumber(), tokenSecret);
 
                 userDetailsService.updateTokenDetails(userDetails.getUserGuid(), tokenSecret, refreshTokenHash);
 
@@ -124,28 +134,29 @@ public class TokenServiceImpl implements TokenService {
         return !Objects.isNull(refreshUserGuid) && refreshUserGuid.equals(userDetails.getUserGuid());
     }
 
-    private String buildAccessToken(final UserDetails userDetails, final String tokenSecret) {
+    private String buildAccessToken(final String userGuid, final Long createdDate, final String phoneNumber,
+                                    final String tokenSecret) {
         LocalDateTime expirationDateTime = LocalDateTime.now(systemClock)
                 .plusSeconds(jwtConfiguration.getTokenValidity());
         Date expiration = Date.from(expirationDateTime.atZone(systemClock.getZone()).toInstant());
 
         return Jwts.builder()
-                .claim(jwtConfiguration.getCreatedClaim(), Long.toString(userDetails.getCreatedDate()))
-                .claim(jwtConfiguration.getUserGuidClaim(), userDetails.getUserGuid())
+                .claim(jwtConfiguration.getCreatedClaim(), Long.toString(createdDate))
+                .claim(jwtConfiguration.getUserGuidClaim(), userGuid)
                 .claim(jwtConfiguration.getSecretClaim(), tokenSecret)
-                .claim(jwtConfiguration.getNumberClaim(), userDetails.getPhoneNumber())
+                .claim(jwtConfiguration.getNumberClaim(), phoneNumber)
                 .setExpiration(expiration)
                 .signWith(jwtConfiguration.getSecretKey())
                 .compact();
     }
 
-    private String buildRefreshToken(final UserDetails userDetails) {
+    private String buildRefreshToken(final String userGuid) {
         LocalDateTime refreshTokenExpirationDateTime = LocalDateTime.now(systemClock)
                 .plusSeconds(jwtConfiguration.getRefreshValidity());
         Date refreshTokenExpiration = Date.from(
                 refreshTokenExpirationDateTime.atZone(systemClock.getZone()).toInstant());
         return Jwts.builder()
-                .claim(jwtConfiguration.getUserGuidClaim(), userDetails.getUserGuid())
+                .claim(jwtConfiguration.getUserGuidClaim(), userGuid)
                 .setExpiration(refreshTokenExpiration)
                 .signWith(jwtConfiguration.getSecretKey())
                 .compact();
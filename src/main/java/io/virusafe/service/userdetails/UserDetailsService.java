@@ -2,10 +2,9 @@ package io.virusafe.service.userdetails;
 
 import io.virusafe.domain.command.PersonalInformationUpdateCommand;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * User details service
@@ -19,6 +18,22 @@ public interface UserDetailsService {
      */
     Optional<UserDetails> findByUserGuid(String userGuid);
 
+    /**
+     * Find the details needed to authenticate a user by GUID, without loading their UserDetails
+     *
+     * @param userGuid
+     * @return
+     */
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(String userGuid);
+
+    /**
+     * Check whether a user has an identification number, without decrypting it
+     *
+     * @param userGuid
+     * @return
+     */
+    boolean hasIdentificationNumber(String userGuid);
+
     /**
      * Find UserDetails by PhoneNumber
      *
@@ -28,14 +43,20 @@ public interface UserDetailsService {
     Optional<UserDetails> findByPhoneNumber(String phoneNumber);
 
     /**
-     * Find UserDetails by Phone number and valid PIN
+     * Find the details needed to authenticate a user by phone number, without loading their UserDetails
      *
      * @param phoneNumber
-     * @param pin
-     * @param time
      * @return
      */
-    Optional<UserDetails> findByPhoneNumberAndValidPin(String phoneNumber, String pin, LocalDateTime time);
+    Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(String phoneNumber);
+
+    /**
+     * Find the id of the user with a given phone number, without loading their UserDetails
+     *
+     * @param phoneNumber
+     * @return
+     */
+    Optional<Long> findIdByPhoneNumber(String phoneNumber);
 
     /**
      * Save UserDetails
@@ -63,7 +84,7 @@ public interface UserDetailsService {
     void updatePushToken(String userGuid, String pushToken);
 
     /**
-     * Update token details
+     * Update token details, without loading the user
      *
      * @param userGuid
      * @param tokenSecret
@@ -85,11 +106,4 @@ public interface UserDetailsService {
      * @param userGuid
      */
     void deleteByUserGuid(String userGuid);
-
-    /**
-     * search pushTokens
-     *
-     * @return
-     */
-    Set<String> findPushTokensForUserGuids(final Set<String> userGuids, final boolean reverseQueryResults);
 }
@@ -3,19 +3,16 @@ package io.virusafe.service.userdetails;
 import io.virusafe.domain.command.PersonalInformationUpdateCommand;
 import io.virusafe.domain.entity.PersonalInformationConsentAction;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.repository.UserDetailsRepositoryFacade;
 import io.virusafe.service.audit.PersonalInformationConsentAuditService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.text.MessageFormat;
-import java.time.LocalDateTime;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 @SuppressWarnings("PMD.TooManyMethods")
 @Service
@@ -25,18 +22,22 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserDetailsRepositoryFacade userDetailsRepositoryFacade;
     private final PersonalInformationConsentAuditService personalInformationConsentAuditService;
+    private final UserPrincipalCache userPrincipalCache;
 
     /**
      * Construct a new UserDetailsService, using the autowired beans.
      *
      * @param userDetailsRepositoryFacade
      * @param personalInformationConsentAuditService the PersonalInformationConsentAuditService to use for audit trail
+     * @param userPrincipalCache                     the UserPrincipalCache to invalidate when users are written
      */
     @Autowired
     public UserDetailsServiceImpl(final UserDetailsRepositoryFacade userDetailsRepositoryFacade,
-                                  final PersonalInformationConsentAuditService personalInformationConsentAuditService) {
+                                  final PersonalInformationConsentAuditService personalInformationConsentAuditService,
+                                  final UserPrincipalCache userPrincipalCache) {
         this.userDetailsRepositoryFacade = userDetailsRepositoryFacade;
         this.personalInformationConsentAuditService = personalInformationConsentAuditService;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     @Override
@@ -44,20 +45,36 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return userDetailsRepositoryFacade.findByUserGuid(userGuid);
     }
 
+    @Override
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByUserGuid(final String userGuid) {
+        return userDetailsRepositoryFacade.findAuthenticationDetailsByUserGuid(userGuid);
+    }
+
+    @Override
+    public boolean hasIdentificationNumber(final String userGuid) {
+        return userDetailsRepositoryFacade.hasIdentificationNumber(userGuid);
+    }
+
     @Override
     public Optional<UserDetails> findByPhoneNumber(final String phoneNumber) {
         return userDetailsRepositoryFacade.findByPhoneNumber(phoneNumber);
     }
 
     @Override
-    public Optional<UserDetails> findByPhoneNumberAndValidPin(final String phoneNumber, final String pin,
-                                                              final LocalDateTime time) {
-        return userDetailsRepositoryFacade.findByPhoneNumberAndValidPin(phoneNumber, pin, time);
+    public Optional<UserAuthenticationDetails> findAuthenticationDetailsByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepositoryFacade.findAuthenticationDetailsByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public Optional<Long> findIdByPhoneNumber(final String phoneNumber) {
+        return userDetailsRepositoryFacade.findIdByPhoneNumber(phoneNumber);
     }
 
     @Override
     public void save(final UserDetails userDetails) {
         userDetailsRepositoryFacade.save(userDetails);
+        // All user writes go through here, so this keeps cached principals from outliving the saved details.
+        userPrincipalCache.invalidate(userDetails.getUserGuid());
     }
 
     @Override
@@ -80,27 +97,20 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     }
 
     @Override
+    @Transactional
     public void updatePushToken(final String userGuid, final String pushToken) {
-        UserDetails userDetails = findByUserGuid(userGuid)
-                .orElseThrow(
-                        () -> new NoSuchElementException(MessageFormat.format(MISSING_USER_TEMPLATE, userGuid))
-
-                );
-
-        userDetails.setPushToken(pushToken);
-        save(userDetails);
+        if (!userDetailsRepositoryFacade.updatePushToken(userGuid, pushToken)) {
+            throw new NoSuchElementException(MessageFormat.format(MISSING_USER_TEMPLATE, userGuid));
+        }
+        // Cached principals don't hold the push token, so there's nothing to invalidate.
     }
 
     @Override
     public void updateTokenDetails(final String userGuid, final String tokenSecret, final String refreshTokenHash) {
-        UserDetails userDetails = findByUserGuid(userGuid)
-                .orElseThrow(
-                        () -> new NoSuchElementException(MessageFormat.format(MISSING_USER_TEMPLATE, userGuid))
-                );
-
-        userDetails.setTokenSecret(tokenSecret);
-        userDetails.setRefreshToken(refreshTokenHash);
-        save(userDetails);
+        if (!userDetailsRepositoryFacade.updateTokenDetails(userGuid, tokenSecret, refreshTokenHash)) {
+            throw new NoSuchElementException(MessageFormat.format(MISSING_USER_TEMPLATE, userGuid));
+        }
+        userPrincipalCache.invalidate(userGuid);
     }
 
     @Override
@@ -126,11 +136,4 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         userDetails.setGender(null);
         userDetails.setPreExistingConditions(null);
     }
-
-    @Override
-    public Set<String> findPushTokensForUserGuids(final Set<String> userGuids, final boolean reverse) {
-        Set<String> guids = userDetailsRepositoryFacade.findAllPushTokensByUserGuid(userGuids, reverse);
-        return guids.stream().filter(Predicate.not(Objects::isNull))
-                .filter(Predicate.not(String::isEmpty)).collect(Collectors.toSet());
-    }
 }
@@ -0,0 +1,152 @@
+package io.virusafe.service.userdetails;
+
+import io.virusafe.security.principal.UserPrincipal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, time-limited cache of principals that have already been validated against the database, keyed by user
+ * GUID and token secret. Entries are invalidated whenever the user's details are saved or their tokens are rotated.
+ * The cache is local to each node, so other nodes keep accepting a revoked token secret until their entry expires.
+ * <p>
+ * To avoid caching details loaded before a concurrent write, callers take an invalidation stamp before loading the
+ * user and pass it back when caching the principal; the entry is dropped if any invalidation happened in between.
+ */
+@Component
+@Slf4j
+public class UserPrincipalCache {
+
+    private final ConcurrentMap<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Clock systemClock;
+    private final long timeToLive;
+    private final int maxEntries;
+
+    /**
+     * Construct user principal cache.
+     *
+     * @param systemClock the clock to expire entries against
+     * @param timeToLive  the time entries stay valid after being cached, in milliseconds
+     * @param maxEntries  the maximum number of cached principals
+     */
+    @Autowired
+    public UserPrincipalCache(final Clock systemClock,
+                              @Value("${jwt.principal-cache.ttl-millis:60000}") final long timeToLive,
+                              @Value("${jwt.principal-cache.max-entries:100000}") final int maxEntries) {
+        this.systemClock = systemClock;
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get a cached principal for a given user GUID and token secret.
+     *
+     * @param userGuid    the user GUID from the token
+     * @param tokenSecret the token secret from the token
+     * @param createdDate the user's created date from the token
+     * @return a copy of the cached principal, or empty if there's no valid entry matching all of the token's claims
+     */
+    public Optional<UserPrincipal> get(final String userGuid, final String tokenSecret, final Long createdDate) {
+        CachedPrincipal cachedPrincipal = principals.get(userGuid);
+        if (cachedPrincipal == null
+                || cachedPrincipal.getExpiresAt() < systemClock.millis()
+                || !Objects.equals(cachedPrincipal.getTokenSecret(), tokenSecret)
+                || !Objects.equals(cachedPrincipal.getCreatedDate(), createdDate)) {
+            return Optional.empty();
+        }
+        // Hand out copies, so that no request can change the principal seen by others.
+        UserPrincipal principal = cachedPrincipal.getPrincipal();
+        return Optional.of(UserPrincipal.builder()
+                .userId(principal.getUserId())
+                .phoneNumber(principal.getPhoneNumber())
+                .userGuid(principal.getUserGuid())
+                .build());
+    }
+
+    /**
+     * Get the current invalidation stamp, to be taken before loading the user details to cache.
+     *
+     * @return the invalidation stamp
+     */
+    public long getInvalidationStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Cache a validated principal, unless any invalidation happened since the given stamp was taken.
+     *
+     * @param invalidationStamp the invalidation stamp taken before loading the user details
+     * @param tokenSecret       the user's current token secret
+     * @param createdDate       the user's created date
+     * @param principal         the principal built from the user details
+     */
+    public void put(final long invalidationStamp, final String tokenSecret, final Long createdDate,
+                    final UserPrincipal principal) {
+        if (principals.size() >= maxEntries) {
+            evictExpiredPrincipals();
+            if (principals.size() >= maxEntries) {
+                return;
+            }
+        }
+        String userGuid = principal.getUserGuid();
+        CachedPrincipal cachedPrincipal = new CachedPrincipal(tokenSecret, createdDate, principal,
+                systemClock.millis() + timeToLive);
+        principals.put(userGuid, cachedPrincipal);
+        // An invalidation may have raced with loading the details; if so, they may be stale and must not be kept.
+        if (invalidations.get() != invalidationStamp) {
+            principals.remove(userGuid, cachedPrincipal);
+        }
+    }
+
+    /**
+     * Invalidate the cached principal of a given user.
+     *
+     * @param userGuid the user GUID
+     */
+    public void invalidate(final String userGuid) {
+        invalidations.incrementAndGet();
+        if (userGuid != null) {
+            principals.remove(userGuid);
+        }
+    }
+
+    /**
+     * Evict all expired principals.
+     */
+    @Scheduled(fixedDelayString = "${jwt.principal-cache.ttl-millis:60000}")
+    public void evictExpiredPrincipals() {
+        long now = systemClock.millis();
+        principals.values().removeIf(cachedPrincipal -> cachedPrincipal.getExpiresAt() < now);
+        log.debug("{} principals cached after eviction", principals.size());
+    }
+
+    /**
+     * Get the number of cached principals.
+     *
+     * @return the number of cached principals
+     */
+    public int size() {
+        return principals.size();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class CachedPrincipal {
+        private final String tokenSecret;
+        private final Long createdDate;
+        private final UserPrincipal principal;
+        private final long expiresAt;
+    }
+}
@@ -1,41 +1,31 @@
 package io.virusafe.sms;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
+import io.virusafe.security.encryption.CryptoUtils;
+
+import javax.crypto.SecretKey;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * HmacSHA512 hash converted to string in a way supported by sms provider
  */
 public class HmacHashGenerator implements HashGenerator {
     private static final String ENCRYPTION_ALGORITHM = "HmacSHA512";
-    private final String apiSecret;
+    private final SecretKey secretKey;
 
     /**
      * @param apiSecret - secret key provided by SMS provider
      */
     public HmacHashGenerator(final String apiSecret) {
-        this.apiSecret = apiSecret;
+        this.secretKey = Optional.ofNullable(apiSecret)
+                .map(secret -> CryptoUtils.macKey(ENCRYPTION_ALGORITHM, secret))
+                .orElse(null);
     }
 
     @Override
     public String generateHash(final String message) throws InvalidKeyException, NoSuchAlgorithmException {
-        Mac sha512HMAC = Mac.getInstance(ENCRYPTION_ALGORITHM);
-        SecretKeySpec secretKey = new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), ENCRYPTION_ALGORITHM);
-        sha512HMAC.init(secretKey);
-
-        return toHexString(sha512HMAC.doFinal(message.getBytes(StandardCharsets.UTF_8)));
-    }
-
-    private static String toHexString(final byte[] bytes) {
-        try (Formatter formatter = new Formatter();) {
-            for (byte b : bytes) {
-                formatter.format("%02x", b);
-            }
-            return formatter.toString();
-        }
+        return CryptoUtils.macToHex(Objects.requireNonNull(secretKey, "No API secret configured"), message);
     }
 }
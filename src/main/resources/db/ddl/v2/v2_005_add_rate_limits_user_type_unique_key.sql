@@ -0,0 +1,7 @@
+DELETE `older` FROM `rate_limits` `older`
+    INNER JOIN `rate_limits` `newer`
+        ON `older`.`user_details_id` = `newer`.`user_details_id`
+        AND `older`.`type` = `newer`.`type`
+        AND `older`.`id` < `newer`.`id`;
+
+CREATE UNIQUE INDEX IF NOT EXISTS `rate_limits_user_details_id_type_indx` on rate_limits(user_details_id, type);
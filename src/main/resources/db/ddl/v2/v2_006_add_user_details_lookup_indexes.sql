@@ -0,0 +1,4 @@
+CREATE INDEX IF NOT EXISTS `user_details_phone_number_indx` on user_details(phone_number);
+
+CREATE INDEX IF NOT EXISTS `user_registration_tokens_user_details_id_valid_until_indx`
+    on user_registration_tokens(user_details_id, valid_until);
@@ -0,0 +1,8 @@
+ALTER TABLE `user_details`
+    ADD COLUMN `refresh_token_hash` binary(64) NULL AFTER `token_secret`;
+
+UPDATE `user_details`
+SET `refresh_token_hash` = FROM_BASE64(`refresh_token`)
+WHERE `refresh_token` IS NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS `user_details_refresh_token_hash_indx` on user_details(refresh_token_hash);
@@ -0,0 +1,22 @@
+CREATE TABLE IF NOT EXISTS `personal_information_consent_state` (
+  `user_guid` varchar(40) NOT NULL,
+  `version` bigint(20) DEFAULT NULL,
+  `action` varchar(32) NOT NULL,
+  `changed_on` DATETIME(6) NULL,
+  PRIMARY KEY (`user_guid`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX IF NOT EXISTS `personal_information_consent_audit_user_guid_changed_on_indx`
+    on personal_information_consent_audit(user_guid, changed_on);
+
+INSERT INTO `personal_information_consent_state` (user_guid, version, action, changed_on)
+    SELECT pica.user_guid, 0, pica.action, pica.changed_on
+    FROM `personal_information_consent_audit` pica
+    WHERE pica.id = (SELECT latest.id FROM `personal_information_consent_audit` latest
+                     WHERE latest.user_guid = pica.user_guid
+                     ORDER BY latest.changed_on DESC, latest.id DESC
+                     LIMIT 1)
+ON DUPLICATE KEY UPDATE action = VALUES(action), changed_on = VALUES(changed_on);
+
+CREATE INDEX IF NOT EXISTS `personal_information_consent_state_action_indx`
+    on personal_information_consent_state(action, user_guid);
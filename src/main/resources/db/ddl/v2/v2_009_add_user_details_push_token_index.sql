@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS `user_details_push_token_indx` on user_details(push_token);
@@ -0,0 +1,3 @@
+-- Contract step for v2_007. Run only once no deployed version reads or writes user_details.refresh_token.
+ALTER TABLE `user_details`
+    DROP COLUMN `refresh_token`;
@@ -0,0 +1,8 @@
+-- Push tokens are kept unique on every update since this version, so only the latest registered user keeps a token
+-- shared by several users.
+UPDATE `user_details` `older`
+    INNER JOIN `user_details` `newer`
+        ON `older`.`push_token` = `newer`.`push_token`
+        AND `older`.`id` < `newer`.`id`
+SET `older`.`push_token` = NULL,
+    `older`.`version` = COALESCE(`older`.`version`, 0) + 1;
@@ -1,18 +1,34 @@
 package io.virusafe.configuration;
 
-import io.virusafe.repository.NoEncryptionUserDetailsRepositoryFacade;
+import io.virusafe.repository.RequestScopedUserDetailsRepositoryFacade;
 import io.virusafe.repository.UserDetailsRepository;
 import io.virusafe.repository.UserDetailsRepositoryFacade;
+import io.virusafe.security.encryption.SymmetricEncryptionProvider;
+import io.virusafe.security.encryption.SymmetricEncryptionProviderImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
 class EncryptionConfigurationTest {
 
+    private static final String KEY = "KEY";
+    private static final String KEY_ID = "1";
+    private static final String RETIRED_KEY = "RETIRED_KEY";
+    private static final String RETIRED_KEY_ID = "0";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String ENCRYPTION_ALGORITHM = "AES/CBC/PKCS5Padding";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final String IV = "IV";
+    private static final String IDENTIFICATION_NUMBER = "9876543210";
+
     @Mock
     private UserDetailsRepository userDetailsRepository;
     private final EncryptionConfiguration encryptionConfiguration = new EncryptionConfiguration();
@@ -21,6 +37,40 @@ class EncryptionConfigurationTest {
     public void testCanCreateNoEncryptionProviderFacade() {
         UserDetailsRepositoryFacade repositoryFacade =
                 encryptionConfiguration.createNoEncryptionRepositoryFacade(userDetailsRepository);
-        assertTrue(repositoryFacade instanceof NoEncryptionUserDetailsRepositoryFacade);
+        assertTrue(repositoryFacade instanceof RequestScopedUserDetailsRepositoryFacade);
+    }
+
+    @Test
+    public void testIdentificationNumberProviderUsesKeyRegistry() {
+        SymmetricEncryptionProvider encryptionProvider =
+                encryptionConfiguration.createEncryptionProvider(createKeyProperties(), createAlgorithmProperties());
+        SymmetricEncryptionProvider retiredProvider = new SymmetricEncryptionProviderImpl(RETIRED_KEY,
+                DIGEST_ALGORITHM, ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        String retiredCipherText = retiredProvider.encrypt(IDENTIFICATION_NUMBER, IV);
+
+        String cipherText = encryptionProvider.encrypt(IDENTIFICATION_NUMBER, IV);
+
+        assertTrue(cipherText.startsWith(KEY_ID + ":"));
+        assertEquals(IDENTIFICATION_NUMBER, encryptionProvider.decrypt(cipherText, IV));
+        assertEquals(IDENTIFICATION_NUMBER, encryptionProvider.decrypt(RETIRED_KEY_ID + ":" + retiredCipherText, IV));
+        assertEquals(IDENTIFICATION_NUMBER, encryptionProvider.decrypt(retiredCipherText, IV));
+    }
+
+    private EncryptionConfiguration.SymmetricKeyProperties createKeyProperties() {
+        EncryptionConfiguration.SymmetricKeyProperties keyProperties = new EncryptionConfiguration.SymmetricKeyProperties();
+        keyProperties.setKey(KEY);
+        keyProperties.setKeyId(KEY_ID);
+        keyProperties.setRetiredKeys(Map.of(RETIRED_KEY_ID, RETIRED_KEY));
+        keyProperties.setLegacyKeyIds(List.of(KEY_ID, RETIRED_KEY_ID));
+        return keyProperties;
+    }
+
+    private EncryptionConfiguration.EncryptionAlgorithmProperties createAlgorithmProperties() {
+        EncryptionConfiguration.EncryptionAlgorithmProperties algorithmProperties =
+                new EncryptionConfiguration.EncryptionAlgorithmProperties();
+        algorithmProperties.setDigest(DIGEST_ALGORITHM);
+        algorithmProperties.setEncryption(ENCRYPTION_ALGORITHM);
+        algorithmProperties.setKey(KEY_ALGORITHM);
+        return algorithmProperties;
     }
-}
\ No newline at end of file
+}
@@ -37,7 +37,6 @@ public class LocationControllerTest {
     private static final String CREATE_NEW_GPS_LOCATION = "classpath:json/createNewGpsLocation.json";
     private static final String CREATE_NEW_PROXIMITY = "classpath:json/createProximity.json";
     private static final String USER_GUID = "USER_GUID";
-    private static final String IDENTIFICATION_NUMBER = "0000000000";
 
     @Mock
     private LocationService locationService;
@@ -50,7 +49,7 @@ public class LocationControllerTest {
     public void setUp() {
         mockMvc = MockMvcBuilders
                 .standaloneSetup(new LocationController(locationService, locationGpsMapper))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, IDENTIFICATION_NUMBER))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .build();
     }
 
@@ -43,7 +43,6 @@ public class PersonalInformationControllerTest {
     private static final String CREATE_PERSONAL_INFO = "classpath:json/createPersonalInfo.json";
     private static final String GET_PERSONAL_INFO = "classpath:json/getPersonalInfo.json";
     private static final String USER_GUID = "USER_GUID";
-    private static final String IDENTIFICATION_NUMBER = "0000000000";
 
     private MockMvc mockMvc;
 
@@ -60,7 +59,7 @@ public class PersonalInformationControllerTest {
     public void setUp() {
         mockMvc = MockMvcBuilders
                 .standaloneSetup(new PersonalInformationController(userDetailsService, personalInformationMapper))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, IDENTIFICATION_NUMBER))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .setValidator(validator)
                 .build();
@@ -1,6 +1,11 @@
 package io.virusafe.controller;
 
+import io.virusafe.domain.dto.PushCampaignStatusDTO;
+import io.virusafe.domain.query.QuestionnaireQuery;
+import io.virusafe.exception.PushCampaignQueueFullException;
+import io.virusafe.exception.handler.GlobalExceptionHandler;
 import io.virusafe.mapper.QuestionnaireQueryMapper;
+import io.virusafe.service.notification.PushCampaignService;
 import io.virusafe.service.notification.PushNotificationSenderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,7 +23,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.stream.Collectors;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,12 +42,18 @@ public class PushNotificationControllerTest {
     private static final String PUSH_NOTIFICATION_REQUEST_DTO = "classpath:queries/pushNotificationRequestDTO.json";
     private static final String CUSTOM_NOTIFICATION_DTO = "classpath:json/customPushNotificationDTO.json";
     private static final String BASE_URL = "/admin/pushNotification";
+    private static final String JOB_ID = "jobId";
+    private static final String MESSAGE = "Please send your questionnaire today.";
+    private static final String QUEUE_FULL_MESSAGE = "PushNotification Too many push campaigns are queued";
 
     private MockMvc mockMvc;
 
     @Mock
     private PushNotificationSenderService pushNotificationService;
 
+    @Mock
+    private PushCampaignService pushCampaignService;
+
     @Mock
     private QuestionnaireQueryMapper questionnaireQueryMapper;
 
@@ -42,8 +63,10 @@ public class PushNotificationControllerTest {
     @BeforeEach
     public void setUp() {
         mockMvc = MockMvcBuilders
-                .standaloneSetup(new PushNotificationController(pushNotificationService, questionnaireQueryMapper))
+                .standaloneSetup(new PushNotificationController(pushNotificationService, pushCampaignService,
+                        questionnaireQueryMapper))
                 .setValidator(validator)
+                .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
     }
 
@@ -51,12 +74,56 @@ public class PushNotificationControllerTest {
     public void sendPushNotificationTest() throws Exception {
 
         final String content = getResource(PUSH_NOTIFICATION_REQUEST_DTO);
+        QuestionnaireQuery questionnaireQuery = mock(QuestionnaireQuery.class);
+        when(questionnaireQueryMapper.mapQuestionnaireQueryDTOToQuestionnaireQuery(any()))
+                .thenReturn(questionnaireQuery);
+        // The title is optional, the message has to reach the campaign as its message.
+        when(pushCampaignService.submit(eq(questionnaireQuery), isNull(), eq(MESSAGE), anyBoolean()))
+                .thenReturn(createStatus(PushCampaignStatusDTO.State.QUEUED));
 
         this.mockMvc.perform(post(BASE_URL + "/query")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(content)
                 .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(JOB_ID))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+
+    @Test
+    public void sendPushNotificationWhenCampaignQueueIsFullTest() throws Exception {
+        final String content = getResource(PUSH_NOTIFICATION_REQUEST_DTO);
+        QuestionnaireQuery questionnaireQuery = mock(QuestionnaireQuery.class);
+        when(questionnaireQueryMapper.mapQuestionnaireQueryDTOToQuestionnaireQuery(any()))
+                .thenReturn(questionnaireQuery);
+        when(pushCampaignService.submit(eq(questionnaireQuery), isNull(), eq(MESSAGE), anyBoolean()))
+                .thenThrow(new PushCampaignQueueFullException(QUEUE_FULL_MESSAGE, new RuntimeException()));
+
+        this.mockMvc.perform(post(BASE_URL + "/query")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value(QUEUE_FULL_MESSAGE));
+    }
+
+    @Test
+    public void getPushCampaignStatusTest() throws Exception {
+        when(pushCampaignService.getStatus(JOB_ID)).thenReturn(createStatus(PushCampaignStatusDTO.State.RUNNING));
+
+        this.mockMvc.perform(get(BASE_URL + "/campaigns/" + JOB_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+
+    @Test
+    public void cancelPushCampaignTest() throws Exception {
+        when(pushCampaignService.cancel(JOB_ID)).thenReturn(createStatus(PushCampaignStatusDTO.State.CANCELLING));
+
+        this.mockMvc.perform(delete(BASE_URL + "/campaigns/" + JOB_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELLING"));
+        verify(pushCampaignService).cancel(JOB_ID);
     }
 
     @Test
@@ -70,6 +137,13 @@ public class PushNotificationControllerTest {
                 .andExpect(status().isOk());
     }
 
+    private PushCampaignStatusDTO createStatus(final PushCampaignStatusDTO.State state) {
+        return PushCampaignStatusDTO.builder()
+                .jobId(JOB_ID)
+                .state(state)
+                .build();
+    }
+
     private String getResource(String path) throws IOException {
         final File inputFile = ResourceUtils.getFile(path);
 
@@ -8,6 +8,7 @@ import io.virusafe.domain.dto.QuestionDTO;
 import io.virusafe.domain.dto.QuestionnairePostDTO;
 import io.virusafe.exception.handler.GlobalExceptionHandler;
 import io.virusafe.service.questionnaire.QuestionnaireService;
+import io.virusafe.service.userdetails.UserDetailsService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -27,8 +28,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -42,21 +46,23 @@ public class QuestionnaireControllerTest {
     private static final String USER_GUID = "USER_GUID";
     private static final String ALL_QUESTIONS = "classpath:json/allQuestions.json";
     private static final String ALL_QUESTIONNAIRE_POST_DTO = "classpath:json/allQuestionnairePostDTO.json";
-    private static final String IDENTIFICATION_NUMBER = "0000000000";
 
     private MockMvc mockMvc;
 
     @Mock
     private QuestionnaireService questionnaireService;
 
+    @Mock
+    private UserDetailsService userDetailsService;
+
     @Mock
     private Validator validator;
 
     @Test
     public void getAllQuestions() throws Exception {
         mockMvc = MockMvcBuilders
-                .standaloneSetup(new QuestionnaireController(questionnaireService))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, IDENTIFICATION_NUMBER))
+                .standaloneSetup(new QuestionnaireController(questionnaireService, userDetailsService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .setValidator(validator)
                 .build();
@@ -73,13 +79,14 @@ public class QuestionnaireControllerTest {
     @Test
     public void postQuestionnaire() throws Exception {
         mockMvc = MockMvcBuilders
-                .standaloneSetup(new QuestionnaireController(questionnaireService))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, IDENTIFICATION_NUMBER))
+                .standaloneSetup(new QuestionnaireController(questionnaireService, userDetailsService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .setValidator(validator)
                 .build();
         final String content = getResource(ALL_QUESTIONNAIRE_POST_DTO);
 
+        when(userDetailsService.hasIdentificationNumber(USER_GUID)).thenReturn(true);
         doNothing().when(questionnaireService).postQuestionnaire(createMockedQuestionnairePostDTO(), USER_GUID);
 
         this.mockMvc.perform(post(BASE_URL)
@@ -92,18 +99,20 @@ public class QuestionnaireControllerTest {
     @Test
     public void testPostQuestionnaireReturnsForbiddenWithInvalidUserInformation() throws Exception {
         mockMvc = MockMvcBuilders
-                .standaloneSetup(new QuestionnaireController(questionnaireService))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, null))
+                .standaloneSetup(new QuestionnaireController(questionnaireService, userDetailsService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .setValidator(validator)
                 .build();
         final String content = getResource(ALL_QUESTIONNAIRE_POST_DTO);
+        when(userDetailsService.hasIdentificationNumber(USER_GUID)).thenReturn(false);
 
         this.mockMvc.perform(post(BASE_URL)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(content)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().is(HttpStatus.FORBIDDEN.value()));
+        verify(questionnaireService, never()).postQuestionnaire(any(), anyString());
     }
 
     private String getResource(String path) throws IOException {
@@ -0,0 +1,78 @@
+package io.virusafe.controller;
+
+import io.virusafe.domain.dto.ReEncryptionStatusDTO;
+import io.virusafe.service.encryption.ReEncryptionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ReEncryptionControllerTest {
+
+    private static final String BASE_URL = "/admin/reEncryption";
+    private static final long FROM_ID = 42L;
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ReEncryptionService reEncryptionService;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReEncryptionController(reEncryptionService)).build();
+    }
+
+    @Test
+    public void testStartReEncryption() throws Exception {
+        when(reEncryptionService.start(null)).thenReturn(createStatus(ReEncryptionStatusDTO.State.RUNNING));
+
+        mockMvc.perform(post(BASE_URL))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+
+    @Test
+    public void testStartReEncryptionFromId() throws Exception {
+        when(reEncryptionService.start(FROM_ID)).thenReturn(createStatus(ReEncryptionStatusDTO.State.RUNNING));
+
+        mockMvc.perform(post(BASE_URL).param("fromId", String.valueOf(FROM_ID)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.fromId").value(FROM_ID));
+    }
+
+    @Test
+    public void testGetReEncryptionStatus() throws Exception {
+        when(reEncryptionService.getStatus()).thenReturn(createStatus(ReEncryptionStatusDTO.State.COMPLETED));
+
+        mockMvc.perform(get(BASE_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"));
+    }
+
+    @Test
+    public void testStopReEncryption() throws Exception {
+        when(reEncryptionService.stop()).thenReturn(createStatus(ReEncryptionStatusDTO.State.STOPPING));
+
+        mockMvc.perform(delete(BASE_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("STOPPING"));
+    }
+
+    private ReEncryptionStatusDTO createStatus(final ReEncryptionStatusDTO.State state) {
+        return ReEncryptionStatusDTO.builder()
+                .state(state)
+                .fromId(FROM_ID)
+                .build();
+    }
+}
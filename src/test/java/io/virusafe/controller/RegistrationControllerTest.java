@@ -2,6 +2,7 @@ package io.virusafe.controller;
 
 import io.virusafe.controller.configuration.AuthenticationPrincipalResolver;
 import io.virusafe.domain.dto.AccessTokenDTO;
+import io.virusafe.exception.UnverifiablePinException;
 import io.virusafe.exception.handler.GlobalExceptionHandler;
 import io.virusafe.service.pin.PinService;
 import io.virusafe.service.token.TokenService;
@@ -37,7 +38,6 @@ public class RegistrationControllerTest {
     private static final String ACCESS_TOKEN_DTO = "classpath:json/accessTokenDTO.json";
     private static final String PUSH_TOKEN_DTO = "classpath:json/pushTokenDTO.json";
     private static final String REFRESH_TOKEN_DTO = "classpath:json/refreshToken.json";
-    private static final String IDENTIFICATION_NUMBER = "0000000000";
     public static final String PHONE_NUMBER = "0898200300";
     public static final String PIN = "000000";
 
@@ -59,7 +59,7 @@ public class RegistrationControllerTest {
     public void setUp() {
         mockMvc = MockMvcBuilders
                 .standaloneSetup(new RegistrationController(tokenService, pinService, userDetailsService))
-                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID, IDENTIFICATION_NUMBER))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalResolver(USER_GUID))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .setValidator(validator)
                 .build();
@@ -83,13 +83,11 @@ public class RegistrationControllerTest {
         final String content = getResource(TOKEN_GENERATION_DTO);
         final String responseBody = getResource(ACCESS_TOKEN_DTO);
 
-        when(pinService.verifyPin(PHONE_NUMBER, PIN)).thenReturn(true);
         AccessTokenDTO accessTokenDTO = AccessTokenDTO.builder()
                 .accessToken("accessToken")
                 .refreshToken("refreshToken")
                 .build();
-        when(tokenService.generateToken(PHONE_NUMBER)).thenReturn(accessTokenDTO);
-        doNothing().when(pinService).invalidatePins(PHONE_NUMBER);
+        when(tokenService.generateToken(PHONE_NUMBER, PIN)).thenReturn(accessTokenDTO);
 
         this.mockMvc.perform(post("/token")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -105,7 +103,7 @@ public class RegistrationControllerTest {
         final String content = getResource(TOKEN_GENERATION_DTO);
         final String responseBody = getResource(ACCESS_TOKEN_DTO);
 
-        when(pinService.verifyPin(PHONE_NUMBER, PIN)).thenReturn(false);
+        when(tokenService.generateToken(PHONE_NUMBER, PIN)).thenThrow(new UnverifiablePinException(PHONE_NUMBER, PIN));
 
         this.mockMvc.perform(post("/token")
                 .contentType(MediaType.APPLICATION_JSON)
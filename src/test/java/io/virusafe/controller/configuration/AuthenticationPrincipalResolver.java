@@ -11,11 +11,8 @@ public class AuthenticationPrincipalResolver implements HandlerMethodArgumentRes
 
     private final String userGuid;
 
-    private final String identificationNumber;
-
-    public AuthenticationPrincipalResolver(final String userGuid, final String identificationNumber) {
+    public AuthenticationPrincipalResolver(final String userGuid) {
         this.userGuid = userGuid;
-        this. identificationNumber = identificationNumber;
     }
 
     @Override
@@ -28,7 +25,6 @@ public class AuthenticationPrincipalResolver implements HandlerMethodArgumentRes
                                   NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
         return UserPrincipal.builder()
                 .userGuid(userGuid)
-                .identificationNumber(identificationNumber)
                 .build();
     }
 }
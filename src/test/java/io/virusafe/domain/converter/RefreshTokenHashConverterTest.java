@@ -0,0 +1,55 @@
+package io.virusafe.domain.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RefreshTokenHashConverterTest {
+
+    private static final String REFRESH_TOKEN = "REFRESH_TOKEN";
+    private final RefreshTokenHashConverter refreshTokenHashConverter = new RefreshTokenHashConverter();
+
+    @Test
+    public void testConvertFullLengthHash() throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-512").digest(REFRESH_TOKEN.getBytes(StandardCharsets.UTF_8));
+        String encodedHash = Base64.getEncoder().encodeToString(hash);
+
+        byte[] column = refreshTokenHashConverter.convertToDatabaseColumn(encodedHash);
+
+        assertArrayEquals(hash, column);
+        assertEquals(encodedHash, refreshTokenHashConverter.convertToEntityAttribute(column));
+    }
+
+    @Test
+    public void testConvertShorterHashIsPadded() throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(REFRESH_TOKEN.getBytes(StandardCharsets.UTF_8));
+
+        byte[] column = refreshTokenHashConverter.convertToDatabaseColumn(Base64.getEncoder().encodeToString(hash));
+
+        assertEquals(RefreshTokenHashConverter.HASH_LENGTH, column.length);
+        assertArrayEquals(hash, Arrays.copyOf(column, hash.length));
+        assertArrayEquals(column, refreshTokenHashConverter.convertToDatabaseColumn(
+                refreshTokenHashConverter.convertToEntityAttribute(column)));
+    }
+
+    @Test
+    public void testConvertInvalidHash() {
+        assertThrows(IllegalArgumentException.class,
+                () -> refreshTokenHashConverter.convertToDatabaseColumn("INVALID!"));
+    }
+
+    @Test
+    public void testConvertNull() {
+        assertNull(refreshTokenHashConverter.convertToDatabaseColumn(null));
+        assertNull(refreshTokenHashConverter.convertToEntityAttribute(null));
+    }
+}
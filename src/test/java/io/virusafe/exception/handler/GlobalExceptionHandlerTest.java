@@ -3,6 +3,7 @@ package io.virusafe.exception.handler;
 import io.virusafe.exception.EncryptionProviderException;
 import io.virusafe.exception.InvalidPersonalInformationException;
 import io.virusafe.exception.InvalidSignatureJwtException;
+import io.virusafe.exception.PushCampaignQueueFullException;
 import io.virusafe.exception.QueryExecuteException;
 import io.virusafe.exception.QueryParseException;
 import io.virusafe.exception.RateLimitTimeoutException;
@@ -51,6 +52,7 @@ class GlobalExceptionHandlerTest {
     private static final Integer TIMEOUT_SECONDS = 100;
     private static final String VALIDATION_FIELD = "VALIDATION_FIELD";
     private static final String VALIDATION_OBJECT = "VALIDATION_OBJECT";
+    private static final String PUSH_CAMPAIGN_QUEUE_FULL_MESSAGE = "PUSH_CAMPAIGN_QUEUE_FULL_MESSAGE";
 
     private final GlobalExceptionHandler globalExceptionHandler = new GlobalExceptionHandler();
 
@@ -270,6 +272,19 @@ class GlobalExceptionHandlerTest {
         );
     }
 
+    @Test
+    public void testHandlePushCampaignQueueFullException() {
+        PushCampaignQueueFullException pushCampaignQueueFullException = new PushCampaignQueueFullException(
+                PUSH_CAMPAIGN_QUEUE_FULL_MESSAGE, new RuntimeException());
+        pushCampaignQueueFullException.setStackTrace(buildDefaultStacktrace());
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler
+                .handlePushCampaignQueueFullException(pushCampaignQueueFullException);
+        assertAll(
+                () -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode()),
+                () -> assertEquals(PUSH_CAMPAIGN_QUEUE_FULL_MESSAGE, response.getBody().getMessage())
+        );
+    }
+
     private StackTraceElement[] buildDefaultStacktrace() {
         StackTraceElement[] stackTraceArray = new StackTraceElement[20];
         for (int i = 0; i < 20; i++) {
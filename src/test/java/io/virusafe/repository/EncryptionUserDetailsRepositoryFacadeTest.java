@@ -1,7 +1,7 @@
 package io.virusafe.repository;
 
-import io.virusafe.domain.entity.RegistrationPin;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.security.encryption.SymmetricEncryptionProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,18 +9,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.Optional;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,9 +29,10 @@ class EncryptionUserDetailsRepositoryFacadeTest {
     private static final String USER_GUID = "USER_GUID";
     private static final String ENCRYPTED_IDENTIFICATION_NUMBER = "ENCRYPTED_IDENTIFICATION_NUMBER";
     private static final String DECRYPTED_IDENTIFICATION_NUMBER = "DECRYPTED_IDENTIFICATION_NUMBER";
+    private static final Long USER_ID = 1L;
     private static final String PHONE_NUMBER = "PHONE_NUMBER";
-    private static final String PIN = "PIN";
     private static final String REFRESH_TOKEN = "REFRESH_TOKEN";
+    private static final String TOKEN_SECRET = "TOKEN_SECRET";
     private static final String IV_VECTOR = "IV_VECTOR";
     private static final String PUSH_TOKEN = "PUSH_TOKEN";
     @Mock
@@ -124,31 +125,63 @@ class EncryptionUserDetailsRepositoryFacadeTest {
     }
 
     @Test
-    public void testFindByPhoneNumberAndValidPin() {
-        LocalDateTime timeNow = LocalDateTime.now();
-        UserDetails userDetails = UserDetails.builder()
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Collections.singletonList(
-                        RegistrationPin.builder()
-                                .pin(PIN)
-                                .validUntil(timeNow.plusMinutes(2))
-                                .build()
-                ))
-                .identificationNumber(ENCRYPTED_IDENTIFICATION_NUMBER)
-                .build();
-        when(userDetailsRepository.findByPhoneNumberAndValidPin(PHONE_NUMBER, PIN, timeNow))
-                .thenReturn(Optional.of(userDetails));
-        when(encryptionProvider.decrypt(ENCRYPTED_IDENTIFICATION_NUMBER, IV_VECTOR))
-                .thenReturn(DECRYPTED_IDENTIFICATION_NUMBER);
-        Optional<UserDetails> userResult = repositoryFacade.findByPhoneNumberAndValidPin(PHONE_NUMBER, PIN, timeNow);
-        assertAll(
-                () -> assertTrue(userResult.isPresent()),
-                () -> assertEquals(ENCRYPTED_IDENTIFICATION_NUMBER, userResult.get().getIdentificationNumber()),
-                () -> assertEquals(DECRYPTED_IDENTIFICATION_NUMBER, userResult.get().getIdentificationNumberPlain()),
-                () -> assertEquals(PHONE_NUMBER, userResult.get().getPhoneNumber()),
-                () -> assertEquals(PIN, userResult.get().getRegistrationPins().get(0).getPin()),
-                () -> assertTrue(timeNow.isBefore(userResult.get().getRegistrationPins().get(0).getValidUntil()))
-        );
+    public void testFindAuthenticationDetailsByUserGuid() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userDetailsRepository.findAuthenticationDetailsByUserGuid(USER_GUID))
+                .thenReturn(Optional.of(authenticationDetails));
+        assertEquals(Optional.of(authenticationDetails), repositoryFacade.findAuthenticationDetailsByUserGuid(USER_GUID));
+        verifyNoInteractions(encryptionProvider);
+    }
+
+    @Test
+    public void testFindAuthenticationDetailsByPhoneNumber() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userDetailsRepository.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        assertEquals(Optional.of(authenticationDetails),
+                repositoryFacade.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER));
+        verifyNoInteractions(encryptionProvider);
+    }
+
+    @Test
+    public void testUpdateTokenDetails() {
+        when(userDetailsRepository.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN)).thenReturn(1);
+        assertTrue(repositoryFacade.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN));
+        verifyNoInteractions(encryptionProvider);
+    }
+
+    @Test
+    public void testUpdateTokenDetailsForMissingUser() {
+        when(userDetailsRepository.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN)).thenReturn(0);
+        assertFalse(repositoryFacade.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN));
+    }
+
+    @Test
+    public void testUpdatePushToken() {
+        when(userDetailsRepository.updatePushToken(USER_GUID, PUSH_TOKEN)).thenReturn(1);
+        assertTrue(repositoryFacade.updatePushToken(USER_GUID, PUSH_TOKEN));
+        verify(userDetailsRepository).clearPushTokenOfOtherUsers(USER_GUID, PUSH_TOKEN);
+        verifyNoInteractions(encryptionProvider);
+    }
+
+    @Test
+    public void testUpdatePushTokenForMissingUser() {
+        when(userDetailsRepository.updatePushToken(USER_GUID, PUSH_TOKEN)).thenReturn(0);
+        assertFalse(repositoryFacade.updatePushToken(USER_GUID, PUSH_TOKEN));
+        verify(userDetailsRepository, never()).clearPushTokenOfOtherUsers(USER_GUID, PUSH_TOKEN);
+    }
+
+    @Test
+    public void testHasIdentificationNumber() {
+        when(userDetailsRepository.existsByUserGuidWithIdentificationNumber(USER_GUID)).thenReturn(true);
+        assertTrue(repositoryFacade.hasIdentificationNumber(USER_GUID));
+        verifyNoInteractions(encryptionProvider);
+    }
+
+    @Test
+    public void testFindIdByPhoneNumber() {
+        when(userDetailsRepository.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
+        assertEquals(Optional.of(USER_ID), repositoryFacade.findIdByPhoneNumber(PHONE_NUMBER));
     }
 
     @Test
@@ -200,11 +233,4 @@ class EncryptionUserDetailsRepositoryFacadeTest {
         repositoryFacade.save(userDetails);
         verify(userDetailsRepository, times(1)).save(expectedUserDetails);
     }
-
-    @Test
-    public void testFindAllPushTokensByUserGuid() {
-        when(userDetailsRepository.findAllPushTokensByUserGuids(Set.of(USER_GUID), true)).thenReturn(Set.of(PUSH_TOKEN));
-        repositoryFacade.findAllPushTokensByUserGuid(Set.of(USER_GUID), true);
-        verify(userDetailsRepository, times(1)).findAllPushTokensByUserGuids(Set.of(USER_GUID), true);
-    }
 }
\ No newline at end of file
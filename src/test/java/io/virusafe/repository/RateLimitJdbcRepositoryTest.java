@@ -0,0 +1,143 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.command.RateLimitBucketUpdateCommand;
+import io.virusafe.domain.entity.RateLimitType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitJdbcRepositoryTest {
+
+    private static final long USER_ID = 1L;
+    private static final long LIMIT = 3L;
+    private static final RateLimitType TYPE = RateLimitType.PIN;
+    private static final LocalDateTime CALCULATION_TIME = LocalDateTime.of(2020, 9, 5, 0, 0, 0);
+    private static final LocalDateTime NEW_BUCKET_END = LocalDateTime.of(2020, 9, 5, 0, 2, 0);
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private RateLimitJdbcRepository rateLimitJdbcRepository;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimitJdbcRepository = new RateLimitJdbcRepository(jdbcTemplate);
+    }
+
+    @Test
+    void testUpsertBucketReturnsSingleRequestForInsertedRow() throws Exception {
+        mockUpsert(1, Map.of("insert_id", 42L));
+
+        assertEquals(1L, upsertBucket());
+
+        verify(connection).prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS));
+        verify(preparedStatement).setObject(1, USER_ID, Types.BIGINT);
+        verify(preparedStatement).setString(2, TYPE.name());
+        verify(preparedStatement).setTimestamp(3, Timestamp.valueOf(NEW_BUCKET_END));
+        verify(preparedStatement).setTimestamp(4, Timestamp.valueOf(CALCULATION_TIME));
+        verify(preparedStatement).setObject(5, LIMIT, Types.BIGINT);
+        verify(preparedStatement).setTimestamp(6, Timestamp.valueOf(CALCULATION_TIME));
+    }
+
+    @Test
+    void testUpsertBucketReturnsGeneratedCountForUpdatedRow() throws Exception {
+        mockUpsert(2, Map.of("insert_id", 3L));
+
+        assertEquals(3L, upsertBucket());
+    }
+
+    @Test
+    void testUpsertBucketFailsWithoutGeneratedCount() throws Exception {
+        mockUpsert(2, null);
+
+        assertThrows(IllegalStateException.class, this::upsertBucket);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindBucketEnd() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(USER_ID), eq(TYPE.name())))
+                .thenReturn(List.of(Timestamp.valueOf(NEW_BUCKET_END)));
+
+        assertEquals(Optional.of(NEW_BUCKET_END), rateLimitJdbcRepository.findBucketEnd(USER_ID, TYPE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindBucketEndWhenMissing() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(USER_ID), eq(TYPE.name())))
+                .thenReturn(Collections.emptyList());
+
+        assertEquals(Optional.empty(), rateLimitJdbcRepository.findBucketEnd(USER_ID, TYPE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWriteBuckets() throws Exception {
+        List<RateLimitBucketUpdateCommand> commands = List.of(RateLimitBucketUpdateCommand.builder()
+                .userId(USER_ID).type(TYPE).bucketEnd(NEW_BUCKET_END).bucketCount(LIMIT).build());
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<RateLimitBucketUpdateCommand>> captor =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+
+        rateLimitJdbcRepository.writeBuckets(commands, BATCH_SIZE);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(commands), eq(BATCH_SIZE), captor.capture());
+        captor.getValue().setValues(preparedStatement, commands.get(0));
+        verify(preparedStatement).setLong(1, USER_ID);
+        verify(preparedStatement).setString(2, TYPE.name());
+        verify(preparedStatement).setTimestamp(3, Timestamp.valueOf(NEW_BUCKET_END));
+        verify(preparedStatement).setLong(4, LIMIT);
+    }
+
+    private long upsertBucket() {
+        return rateLimitJdbcRepository.upsertBucket(USER_ID, TYPE, LIMIT, NEW_BUCKET_END, CALCULATION_TIME);
+    }
+
+    private void mockUpsert(final int affectedRows, final Map<String, Object> generatedKey) throws Exception {
+        when(connection.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, PreparedStatementCreator.class).createPreparedStatement(connection);
+            if (generatedKey != null) {
+                invocation.getArgument(1, KeyHolder.class).getKeyList().add(generatedKey);
+            }
+            return affectedRows;
+        }).when(jdbcTemplate).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+    }
+}
@@ -0,0 +1,347 @@
+package io.virusafe.repository;
+
+import io.virusafe.configuration.JwtConfiguration;
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.command.PersonalInformationUpdateCommand;
+import io.virusafe.domain.dto.AccessTokenDTO;
+import io.virusafe.domain.dto.PinGenerationDTO;
+import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+import io.virusafe.security.advice.PinRateLimitAdvice;
+import io.virusafe.security.encryption.SymmetricEncryptionProvider;
+import io.virusafe.service.audit.PersonalInformationConsentAuditService;
+import io.virusafe.service.pin.PinServiceImpl;
+import io.virusafe.service.pin.generator.PinGenerator;
+import io.virusafe.service.ratelimit.RateLimitService;
+import io.virusafe.service.sms.SMSService;
+import io.virusafe.service.token.TokenServiceImpl;
+import io.virusafe.service.userdetails.UserDetailsServiceImpl;
+import io.virusafe.service.userdetails.UserPrincipalCache;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the number of user reads and decryptions per endpoint,
+ * by running each endpoint's filter, advice and service calls within a single request.
+ */
+@ExtendWith(MockitoExtension.class)
+class RequestScopedUserDetailsRepositoryFacadeTest {
+
+    private static final String USER_GUID = "USER_GUID";
+    private static final String PHONE_NUMBER = "+359888123456";
+    private static final String PIN = "123456";
+    private static final Long USER_ID = 1L;
+    private static final String IV_VECTOR = "IV_VECTOR";
+    private static final String ENCRYPTED_IDENTIFICATION_NUMBER = "ENCRYPTED_IDENTIFICATION_NUMBER";
+    private static final String DECRYPTED_IDENTIFICATION_NUMBER = "DECRYPTED_IDENTIFICATION_NUMBER";
+    private static final String SECRET_KEY = "M3VVd1RXalhZN3I0SldjaWlnMXUyclRIcmVEdFc2TnY4N3o2MzMwcDl2ZzlWYlhrbmFDRnBFWllER3UzUXYwbmx3ZF8tSlF3S3JiRU5hQ09zVGxqcHJTUXl1R0FvQVQ2NXNWUlhJUkpHMFpGYUdVOWk1ejQ5TUFnQjgzdUIzSnBDc1VTVGhqOHdvRU1MeFI2dUI5YThPMjZuVGN5blFmY3FkOWdYRkV6elJiSVNhaF9PWEdlOFJLQ1AyaG1BenBhSHNjMFdmdXlMdmxuMG5mZUczNXhfRktyOWdVMWVjOTZwVjNBX3lXaFNHdHlRRWkwS2pvRXRIMW5WYkxmelR2SmdJX1VYeVBrMzNNVE9rMm1ETGl4SnVPbWRSNUc3Nnk1WVlTSWtJQm9GbjN0dkFNYV93UVRkZnV0NS0zSnpyVGVURkxCSVBNOWhTVURnTHp2U1NyV1Nn";
+
+    @Mock
+    private UserDetailsRepository userDetailsRepository;
+    @Mock
+    private SymmetricEncryptionProvider encryptionProvider;
+    @Mock
+    private RegistrationPinRepository registrationPinRepository;
+    @Mock
+    private PersonalInformationConsentAuditService personalInformationConsentAuditService;
+    @Mock
+    private PinGenerator pinGenerator;
+    @Mock
+    private SMSService smsService;
+    @Mock
+    private RateLimitConfiguration rateLimitConfiguration;
+    @Mock
+    private RateLimitService rateLimitService;
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    private final Clock systemClock = Clock.systemUTC();
+
+    private UserDetailsServiceImpl userDetailsService;
+    private PinServiceImpl pinService;
+    private TokenServiceImpl tokenService;
+
+    @BeforeEach
+    public void setUp() {
+        UserDetailsRepositoryFacade repositoryFacade = new RequestScopedUserDetailsRepositoryFacade(
+                new EncryptionUserDetailsRepositoryFacade(encryptionProvider, userDetailsRepository, IV_VECTOR));
+        userDetailsService = new UserDetailsServiceImpl(repositoryFacade, personalInformationConsentAuditService,
+                new UserPrincipalCache(systemClock, 60_000L, 100));
+        pinService = new PinServiceImpl(userDetailsService, registrationPinRepository, pinGenerator, smsService,
+                5L, "VALIDATION_PHONE_NUMBER", 1L, systemClock);
+        tokenService = new TokenServiceImpl(createJwtConfiguration(), userDetailsService, pinService, systemClock);
+
+        lenient().when(encryptionProvider.decrypt(ENCRYPTED_IDENTIFICATION_NUMBER, IV_VECTOR))
+                .thenReturn(DECRYPTED_IDENTIFICATION_NUMBER);
+        lenient().when(encryptionProvider.encrypt(anyString(), any())).thenReturn(ENCRYPTED_IDENTIFICATION_NUMBER);
+        startRequest();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testPostPinReadsUserIdOnce() throws Throwable {
+        when(userDetailsRepository.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
+        when(rateLimitConfiguration.getPinRequestLimit()).thenReturn(1L);
+        when(rateLimitConfiguration.getPinRequestBucketSize()).thenReturn(1L);
+        when(pinGenerator.generatePin()).thenReturn(PIN);
+        PinGenerationDTO pinGenerationDTO = new PinGenerationDTO();
+        pinGenerationDTO.setPhoneNumber(PHONE_NUMBER);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            pinService.generatePin(PHONE_NUMBER);
+            return null;
+        });
+
+        new PinRateLimitAdvice(rateLimitConfiguration, userDetailsService, rateLimitService)
+                .pinRateLimit(joinPoint, pinGenerationDTO);
+
+        verify(userDetailsRepository, times(1)).findIdByPhoneNumber(PHONE_NUMBER);
+        verify(registrationPinRepository, times(1)).insertPin(any(), any(), any());
+    }
+
+    @Test
+    public void testPostPinForNewUserReadsUserIdOnce() throws Throwable {
+        when(userDetailsRepository.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
+        when(rateLimitConfiguration.getPinRequestLimit()).thenReturn(1L);
+        when(rateLimitConfiguration.getPinRequestBucketSize()).thenReturn(1L);
+        when(pinGenerator.generatePin()).thenReturn(PIN);
+        doAnswer(invocation -> {
+            invocation.<UserDetails>getArgument(0).setId(USER_ID);
+            return invocation.getArgument(0);
+        }).when(userDetailsRepository).save(any(UserDetails.class));
+        PinGenerationDTO pinGenerationDTO = new PinGenerationDTO();
+        pinGenerationDTO.setPhoneNumber(PHONE_NUMBER);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            pinService.generatePin(PHONE_NUMBER);
+            return null;
+        });
+
+        new PinRateLimitAdvice(rateLimitConfiguration, userDetailsService, rateLimitService)
+                .pinRateLimit(joinPoint, pinGenerationDTO);
+        // Later lookups within the same request see the newly registered user.
+        assertTrue(userDetailsService.findIdByPhoneNumber(PHONE_NUMBER).isPresent());
+
+        verify(userDetailsRepository, times(1)).findIdByPhoneNumber(PHONE_NUMBER);
+        verify(userDetailsRepository, times(1)).save(any(UserDetails.class));
+        verify(registrationPinRepository, times(1)).insertPin(eq(USER_ID), eq(PIN), any());
+    }
+
+    @Test
+    public void testPostTokenReadsUserOnceWithoutDecryption() {
+        mockPinExchange();
+
+        tokenService.generateToken(PHONE_NUMBER, PIN);
+
+        verify(userDetailsRepository, times(1)).findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER);
+        verify(userDetailsRepository, never()).findByPhoneNumber(anyString());
+        verify(userDetailsRepository, never()).findByUserGuid(anyString());
+        verify(userDetailsRepository, never()).findIdByPhoneNumber(anyString());
+        verify(encryptionProvider, never()).decrypt(anyString(), anyString());
+        verify(userDetailsRepository, never()).save(any(UserDetails.class));
+        verify(userDetailsRepository, times(1)).updateTokenDetails(eq(USER_GUID), anyString(), anyString());
+        verify(registrationPinRepository, times(1)).expireActivePinsByUserDetailsId(eq(USER_ID), any());
+    }
+
+    @Test
+    public void testPostTokenRefreshReadsAndDecryptsUserOnce() {
+        mockPinExchange();
+        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER, PIN);
+        startRequest();
+        when(userDetailsRepository.findByRefreshToken(anyString())).thenReturn(Optional.of(createUser()));
+
+        tokenService.refreshToken(accessTokenDTO.getRefreshToken());
+
+        verify(userDetailsRepository, times(1)).findByRefreshToken(anyString());
+        verify(userDetailsRepository, never()).findByUserGuid(anyString());
+        // Generating the token doesn't decrypt anything, refreshing it decrypts the user once.
+        verify(encryptionProvider, times(1)).decrypt(ENCRYPTED_IDENTIFICATION_NUMBER, IV_VECTOR);
+        verify(userDetailsRepository, times(2)).updateTokenDetails(eq(USER_GUID), anyString(), anyString());
+    }
+
+    @Test
+    public void testUpdateTokenDetailsReloadsUserWithinRequest() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+        when(userDetailsRepository.updateTokenDetails(USER_GUID, "TOKEN_SECRET", "REFRESH_TOKEN_HASH"))
+                .thenReturn(1);
+
+        userDetailsService.findByUserGuid(USER_GUID);
+        userDetailsService.updateTokenDetails(USER_GUID, "TOKEN_SECRET", "REFRESH_TOKEN_HASH");
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        verify(userDetailsRepository, times(2)).findByUserGuid(USER_GUID);
+    }
+
+    @Test
+    public void testPostPersonalInformationReadsAndDecryptsUserOnce() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userDetailsRepository.findAuthenticationDetailsByUserGuid(USER_GUID))
+                .thenReturn(Optional.of(authenticationDetails));
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+
+        userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID);
+        userDetailsService.updatePersonalInformation(USER_GUID, new PersonalInformationUpdateCommand());
+
+        verify(userDetailsRepository, times(1)).findAuthenticationDetailsByUserGuid(USER_GUID);
+        verify(userDetailsRepository, times(1)).findByUserGuid(USER_GUID);
+        verify(encryptionProvider, times(1)).decrypt(ENCRYPTED_IDENTIFICATION_NUMBER, IV_VECTOR);
+        verify(userDetailsRepository, times(1)).save(any(UserDetails.class));
+    }
+
+    @Test
+    public void testGetPersonalInformationReadsAndDecryptsUserOnce() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+
+        userDetailsService.findByUserGuid(USER_GUID);
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        verify(userDetailsRepository, times(1)).findByUserGuid(USER_GUID);
+        verify(encryptionProvider, times(1)).decrypt(ENCRYPTED_IDENTIFICATION_NUMBER, IV_VECTOR);
+    }
+
+    @Test
+    public void testPostQuestionnaireChecksIdentificationNumberWithoutDecryption() {
+        when(userDetailsRepository.existsByUserGuidWithIdentificationNumber(USER_GUID)).thenReturn(true);
+
+        assertTrue(userDetailsService.hasIdentificationNumber(USER_GUID));
+
+        verify(userDetailsRepository, times(1)).existsByUserGuidWithIdentificationNumber(USER_GUID);
+        verify(userDetailsRepository, never()).findByUserGuid(anyString());
+        verify(encryptionProvider, never()).decrypt(anyString(), anyString());
+    }
+
+    @Test
+    public void testHasIdentificationNumberUsesLoadedUser() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        assertTrue(userDetailsService.hasIdentificationNumber(USER_GUID));
+        verify(userDetailsRepository, never()).existsByUserGuidWithIdentificationNumber(anyString());
+    }
+
+    @Test
+    public void testSaveReloadsUserWithinRequest() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+
+        userDetailsService.save(userDetailsService.findByUserGuid(USER_GUID).get());
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        verify(userDetailsRepository, times(2)).findByUserGuid(USER_GUID);
+    }
+
+    @Test
+    public void testPostPushTokenUpdatesWithoutReadingUser() {
+        when(userDetailsRepository.updatePushToken(USER_GUID, "PUSH_TOKEN")).thenReturn(1);
+
+        userDetailsService.updatePushToken(USER_GUID, "PUSH_TOKEN");
+
+        verify(userDetailsRepository, never()).findByUserGuid(anyString());
+        verify(userDetailsRepository, never()).save(any(UserDetails.class));
+        verify(encryptionProvider, never()).decrypt(anyString(), anyString());
+        verify(encryptionProvider, never()).encrypt(anyString(), anyString());
+    }
+
+    @Test
+    public void testUpdatePushTokenReloadsUserWithinRequest() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+        when(userDetailsRepository.updatePushToken(USER_GUID, "PUSH_TOKEN")).thenReturn(1);
+
+        userDetailsService.findByUserGuid(USER_GUID);
+        userDetailsService.updatePushToken(USER_GUID, "PUSH_TOKEN");
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        verify(userDetailsRepository, times(2)).findByUserGuid(USER_GUID);
+    }
+
+    @Test
+    public void testSeparateRequestsReadUserSeparately() {
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+
+        userDetailsService.findByUserGuid(USER_GUID);
+        startRequest();
+        userDetailsService.findByUserGuid(USER_GUID);
+
+        verify(userDetailsRepository, times(2)).findByUserGuid(USER_GUID);
+    }
+
+    @Test
+    public void testOutsideOfRequestReadsUserEveryTime() {
+        RequestContextHolder.resetRequestAttributes();
+        when(userDetailsRepository.findByUserGuid(USER_GUID)).thenReturn(Optional.of(createUser()));
+        when(userDetailsRepository.existsByUserGuidWithIdentificationNumber(USER_GUID)).thenReturn(false);
+
+        userDetailsService.findByUserGuid(USER_GUID);
+        userDetailsService.findByUserGuid(USER_GUID);
+        assertFalse(userDetailsService.hasIdentificationNumber(USER_GUID));
+
+        verify(userDetailsRepository, times(2)).findByUserGuid(USER_GUID);
+        verify(userDetailsRepository, times(1)).existsByUserGuidWithIdentificationNumber(USER_GUID);
+    }
+
+    private void mockPinExchange() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(authenticationDetails.getId()).thenReturn(USER_ID);
+        when(authenticationDetails.getUserGuid()).thenReturn(USER_GUID);
+        when(authenticationDetails.getPhoneNumber()).thenReturn(PHONE_NUMBER);
+        when(authenticationDetails.getCreatedDate()).thenReturn(System.currentTimeMillis());
+        when(userDetailsRepository.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        when(registrationPinRepository.existsValidPinByUserDetailsId(eq(USER_ID), eq(PIN), any())).thenReturn(true);
+        when(registrationPinRepository.expireActivePinsByUserDetailsId(eq(USER_ID), any())).thenReturn(1);
+        when(userDetailsRepository.updateTokenDetails(eq(USER_GUID), anyString(), anyString())).thenReturn(1);
+    }
+
+    private void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    private UserDetails createUser() {
+        return UserDetails.builder()
+                .id(USER_ID)
+                .userGuid(USER_GUID)
+                .phoneNumber(PHONE_NUMBER)
+                .identificationNumber(ENCRYPTED_IDENTIFICATION_NUMBER)
+                .build();
+    }
+
+    private JwtConfiguration createJwtConfiguration() {
+        JwtConfiguration jwtConfiguration = new JwtConfiguration();
+        jwtConfiguration.setSecretKey(SECRET_KEY);
+        jwtConfiguration.setAlgorithm("HS512");
+        jwtConfiguration.setCreatedClaim("createdOn");
+        jwtConfiguration.setUserGuidClaim("userGuid");
+        jwtConfiguration.setSecretClaim("jwtSecret");
+        jwtConfiguration.setNumberClaim("phoneNumber");
+        jwtConfiguration.setHashAlgorithm("SHA-512");
+        jwtConfiguration.setTokenValidity(300L);
+        jwtConfiguration.setRefreshValidity(3600L);
+        return jwtConfiguration;
+    }
+}
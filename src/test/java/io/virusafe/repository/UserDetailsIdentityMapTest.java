@@ -0,0 +1,148 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsIdentityMapTest {
+
+    private static final String USER_GUID = "USER_GUID";
+    private static final String PHONE_NUMBER = "PHONE_NUMBER";
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private Function<String, Optional<UserDetails>> userLoader;
+    @Mock
+    private Function<String, Optional<Long>> idLoader;
+    @Mock
+    private Function<String, Optional<UserAuthenticationDetails>> authenticationDetailsLoader;
+
+    private final UserDetailsIdentityMap identityMap = new UserDetailsIdentityMap();
+
+    private final UserDetails userDetails = UserDetails.builder()
+            .id(USER_ID)
+            .userGuid(USER_GUID)
+            .phoneNumber(PHONE_NUMBER)
+            .build();
+
+    @Test
+    public void testFindByUserGuidLoadsOnce() {
+        when(userLoader.apply(USER_GUID)).thenReturn(Optional.of(userDetails));
+        Optional<UserDetails> first = identityMap.findByUserGuid(USER_GUID, userLoader);
+        Optional<UserDetails> second = identityMap.findByUserGuid(USER_GUID, userLoader);
+        verify(userLoader, times(1)).apply(USER_GUID);
+        assertSame(first.get(), second.get());
+    }
+
+    @Test
+    public void testUserLoadedByGuidIsFoundByAllKeys() {
+        when(userLoader.apply(USER_GUID)).thenReturn(Optional.of(userDetails));
+        identityMap.findByUserGuid(USER_GUID, userLoader);
+        assertAll(
+                () -> assertSame(userDetails, identityMap.findByPhoneNumber(PHONE_NUMBER, userLoader).get()),
+                () -> assertEquals(Optional.of(USER_ID), identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader)),
+                () -> assertSame(userDetails, identityMap.getLoadedByUserGuid(USER_GUID).get())
+        );
+        verify(userLoader, never()).apply(PHONE_NUMBER);
+        verify(idLoader, never()).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testMissingUserIsRemembered() {
+        when(userLoader.apply(PHONE_NUMBER)).thenReturn(Optional.empty());
+        when(idLoader.apply(PHONE_NUMBER)).thenReturn(Optional.empty());
+        identityMap.findByPhoneNumber(PHONE_NUMBER, userLoader);
+        identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader);
+        assertAll(
+                () -> assertFalse(identityMap.findByPhoneNumber(PHONE_NUMBER, userLoader).isPresent()),
+                () -> assertFalse(identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader).isPresent())
+        );
+        verify(userLoader, times(1)).apply(PHONE_NUMBER);
+        verify(idLoader, times(1)).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testFindAuthenticationDetailsLoadsOnce() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(authenticationDetailsLoader.apply(USER_GUID)).thenReturn(Optional.of(authenticationDetails));
+        identityMap.findAuthenticationDetailsByUserGuid(USER_GUID, authenticationDetailsLoader);
+        assertSame(authenticationDetails,
+                identityMap.findAuthenticationDetailsByUserGuid(USER_GUID, authenticationDetailsLoader).get());
+        verify(authenticationDetailsLoader, times(1)).apply(USER_GUID);
+    }
+
+    @Test
+    public void testEvictReloadsUserButKeepsId() {
+        when(userLoader.apply(USER_GUID)).thenReturn(Optional.of(userDetails));
+        identityMap.findByUserGuid(USER_GUID, userLoader);
+        identityMap.evict(userDetails);
+        identityMap.findByUserGuid(USER_GUID, userLoader);
+        verify(userLoader, times(2)).apply(USER_GUID);
+        assertEquals(Optional.of(USER_ID), identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader));
+        verify(idLoader, never()).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testEvictRemembersIdOfNewlySavedUser() {
+        when(idLoader.apply(PHONE_NUMBER)).thenReturn(Optional.empty());
+        identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader);
+        identityMap.evict(userDetails);
+        assertEquals(Optional.of(USER_ID), identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader));
+        verify(idLoader, times(1)).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testEvictWithoutIdForgetsMissingId() {
+        UserDetails unsavedUser = UserDetails.builder()
+                .userGuid(USER_GUID)
+                .phoneNumber(PHONE_NUMBER)
+                .build();
+        when(idLoader.apply(PHONE_NUMBER)).thenReturn(Optional.empty(), Optional.of(USER_ID));
+        identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader);
+        identityMap.evict(unsavedUser);
+        assertEquals(Optional.of(USER_ID), identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader));
+        verify(idLoader, times(2)).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testEvictByUserGuidReloadsUserByAllKeysButKeepsId() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userLoader.apply(USER_GUID)).thenReturn(Optional.of(userDetails));
+        when(userLoader.apply(PHONE_NUMBER)).thenReturn(Optional.of(userDetails));
+        when(authenticationDetailsLoader.apply(USER_GUID)).thenReturn(Optional.of(authenticationDetails));
+        identityMap.findByUserGuid(USER_GUID, userLoader);
+        identityMap.findAuthenticationDetailsByUserGuid(USER_GUID, authenticationDetailsLoader);
+
+        identityMap.evictByUserGuid(USER_GUID);
+        identityMap.findByPhoneNumber(PHONE_NUMBER, userLoader);
+        identityMap.findAuthenticationDetailsByUserGuid(USER_GUID, authenticationDetailsLoader);
+
+        verify(userLoader, times(1)).apply(PHONE_NUMBER);
+        verify(authenticationDetailsLoader, times(2)).apply(USER_GUID);
+        assertEquals(Optional.of(USER_ID), identityMap.findIdByPhoneNumber(PHONE_NUMBER, idLoader));
+        verify(idLoader, never()).apply(PHONE_NUMBER);
+    }
+
+    @Test
+    public void testEvictByUserGuidOfUnloadedUser() {
+        identityMap.evictByUserGuid(USER_GUID);
+        assertFalse(identityMap.getLoadedByUserGuid(USER_GUID).isPresent());
+    }
+}
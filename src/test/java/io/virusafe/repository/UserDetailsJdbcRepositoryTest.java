@@ -0,0 +1,174 @@
+package io.virusafe.repository;
+
+import io.virusafe.domain.command.IdentificationNumberUpdateCommand;
+import io.virusafe.domain.projection.UserPushToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsJdbcRepositoryTest {
+
+    private static final long USER_ID = 1L;
+    private static final long AFTER_ID = 10L;
+    private static final int LIMIT = 100;
+    private static final int BATCH_SIZE = 50;
+    private static final String PREVIOUS_IDENTIFICATION_NUMBER = "PREVIOUS_IDENTIFICATION_NUMBER";
+    private static final String IDENTIFICATION_NUMBER = "IDENTIFICATION_NUMBER";
+    private static final String USER_GUID = "USER_GUID";
+    private static final String PUSH_TOKEN = "PUSH_TOKEN";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private UserDetailsJdbcRepository userDetailsJdbcRepository;
+
+    @BeforeEach
+    public void setUp() {
+        userDetailsJdbcRepository = new UserDetailsJdbcRepository(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindIdentificationNumbersAfter() throws Exception {
+        ArgumentCaptor<RowMapper<IdentificationNumberUpdateCommand>> captor = ArgumentCaptor.forClass(RowMapper.class);
+        when(jdbcTemplate.query(anyString(), captor.capture(), eq(AFTER_ID), eq(LIMIT))).thenReturn(List.of());
+        when(resultSet.getLong(1)).thenReturn(USER_ID);
+        when(resultSet.getString(2)).thenReturn(PREVIOUS_IDENTIFICATION_NUMBER);
+
+        assertEquals(List.of(), userDetailsJdbcRepository.findIdentificationNumbersAfter(AFTER_ID, LIMIT));
+
+        IdentificationNumberUpdateCommand command = captor.getValue().mapRow(resultSet, 0);
+        assertEquals(USER_ID, command.getUserId());
+        assertEquals(PREVIOUS_IDENTIFICATION_NUMBER, command.getPreviousIdentificationNumber());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindGrantedPushTokensBetween() throws Exception {
+        ArgumentCaptor<RowMapper<UserPushToken>> captor = ArgumentCaptor.forClass(RowMapper.class);
+        when(jdbcTemplate.query(anyString(), captor.capture(), eq(USER_ID), eq(AFTER_ID))).thenReturn(List.of());
+        when(resultSet.getLong(1)).thenReturn(USER_ID);
+        when(resultSet.getString(2)).thenReturn(USER_GUID);
+        when(resultSet.getString(3)).thenReturn(PUSH_TOKEN);
+
+        assertEquals(List.of(), userDetailsJdbcRepository.findGrantedPushTokensBetween(USER_ID, AFTER_ID));
+
+        assertEquals(new UserPushToken(USER_ID, USER_GUID, PUSH_TOKEN), captor.getValue().mapRow(resultSet, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindGrantedPushTokensByIds() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        List<UserPushToken> pushTokens = List.of(new UserPushToken(USER_ID, USER_GUID, PUSH_TOKEN));
+        when(jdbcTemplate.query(captor.capture(), any(RowMapper.class), eq(USER_ID), eq(AFTER_ID)))
+                .thenReturn(pushTokens);
+
+        assertEquals(pushTokens, userDetailsJdbcRepository.findGrantedPushTokensByIds(List.of(USER_ID, AFTER_ID)));
+        assertTrue(captor.getValue().endsWith("IN (?,?) ORDER BY ud.id"));
+    }
+
+    @Test
+    void testFindGrantedPushTokensByNoIds() {
+        assertEquals(List.of(), userDetailsJdbcRepository.findGrantedPushTokensByIds(List.of()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testFindIdsByUserGuids() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.queryForList(captor.capture(), eq(Long.class), eq(USER_GUID), eq("OTHER_USER_GUID")))
+                .thenReturn(List.of(USER_ID));
+
+        assertEquals(List.of(USER_ID),
+                userDetailsJdbcRepository.findIdsByUserGuids(List.of(USER_GUID, "OTHER_USER_GUID")));
+        assertTrue(captor.getValue().endsWith("IN (?,?)"));
+    }
+
+    @Test
+    void testFindIdsByNoUserGuids() {
+        assertEquals(List.of(), userDetailsJdbcRepository.findIdsByUserGuids(List.of()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testFindMaxId() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(AFTER_ID);
+
+        assertEquals(AFTER_ID, userDetailsJdbcRepository.findMaxId());
+    }
+
+    @Test
+    void testFindMaxIdWithoutUsers() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(null);
+
+        assertEquals(0L, userDetailsJdbcRepository.findMaxId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateIdentificationNumbers() throws Exception {
+        List<IdentificationNumberUpdateCommand> commands = List.of(IdentificationNumberUpdateCommand.builder()
+                .userId(USER_ID)
+                .previousIdentificationNumber(PREVIOUS_IDENTIFICATION_NUMBER)
+                .identificationNumber(IDENTIFICATION_NUMBER)
+                .build());
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<IdentificationNumberUpdateCommand>> captor =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        when(jdbcTemplate.batchUpdate(anyString(), eq(commands), eq(BATCH_SIZE), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0}, {Statement.SUCCESS_NO_INFO}});
+
+        // Rows changed since they were read aren't counted as updated.
+        assertEquals(2, userDetailsJdbcRepository.updateIdentificationNumbers(commands, BATCH_SIZE));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(commands), eq(BATCH_SIZE), captor.capture());
+        captor.getValue().setValues(preparedStatement, commands.get(0));
+        verify(preparedStatement).setString(1, IDENTIFICATION_NUMBER);
+        verify(preparedStatement).setLong(2, USER_ID);
+        verify(preparedStatement).setString(3, PREVIOUS_IDENTIFICATION_NUMBER);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClearPushTokens() throws Exception {
+        List<String> pushTokens = List.of(PUSH_TOKEN, PUSH_TOKEN + 1, PUSH_TOKEN + 2);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<String>> captor =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        when(jdbcTemplate.batchUpdate(anyString(), eq(pushTokens), eq(BATCH_SIZE), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{2, 0}, {Statement.SUCCESS_NO_INFO}});
+
+        // A token held by several users is cleared from all of them, tokens already replaced aren't counted.
+        assertEquals(3, userDetailsJdbcRepository.clearPushTokens(pushTokens, BATCH_SIZE));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(pushTokens), eq(BATCH_SIZE), captor.capture());
+        captor.getValue().setValues(preparedStatement, PUSH_TOKEN);
+        verify(preparedStatement).setString(1, PUSH_TOKEN);
+    }
+}
@@ -0,0 +1,61 @@
+package io.virusafe.security.advice;
+
+import io.virusafe.domain.dto.TokenGenerationDTO;
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.service.ratelimit.throttle.RegistrationThrottleService;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneNumberThrottleAdviceTest {
+
+    private static final String DEFAULT_PHONE_NUMBER = "DEFAULT_PHONE_NUMBER";
+    private static final long DEFAULT_TIMEOUT = 60L;
+
+    @Mock
+    private RegistrationThrottleService registrationThrottleService;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    private PhoneNumberThrottleAdvice phoneNumberThrottleAdvice;
+
+    @BeforeEach
+    public void setUp() {
+        phoneNumberThrottleAdvice = new PhoneNumberThrottleAdvice(registrationThrottleService);
+    }
+
+    @Test
+    void testAccessAllowedWithinThrottle() throws Throwable {
+        phoneNumberThrottleAdvice.phoneNumberThrottle(proceedingJoinPoint, buildTokenGenerationDTO());
+
+        verify(registrationThrottleService).registerPhoneNumberRequest(DEFAULT_PHONE_NUMBER);
+        verify(proceedingJoinPoint).proceed();
+    }
+
+    @Test
+    void testAccessDeniedWhenThrottled() throws Throwable {
+        doThrow(new RateLimitTimeoutException(DEFAULT_TIMEOUT)).when(registrationThrottleService)
+                .registerPhoneNumberRequest(DEFAULT_PHONE_NUMBER);
+
+        Assertions.assertThrows(RateLimitTimeoutException.class,
+                () -> phoneNumberThrottleAdvice.phoneNumberThrottle(proceedingJoinPoint, buildTokenGenerationDTO()));
+
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    private TokenGenerationDTO buildTokenGenerationDTO() {
+        TokenGenerationDTO tokenGenerationDTO = new TokenGenerationDTO();
+        tokenGenerationDTO.setPhoneNumber(DEFAULT_PHONE_NUMBER);
+        return tokenGenerationDTO;
+    }
+}
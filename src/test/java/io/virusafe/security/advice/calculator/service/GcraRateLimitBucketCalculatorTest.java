@@ -0,0 +1,90 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GcraRateLimitBucketCalculatorTest {
+
+    private static final long DEFAULT_BUCKET_SIZE = TimeUnit.MINUTES.toMillis(30);
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long EMISSION_INTERVAL = DEFAULT_BUCKET_SIZE / DEFAULT_LIMIT;
+    private static final long CALCULATION_TIME = Instant.parse("2020-09-05T00:00:00.00Z").toEpochMilli();
+
+    private final GcraRateLimitBucketCalculator rateLimitBucketCalculator = new GcraRateLimitBucketCalculator();
+
+    @Test
+    void testArrivalTimeSetForEmptyBucket() {
+        doTestCalculator(new RateLimitBucket(), 0L, CALCULATION_TIME + EMISSION_INTERVAL);
+    }
+
+    @Test
+    void testBurstAllowedUpToLimit() {
+        doTestCalculator(new RateLimitBucket(CALCULATION_TIME + 2 * EMISSION_INTERVAL, 0L), 0L,
+                CALCULATION_TIME + DEFAULT_BUCKET_SIZE);
+    }
+
+    @Test
+    void testTimeoutUntilNextEmissionAndBucketUntouchedWhenLimitReached() {
+        doTestCalculator(new RateLimitBucket(CALCULATION_TIME + DEFAULT_BUCKET_SIZE, 0L), EMISSION_INTERVAL,
+                CALCULATION_TIME + DEFAULT_BUCKET_SIZE);
+    }
+
+    @Test
+    void testArrivalTimeInThePastIsReset() {
+        doTestCalculator(new RateLimitBucket(CALCULATION_TIME - DEFAULT_BUCKET_SIZE, 0L), 0L,
+                CALCULATION_TIME + EMISSION_INTERVAL);
+    }
+
+    @Test
+    void testMinimalIntervalUsedForLimitAboveBucketSize() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        assertAll(
+                () -> assertEquals(0L, rateLimitBucketCalculator.calculate(bucket, CALCULATION_TIME, 10L, 5L)),
+                () -> assertEquals(CALCULATION_TIME + 1L, bucket.getBucketEnd())
+        );
+    }
+
+    @Test
+    void testTimeoutReturnedAndBucketUntouchedForZeroLimit() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        assertAll(
+                () -> assertEquals(DEFAULT_BUCKET_SIZE,
+                        rateLimitBucketCalculator.calculate(bucket, CALCULATION_TIME, 0L, DEFAULT_BUCKET_SIZE)),
+                () -> assertEquals(0L, bucket.getBucketEnd())
+        );
+    }
+
+    @Test
+    void testIsExpired() {
+        assertAll(
+                () -> assertTrue(rateLimitBucketCalculator.isExpired(
+                        new RateLimitBucket(CALCULATION_TIME - 1L, 0L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE)),
+                () -> assertFalse(rateLimitBucketCalculator.isExpired(
+                        new RateLimitBucket(CALCULATION_TIME + 1L, 0L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE))
+        );
+    }
+
+    @Test
+    void testAlgorithm() {
+        assertEquals(RateLimitAlgorithm.GCRA, rateLimitBucketCalculator.getAlgorithm());
+    }
+
+    private void doTestCalculator(final RateLimitBucket bucket, final long expectedTimeout,
+                                  final long expectedBucketEnd) {
+        long timeout = rateLimitBucketCalculator
+                .calculate(bucket, CALCULATION_TIME, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
+        assertAll(
+                () -> assertEquals(expectedTimeout, timeout),
+                () -> assertEquals(expectedBucketEnd, bucket.getBucketEnd())
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the rate limit calculators on a single bucket receiving a steady stream of requests,
+ * a part of which are over the limit.
+ * Not run as part of the test suite; run the main method from the test classpath after a test-compile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RateLimitBucketCalculatorBenchmark {
+
+    private static final long LIMIT = 100L;
+    private static final long BUCKET_SIZE = TimeUnit.SECONDS.toMillis(1);
+    private static final long REQUEST_INTERVAL = 5L;
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW", "GCRA"})
+    private RateLimitAlgorithm algorithm;
+
+    private RateLimitBucketCalculator calculator;
+    private RateLimitBucket bucket;
+    private long calculationTime;
+
+    /**
+     * Select the calculator for the benchmarked algorithm and start with an empty bucket.
+     */
+    @Setup
+    public void setUp() {
+        calculator = List.of(new RateLimitBucketCalculatorImpl(), new SlidingWindowRateLimitBucketCalculator(),
+                new GcraRateLimitBucketCalculator()).stream()
+                .filter(candidate -> candidate.getAlgorithm() == algorithm)
+                .findFirst()
+                .orElseThrow();
+        bucket = new RateLimitBucket();
+        calculationTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Count a single request, arriving at twice the allowed rate.
+     *
+     * @return the calculated timeout, consumed by JMH
+     */
+    @Benchmark
+    public long calculate() {
+        calculationTime += REQUEST_INTERVAL;
+        return calculator.calculate(bucket, calculationTime, LIMIT, BUCKET_SIZE);
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitBucketCalculatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,107 +1,93 @@
 package io.virusafe.security.advice.calculator.service;
 
 
-import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.time.Clock;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
 class RateLimitBucketCalculatorImplTest {
 
-    private static final long DEFAULT_BUCKET_SIZE = 1800L;
+    private static final long DEFAULT_BUCKET_SIZE = TimeUnit.MINUTES.toMillis(30);
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long CALCULATION_TIME = Instant.parse("2020-09-05T00:00:00.00Z").toEpochMilli();
+    private static final long ACTIVE_BUCKET_END = Instant.parse("2020-09-05T00:11:00.00Z").toEpochMilli();
+    private static final long EXPIRED_BUCKET_END = Instant.parse("2020-09-04T23:59:59.00Z").toEpochMilli();
 
     private final RateLimitBucketCalculatorImpl rateLimitBucketCalculator = new RateLimitBucketCalculatorImpl();
 
-    private Clock clock = Clock.fixed(
-            Instant.parse("2020-09-05T00:00:00.00Z"),
-            ZoneId.of("UTC")
-    );
-
     @Test
-    void testNewBucketCreatedWithNullValues() {
-        LocalDateTime calculationTime = LocalDateTime.now(clock);
-        // Passing nulls so we expect a new bucket set to 30 minutes from the calculation time.
-        LocalDateTime existingBucketTime = null;
-        Long existingBucketCount = null;
-
-        LocalDateTime expectedBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 30, 0, 0);
-        Long expectedBucketCount = 1L;
-
-        doTestCalculator(calculationTime,
-                RateLimit.builder().lastUpdateTime(existingBucketTime).bucketCount(existingBucketCount).build(),
-                expectedBucketTime, expectedBucketCount);
+    void testNewBucketCreatedForEmptyBucket() {
+        // Empty bucket so we expect a new bucket set to 30 minutes from the calculation time.
+        doTestCalculator(new RateLimitBucket(), 0L, CALCULATION_TIME + DEFAULT_BUCKET_SIZE, 1L);
     }
 
     @Test
-    void testExistingBucketInitializedWhenCountIsNull() {
-        LocalDateTime calculationTime = LocalDateTime.now(clock);
+    void testExistingBucketCountIsIncrementedWhenAfterCalculationTime() {
         // After calculation time so it's still active.
-        LocalDateTime existingBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 11, 0, 0);
-        Long existingBucketCount = null;
+        doTestCalculator(new RateLimitBucket(ACTIVE_BUCKET_END, 2L), 0L, ACTIVE_BUCKET_END, 3L);
+    }
 
-        LocalDateTime expectedBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 11, 0, 0);
-        Long expectedBucketCount = 1L;
+    @Test
+    void testNewBucketIsCreatedWhenExistingBucketTimeIsInThePast() {
+        // Before calculation time so we expect a new bucket to be created.
+        doTestCalculator(new RateLimitBucket(EXPIRED_BUCKET_END, DEFAULT_LIMIT), 0L,
+                CALCULATION_TIME + DEFAULT_BUCKET_SIZE, 1L);
+    }
 
-        doTestCalculator(calculationTime,
-                RateLimit.builder().lastUpdateTime(existingBucketTime).bucketCount(existingBucketCount).build(),
-                expectedBucketTime, expectedBucketCount);
+    @Test
+    void testTimeoutReturnedAndBucketUntouchedWhenLimitReached() {
+        doTestCalculator(new RateLimitBucket(ACTIVE_BUCKET_END, DEFAULT_LIMIT),
+                ACTIVE_BUCKET_END - CALCULATION_TIME, ACTIVE_BUCKET_END, DEFAULT_LIMIT);
     }
 
     @Test
-    void testExistingBucketCountIsIncrementedWhenAfterCalculationTime() {
-        LocalDateTime calculationTime = LocalDateTime.now(clock);
-        // After calculation time so it's still active.
-        LocalDateTime existingBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 11, 0, 0);
-        Long existingBucketCount = 2L;
+    void testMinimalTimeoutReturnedWhenLimitReachedAtBucketEnd() {
+        doTestCalculator(new RateLimitBucket(CALCULATION_TIME, DEFAULT_LIMIT), 1L, CALCULATION_TIME, DEFAULT_LIMIT);
+    }
+
+    @Test
+    void testTimeoutReturnedAndBucketUntouchedForZeroLimit() {
+        RateLimitBucket bucket = new RateLimitBucket(EXPIRED_BUCKET_END, 1L);
 
-        LocalDateTime expectedBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 11, 0, 0);
-        Long expectedBucketCount = 3L;
+        long timeout = rateLimitBucketCalculator.calculate(bucket, CALCULATION_TIME, 0L, DEFAULT_BUCKET_SIZE);
 
-        doTestCalculator(calculationTime,
-                RateLimit.builder().lastUpdateTime(existingBucketTime).bucketCount(existingBucketCount).build(),
-                expectedBucketTime, expectedBucketCount);
+        assertAll(
+                () -> assertEquals(DEFAULT_BUCKET_SIZE, timeout),
+                () -> assertEquals(EXPIRED_BUCKET_END, bucket.getBucketEnd()),
+                () -> assertEquals(1L, bucket.getBucketCount())
+        );
+        assertEquals(DEFAULT_BUCKET_SIZE,
+                rateLimitBucketCalculator.calculate(new RateLimitBucket(), CALCULATION_TIME, 0L, DEFAULT_BUCKET_SIZE));
     }
 
     @Test
-    void testNewBucketIsCreatedWhenExistingBucketTimeIsInThePast() {
-        LocalDateTime calculationTime = LocalDateTime.now(clock);
-        // Before calculation time so we expect a new bucket to be created.
-        LocalDateTime existingBucketTime = LocalDateTime.of(
-                2020, 9, 4, 23, 59, 59, 0);
-        Long existingBucketCount = 2L;
-
-        // New bucket should be 30 minutes from calculation time.
-        LocalDateTime expectedBucketTime = LocalDateTime.of(
-                2020, 9, 5, 0, 30, 0, 0);
-        Long expectedBucketCount = 1L;
-
-        doTestCalculator(calculationTime,
-                RateLimit.builder().lastUpdateTime(existingBucketTime).bucketCount(existingBucketCount).build(),
-                expectedBucketTime, expectedBucketCount);
+    void testIsExpired() {
+        assertAll(
+                () -> assertTrue(rateLimitBucketCalculator.isExpired(
+                        new RateLimitBucket(EXPIRED_BUCKET_END, 1L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE)),
+                () -> assertFalse(rateLimitBucketCalculator.isExpired(
+                        new RateLimitBucket(ACTIVE_BUCKET_END, 1L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE))
+        );
     }
 
-    private void doTestCalculator(final LocalDateTime calculationTime, final RateLimit rateLimit,
-                                  final LocalDateTime expectedBucketTime, final Long expectedBucketCount) {
-        RateLimit resultRateLimit = rateLimitBucketCalculator
-                .calculate(calculationTime, rateLimit, DEFAULT_BUCKET_SIZE, ChronoUnit.SECONDS);
+    private void doTestCalculator(final RateLimitBucket bucket, final long expectedTimeout,
+                                  final long expectedBucketEnd, final long expectedBucketCount) {
+        long timeout = rateLimitBucketCalculator
+                .calculate(bucket, CALCULATION_TIME, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
         assertAll(
-                () -> assertEquals(expectedBucketTime, resultRateLimit.getLastUpdateTime()),
-                () -> assertEquals(expectedBucketCount, resultRateLimit.getBucketCount())
+                () -> assertEquals(expectedTimeout, timeout),
+                () -> assertEquals(expectedBucketEnd, bucket.getBucketEnd()),
+                () -> assertEquals(expectedBucketCount, bucket.getBucketCount())
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateLimitBucketCalculatorResolverTest {
+
+    private final RateLimitBucketCalculatorImpl fixedWindowCalculator = new RateLimitBucketCalculatorImpl();
+    private final SlidingWindowRateLimitBucketCalculator slidingWindowCalculator =
+            new SlidingWindowRateLimitBucketCalculator();
+    private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+
+    private RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimitBucketCalculatorResolver = new RateLimitBucketCalculatorResolver(
+                List.of(fixedWindowCalculator, slidingWindowCalculator), rateLimitConfiguration);
+    }
+
+    @Test
+    void testFixedWindowUsedByDefault() {
+        assertAll(
+                () -> assertSame(fixedWindowCalculator,
+                        rateLimitBucketCalculatorResolver.getCalculator(RateLimitType.QUESTIONNAIRE)),
+                () -> assertSame(fixedWindowCalculator,
+                        rateLimitBucketCalculatorResolver.getCalculator(RateLimitType.PIN))
+        );
+    }
+
+    @Test
+    void testConfiguredAlgorithmUsedPerType() {
+        rateLimitConfiguration.setLocationUpdateAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW);
+        assertAll(
+                () -> assertSame(slidingWindowCalculator,
+                        rateLimitBucketCalculatorResolver.getCalculator(RateLimitType.GPS_LOCATION)),
+                () -> assertSame(fixedWindowCalculator,
+                        rateLimitBucketCalculatorResolver.getCalculator(RateLimitType.PROXIMITY))
+        );
+    }
+
+    @Test
+    void testUnavailableAlgorithmRejected() {
+        rateLimitConfiguration.setPushTokenUpdateAlgorithm(RateLimitAlgorithm.GCRA);
+        assertThrows(IllegalStateException.class,
+                () -> rateLimitBucketCalculatorResolver.getCalculator(RateLimitType.PUSH_TOKEN));
+    }
+}
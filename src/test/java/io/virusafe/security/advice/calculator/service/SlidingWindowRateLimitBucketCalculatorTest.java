@@ -0,0 +1,127 @@
+package io.virusafe.security.advice.calculator.service;
+
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.model.RateLimitBucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowRateLimitBucketCalculatorTest {
+
+    private static final long DEFAULT_BUCKET_SIZE = TimeUnit.MINUTES.toMillis(30);
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long CALCULATION_TIME = Instant.parse("2020-09-05T00:00:00.00Z").toEpochMilli();
+    private static final long ACTIVE_BUCKET_END = CALCULATION_TIME + DEFAULT_BUCKET_SIZE / 2;
+    private static final long ENDED_BUCKET_END = CALCULATION_TIME - 1L;
+    private static final long EXPIRED_BUCKET_END = CALCULATION_TIME - DEFAULT_BUCKET_SIZE - 1L;
+
+    private final SlidingWindowRateLimitBucketCalculator rateLimitBucketCalculator =
+            new SlidingWindowRateLimitBucketCalculator();
+
+    @Test
+    void testNewWindowStartedForEmptyBucket() {
+        doTestCalculator(new RateLimitBucket(), 0L, CALCULATION_TIME + DEFAULT_BUCKET_SIZE, 1L, 0L);
+    }
+
+    @Test
+    void testCountIncrementedWithinLimit() {
+        doTestCalculator(bucket(ACTIVE_BUCKET_END, 1L, 2L), 0L, ACTIVE_BUCKET_END, 2L, 2L);
+    }
+
+    @Test
+    void testTimeoutUntilWindowEndWhenCurrentWindowFull() {
+        doTestCalculator(bucket(ACTIVE_BUCKET_END, DEFAULT_LIMIT, 0L), ACTIVE_BUCKET_END - CALCULATION_TIME + 1L,
+                ACTIVE_BUCKET_END, DEFAULT_LIMIT, 0L);
+    }
+
+    @Test
+    void testTimeoutUntilPreviousWindowWeightDropsWhenOverLimit() {
+        // Half of the previous window still overlaps, so 1.5 of its requests plus 2 current ones exceed the limit.
+        // One more request fits once only a third of the previous window overlaps.
+        doTestCalculator(bucket(ACTIVE_BUCKET_END, 2L, DEFAULT_LIMIT),
+                DEFAULT_BUCKET_SIZE / 2 - DEFAULT_BUCKET_SIZE / 3 + 1L, ACTIVE_BUCKET_END, 2L, DEFAULT_LIMIT);
+    }
+
+    @Test
+    void testEndedWindowBecomesPreviousWindow() {
+        doTestCalculator(bucket(ENDED_BUCKET_END, DEFAULT_LIMIT, 1L), 0L, ENDED_BUCKET_END + DEFAULT_BUCKET_SIZE,
+                1L, DEFAULT_LIMIT);
+    }
+
+    @Test
+    void testPreviousWindowLimitsBurstAtWindowEdge() {
+        RateLimitBucket bucket = bucket(ENDED_BUCKET_END, DEFAULT_LIMIT, 0L);
+        rateLimitBucketCalculator.calculate(bucket, CALCULATION_TIME, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
+        // A fixed window would allow a full new burst here, while the sliding window still counts the previous one.
+        assertTrue(rateLimitBucketCalculator
+                .calculate(bucket, CALCULATION_TIME, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE) > 0L);
+    }
+
+    @Test
+    void testNewWindowStartedWhenHistoryExpired() {
+        doTestCalculator(bucket(EXPIRED_BUCKET_END, DEFAULT_LIMIT, DEFAULT_LIMIT), 0L,
+                CALCULATION_TIME + DEFAULT_BUCKET_SIZE, 1L, 0L);
+    }
+
+    @Test
+    void testBucketUntouchedWhenOverLimitAfterWindowEnded() {
+        // Rolling over the window still rejects the request, since most of the previous window overlaps.
+        doTestCalculator(bucket(ENDED_BUCKET_END, DEFAULT_LIMIT + 1, 1L), DEFAULT_BUCKET_SIZE / 4,
+                ENDED_BUCKET_END, DEFAULT_LIMIT + 1, 1L);
+    }
+
+    @Test
+    void testTimeoutReturnedAndBucketUntouchedForZeroLimit() {
+        RateLimitBucket bucket = bucket(EXPIRED_BUCKET_END, 1L, 1L);
+
+        long timeout = rateLimitBucketCalculator.calculate(bucket, CALCULATION_TIME, 0L, DEFAULT_BUCKET_SIZE);
+
+        assertAll(
+                () -> assertEquals(DEFAULT_BUCKET_SIZE, timeout),
+                () -> assertEquals(EXPIRED_BUCKET_END, bucket.getBucketEnd()),
+                () -> assertEquals(1L, bucket.getBucketCount()),
+                () -> assertEquals(1L, bucket.getPreviousBucketCount())
+        );
+    }
+
+    @Test
+    void testIsExpired() {
+        assertAll(
+                () -> assertTrue(rateLimitBucketCalculator.isExpired(
+                        bucket(EXPIRED_BUCKET_END, 1L, 0L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE)),
+                () -> assertFalse(rateLimitBucketCalculator.isExpired(
+                        bucket(ENDED_BUCKET_END, 1L, 0L), CALCULATION_TIME, DEFAULT_BUCKET_SIZE))
+        );
+    }
+
+    @Test
+    void testAlgorithm() {
+        assertEquals(RateLimitAlgorithm.SLIDING_WINDOW, rateLimitBucketCalculator.getAlgorithm());
+    }
+
+    private static RateLimitBucket bucket(final long bucketEnd, final long bucketCount,
+                                          final long previousBucketCount) {
+        RateLimitBucket bucket = new RateLimitBucket(bucketEnd, bucketCount);
+        bucket.setPreviousBucketCount(previousBucketCount);
+        return bucket;
+    }
+
+    private void doTestCalculator(final RateLimitBucket bucket, final long expectedTimeout,
+                                  final long expectedBucketEnd, final long expectedBucketCount,
+                                  final long expectedPreviousBucketCount) {
+        long timeout = rateLimitBucketCalculator
+                .calculate(bucket, CALCULATION_TIME, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
+        assertAll(
+                () -> assertEquals(expectedTimeout, timeout),
+                () -> assertEquals(expectedBucketEnd, bucket.getBucketEnd()),
+                () -> assertEquals(expectedBucketCount, bucket.getBucketCount()),
+                () -> assertEquals(expectedPreviousBucketCount, bucket.getPreviousBucketCount())
+        );
+    }
+}
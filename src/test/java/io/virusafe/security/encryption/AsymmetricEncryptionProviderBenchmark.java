@@ -0,0 +1,165 @@
+package io.virusafe.security.encryption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmark of a single asymmetric encryption provider shared by all benchmark threads, and of its batch API
+ * against encrypting the same batch one value at a time. The serialized variant puts a lock around the provider
+ * to show how throughput behaves when all RSA operations are serialized.
+ * Not run as part of the test suite; run the main method from the test classpath after a test-compile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsymmetricEncryptionProviderBenchmark {
+
+    private static final String ALGORITHM = "RSA";
+    private static final int KEY_SIZE = 2048;
+    private static final int BATCH_SIZE = 64;
+    private static final String PLAIN_TEXT = "9876543210";
+    private static final int[] THREAD_COUNTS = {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+
+    @Param({"false", "true"})
+    private boolean serialized;
+
+    private AsymmetricEncryptionProvider provider;
+    private String cipherText;
+    private List<String> batch;
+
+    /**
+     * Create the shared provider with a fresh key pair, a cipher text to decrypt and a batch to encrypt.
+     *
+     * @throws NoSuchAlgorithmException if RSA is not available
+     */
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(ALGORITHM);
+        keyPairGenerator.initialize(KEY_SIZE);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        AsymmetricEncryptionProvider delegate = new AsymmetricEncryptionProviderImpl(
+                Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()),
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()),
+                ALGORITHM);
+        provider = serialized ? new SerializedAsymmetricEncryptionProvider(delegate) : delegate;
+        cipherText = provider.encrypt(PLAIN_TEXT);
+        batch = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> PLAIN_TEXT + i)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Encrypt a value with the private key.
+     *
+     * @return the cipher text, consumed by JMH
+     */
+    @Benchmark
+    public String encrypt() {
+        return provider.encrypt(PLAIN_TEXT);
+    }
+
+    /**
+     * Decrypt a value with the public key.
+     *
+     * @return the plain text, consumed by JMH
+     */
+    @Benchmark
+    public String decrypt() {
+        return provider.decrypt(cipherText);
+    }
+
+    /**
+     * Encrypt a batch through the batch API.
+     *
+     * @return the cipher texts, consumed by JMH
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> encryptAll() {
+        return provider.encryptAll(batch);
+    }
+
+    /**
+     * Encrypt the same batch one value at a time on the benchmark thread.
+     *
+     * @return the cipher texts, consumed by JMH
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> encryptSequentially() {
+        List<String> cipherTexts = new ArrayList<>(batch.size());
+        for (String plainText : batch) {
+            cipherTexts.add(provider.encrypt(plainText));
+        }
+        return cipherTexts;
+    }
+
+    /**
+     * Run the benchmark with an increasing number of threads.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(AsymmetricEncryptionProviderBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+
+    private static final class SerializedAsymmetricEncryptionProvider implements AsymmetricEncryptionProvider {
+        private final AsymmetricEncryptionProvider delegate;
+
+        private SerializedAsymmetricEncryptionProvider(final AsymmetricEncryptionProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized String encrypt(final String data) {
+            return delegate.encrypt(data);
+        }
+
+        @Override
+        public synchronized String decrypt(final String data) {
+            return delegate.decrypt(data);
+        }
+
+        @Override
+        public List<String> encryptAll(final List<String> data) {
+            return data.stream().map(this::encrypt).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<String> decryptAll(final List<String> data) {
+            return data.stream().map(this::decrypt).collect(Collectors.toList());
+        }
+    }
+}
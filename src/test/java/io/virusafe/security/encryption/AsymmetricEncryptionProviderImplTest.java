@@ -5,7 +5,19 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AsymmetricEncryptionProviderImplTest {
     private static final String PUBLIC_KEY = "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEApiuI8YWJjekbDG2k8XX8vv2nlqqyhK+Esf6BUIs4enGdahgfmXGVqoTt+Z0lWqUlrVzLFtz6SBh2hkcVC8JZ1OE48BkZDGpu3AkBV8iaBZys6H+uUflc0i+5jjEuqv6NE7fKb1N2htHu4MmwpHkMMmILSwa7+WHi8nAMCdNTBptpmVFm3GcRWiyXe2ebcW1mSmNfF/0YLoMjZn7AYZThv5DRn/fY3/rhE524wss9Piko7ffagdRUnW3duvJgg2RkOp4jK48k0n9msgEzJyW+UiVdeI7adD6WPLfZhj5wONtvJ9j1bIE2PqnLO6jV6+dA6lnJ4M26MP5meSBi2gqW/wIDAQAB";
@@ -15,6 +27,12 @@ class AsymmetricEncryptionProviderImplTest {
     private static final String INVALID_ALGORITHM = "INVALID_ALGORITHM";
     private static final String ALGORITHM_FIELD_NAME = "algorithm";
     private static final String READ_PUBLIC_RSA_KEY_METHOD_NAME = "readPublicRsaKey";
+    private static final String MALFORMED_CIPHER_TEXT = "NOT_BASE64!";
+    private static final int BATCH_SIZE = 50;
+    private static final int SMALL_BATCH_SIZE = 3;
+    private static final int PARALLELISM = 4;
+    private static final int THREAD_COUNT = 8;
+    private static final int ITERATIONS = 20;
 
     @Test
     void testEncryptDecrypt() {
@@ -59,4 +77,82 @@ class AsymmetricEncryptionProviderImplTest {
                 asymmetricEncryptionProvider.decrypt(encryptedText));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testEncryptAllDecryptAll() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(PARALLELISM);
+        try {
+            AsymmetricEncryptionProvider asymmetricEncryptionProvider = new AsymmetricEncryptionProviderImpl(PRIVATE_KEY,
+                    PUBLIC_KEY, ALGORITHM, forkJoinPool);
+            List<String> plainTexts = createPlainTexts(BATCH_SIZE);
+
+            List<String> encryptedTexts = asymmetricEncryptionProvider.encryptAll(plainTexts);
+
+            assertEquals(BATCH_SIZE, encryptedTexts.size());
+            assertEquals(plainTexts.get(BATCH_SIZE - 1), asymmetricEncryptionProvider.decrypt(encryptedTexts.get(BATCH_SIZE - 1)));
+            assertEquals(plainTexts, asymmetricEncryptionProvider.decryptAll(encryptedTexts));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    void testEncryptAllDecryptAllSmallBatch() {
+        AsymmetricEncryptionProvider asymmetricEncryptionProvider = new AsymmetricEncryptionProviderImpl(PRIVATE_KEY,
+                PUBLIC_KEY, ALGORITHM);
+        List<String> plainTexts = createPlainTexts(SMALL_BATCH_SIZE);
+        assertEquals(plainTexts, asymmetricEncryptionProvider.decryptAll(asymmetricEncryptionProvider.encryptAll(plainTexts)));
+        assertTrue(asymmetricEncryptionProvider.encryptAll(List.of()).isEmpty());
+    }
+
+    @Test
+    void testDecryptAllFailsForMalformedData() {
+        AsymmetricEncryptionProvider asymmetricEncryptionProvider = new AsymmetricEncryptionProviderImpl(PRIVATE_KEY,
+                PUBLIC_KEY, ALGORITHM);
+        List<String> encryptedTexts = new ArrayList<>(asymmetricEncryptionProvider.encryptAll(createPlainTexts(BATCH_SIZE)));
+        encryptedTexts.set(BATCH_SIZE / 2, MALFORMED_CIPHER_TEXT);
+        assertThrows(EncryptionProviderException.class, () -> asymmetricEncryptionProvider.decryptAll(encryptedTexts));
+    }
+
+    @Test
+    void testDecryptStillWorksAfterFailure() {
+        AsymmetricEncryptionProvider asymmetricEncryptionProvider = new AsymmetricEncryptionProviderImpl(PRIVATE_KEY,
+                PUBLIC_KEY, ALGORITHM);
+        String encryptedText = asymmetricEncryptionProvider.encrypt(TEST_PLAIN_TEXT);
+        assertThrows(EncryptionProviderException.class, () ->
+                asymmetricEncryptionProvider.decrypt(encryptedText.substring(4)));
+        assertEquals(TEST_PLAIN_TEXT, asymmetricEncryptionProvider.decrypt(encryptedText));
+    }
+
+    @Test
+    void testConcurrentEncryptionAndDecryption() throws Exception {
+        AsymmetricEncryptionProvider asymmetricEncryptionProvider = new AsymmetricEncryptionProviderImpl(PRIVATE_KEY,
+                PUBLIC_KEY, ALGORITHM);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                String plainText = TEST_PLAIN_TEXT + i;
+                tasks.add(() -> {
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        if (!plainText.equals(asymmetricEncryptionProvider.decrypt(
+                                asymmetricEncryptionProvider.encrypt(plainText)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executorService.invokeAll(tasks)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private List<String> createPlainTexts(final int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> TEST_PLAIN_TEXT + i)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,124 @@
+package io.virusafe.security.encryption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the cached crypto primitives against looking up a digest or MAC per call, as the token, admin
+ * authentication and SMS signing paths used to do. The inputs are sized like a refresh token and an SMS request.
+ * Not run as part of the test suite; run the main method from the test classpath after a test-compile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoUtilsBenchmark {
+
+    private static final String DIGEST_ALGORITHM = "SHA-512";
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+    private static final String SECRET = "API_SECRET";
+    private static final String TOKEN = "eyJhbGciOiJIUzI1NiJ9.eyJ1c2VyR3VpZCI6ImJhMGQ0N2FhLTJiNjAtNDk5MC04ZTkxLTgw"
+            + "MjBhZTdlNGQxMCIsImV4cCI6MTU5OTI3NDgwMH0.fR0oWMwH0ew-TBJSlSae_ZFlB2ehqEWM7MJQ93ybOV8";
+    private static final String MESSAGE = "{\"sender\":\"ViruSafe\",\"recipient\":\"5555555555\","
+            + "\"message\":\"Your ViruSafe PIN is 000000\"}";
+
+    private SecretKey macKey;
+
+    /**
+     * Create the MAC key once, as the SMS hash generator does.
+     */
+    @Setup
+    public void setUp() {
+        macKey = CryptoUtils.macKey(MAC_ALGORITHM, SECRET);
+    }
+
+    /**
+     * Hash a token with a digest looked up for the call.
+     *
+     * @return the Base64 encoded hash, consumed by JMH
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     */
+    @Benchmark
+    public String digestPerCall() throws NoSuchAlgorithmException {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance(DIGEST_ALGORITHM)
+                .digest(TOKEN.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Hash a token with the cached digest.
+     *
+     * @return the Base64 encoded hash, consumed by JMH
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     */
+    @Benchmark
+    public String digestCached() throws NoSuchAlgorithmException {
+        return CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TOKEN);
+    }
+
+    /**
+     * Sign a message with a MAC and key created for the call, hex encoded through a Formatter.
+     *
+     * @return the hex encoded MAC, consumed by JMH
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws InvalidKeyException      if the key is invalid
+     */
+    @Benchmark
+    public String macPerCall() throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+        try (Formatter formatter = new Formatter()) {
+            for (byte b : mac.doFinal(MESSAGE.getBytes(StandardCharsets.UTF_8))) {
+                formatter.format("%02x", b);
+            }
+            return formatter.toString();
+        }
+    }
+
+    /**
+     * Sign a message with the cached, initialized MAC.
+     *
+     * @return the hex encoded MAC, consumed by JMH
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     * @throws InvalidKeyException      if the key is invalid
+     */
+    @Benchmark
+    public String macCached() throws NoSuchAlgorithmException, InvalidKeyException {
+        return CryptoUtils.macToHex(macKey, MESSAGE);
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CryptoUtilsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,115 @@
+package io.virusafe.security.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CryptoUtilsTest {
+
+    private static final String DIGEST_ALGORITHM = "SHA-512";
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+    private static final String TEXT = "TestMessage";
+    private static final String OTHER_TEXT = "OtherMessage";
+    private static final String SECRET = "API_SECRET";
+    private static final String OTHER_SECRET = "OTHER_SECRET";
+    private static final String EXPECTED_MAC = "9b886a08ed2bfe299f61233fbe8b6c5b5c1d40f456f2633d4b2e5bd84f03af34490f09b0f026984a7cd5b205dd8139399fa3837d6170069e76fd11ecc9493efa";
+    private static final String INVALID = "INVALID";
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void testDigestMatchesMessageDigest() throws NoSuchAlgorithmException {
+        byte[] expected = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        assertArrayEquals(expected, CryptoUtils.digest(DIGEST_ALGORITHM, TEXT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Base64.getEncoder().encodeToString(expected),
+                CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TEXT));
+    }
+
+    @Test
+    public void testReusedDigestDoesNotCarryState() throws NoSuchAlgorithmException {
+        String first = CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TEXT);
+        CryptoUtils.digestToBase64(DIGEST_ALGORITHM, OTHER_TEXT);
+        CryptoUtils.digestToBase64("SHA-256", TEXT);
+
+        assertEquals(first, CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TEXT));
+    }
+
+    @Test
+    public void testDigestFailsForInvalidAlgorithm() {
+        assertThrows(NoSuchAlgorithmException.class, () -> CryptoUtils.digestToBase64(INVALID, TEXT));
+    }
+
+    @Test
+    public void testMacToHex() throws NoSuchAlgorithmException, InvalidKeyException {
+        assertEquals(EXPECTED_MAC, CryptoUtils.macToHex(CryptoUtils.macKey(MAC_ALGORITHM, SECRET), TEXT));
+    }
+
+    @Test
+    public void testMacsAreCachedPerKey() throws NoSuchAlgorithmException, InvalidKeyException {
+        SecretKey key = CryptoUtils.macKey(MAC_ALGORITHM, SECRET);
+        SecretKey otherKey = CryptoUtils.macKey(MAC_ALGORITHM, OTHER_SECRET);
+        Mac otherMac = Mac.getInstance(MAC_ALGORITHM);
+        otherMac.init(otherKey);
+
+        assertArrayEquals(otherMac.doFinal(TEXT.getBytes(StandardCharsets.UTF_8)),
+                CryptoUtils.mac(otherKey, TEXT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(EXPECTED_MAC, CryptoUtils.macToHex(key, TEXT));
+        assertEquals(EXPECTED_MAC,
+                CryptoUtils.macToHex(CryptoUtils.macKey(MAC_ALGORITHM, SECRET), TEXT));
+    }
+
+    @Test
+    public void testMacFailsForInvalidAlgorithm() {
+        assertThrows(NoSuchAlgorithmException.class,
+                () -> CryptoUtils.macToHex(CryptoUtils.macKey(INVALID, SECRET), TEXT));
+    }
+
+    @Test
+    public void testToHex() {
+        assertEquals("", CryptoUtils.toHex(new byte[0]));
+        assertEquals("00017f80ff", CryptoUtils.toHex(new byte[]{0, 1, 127, -128, -1}));
+    }
+
+    @Test
+    public void testConcurrentDigestsAndMacs() throws Exception {
+        SecretKey key = CryptoUtils.macKey(MAC_ALGORITHM, SECRET);
+        String expectedDigest = CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TEXT);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        if (!expectedDigest.equals(CryptoUtils.digestToBase64(DIGEST_ALGORITHM, TEXT))
+                                || !EXPECTED_MAC.equals(CryptoUtils.macToHex(key, TEXT))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executorService.invokeAll(tasks)) {
+                assertEquals(Boolean.TRUE, result.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.virusafe.security.encryption;
+
+import io.virusafe.exception.EncryptionProviderException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KeyVersionedSymmetricEncryptionProviderTest {
+
+    private static final String CURRENT_KEY_ID = "2";
+    private static final String RETIRED_KEY_ID = "1";
+    private static final String IV = "IV";
+    private static final String PLAIN_TEXT = "PLAIN_TEXT";
+    private static final String CIPHER_TEXT = "CIPHER_TEXT";
+
+    @Mock
+    private SymmetricEncryptionProvider currentProvider;
+    @Mock
+    private SymmetricEncryptionProvider retiredProvider;
+
+    private KeyVersionedSymmetricEncryptionProvider encryptionProvider;
+
+    @BeforeEach
+    public void setUp() {
+        encryptionProvider = new KeyVersionedSymmetricEncryptionProvider(CURRENT_KEY_ID,
+                Map.of(CURRENT_KEY_ID, currentProvider, RETIRED_KEY_ID, retiredProvider),
+                List.of(CURRENT_KEY_ID, RETIRED_KEY_ID));
+    }
+
+    @Test
+    public void testEncryptPrefixesCurrentKeyId() {
+        when(currentProvider.encrypt(PLAIN_TEXT, IV)).thenReturn(CIPHER_TEXT);
+        assertEquals(CURRENT_KEY_ID + ":" + CIPHER_TEXT, encryptionProvider.encrypt(PLAIN_TEXT, IV));
+        verifyNoInteractions(retiredProvider);
+    }
+
+    @Test
+    public void testDecryptUsesCurrentKey() {
+        when(currentProvider.decrypt(CIPHER_TEXT, IV)).thenReturn(PLAIN_TEXT);
+        assertEquals(PLAIN_TEXT, encryptionProvider.decrypt(CURRENT_KEY_ID + ":" + CIPHER_TEXT, IV));
+        verifyNoInteractions(retiredProvider);
+    }
+
+    @Test
+    public void testDecryptUsesRetiredKeyDirectly() {
+        when(retiredProvider.decrypt(CIPHER_TEXT, IV)).thenReturn(PLAIN_TEXT);
+        assertEquals(PLAIN_TEXT, encryptionProvider.decrypt(RETIRED_KEY_ID + ":" + CIPHER_TEXT, IV));
+        verifyNoInteractions(currentProvider);
+    }
+
+    @Test
+    public void testDecryptFailsForUnknownKeyId() {
+        assertThrows(EncryptionProviderException.class, () -> encryptionProvider.decrypt("3:" + CIPHER_TEXT, IV));
+        verifyNoInteractions(currentProvider, retiredProvider);
+    }
+
+    @Test
+    public void testDecryptWithoutKeyIdTriesLegacyKeysInOrder() {
+        when(currentProvider.decrypt(CIPHER_TEXT, IV)).thenThrow(EncryptionProviderException.class);
+        when(retiredProvider.decrypt(CIPHER_TEXT, IV)).thenReturn(PLAIN_TEXT);
+        assertEquals(PLAIN_TEXT, encryptionProvider.decrypt(CIPHER_TEXT, IV));
+        verify(currentProvider).decrypt(CIPHER_TEXT, IV);
+    }
+
+    @Test
+    public void testDecryptWithoutKeyIdFailsWhenNoLegacyKeyMatches() {
+        when(currentProvider.decrypt(CIPHER_TEXT, IV)).thenThrow(EncryptionProviderException.class);
+        when(retiredProvider.decrypt(CIPHER_TEXT, IV)).thenThrow(EncryptionProviderException.class);
+        assertThrows(EncryptionProviderException.class, () -> encryptionProvider.decrypt(CIPHER_TEXT, IV));
+    }
+
+    @Test
+    public void testDecryptWithoutKeyIdFailsWithoutLegacyKeys() {
+        KeyVersionedSymmetricEncryptionProvider provider = new KeyVersionedSymmetricEncryptionProvider(
+                CURRENT_KEY_ID, Map.of(CURRENT_KEY_ID, currentProvider), Collections.emptyList());
+        assertThrows(EncryptionProviderException.class, () -> provider.decrypt(CIPHER_TEXT, IV));
+        verifyNoInteractions(currentProvider);
+    }
+
+    @Test
+    public void testIsEncryptedWithCurrentKey() {
+        assertTrue(encryptionProvider.isEncryptedWithCurrentKey(CURRENT_KEY_ID + ":" + CIPHER_TEXT));
+        assertFalse(encryptionProvider.isEncryptedWithCurrentKey(RETIRED_KEY_ID + ":" + CIPHER_TEXT));
+        assertFalse(encryptionProvider.isEncryptedWithCurrentKey(CIPHER_TEXT));
+        assertEquals(CURRENT_KEY_ID, encryptionProvider.getCurrentKeyId());
+    }
+
+    @Test
+    public void testConstructionFailsForUnknownCurrentKeyId() {
+        Map<String, SymmetricEncryptionProvider> providers = Map.of(RETIRED_KEY_ID, retiredProvider);
+        List<String> legacyKeyIds = Collections.emptyList();
+        assertThrows(EncryptionProviderException.class, () ->
+                new KeyVersionedSymmetricEncryptionProvider(CURRENT_KEY_ID, providers, legacyKeyIds));
+    }
+
+    @Test
+    public void testConstructionFailsForUnknownLegacyKeyId() {
+        Map<String, SymmetricEncryptionProvider> providers = Map.of(CURRENT_KEY_ID, currentProvider);
+        List<String> legacyKeyIds = List.of(RETIRED_KEY_ID);
+        assertThrows(EncryptionProviderException.class, () ->
+                new KeyVersionedSymmetricEncryptionProvider(CURRENT_KEY_ID, providers, legacyKeyIds));
+    }
+
+    @Test
+    public void testConstructionFailsForKeyIdWithSeparator() {
+        Map<String, SymmetricEncryptionProvider> providers = Map.of("1:2", currentProvider);
+        List<String> legacyKeyIds = Collections.emptyList();
+        assertThrows(IllegalArgumentException.class, () ->
+                new KeyVersionedSymmetricEncryptionProvider("1:2", providers, legacyKeyIds));
+    }
+}
@@ -0,0 +1,108 @@
+package io.virusafe.security.encryption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of a single symmetric encryption provider shared by all benchmark threads, the way the
+ * application shares it between request threads. The serialized variant puts a lock around the provider
+ * to show how throughput behaves when the provider is not thread-confined.
+ * Not run as part of the test suite; run the main method from the test classpath after a test-compile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymmetricEncryptionProviderBenchmark {
+
+    private static final String KEY = "benchmark-symmetric-key";
+    private static final String IV = "EGN";
+    private static final String PLAIN_TEXT = "9876543210";
+    private static final int[] THREAD_COUNTS = {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+
+    @Param({"false", "true"})
+    private boolean serialized;
+
+    private SymmetricEncryptionProvider provider;
+    private String cipherText;
+
+    /**
+     * Create the shared provider and a cipher text to decrypt.
+     */
+    @Setup
+    public void setUp() {
+        SymmetricEncryptionProvider delegate = new SymmetricEncryptionProviderImpl(KEY, "SHA-256",
+                "AES/CBC/PKCS5Padding", "AES");
+        provider = serialized ? new SerializedSymmetricEncryptionProvider(delegate) : delegate;
+        cipherText = provider.encrypt(PLAIN_TEXT, IV);
+    }
+
+    /**
+     * Encrypt a value, as done for every saved user.
+     *
+     * @return the cipher text, consumed by JMH
+     */
+    @Benchmark
+    public String encrypt() {
+        return provider.encrypt(PLAIN_TEXT, IV);
+    }
+
+    /**
+     * Decrypt a value, as done for every loaded user.
+     *
+     * @return the plain text, consumed by JMH
+     */
+    @Benchmark
+    public String decrypt() {
+        return provider.decrypt(cipherText, IV);
+    }
+
+    /**
+     * Run the benchmark with an increasing number of threads.
+     *
+     * @param args unused
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(SymmetricEncryptionProviderBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+
+    private static final class SerializedSymmetricEncryptionProvider implements SymmetricEncryptionProvider {
+        private final SymmetricEncryptionProvider delegate;
+
+        private SerializedSymmetricEncryptionProvider(final SymmetricEncryptionProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized String encrypt(final String data, final String iv) {
+            return delegate.encrypt(data, iv);
+        }
+
+        @Override
+        public synchronized String decrypt(final String data, final String iv) {
+            return delegate.decrypt(data, iv);
+        }
+    }
+}
@@ -4,6 +4,15 @@ import io.virusafe.exception.EncryptionProviderException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SymmetricEncryptionProviderImplTest {
@@ -18,6 +27,8 @@ class SymmetricEncryptionProviderImplTest {
     private static final String ENCRYPTION_ALGORITHM = "AES/CBC/PKCS5Padding";
     private static final String KEY_ALGORITHM = "AES";
     private static final String INVALID_ALGORITHM = "INVALID_ALGORITHM";
+    private static final int THREAD_COUNT = 8;
+    private static final int ITERATIONS = 200;
 
     @Test
     public void testTestWithEGN() {
@@ -64,4 +75,60 @@ class SymmetricEncryptionProviderImplTest {
         assertThrows(EncryptionProviderException.class, () ->
                 encryptionProvider.decrypt(TEST_PHONE, IV_PHONE_NUMBER));
     }
+
+    @Test
+    public void testDecryptionFailsForMalformedCipherText() {
+        SymmetricEncryptionProviderImpl encryptionProvider = new SymmetricEncryptionProviderImpl(SYMMETRIC_KEY, DIGEST_ALGORITHM,
+                ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        assertThrows(EncryptionProviderException.class, () ->
+                encryptionProvider.decrypt("NOT_BASE64!", IV_EGN));
+    }
+
+    @Test
+    public void testSameIvProducesSameCipherText() {
+        SymmetricEncryptionProviderImpl encryptionProvider = new SymmetricEncryptionProviderImpl(SYMMETRIC_KEY, DIGEST_ALGORITHM,
+                ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        String encString = encryptionProvider.encrypt(TEST_EGN, IV_EGN);
+        assertEquals(encString, encryptionProvider.encrypt(TEST_EGN, IV_EGN));
+        assertNotEquals(encString, encryptionProvider.encrypt(TEST_EGN, IV_PHONE_NUMBER));
+    }
+
+    @Test
+    public void testProvidersWithSameKeyAreInterchangeable() {
+        SymmetricEncryptionProviderImpl encryptionProvider = new SymmetricEncryptionProviderImpl(SYMMETRIC_KEY, DIGEST_ALGORITHM,
+                ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        SymmetricEncryptionProviderImpl otherEncryptionProvider = new SymmetricEncryptionProviderImpl(SYMMETRIC_KEY,
+                DIGEST_ALGORITHM, ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        assertEquals(TEST_PHONE, otherEncryptionProvider.decrypt(
+                encryptionProvider.encrypt(TEST_PHONE, IV_PHONE_NUMBER), IV_PHONE_NUMBER));
+    }
+
+    @Test
+    public void testConcurrentEncryptionAndDecryption() throws Exception {
+        SymmetricEncryptionProviderImpl encryptionProvider = new SymmetricEncryptionProviderImpl(SYMMETRIC_KEY, DIGEST_ALGORITHM,
+                ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+        String expectedEgn = encryptionProvider.encrypt(TEST_EGN, IV_EGN);
+        String expectedPhone = encryptionProvider.encrypt(TEST_PHONE, IV_PHONE_NUMBER);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        if (!expectedEgn.equals(encryptionProvider.encrypt(TEST_EGN, IV_EGN))
+                                || !TEST_PHONE.equals(encryptionProvider.decrypt(expectedPhone, IV_PHONE_NUMBER))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executorService.invokeAll(tasks)) {
+                Assertions.assertTrue(result.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
@@ -4,11 +4,12 @@ import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.virusafe.configuration.JwtConfiguration;
-import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.exception.InvalidClaimJwtException;
 import io.virusafe.exception.InvalidSignatureJwtException;
 import io.virusafe.security.principal.UserPrincipal;
 import io.virusafe.service.userdetails.UserDetailsService;
+import io.virusafe.service.userdetails.UserPrincipalCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,6 +23,9 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Base64;
 import java.util.Optional;
 
@@ -49,9 +53,10 @@ class JwtAuthenticationFilterTest {
     private static final Long CREATED_VALUE = 1L;
     private static final String TOKEN_SECRET_KEY = "TOKEN_SECRET_KEY";
     private static final Long USER_ID = 1L;
-    private static final String IDENTIFICATION_NUMBER = "IDENTIFICATION_NUMBER";
     private static final Long INVALID_CREATED_VALUE = 2L;
     private static final String INVALID_SECRET_KEY = "INVALID_SECRET_KEY";
+    private static final long PRINCIPAL_CACHE_TTL = 60_000L;
+    private static final int PRINCIPAL_CACHE_MAX_ENTRIES = 10;
 
     @Mock
     private HttpServletRequest httpServletRequest;
@@ -64,6 +69,10 @@ class JwtAuthenticationFilterTest {
     @Mock
     private UserDetailsService userDetailsService;
 
+    private final UserPrincipalCache userPrincipalCache = new UserPrincipalCache(
+            Clock.fixed(Instant.parse("2020-09-05T00:00:00.00Z"), ZoneId.of("UTC")),
+            PRINCIPAL_CACHE_TTL, PRINCIPAL_CACHE_MAX_ENTRIES);
+
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     private JwtParser jwtParser;
 
@@ -75,7 +84,8 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getSecretKey()).thenReturn(secretKeySpec);
         when(jwtConfiguration.getAuthorizationHeaderName()).thenReturn(AUTHORIZATION_HEADER);
         jwtParser = Jwts.parserBuilder().setSigningKey(jwtConfiguration.getSecretKey()).build();
-        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtConfiguration, userDetailsService);
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtConfiguration, userDetailsService,
+                userPrincipalCache);
     }
 
     @Test
@@ -96,16 +106,9 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
         when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
 
-        UserDetails dbUser = UserDetails.builder()
-                .id(USER_ID)
-                .userGuid(USER_GUID)
-                .tokenSecret(TOKEN_SECRET_KEY)
-                .phoneNumber(PHONE_NUMBER)
-                .identificationNumberPlain(IDENTIFICATION_NUMBER)
-                .build();
-        dbUser.setCreatedDate(CREATED_VALUE);
+        UserAuthenticationDetails dbUser = createAuthenticationDetails(TOKEN_SECRET_KEY, CREATED_VALUE);
 
-        when(userDetailsService.findByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
 
         jwtAuthenticationFilter.doFilterInternal(
                 httpServletRequest,
@@ -121,11 +124,38 @@ class JwtAuthenticationFilterTest {
         assertAll(
                 () -> assertEquals(USER_ID, principal.getUserId()),
                 () -> assertEquals(USER_GUID, principal.getUserGuid()),
-                () -> assertEquals(PHONE_NUMBER, principal.getPhoneNumber()),
-                () -> assertEquals(IDENTIFICATION_NUMBER, principal.getIdentificationNumber())
+                () -> assertEquals(PHONE_NUMBER, principal.getPhoneNumber())
+        );
+    }
+
+    @Test
+    public void testDoFilterInternalUsesCachedPrincipal() throws ServletException, IOException {
+        mockValidToken();
+
+        jwtAuthenticationFilter.doFilterInternal(httpServletRequest, httpServletResponse, filterChain);
+        jwtAuthenticationFilter.doFilterInternal(httpServletRequest, httpServletResponse, filterChain);
+
+        // The second request is validated against the cached principal.
+        verify(userDetailsService, times(1)).findAuthenticationDetailsByUserGuid(USER_GUID);
+        verify(filterChain, times(2)).doFilter(httpServletRequest, httpServletResponse);
+        UserPrincipal principal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertAll(
+                () -> assertEquals(USER_ID, principal.getUserId()),
+                () -> assertEquals(PHONE_NUMBER, principal.getPhoneNumber())
         );
     }
 
+    @Test
+    public void testDoFilterInternalReloadsInvalidatedPrincipal() throws ServletException, IOException {
+        mockValidToken();
+
+        jwtAuthenticationFilter.doFilterInternal(httpServletRequest, httpServletResponse, filterChain);
+        userPrincipalCache.invalidate(USER_GUID);
+        jwtAuthenticationFilter.doFilterInternal(httpServletRequest, httpServletResponse, filterChain);
+
+        verify(userDetailsService, times(2)).findAuthenticationDetailsByUserGuid(USER_GUID);
+    }
+
     @Test
     public void testDoFilterInternalDoesntBreakChainForMissingAuthorizationHeader() throws ServletException, IOException {
         jwtAuthenticationFilter.doFilterInternal(
@@ -231,7 +261,7 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
         when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
 
-        when(userDetailsService.findByUserGuid(INVALID_GUID)).thenReturn(Optional.empty());
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(INVALID_GUID)).thenReturn(Optional.empty());
 
         assertThrows(InvalidClaimJwtException.class, () ->
                 jwtAuthenticationFilter.doFilterInternal(
@@ -289,16 +319,9 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
         when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
 
-        UserDetails dbUser = UserDetails.builder()
-                .id(USER_ID)
-                .userGuid(USER_GUID)
-                .tokenSecret(TOKEN_SECRET_KEY)
-                .phoneNumber(PHONE_NUMBER)
-                .identificationNumberPlain(IDENTIFICATION_NUMBER)
-                .build();
-        dbUser.setCreatedDate(CREATED_VALUE);
+        UserAuthenticationDetails dbUser = createAuthenticationDetails(TOKEN_SECRET_KEY, CREATED_VALUE);
 
-        when(userDetailsService.findByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
 
         assertThrows(InvalidClaimJwtException.class, () ->
                 jwtAuthenticationFilter.doFilterInternal(
@@ -328,16 +351,9 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
         when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
 
-        UserDetails dbUser = UserDetails.builder()
-                .id(USER_ID)
-                .userGuid(USER_GUID)
-                .tokenSecret(TOKEN_SECRET_KEY)
-                .phoneNumber(PHONE_NUMBER)
-                .identificationNumberPlain(IDENTIFICATION_NUMBER)
-                .build();
-        dbUser.setCreatedDate(CREATED_VALUE);
+        UserAuthenticationDetails dbUser = createAuthenticationDetails(TOKEN_SECRET_KEY, CREATED_VALUE);
 
-        when(userDetailsService.findByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
 
         assertThrows(InvalidClaimJwtException.class, () ->
                 jwtAuthenticationFilter.doFilterInternal(
@@ -370,16 +386,9 @@ class JwtAuthenticationFilterTest {
         when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
         when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
 
-        UserDetails dbUser = UserDetails.builder()
-                .id(USER_ID)
-                .userGuid(USER_GUID)
-                .tokenSecret(TOKEN_SECRET_KEY)
-                .phoneNumber(PHONE_NUMBER)
-                .identificationNumberPlain(IDENTIFICATION_NUMBER)
-                .build();
-        dbUser.setCreatedDate(CREATED_VALUE);
+        UserAuthenticationDetails dbUser = createAuthenticationDetails(TOKEN_SECRET_KEY, CREATED_VALUE);
 
-        when(userDetailsService.findByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
 
         assertThrows(InvalidClaimJwtException.class, () ->
                 jwtAuthenticationFilter.doFilterInternal(
@@ -391,4 +400,55 @@ class JwtAuthenticationFilterTest {
         // Verify chain is broken.
         verify(filterChain, times(0)).doFilter(httpServletRequest, httpServletResponse);
     }
-}
\ No newline at end of file
+
+    private void mockValidToken() {
+        byte[] secretKeyBytes = Base64.getDecoder().decode(SECRET_KEY);
+        final SecretKeySpec secretKeySpec = new SecretKeySpec(secretKeyBytes, 0, secretKeyBytes.length,
+                SignatureAlgorithm.forName(ALGORITHM).getJcaName());
+        String token = Jwts.builder()
+                .claim(USER_GUID_CLAIM, USER_GUID)
+                .claim(CREATED_CLAIM, CREATED_VALUE.toString())
+                .claim(SECRET_CLAIM, TOKEN_SECRET_KEY)
+                .signWith(secretKeySpec)
+                .compact();
+        when(jwtConfiguration.getBearerPrefix()).thenReturn(BEARER_PREFIX);
+        when(jwtConfiguration.getAlgorithm()).thenReturn(ALGORITHM);
+        when(jwtConfiguration.getUserGuidClaim()).thenReturn(USER_GUID_CLAIM);
+        when(jwtConfiguration.getSecretClaim()).thenReturn(SECRET_CLAIM);
+        when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
+        when(httpServletRequest.getHeader(AUTHORIZATION_HEADER)).thenReturn(BEARER_PREFIX + token);
+
+        UserAuthenticationDetails dbUser = createAuthenticationDetails(TOKEN_SECRET_KEY, CREATED_VALUE);
+
+        when(userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID)).thenReturn(Optional.of(dbUser));
+    }
+
+    private UserAuthenticationDetails createAuthenticationDetails(final String tokenSecret, final Long createdDate) {
+        return new UserAuthenticationDetails() {
+            @Override
+            public Long getId() {
+                return USER_ID;
+            }
+
+            @Override
+            public String getUserGuid() {
+                return USER_GUID;
+            }
+
+            @Override
+            public String getPhoneNumber() {
+                return PHONE_NUMBER;
+            }
+
+            @Override
+            public String getTokenSecret() {
+                return tokenSecret;
+            }
+
+            @Override
+            public Long getCreatedDate() {
+                return createdDate;
+            }
+        };
+    }
+}
@@ -0,0 +1,184 @@
+package io.virusafe.security.interceptor;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.controller.LocationController;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.exception.handler.GlobalExceptionHandler;
+import io.virusafe.mapper.LocationGpsMapper;
+import io.virusafe.security.advice.PersonalInfoRateLimit;
+import io.virusafe.security.advice.ProximityRateLimit;
+import io.virusafe.security.principal.UserPrincipal;
+import io.virusafe.service.location.LocationService;
+import io.virusafe.service.ratelimit.RateLimitService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitInterceptorTest {
+
+    private static final long DEFAULT_LIMIT = 2L;
+    private static final long DEFAULT_BUCKET_SIZE = 120L;
+    private static final long NO_LIMIT = 0L;
+    private static final Long DEFAULT_USER_ID = 1L;
+    private static final String USER_GUID = "USER_GUID";
+
+    @Mock
+    private RateLimitService rateLimitService;
+    @Mock
+    private HttpServletRequest httpServletRequest;
+    @Mock
+    private HttpServletResponse httpServletResponse;
+    @Mock
+    private LocationService locationService;
+    @Mock
+    private LocationGpsMapper locationGpsMapper;
+
+    private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimitConfiguration.setProximityUpdateLimit(DEFAULT_LIMIT);
+        rateLimitConfiguration.setProximityUpdateBucketSize(DEFAULT_BUCKET_SIZE);
+        rateLimitInterceptor = new RateLimitInterceptor(rateLimitConfiguration, rateLimitService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testAccessAllowedWithinBucket() throws Exception {
+        authenticate(UserPrincipal.builder().userId(DEFAULT_USER_ID).userGuid(USER_GUID).build());
+
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse,
+                handlerMethod("proximity")));
+
+        verify(rateLimitService).registerRequest(DEFAULT_USER_ID, RateLimitType.PROXIMITY, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE);
+    }
+
+    @Test
+    void testAccessDeniedWhenBucketExceeded() throws Exception {
+        authenticate(UserPrincipal.builder().userId(DEFAULT_USER_ID).userGuid(USER_GUID).build());
+        doThrow(new RateLimitTimeoutException(DEFAULT_BUCKET_SIZE)).when(rateLimitService)
+                .registerRequest(DEFAULT_USER_ID, RateLimitType.PROXIMITY, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
+
+        HandlerMethod handlerMethod = handlerMethod("proximity");
+        assertThrows(RateLimitTimeoutException.class,
+                () -> rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse, handlerMethod));
+    }
+
+    @Test
+    void testAccessAllowedWithoutLimit() throws Exception {
+        authenticate(UserPrincipal.builder().userId(DEFAULT_USER_ID).userGuid(USER_GUID).build());
+        rateLimitConfiguration.setPersonalInfoUpdateLimit(NO_LIMIT);
+        rateLimitConfiguration.setPersonalInfoUpdateBucketSize(DEFAULT_BUCKET_SIZE);
+
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse,
+                handlerMethod("personalInformation")));
+
+        verifyNoInteractions(rateLimitService);
+    }
+
+    @Test
+    void testAccessAllowedWithoutUser() throws Exception {
+        authenticate(UserPrincipal.builder().userGuid(USER_GUID).build());
+
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse,
+                handlerMethod("proximity")));
+
+        verifyNoInteractions(rateLimitService);
+    }
+
+    @Test
+    void testAccessAllowedWithoutPrincipal() throws Exception {
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse,
+                handlerMethod("proximity")));
+
+        verifyNoInteractions(rateLimitService);
+    }
+
+    @Test
+    void testAccessAllowedForHandlerWithoutRateLimit() throws Exception {
+        authenticate(UserPrincipal.builder().userId(DEFAULT_USER_ID).userGuid(USER_GUID).build());
+
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse,
+                handlerMethod("unlimited")));
+        assertTrue(rateLimitInterceptor.preHandle(httpServletRequest, httpServletResponse, new Object()));
+
+        verifyNoInteractions(rateLimitService);
+    }
+
+    @Test
+    void testRequestRejectedBeforeBodyIsRead() throws Exception {
+        authenticate(UserPrincipal.builder().userId(DEFAULT_USER_ID).userGuid(USER_GUID).build());
+        doThrow(new RateLimitTimeoutException(DEFAULT_BUCKET_SIZE)).when(rateLimitService)
+                .registerRequest(anyLong(), any(), anyLong(), anyLong());
+        MockMvc mockMvc = MockMvcBuilders
+                .standaloneSetup(new LocationController(locationService, locationGpsMapper))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .addInterceptors(rateLimitInterceptor)
+                .build();
+
+        // The body isn't even valid JSON, so anything but a 429 means it was read before the rate limit applied.
+        mockMvc.perform(post("/location/proximity")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isTooManyRequests());
+
+        verifyNoInteractions(locationService);
+    }
+
+    private static void authenticate(final UserPrincipal userPrincipal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userPrincipal, null, Collections.emptyList()));
+    }
+
+    private static HandlerMethod handlerMethod(final String methodName) throws NoSuchMethodException {
+        return new HandlerMethod(new RateLimitedHandler(), RateLimitedHandler.class.getMethod(methodName));
+    }
+
+    public static class RateLimitedHandler {
+
+        @ProximityRateLimit
+        public void proximity() {
+        }
+
+        @PersonalInfoRateLimit
+        public void personalInformation() {
+        }
+
+        public void unlimited() {
+        }
+    }
+}
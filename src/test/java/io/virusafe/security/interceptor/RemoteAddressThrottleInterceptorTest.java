@@ -0,0 +1,56 @@
+package io.virusafe.security.interceptor;
+
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.service.ratelimit.throttle.RegistrationThrottleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RemoteAddressThrottleInterceptorTest {
+
+    private static final String REMOTE_ADDRESS = "10.0.0.1";
+    private static final long DEFAULT_TIMEOUT = 60L;
+
+    @Mock
+    private RegistrationThrottleService registrationThrottleService;
+    @Mock
+    private HttpServletRequest httpServletRequest;
+    @Mock
+    private HttpServletResponse httpServletResponse;
+
+    private RemoteAddressThrottleInterceptor remoteAddressThrottleInterceptor;
+
+    @BeforeEach
+    public void setUp() {
+        remoteAddressThrottleInterceptor = new RemoteAddressThrottleInterceptor(registrationThrottleService);
+        when(httpServletRequest.getRemoteAddr()).thenReturn(REMOTE_ADDRESS);
+    }
+
+    @Test
+    void testAccessAllowedWithinThrottle() {
+        assertTrue(remoteAddressThrottleInterceptor.preHandle(httpServletRequest, httpServletResponse, new Object()));
+
+        verify(registrationThrottleService).registerRemoteAddressRequest(REMOTE_ADDRESS);
+    }
+
+    @Test
+    void testAccessDeniedWhenThrottled() {
+        doThrow(new RateLimitTimeoutException(DEFAULT_TIMEOUT)).when(registrationThrottleService)
+                .registerRemoteAddressRequest(REMOTE_ADDRESS);
+
+        assertThrows(RateLimitTimeoutException.class, () -> remoteAddressThrottleInterceptor
+                .preHandle(httpServletRequest, httpServletResponse, new Object()));
+    }
+}
@@ -8,8 +8,10 @@ import io.jsonwebtoken.SignatureAlgorithm;
 import io.virusafe.configuration.JwtConfiguration;
 import io.virusafe.domain.dto.AccessTokenDTO;
 import io.virusafe.domain.entity.UserDetails;
-import io.virusafe.exception.NoSuchUserException;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
+import io.virusafe.exception.UnverifiablePinException;
 import io.virusafe.exception.UnverifiableRefreshTokenException;
+import io.virusafe.service.pin.PinService;
 import io.virusafe.service.token.TokenServiceImpl;
 import io.virusafe.service.userdetails.UserDetailsService;
 import org.junit.jupiter.api.BeforeEach;
@@ -31,6 +33,13 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,6 +56,9 @@ class TokenServiceImplTest {
     private static final String USER_GUID = "USER_GUID";
     private static final String INVALID = "INVALID";
     private static final String OTHER_ALGORITHM = "HS256";
+    private static final String PIN = "PIN";
+    private static final Long USER_ID = 1L;
+    private static final Long CREATED_DATE = 1567652400L;
 
     private final Clock systemClock = Clock.fixed(
             Instant.parse("2020-09-05T00:00:00.00Z"),
@@ -56,6 +68,10 @@ class TokenServiceImplTest {
     private JwtConfiguration jwtConfiguration;
     @Mock
     private UserDetailsService userDetailsService;
+    @Mock
+    private PinService pinService;
+    @Mock
+    private UserAuthenticationDetails authenticationDetails;
     private TokenServiceImpl tokenService;
     private JwtParser jwtParser;
 
@@ -71,7 +87,7 @@ class TokenServiceImplTest {
                 SignatureAlgorithm.forName(ALGORITHM).getJcaName());
         when(jwtConfiguration.getSecretKey()).thenReturn(secretKeySpec);
         jwtParser = Jwts.parserBuilder().setSigningKey(jwtConfiguration.getSecretKey()).build();
-        tokenService = new TokenServiceImpl(jwtConfiguration, userDetailsService, systemClock);
+        tokenService = new TokenServiceImpl(jwtConfiguration, userDetailsService, pinService, systemClock);
     }
 
     @Test
@@ -81,9 +97,9 @@ class TokenServiceImplTest {
         when(jwtConfiguration.getSecretClaim()).thenReturn(SECRET_CLAIM);
         when(jwtConfiguration.getUserGuidClaim()).thenReturn(USER_GUID_CLAIM);
         when(jwtConfiguration.getHashAlgorithm()).thenReturn(HASH_ALGORITHM);
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(userDetails));
+        mockValidPin();
 
-        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER);
+        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER, PIN);
         String accessToken = accessTokenDTO.getAccessToken();
         String refreshToken = accessTokenDTO.getRefreshToken();
 
@@ -99,10 +115,52 @@ class TokenServiceImplTest {
         );
     }
 
+    @Test
+    public void testGenerateTokenUpdatesTokenDetailsOnly() throws NoSuchAlgorithmException {
+        when(jwtConfiguration.getCreatedClaim()).thenReturn(CREATED_CLAIM);
+        when(jwtConfiguration.getNumberClaim()).thenReturn(NUMBER_CLAIM);
+        when(jwtConfiguration.getSecretClaim()).thenReturn(SECRET_CLAIM);
+        when(jwtConfiguration.getUserGuidClaim()).thenReturn(USER_GUID_CLAIM);
+        when(jwtConfiguration.getHashAlgorithm()).thenReturn(HASH_ALGORITHM);
+        mockValidPin();
+
+        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER, PIN);
+
+        verify(userDetailsService, times(1)).updateTokenDetails(eq(USER_GUID), anyString(),
+                eq(hash(accessTokenDTO.getRefreshToken())));
+        verify(userDetailsService, never()).findByPhoneNumber(anyString());
+        verify(userDetailsService, never()).save(any());
+    }
+
     @Test
     public void testNoTokenGeneratedForMissingUser() {
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
-        assertThrows(NoSuchUserException.class, () -> tokenService.generateToken(PHONE_NUMBER));
+        when(userDetailsService.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
+        assertThrows(UnverifiablePinException.class, () -> tokenService.generateToken(PHONE_NUMBER, PIN));
+        verify(pinService, never()).invalidatePins(anyLong());
+    }
+
+    @Test
+    public void testNoTokenGeneratedForInvalidPin() {
+        when(authenticationDetails.getId()).thenReturn(USER_ID);
+        when(userDetailsService.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        when(pinService.verifyPin(USER_ID, PIN)).thenReturn(false);
+
+        assertThrows(UnverifiablePinException.class, () -> tokenService.generateToken(PHONE_NUMBER, PIN));
+        verify(pinService, never()).invalidatePins(anyLong());
+        verify(userDetailsService, never()).updateTokenDetails(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testNoTokenGeneratedForPinRedeemedConcurrently() {
+        when(authenticationDetails.getId()).thenReturn(USER_ID);
+        when(userDetailsService.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        when(pinService.verifyPin(USER_ID, PIN)).thenReturn(true);
+        when(pinService.invalidatePins(USER_ID)).thenReturn(false);
+
+        assertThrows(UnverifiablePinException.class, () -> tokenService.generateToken(PHONE_NUMBER, PIN));
+        verify(userDetailsService, never()).updateTokenDetails(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -112,9 +170,9 @@ class TokenServiceImplTest {
         when(jwtConfiguration.getSecretClaim()).thenReturn(SECRET_CLAIM);
         when(jwtConfiguration.getUserGuidClaim()).thenReturn(USER_GUID_CLAIM);
         when(jwtConfiguration.getHashAlgorithm()).thenReturn(INVALID);
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(userDetails));
+        mockValidPin();
 
-        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER);
+        AccessTokenDTO accessTokenDTO = tokenService.generateToken(PHONE_NUMBER, PIN);
         String accessToken = accessTokenDTO.getAccessToken();
         String refreshToken = accessTokenDTO.getRefreshToken();
 
@@ -254,4 +312,20 @@ class TokenServiceImplTest {
 
         assertThrows(UnverifiableRefreshTokenException.class, () -> tokenService.refreshToken(refreshToken));
     }
-}
\ No newline at end of file
+
+    private void mockValidPin() {
+        when(authenticationDetails.getId()).thenReturn(USER_ID);
+        when(authenticationDetails.getUserGuid()).thenReturn(USER_GUID);
+        when(authenticationDetails.getPhoneNumber()).thenReturn(PHONE_NUMBER);
+        when(authenticationDetails.getCreatedDate()).thenReturn(CREATED_DATE);
+        when(userDetailsService.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        when(pinService.verifyPin(USER_ID, PIN)).thenReturn(true);
+        when(pinService.invalidatePins(USER_ID)).thenReturn(true);
+    }
+
+    private String hash(final String refreshToken) throws NoSuchAlgorithmException {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance(HASH_ALGORITHM)
+                .digest(refreshToken.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -3,6 +3,7 @@ package io.virusafe.service.audit;
 import io.virusafe.domain.entity.PersonalInformationConsentAction;
 import io.virusafe.domain.entity.PersonalInformationConsentAudit;
 import io.virusafe.repository.PersonalInformationConsentAuditRepository;
+import io.virusafe.repository.PersonalInformationConsentStateRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +15,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -29,13 +31,15 @@ class PersonalInformationConsentAuditServiceImplTest {
 
     @Mock
     private PersonalInformationConsentAuditRepository personalInformationConsentAuditRepository;
+    @Mock
+    private PersonalInformationConsentStateRepository personalInformationConsentStateRepository;
 
     private PersonalInformationConsentAuditServiceImpl personalInformationConsentAuditService;
 
     @BeforeEach
     public void setUp() {
         personalInformationConsentAuditService = new PersonalInformationConsentAuditServiceImpl(
-                personalInformationConsentAuditRepository, clock);
+                personalInformationConsentAuditRepository, personalInformationConsentStateRepository, clock);
     }
 
     @Test
@@ -49,4 +53,13 @@ class PersonalInformationConsentAuditServiceImplTest {
                 .build();
         verify(personalInformationConsentAuditRepository, times(1)).save(expectedAuditTrail);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAddAuditTrailEntryUpsertsConsentState() {
+        personalInformationConsentAuditService.addAuditTrailEntry(USER_GUID, PersonalInformationConsentAction.REVOKED);
+
+        verify(personalInformationConsentStateRepository, times(1))
+                .upsertConsentState(USER_GUID, PersonalInformationConsentAction.REVOKED.name(), CALCULATION_TIME);
+        verify(personalInformationConsentStateRepository, never()).findById(USER_GUID);
+    }
+}
@@ -0,0 +1,228 @@
+package io.virusafe.service.encryption;
+
+import io.virusafe.domain.command.IdentificationNumberUpdateCommand;
+import io.virusafe.domain.dto.ReEncryptionStatusDTO;
+import io.virusafe.domain.dto.ReEncryptionStatusDTO.State;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import io.virusafe.security.encryption.KeyVersionedSymmetricEncryptionProvider;
+import io.virusafe.security.encryption.SymmetricEncryptionProvider;
+import io.virusafe.security.encryption.SymmetricEncryptionProviderImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReEncryptionServiceImplTest {
+
+    private static final String CURRENT_KEY_ID = "2";
+    private static final String RETIRED_KEY_ID = "1";
+    private static final String IV = "IV";
+    private static final String IDENTIFICATION_NUMBER = "9876543210";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String ENCRYPTION_ALGORITHM = "AES/CBC/PKCS5Padding";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final int CHUNK_SIZE = 3;
+    private static final int BATCH_SIZE = 2;
+    private static final int PARALLELISM = 2;
+    private static final long MAX_ID = 100L;
+    private static final long CHECKPOINT_ID = 5L;
+    private static final long THROTTLED_ROWS_PER_SECOND = 10L;
+    private static final long AWAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final SymmetricEncryptionProvider retiredProvider = new SymmetricEncryptionProviderImpl("RETIRED_KEY",
+            DIGEST_ALGORITHM, ENCRYPTION_ALGORITHM, KEY_ALGORITHM);
+    private final KeyVersionedSymmetricEncryptionProvider encryptionProvider = new KeyVersionedSymmetricEncryptionProvider(
+            CURRENT_KEY_ID,
+            Map.of(CURRENT_KEY_ID, new SymmetricEncryptionProviderImpl("CURRENT_KEY", DIGEST_ALGORITHM,
+                            ENCRYPTION_ALGORITHM, KEY_ALGORITHM),
+                    RETIRED_KEY_ID, retiredProvider),
+            List.of(RETIRED_KEY_ID));
+
+    @Mock
+    private UserDetailsJdbcRepository userDetailsJdbcRepository;
+
+    private ReEncryptionServiceImpl reEncryptionService;
+
+    @AfterEach
+    public void tearDown() {
+        reEncryptionService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReEncryptsIdentificationNumbersWithCurrentKey() {
+        createService(0L);
+        String legacyValue = retiredProvider.encrypt(IDENTIFICATION_NUMBER, IV);
+        when(userDetailsJdbcRepository.findMaxId()).thenReturn(MAX_ID);
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(0L, CHUNK_SIZE)).thenReturn(List.of(
+                createCommand(1L, legacyValue),
+                createCommand(2L, RETIRED_KEY_ID + ":" + legacyValue),
+                createCommand(3L, encryptionProvider.encrypt(IDENTIFICATION_NUMBER, IV))));
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(3L, CHUNK_SIZE)).thenReturn(List.of(
+                createCommand(4L, "INVALID_VALUE")));
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(4L, CHUNK_SIZE))
+                .thenReturn(Collections.emptyList());
+        when(userDetailsJdbcRepository.updateIdentificationNumbers(anyList(), eq(BATCH_SIZE))).thenReturn(2);
+
+        reEncryptionService.start(null);
+        ReEncryptionStatusDTO status = awaitFinished();
+
+        ArgumentCaptor<List<IdentificationNumberUpdateCommand>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userDetailsJdbcRepository, times(1)).updateIdentificationNumbers(captor.capture(), eq(BATCH_SIZE));
+        List<IdentificationNumberUpdateCommand> updates = new ArrayList<>(captor.getValue());
+        assertEquals(2, updates.size());
+        updates.forEach(update -> {
+            assertTrue(encryptionProvider.isEncryptedWithCurrentKey(update.getIdentificationNumber()));
+            assertEquals(IDENTIFICATION_NUMBER, encryptionProvider.decrypt(update.getIdentificationNumber(), IV));
+        });
+        assertAll(
+                () -> assertEquals(State.COMPLETED, status.getState()),
+                () -> assertEquals(CURRENT_KEY_ID, status.getKeyId()),
+                () -> assertEquals(MAX_ID, status.getMaxId()),
+                () -> assertEquals(4L, status.getLastProcessedId()),
+                () -> assertEquals(4L, status.getScannedRows()),
+                () -> assertEquals(2L, status.getReEncryptedRows()),
+                () -> assertEquals(1L, status.getAlreadyCurrentRows()),
+                () -> assertEquals(1L, status.getFailedRows())
+        );
+    }
+
+    @Test
+    public void testStopAndResumeFromCheckpoint() {
+        createService(0L);
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(0L, CHUNK_SIZE)).thenAnswer(invocation -> {
+            reEncryptionService.stop();
+            return List.of(createCommand(CHECKPOINT_ID, encryptionProvider.encrypt(IDENTIFICATION_NUMBER, IV)));
+        });
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(CHECKPOINT_ID, CHUNK_SIZE))
+                .thenReturn(Collections.emptyList());
+
+        reEncryptionService.start(null);
+        ReEncryptionStatusDTO stoppedStatus = awaitFinished();
+        assertEquals(State.STOPPED, stoppedStatus.getState());
+        assertEquals(CHECKPOINT_ID, stoppedStatus.getLastProcessedId());
+        verify(userDetailsJdbcRepository, never()).findIdentificationNumbersAfter(CHECKPOINT_ID, CHUNK_SIZE);
+
+        assertEquals(CHECKPOINT_ID, reEncryptionService.start(null).getFromId());
+        assertEquals(State.COMPLETED, awaitFinished().getState());
+        verify(userDetailsJdbcRepository, never()).updateIdentificationNumbers(anyList(), anyInt());
+    }
+
+    @Test
+    public void testResumeFromCheckpointAfterFailure() {
+        createService(0L);
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(0L, CHUNK_SIZE))
+                .thenReturn(List.of(createCommand(CHECKPOINT_ID, encryptionProvider.encrypt(IDENTIFICATION_NUMBER, IV))));
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(CHECKPOINT_ID, CHUNK_SIZE))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"))
+                .thenReturn(Collections.emptyList());
+
+        reEncryptionService.start(null);
+        assertEquals(State.FAILED, awaitFinished().getState());
+
+        assertEquals(CHECKPOINT_ID, reEncryptionService.start(null).getFromId());
+        assertEquals(State.COMPLETED, awaitFinished().getState());
+    }
+
+    @Test
+    public void testStartFromExplicitId() {
+        createService(0L);
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(CHECKPOINT_ID, CHUNK_SIZE))
+                .thenReturn(Collections.emptyList());
+
+        reEncryptionService.start(CHECKPOINT_ID);
+
+        assertEquals(State.COMPLETED, awaitFinished().getState());
+        verify(userDetailsJdbcRepository, never()).findIdentificationNumbersAfter(0L, CHUNK_SIZE);
+    }
+
+    @Test
+    public void testStartWhileRunningKeepsRunningJob() {
+        createService(0L);
+        AtomicReference<ReEncryptionStatusDTO> secondStart = new AtomicReference<>();
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(0L, CHUNK_SIZE)).thenAnswer(invocation -> {
+            secondStart.set(reEncryptionService.start(CHECKPOINT_ID));
+            return Collections.emptyList();
+        });
+
+        reEncryptionService.start(null);
+
+        assertEquals(State.COMPLETED, awaitFinished().getState());
+        assertEquals(State.RUNNING, secondStart.get().getState());
+        assertEquals(0L, secondStart.get().getFromId());
+        verify(userDetailsJdbcRepository, times(1)).findMaxId();
+        verify(userDetailsJdbcRepository, never()).findIdentificationNumbersAfter(eq(CHECKPOINT_ID), anyInt());
+    }
+
+    @Test
+    public void testReEncryptionIsThrottled() {
+        createService(THROTTLED_ROWS_PER_SECOND);
+        when(userDetailsJdbcRepository.findIdentificationNumbersAfter(anyLong(), eq(CHUNK_SIZE)))
+                .thenReturn(List.of(createCommand(1L, encryptionProvider.encrypt(IDENTIFICATION_NUMBER, IV))))
+                .thenReturn(Collections.emptyList());
+
+        long startMillis = System.currentTimeMillis();
+        reEncryptionService.start(null);
+        awaitFinished();
+
+        assertTrue(System.currentTimeMillis() - startMillis >= TimeUnit.SECONDS.toMillis(1) / THROTTLED_ROWS_PER_SECOND);
+    }
+
+    @Test
+    public void testStatusWithoutJob() {
+        createService(0L);
+        ReEncryptionStatusDTO status = reEncryptionService.getStatus();
+        assertEquals(State.IDLE, status.getState());
+        assertEquals(CURRENT_KEY_ID, status.getKeyId());
+        assertEquals(State.IDLE, reEncryptionService.stop().getState());
+    }
+
+    private void createService(final long maxRowsPerSecond) {
+        reEncryptionService = new ReEncryptionServiceImpl(userDetailsJdbcRepository, encryptionProvider, IV,
+                Clock.systemUTC(), CHUNK_SIZE, BATCH_SIZE, maxRowsPerSecond, PARALLELISM);
+    }
+
+    private IdentificationNumberUpdateCommand createCommand(final long userId, final String identificationNumber) {
+        return IdentificationNumberUpdateCommand.builder()
+                .userId(userId)
+                .previousIdentificationNumber(identificationNumber)
+                .build();
+    }
+
+    private ReEncryptionStatusDTO awaitFinished() {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ReEncryptionStatusDTO status = reEncryptionService.getStatus();
+            if (status.getState() != State.RUNNING && status.getState() != State.STOPPING) {
+                return status;
+            }
+            Thread.onSpinWait();
+        }
+        return fail("Re-encryption did not finish in time");
+    }
+}
@@ -0,0 +1,158 @@
+package io.virusafe.service.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudienceBitmapTest {
+
+    private static final int CONTAINER_SIZE = 1 << 16;
+    private static final int MAX_ID = 5 * CONTAINER_SIZE;
+
+    @Test
+    public void testOfIdsSortsAndDeduplicatesIds() {
+        AudienceBitmap bitmap = AudienceBitmap.ofIds(70000, 5, 1, 5, CONTAINER_SIZE);
+
+        assertArrayEquals(new int[]{1, 5, CONTAINER_SIZE, 70000}, bitmap.stream().toArray());
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(CONTAINER_SIZE));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.contains(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmpty() {
+        AudienceBitmap bitmap = AudienceBitmap.empty();
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertEquals(0, bitmap.stream().count());
+        assertTrue(AudienceBitmap.ofIds().isEmpty());
+    }
+
+    @Test
+    public void testNegativeIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AudienceBitmap.ofIds(-1));
+        assertThrows(IllegalArgumentException.class, () -> AudienceBitmap.range(-1, 1));
+    }
+
+    @Test
+    public void testRangeAcrossContainers() {
+        AudienceBitmap bitmap = AudienceBitmap.range(CONTAINER_SIZE - 3, 2 * CONTAINER_SIZE + 2);
+
+        assertEquals(CONTAINER_SIZE + 6, bitmap.cardinality());
+        assertFalse(bitmap.contains(CONTAINER_SIZE - 4));
+        assertTrue(bitmap.contains(CONTAINER_SIZE - 3));
+        assertTrue(bitmap.contains(2 * CONTAINER_SIZE + 2));
+        assertFalse(bitmap.contains(2 * CONTAINER_SIZE + 3));
+        assertArrayEquals(IntStream.rangeClosed(CONTAINER_SIZE - 3, 2 * CONTAINER_SIZE + 2).toArray(),
+                bitmap.stream().toArray());
+    }
+
+    @Test
+    public void testRangeOfOneAndNoIds() {
+        assertArrayEquals(new int[]{63}, AudienceBitmap.range(63, 63).stream().toArray());
+        assertTrue(AudienceBitmap.range(2, 1).isEmpty());
+    }
+
+    @Test
+    public void testComplement() {
+        AudienceBitmap bitmap = AudienceBitmap.ofIds(2, 4, 100);
+
+        assertArrayEquals(new int[]{1, 3, 5}, bitmap.complement(1, 5).stream().toArray());
+        assertTrue(bitmap.complement(1, 0).isEmpty());
+    }
+
+    @Test
+    public void testSetOperationsMatchBitSet() {
+        Random random = new Random(42);
+        // Mixes sparse and dense containers, as well as containers only one of the operands has.
+        BitSet sparse = randomIds(random, 0.01);
+        BitSet dense = randomIds(random, 0.6);
+        dense.clear(3 * CONTAINER_SIZE, 4 * CONTAINER_SIZE);
+        AudienceBitmap sparseBitmap = toBitmap(sparse);
+        AudienceBitmap denseBitmap = toBitmap(dense);
+
+        BitSet union = (BitSet) sparse.clone();
+        union.or(dense);
+        BitSet intersection = (BitSet) sparse.clone();
+        intersection.and(dense);
+        BitSet difference = (BitSet) sparse.clone();
+        difference.andNot(dense);
+        BitSet complement = (BitSet) dense.clone();
+        complement.flip(1, MAX_ID + 1);
+        complement.clear(0);
+
+        assertBitmapEquals(sparse, sparseBitmap);
+        assertBitmapEquals(dense, denseBitmap);
+        assertBitmapEquals(union, sparseBitmap.union(denseBitmap));
+        assertBitmapEquals(union, denseBitmap.union(sparseBitmap));
+        assertBitmapEquals(intersection, sparseBitmap.intersection(denseBitmap));
+        assertBitmapEquals(intersection, denseBitmap.intersection(sparseBitmap));
+        assertBitmapEquals(difference, sparseBitmap.difference(denseBitmap));
+        assertBitmapEquals(complement, denseBitmap.complement(1, MAX_ID));
+    }
+
+    @Test
+    public void testOperationsDropEmptyContainers() {
+        AudienceBitmap bitmap = AudienceBitmap.ofIds(1, CONTAINER_SIZE + 1);
+
+        assertTrue(bitmap.difference(bitmap).isEmpty());
+        assertTrue(bitmap.intersection(AudienceBitmap.ofIds(2, CONTAINER_SIZE + 2)).isEmpty());
+        assertArrayEquals(new int[]{CONTAINER_SIZE + 1},
+                bitmap.difference(AudienceBitmap.ofIds(1)).stream().toArray());
+    }
+
+    @Test
+    public void testIteratorAndForEachVisitIdsInOrder() {
+        AudienceBitmap bitmap = AudienceBitmap.range(CONTAINER_SIZE - 2, CONTAINER_SIZE + 1)
+                .union(AudienceBitmap.ofIds(0, 3 * CONTAINER_SIZE));
+        int[] expected = {0, CONTAINER_SIZE - 2, CONTAINER_SIZE - 1, CONTAINER_SIZE, CONTAINER_SIZE + 1,
+                3 * CONTAINER_SIZE};
+
+        IntStream.Builder visited = IntStream.builder();
+        bitmap.forEach(visited::add);
+        assertArrayEquals(expected, visited.build().toArray());
+
+        PrimitiveIterator.OfInt iterator = bitmap.iterator();
+        for (int id : expected) {
+            assertTrue(iterator.hasNext());
+            assertEquals(id, iterator.nextInt());
+        }
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::nextInt);
+    }
+
+    private static BitSet randomIds(final Random random, final double density) {
+        BitSet ids = new BitSet();
+        for (int id = 1; id <= MAX_ID; id++) {
+            if (random.nextDouble() < density) {
+                ids.set(id);
+            }
+        }
+        return ids;
+    }
+
+    private static AudienceBitmap toBitmap(final BitSet ids) {
+        AudienceBitmap.Builder builder = AudienceBitmap.builder();
+        ids.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    private static void assertBitmapEquals(final BitSet expected, final AudienceBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertArrayEquals(expected.stream().toArray(), actual.stream().toArray());
+        expected.stream().limit(1000).forEach(id -> assertTrue(actual.contains(id)));
+    }
+}
@@ -0,0 +1,134 @@
+package io.virusafe.service.notification;
+
+import io.virusafe.domain.projection.UserPushToken;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushAudienceServiceImplTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock
+    private UserDetailsJdbcRepository userDetailsJdbcRepository;
+
+    private PushAudienceServiceImpl pushAudienceService;
+
+    @BeforeEach
+    public void setUp() {
+        pushAudienceService = new PushAudienceServiceImpl(userDetailsJdbcRepository, CHUNK_SIZE);
+    }
+
+    @Test
+    public void testFindAudienceQueriesGuidSlices() {
+        Set<String> userGuids = new LinkedHashSet<>(List.of("guid1", "guid2", "guid3"));
+        when(userDetailsJdbcRepository.findIdsByUserGuids(List.of("guid1", "guid2"))).thenReturn(List.of(7L, 2L));
+        when(userDetailsJdbcRepository.findIdsByUserGuids(List.of("guid3"))).thenReturn(List.of());
+
+        assertArrayEquals(new int[]{2, 7}, pushAudienceService.findAudience(userGuids).stream().toArray());
+    }
+
+    @Test
+    public void testFindAudienceForNoUsers() {
+        assertTrue(pushAudienceService.findAudience(Collections.emptySet()).isEmpty());
+        verify(userDetailsJdbcRepository, never()).findIdsByUserGuids(anyList());
+    }
+
+    @Test
+    public void testAddToAudienceKeepsUsersAlreadyAdded() {
+        when(userDetailsJdbcRepository.findIdsByUserGuids(List.of("guid1"))).thenReturn(List.of(3L));
+        AudienceBitmap.Builder audience = AudienceBitmap.builder().add(9);
+
+        pushAudienceService.addToAudience(audience, List.of("guid1"));
+        assertArrayEquals(new int[]{3, 9}, audience.build().stream().toArray());
+    }
+
+    @Test
+    public void testReverseComplementsUpToMaxId() {
+        when(userDetailsJdbcRepository.findMaxId()).thenReturn(5L);
+
+        AudienceBitmap reversed = pushAudienceService.reverse(AudienceBitmap.ofIds(2, 4));
+        assertArrayEquals(new int[]{1, 3, 5}, reversed.stream().toArray());
+    }
+
+    @Test
+    public void testReverseWithoutUsers() {
+        when(userDetailsJdbcRepository.findMaxId()).thenReturn(0L);
+
+        assertTrue(pushAudienceService.reverse(AudienceBitmap.empty()).isEmpty());
+    }
+
+    @Test
+    public void testStreamPushTokenChunksReadsDenseIdsAsRange() {
+        AudienceBitmap audience = AudienceBitmap.ofIds(1, 3, 4);
+        // User 2 is in the range but not in the audience, so its token is skipped.
+        when(userDetailsJdbcRepository.findGrantedPushTokensBetween(1L, 3L))
+                .thenReturn(List.of(pushToken(1L), pushToken(2L), pushToken(3L)));
+        when(userDetailsJdbcRepository.findGrantedPushTokensBetween(4L, 4L)).thenReturn(List.of(pushToken(4L)));
+
+        assertEquals(List.of(List.of("token1", "token3"), List.of("token4")), collect(audience));
+        verify(userDetailsJdbcRepository, never()).findGrantedPushTokensByIds(anyList());
+    }
+
+    @Test
+    public void testStreamPushTokenChunksReadsSparseIdsById() {
+        AudienceBitmap audience = AudienceBitmap.ofIds(1, 100, 1000);
+        when(userDetailsJdbcRepository.findGrantedPushTokensByIds(List.of(1L, 100L)))
+                .thenReturn(List.of(pushToken(1L)));
+        when(userDetailsJdbcRepository.findGrantedPushTokensBetween(1000L, 1000L))
+                .thenReturn(List.of(pushToken(1000L)));
+
+        // User 100 has no token or consent, so the next slice fills up the chunk.
+        assertEquals(List.of(List.of("token1", "token1000")), collect(audience));
+    }
+
+    @Test
+    public void testStreamPushTokenChunksForEmptyAudience() {
+        assertEquals(Collections.emptyList(), collect(AudienceBitmap.empty()));
+        verify(userDetailsJdbcRepository, never()).findGrantedPushTokensBetween(anyLong(), anyLong());
+        verify(userDetailsJdbcRepository, never()).findGrantedPushTokensByIds(anyList());
+    }
+
+    @Test
+    public void testStreamPushTokenChunksReadsSlicesLazily() {
+        when(userDetailsJdbcRepository.findGrantedPushTokensBetween(1L, 2L))
+                .thenReturn(List.of(pushToken(1L), pushToken(2L)));
+
+        Stream<List<String>> chunks = pushAudienceService.streamPushTokenChunks(AudienceBitmap.range(1, 10));
+        assertEquals(List.of("token1", "token2"), chunks.iterator().next());
+        verify(userDetailsJdbcRepository, times(1)).findGrantedPushTokensBetween(anyLong(), anyLong());
+    }
+
+    private List<List<String>> collect(final AudienceBitmap audience) {
+        return pushAudienceService.streamPushTokenChunks(audience).collect(Collectors.toList());
+    }
+
+    private static UserPushToken pushToken(final long userId) {
+        return UserPushToken.builder()
+                .userId(userId)
+                .userGuid("guid" + userId)
+                .pushToken("token" + userId)
+                .build();
+    }
+}
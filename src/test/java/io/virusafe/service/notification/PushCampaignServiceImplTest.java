@@ -0,0 +1,348 @@
+package io.virusafe.service.notification;
+
+import io.virusafe.domain.dto.PushCampaignStatusDTO;
+import io.virusafe.domain.dto.PushCampaignStatusDTO.State;
+import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
+import io.virusafe.domain.query.QuestionnaireQuery;
+import io.virusafe.exception.PushCampaignQueueFullException;
+import io.virusafe.exception.QueryExecuteException;
+import io.virusafe.service.pushnotification.PushNotificationService;
+import io.virusafe.service.query.QuestionnaireQueryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushCampaignServiceImplTest {
+
+    private static final String TITLE = "title";
+    private static final String MESSAGE = "message";
+    private static final String USER_GUID = "userGuid";
+    private static final String PUSH_TOKEN = "pushToken";
+    private static final String TEST_ERROR_CODE = "testErrorCode";
+    private static final AudienceBitmap AUDIENCE = AudienceBitmap.ofIds(1, 2, 3);
+    private static final AudienceBitmap REVERSED_AUDIENCE = AudienceBitmap.ofIds(4, 5);
+    private static final int PARALLELISM = 1;
+    private static final int QUEUE_CAPACITY = 1;
+    private static final int HISTORY_SIZE = 10;
+    private static final long AWAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Mock
+    private QuestionnaireQueryService questionnaireQueryService;
+
+    @Mock
+    private PushAudienceService pushAudienceService;
+
+    @Mock
+    private PushNotificationService pushNotificationService;
+
+    private final QuestionnaireQuery questionnaireQuery = mock(QuestionnaireQuery.class);
+
+    private PushCampaignServiceImpl pushCampaignService;
+
+    @AfterEach
+    public void tearDown() {
+        pushCampaignService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCampaignStreamsQueryResultsToPushTokens() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        mockScroll(List.of(USER_GUID + 1, USER_GUID + 2), List.of(USER_GUID + 3));
+        mockAddToAudience();
+        when(pushAudienceService.streamPushTokenChunks(any()))
+                .thenReturn(Stream.of(List.of(PUSH_TOKEN + 1, PUSH_TOKEN + 2), List.of(PUSH_TOKEN + 3)));
+        mockSend(createResult(2, 0), createResult(0, 1));
+
+        PushCampaignStatusDTO submitted = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false);
+        assertNotNull(submitted.getJobId());
+        assertNotNull(submitted.getSubmittedAt());
+        PushCampaignStatusDTO status = awaitFinished(submitted.getJobId());
+
+        assertAll(
+                () -> assertEquals(State.COMPLETED, status.getState()),
+                () -> assertEquals(TITLE, status.getTitle()),
+                () -> assertEquals(3, status.getMatchedUsers()),
+                () -> assertEquals(3, status.getAudienceSize()),
+                () -> assertEquals(3, status.getResolvedTokens()),
+                () -> assertEquals(2, status.getSentCount()),
+                () -> assertEquals(1, status.getFailedCount()),
+                () -> assertEquals(Map.of(TEST_ERROR_CODE, 1L), status.getErrorCodes()),
+                () -> assertEquals(1, status.getDeadTokens()),
+                () -> assertEquals(1, status.getPrunedTokens()),
+                () -> assertTrue(status.getTokensPerSecond() > 0),
+                () -> assertNotNull(status.getStartedAt()),
+                () -> assertNotNull(status.getFinishedAt()));
+        ArgumentCaptor<PushNotificationDTO> pushNotificationCaptor = ArgumentCaptor.forClass(PushNotificationDTO.class);
+        verify(pushNotificationService).sendNotificationToTokenChunks(any(), pushNotificationCaptor.capture(),
+                any(Consumer.class));
+        assertEquals(TITLE, pushNotificationCaptor.getValue().getTitle());
+        assertEquals(MESSAGE, pushNotificationCaptor.getValue().getBody());
+        verify(pushAudienceService, never()).reverse(any());
+    }
+
+    @Test
+    public void testCampaignWithReversedQueryResults() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        mockScroll();
+        when(pushAudienceService.reverse(any())).thenReturn(REVERSED_AUDIENCE);
+        when(pushAudienceService.streamPushTokenChunks(REVERSED_AUDIENCE))
+                .thenReturn(Stream.of(List.of(PUSH_TOKEN + 4, PUSH_TOKEN + 5)));
+        mockSend(createResult(2, 0));
+
+        PushCampaignStatusDTO status = awaitFinished(
+                pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, true).getJobId());
+
+        assertEquals(State.COMPLETED, status.getState());
+        assertEquals(0, status.getMatchedUsers());
+        assertEquals(2, status.getAudienceSize());
+        assertEquals(2, status.getSentCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCampaignWithoutPushTokensFails() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        mockScroll(List.of(USER_GUID));
+        mockAddToAudience();
+        when(pushAudienceService.streamPushTokenChunks(any())).thenReturn(Stream.empty());
+        mockSend();
+
+        PushCampaignStatusDTO status = awaitFinished(
+                pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId());
+
+        assertEquals(State.FAILED, status.getState());
+        assertNotNull(status.getError());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCampaignFailsWhenQueryFails() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        when(questionnaireQueryService.scrollInQuestionnaire(eq(questionnaireQuery), any()))
+                .thenThrow(new QueryExecuteException("Cannot read data from elastic"));
+
+        PushCampaignStatusDTO status = awaitFinished(
+                pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId());
+
+        assertEquals(State.FAILED, status.getState());
+        assertEquals("Cannot read data from elastic", status.getError());
+        verify(pushNotificationService, never()).sendNotificationToTokenChunks(any(), any(), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelRunningCampaign() throws InterruptedException {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        CountDownLatch scrolling = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        blockScroll(scrolling, cancelled);
+
+        String jobId = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+        assertTrue(scrolling.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(State.CANCELLING, pushCampaignService.cancel(jobId).getState());
+        cancelled.countDown();
+
+        assertEquals(State.CANCELLED, awaitFinished(jobId).getState());
+        verify(pushAudienceService, never()).addToAudience(any(), any());
+        verify(pushNotificationService, never()).sendNotificationToTokenChunks(any(), any(), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelStopsSendingRemainingChunks() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        mockScroll(List.of(USER_GUID));
+        mockAddToAudience();
+        when(pushAudienceService.streamPushTokenChunks(any()))
+                .thenReturn(Stream.of(List.of(PUSH_TOKEN + 1), List.of(PUSH_TOKEN + 2), List.of(PUSH_TOKEN + 3)));
+        String[] jobId = new String[1];
+        doAnswer(invocation -> {
+            Stream<List<String>> pushTokenChunks = invocation.getArgument(0);
+            Consumer<PushNotificationResultDTO> chunkResultConsumer = invocation.getArgument(2);
+            // The job is cancelled while its first chunk is being sent.
+            List<List<String>> sentChunks = pushTokenChunks
+                    .peek(pushTokens -> pushCampaignService.cancel(jobId[0]))
+                    .peek(pushTokens -> chunkResultConsumer.accept(createResult(pushTokens.size(), 0)))
+                    .collect(Collectors.toList());
+            assertEquals(1, sentChunks.size());
+            return createResult(1, 0);
+        }).when(pushNotificationService).sendNotificationToTokenChunks(any(), any(), any(Consumer.class));
+
+        synchronized (pushCampaignService) {
+            jobId[0] = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+        }
+        PushCampaignStatusDTO status = awaitFinished(jobId[0]);
+
+        assertEquals(State.CANCELLED, status.getState());
+        assertEquals(1, status.getResolvedTokens());
+        assertEquals(1, status.getSentCount());
+    }
+
+    @Test
+    public void testCancelQueuedCampaign() throws InterruptedException {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+        CountDownLatch scrolling = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        blockScroll(scrolling, cancelled);
+
+        String runningJobId = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+        assertTrue(scrolling.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS));
+        PushCampaignStatusDTO queued = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false);
+        assertEquals(State.QUEUED, queued.getState());
+
+        PushCampaignStatusDTO status = pushCampaignService.cancel(queued.getJobId());
+        assertEquals(State.CANCELLED, status.getState());
+        assertNotNull(status.getFinishedAt());
+        pushCampaignService.cancel(runningJobId);
+        cancelled.countDown();
+
+        assertEquals(State.CANCELLED, awaitFinished(runningJobId).getState());
+        assertEquals(State.CANCELLED, pushCampaignService.getStatus(queued.getJobId()).getState());
+        verify(questionnaireQueryService, times(1)).scrollInQuestionnaire(eq(questionnaireQuery), any());
+    }
+
+    @Test
+    public void testSubmitIsRejectedWhenQueueIsFull() throws InterruptedException {
+        createService(0, HISTORY_SIZE);
+        CountDownLatch scrolling = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        blockScroll(scrolling, cancelled);
+
+        String runningJobId = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+        assertTrue(scrolling.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS));
+        try {
+            assertThrows(PushCampaignQueueFullException.class,
+                    () -> pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false));
+        } finally {
+            pushCampaignService.cancel(runningJobId);
+            cancelled.countDown();
+        }
+        assertEquals(State.CANCELLED, awaitFinished(runningJobId).getState());
+    }
+
+    @Test
+    public void testFinishedCampaignsAreEvicted() {
+        createService(QUEUE_CAPACITY, 1);
+        when(questionnaireQueryService.scrollInQuestionnaire(eq(questionnaireQuery), any()))
+                .thenThrow(new QueryExecuteException("Cannot read data from elastic"));
+
+        String firstJobId = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+        awaitFinished(firstJobId);
+        String secondJobId = pushCampaignService.submit(questionnaireQuery, TITLE, MESSAGE, false).getJobId();
+
+        assertThrows(NoSuchElementException.class, () -> pushCampaignService.getStatus(firstJobId));
+        assertEquals(State.FAILED, awaitFinished(secondJobId).getState());
+    }
+
+    @Test
+    public void testUnknownCampaign() {
+        createService(QUEUE_CAPACITY, HISTORY_SIZE);
+
+        assertThrows(NoSuchElementException.class, () -> pushCampaignService.getStatus("unknown"));
+        assertThrows(NoSuchElementException.class, () -> pushCampaignService.cancel("unknown"));
+    }
+
+    private void createService(final int queueCapacity, final int historySize) {
+        pushCampaignService = new PushCampaignServiceImpl(questionnaireQueryService, pushAudienceService,
+                pushNotificationService, Clock.systemUTC(), PARALLELISM, queueCapacity, historySize);
+    }
+
+    @SafeVarargs
+    private void mockScroll(final List<String>... pages) {
+        when(questionnaireQueryService.scrollInQuestionnaire(eq(questionnaireQuery), any())).thenAnswer(invocation -> {
+            Consumer<List<String>> pageConsumer = invocation.getArgument(1);
+            Stream.of(pages).forEach(pageConsumer);
+            return Stream.of(pages).mapToLong(List::size).sum();
+        });
+    }
+
+    private void blockScroll(final CountDownLatch scrolling, final CountDownLatch cancelled) {
+        when(questionnaireQueryService.scrollInQuestionnaire(eq(questionnaireQuery), any())).thenAnswer(invocation -> {
+            scrolling.countDown();
+            assertTrue(cancelled.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS));
+            Consumer<List<String>> pageConsumer = invocation.getArgument(1);
+            pageConsumer.accept(List.of(USER_GUID));
+            return 1L;
+        });
+    }
+
+    private void mockAddToAudience() {
+        doAnswer(invocation -> {
+            AudienceBitmap.Builder audience = invocation.getArgument(0);
+            Collection<String> userGuids = invocation.getArgument(1);
+            assertTrue(userGuids.size() > 0);
+            AUDIENCE.forEach(audience::add);
+            return null;
+        }).when(pushAudienceService).addToAudience(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockSend(final PushNotificationResultDTO... chunkResults) {
+        doAnswer(invocation -> {
+            Stream<List<String>> pushTokenChunks = invocation.getArgument(0);
+            Consumer<PushNotificationResultDTO> chunkResultConsumer = invocation.getArgument(2);
+            assertEquals(chunkResults.length, pushTokenChunks.collect(Collectors.toList()).size());
+            Stream.of(chunkResults).forEach(chunkResultConsumer);
+            PushNotificationResultDTO result = createResult(
+                    Stream.of(chunkResults).mapToLong(PushNotificationResultDTO::getSuccessCount).sum(),
+                    Stream.of(chunkResults).mapToLong(PushNotificationResultDTO::getFailureCount).sum());
+            result.setPrunedCount(result.getDeadTokenCount());
+            return result;
+        }).when(pushNotificationService).sendNotificationToTokenChunks(any(), any(), any(Consumer.class));
+    }
+
+    private static PushNotificationResultDTO createResult(final long successCount, final long failureCount) {
+        return PushNotificationResultDTO.builder()
+                .successCount(successCount)
+                .failureCount(failureCount)
+                .chunkCount(1)
+                .errorCodes(failureCount > 0 ? Map.of(TEST_ERROR_CODE, failureCount) : Map.of())
+                .deadTokenCount(failureCount)
+                .build();
+    }
+
+    private PushCampaignStatusDTO awaitFinished(final String jobId) {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            PushCampaignStatusDTO status = pushCampaignService.getStatus(jobId);
+            if (status.getState() != State.QUEUED && status.getState() != State.RUNNING
+                    && status.getState() != State.CANCELLING) {
+                return status;
+            }
+            Thread.onSpinWait();
+        }
+        return fail("Push campaign did not finish in time");
+    }
+}
@@ -1,23 +1,25 @@
 package io.virusafe.service.notification;
 
-import io.virusafe.domain.query.QuestionnaireQuery;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import io.virusafe.exception.PushNotificationException;
 import io.virusafe.service.pushnotification.PushNotificationService;
-import io.virusafe.service.query.QuestionnaireQueryService;
-import io.virusafe.service.userdetails.UserDetailsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.mock;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -29,75 +31,78 @@ public class PushNotificationSenderServiceTest {
     private static final String TITLE = "title";
     private static final String TEST_USER_GUID = "testUserGuid";
     private static final String TEST_PUSH_TOKEN = "testPushToken";
+    private static final String TEST_ERROR_CODE = "testErrorCode";
+    private static final AudienceBitmap AUDIENCE = AudienceBitmap.ofIds(1);
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private PushAudienceService pushAudienceService;
 
     @Mock
     private PushNotificationService pushNotificationService;
 
-    @Mock
-    private QuestionnaireQueryService questionnaireQueryService;
-
     private PushNotificationSenderService pushNotificationSenderService;
 
     @BeforeEach
     public void setUpTests() {
-        pushNotificationSenderService = new PushNotificationSenderServiceImpl(userDetailsService,
-                pushNotificationService, questionnaireQueryService);
+        pushNotificationSenderService = new PushNotificationSenderServiceImpl(pushAudienceService,
+                pushNotificationService);
     }
 
     @Test
-    public void sendCustomPushNotificationsTest() {
-        QuestionnaireQuery mockQuestionnaireQuery = mock(QuestionnaireQuery.class);
-
-        when(questionnaireQueryService.searchInQuestionnaire(mockQuestionnaireQuery))
-                .thenReturn(Set.of(TEST_USER_GUID));
-        when(userDetailsService.findPushTokensForUserGuids(Set.of(TEST_USER_GUID), true)).thenReturn(Set.of(TEST_PUSH_TOKEN));
-        pushNotificationSenderService.sendCustomPushNotifications(mockQuestionnaireQuery, TITLE, MESSAGE, true);
-        verify(questionnaireQueryService, times(1)).searchInQuestionnaire(mockQuestionnaireQuery);
-        verify(userDetailsService, times(1)).findPushTokensForUserGuids(Set.of(TEST_USER_GUID), true);
-        verify(pushNotificationService, times(1)).sendNotificationToTokens(any(), any());
+    public void sendCustomNotificationsToConcreteUsersTest() {
+        Stream<List<String>> pushTokenChunks = Stream.of(List.of(TEST_PUSH_TOKEN));
+        when(pushAudienceService.findAudience(Set.of(TEST_USER_GUID))).thenReturn(AUDIENCE);
+        when(pushAudienceService.streamPushTokenChunks(AUDIENCE)).thenReturn(pushTokenChunks);
+        when(pushNotificationService.sendNotificationToTokenChunks(same(pushTokenChunks), any()))
+                .thenReturn(createResult(1, 0));
+        pushNotificationSenderService.sendNotificationsForConcreteUsers(Set.of(TEST_USER_GUID), TITLE, MESSAGE);
+
+        verify(pushAudienceService, never()).reverse(any());
+        verify(pushAudienceService, times(1)).streamPushTokenChunks(AUDIENCE);
+        verify(pushNotificationService, times(1)).sendNotificationToTokenChunks(same(pushTokenChunks), any());
     }
 
     @Test
-    public void sendCustomPushNotificationsTest_searchInQuestionnaireEmptySet() {
-        QuestionnaireQuery mockQuestionnaireQuery = mock(QuestionnaireQuery.class);
-
-        when(questionnaireQueryService.searchInQuestionnaire(mockQuestionnaireQuery))
-                .thenReturn(emptySet());
+    public void sendCustomNotificationsToConcreteUsersTest_emptySet() {
         assertThrows(PushNotificationException.class, () ->
-                pushNotificationSenderService.sendCustomPushNotifications(mockQuestionnaireQuery, TITLE, MESSAGE, false));
+                pushNotificationSenderService.sendNotificationsForConcreteUsers(emptySet(), TITLE, MESSAGE));
+        verify(pushNotificationService, never()).sendNotificationToTokenChunks(any(), any());
     }
 
     @Test
-    public void sendCustomPushNotificationsTest_findPushTokensForUserGuidsEmptySet() {
-        QuestionnaireQuery mockQuestionnaireQuery = mock(QuestionnaireQuery.class);
-
-        when(questionnaireQueryService.searchInQuestionnaire(mockQuestionnaireQuery))
-                .thenReturn(Set.of(TEST_USER_GUID));
-        when(userDetailsService.findPushTokensForUserGuids(Set.of(TEST_USER_GUID), true)).thenReturn(emptySet());
+    public void sendCustomNotificationsToConcreteUsersTest_noPushTokens() {
+        when(pushAudienceService.findAudience(Set.of(TEST_USER_GUID))).thenReturn(AUDIENCE);
+        when(pushAudienceService.streamPushTokenChunks(AUDIENCE)).thenReturn(Stream.empty());
+        when(pushNotificationService.sendNotificationToTokenChunks(any(), any())).thenReturn(createResult(0, 0));
         assertThrows(PushNotificationException.class, () -> pushNotificationSenderService
-                .sendCustomPushNotifications(mockQuestionnaireQuery, TITLE, MESSAGE, true));
+                .sendNotificationsForConcreteUsers(Set.of(TEST_USER_GUID), TITLE, MESSAGE));
     }
 
     @Test
-    public void sendCustomPushNotificationsTest_searchInQuestionnaireEmptySetButNotIn() {
-        QuestionnaireQuery mockQuestionnaireQuery = mock(QuestionnaireQuery.class);
-
-        when(questionnaireQueryService.searchInQuestionnaire(mockQuestionnaireQuery)).thenReturn(emptySet());
-        when(userDetailsService.findPushTokensForUserGuids(emptySet(), true)).thenReturn(Set.of(TEST_PUSH_TOKEN));
-        doThrow(PushNotificationException.class).when(pushNotificationService).sendNotificationToTokens(any(), any());
+    public void sendCustomNotificationsToConcreteUsersTest_allFailed() {
+        when(pushAudienceService.findAudience(Set.of(TEST_USER_GUID))).thenReturn(AUDIENCE);
+        when(pushAudienceService.streamPushTokenChunks(AUDIENCE)).thenReturn(Stream.of(List.of(TEST_PUSH_TOKEN)));
+        when(pushNotificationService.sendNotificationToTokenChunks(any(), any())).thenReturn(createResult(0, 1));
         assertThrows(PushNotificationException.class, () -> pushNotificationSenderService
-                .sendCustomPushNotifications(mockQuestionnaireQuery, TITLE, MESSAGE, true));
+                .sendNotificationsForConcreteUsers(Set.of(TEST_USER_GUID), TITLE, MESSAGE));
     }
 
     @Test
-    public void sendCustomNotificationsToConcreteUsersTest() {
-        when(userDetailsService.findPushTokensForUserGuids(Set.of(TEST_USER_GUID), false)).thenReturn(Set.of(TEST_USER_GUID));
-        pushNotificationSenderService.sendNotificationsForConcreteUsers(Set.of(TEST_USER_GUID), TITLE, MESSAGE);
+    public void sendCustomNotificationsToConcreteUsersTest_partialFailureIsNotAnError() {
+        when(pushAudienceService.findAudience(Set.of(TEST_USER_GUID))).thenReturn(AUDIENCE);
+        when(pushAudienceService.streamPushTokenChunks(AUDIENCE))
+                .thenReturn(Stream.of(List.of("token1", "token2"), List.of("token3")));
+        when(pushNotificationService.sendNotificationToTokenChunks(any(), any())).thenReturn(createResult(2, 1));
+
+        assertDoesNotThrow(() -> pushNotificationSenderService
+                .sendNotificationsForConcreteUsers(Set.of(TEST_USER_GUID), TITLE, MESSAGE));
+    }
 
-        verify(userDetailsService, times(1)).findPushTokensForUserGuids(Set.of(TEST_USER_GUID), false);
-        verify(pushNotificationService, times(1)).sendNotificationToTokens(any(), any());
+    private static PushNotificationResultDTO createResult(final long successCount, final long failureCount) {
+        return PushNotificationResultDTO.builder()
+                .successCount(successCount)
+                .failureCount(failureCount)
+                .errorCodes(failureCount > 0 ? Map.of(TEST_ERROR_CODE, failureCount) : Map.of())
+                .build();
     }
 }
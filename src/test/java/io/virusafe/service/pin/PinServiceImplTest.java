@@ -1,7 +1,7 @@
 package io.virusafe.service.pin;
 
-import io.virusafe.domain.entity.RegistrationPin;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.repository.RegistrationPinRepository;
 import io.virusafe.service.pin.generator.PinGenerator;
 import io.virusafe.service.sms.SMSService;
 import io.virusafe.service.userdetails.UserDetailsService;
@@ -17,13 +17,15 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.NoSuchElementException;
 import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,16 +35,24 @@ class PinServiceImplTest {
 
     private static final long PIN_VALID_TIME = 5L;
     private static final String VALIDATION_PHONE_NUMBER = "VALIDATION_PHONE_NUMBER";
-    private static final long PIN_VALID_AMOUNT = 1L;
+    private static final long PIN_VALID_AMOUNT = 2L;
     private static final String PHONE_NUMBER = "PHONE_NUMBER";
     private static final String PIN = "PIN";
+    private static final String DEFAULT_PIN = "000000";
+    private static final Long USER_ID = 1L;
+    private static final Long NEWEST_PIN_ID = 3L;
+    private static final Long OLDER_PIN_ID = 2L;
+    private static final Long OLDEST_PIN_ID = 1L;
     private final Clock systemClock = Clock.fixed(
             Instant.parse("2020-09-05T00:00:00.00Z"),
             ZoneId.of("UTC")
     );
+    private final LocalDateTime timeNow = LocalDateTime.now(systemClock);
     @Mock
     private UserDetailsService userDetailsService;
     @Mock
+    private RegistrationPinRepository registrationPinRepository;
+    @Mock
     private PinGenerator pinGenerator;
     @Mock
     private SMSService smsService;
@@ -51,45 +61,65 @@ class PinServiceImplTest {
 
     @BeforeEach
     public void setUp() {
-        pinService = new PinServiceImpl(userDetailsService, pinGenerator, smsService, PIN_VALID_TIME,
-                VALIDATION_PHONE_NUMBER, PIN_VALID_AMOUNT, systemClock);
+        pinService = new PinServiceImpl(userDetailsService, registrationPinRepository, pinGenerator, smsService,
+                PIN_VALID_TIME, VALIDATION_PHONE_NUMBER, PIN_VALID_AMOUNT, systemClock);
     }
 
     @Test
     public void testGeneratePin() {
-        RegistrationPin validRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock).plusMinutes(1L))
-                .build();
-        RegistrationPin expiredRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock).minusMinutes(1L))
-                .build();
-        RegistrationPin invalidRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .build();
-        UserDetails existingUser = UserDetails.builder()
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Arrays.asList(validRegistrationPin, expiredRegistrationPin, invalidRegistrationPin))
-                .build();
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(existingUser));
+        when(userDetailsService.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
+        when(registrationPinRepository.findActivePinIdsByUserDetailsId(USER_ID, timeNow))
+                .thenReturn(Arrays.asList(NEWEST_PIN_ID, OLDER_PIN_ID, OLDEST_PIN_ID));
         when(pinGenerator.generatePin()).thenReturn(PIN);
+
         pinService.generatePin(PHONE_NUMBER);
+
+        // Only the newest active PIN is kept, so that there are at most PIN_VALID_AMOUNT active PINs.
+        verify(registrationPinRepository, times(1))
+                .expirePinsByIdIn(Arrays.asList(OLDER_PIN_ID, OLDEST_PIN_ID), timeNow);
+        verify(registrationPinRepository, times(1))
+                .insertPin(USER_ID, PIN, timeNow.plusMinutes(PIN_VALID_TIME));
+        verify(userDetailsService, never()).save(any());
         verify(smsService, times(1)).sendPinCreationMessage(PHONE_NUMBER, PIN);
     }
 
+    @Test
+    public void testGeneratePinDoesntExpirePinsBelowLimit() {
+        when(userDetailsService.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
+        when(registrationPinRepository.findActivePinIdsByUserDetailsId(USER_ID, timeNow))
+                .thenReturn(Collections.singletonList(NEWEST_PIN_ID));
+        when(pinGenerator.generatePin()).thenReturn(PIN);
+
+        pinService.generatePin(PHONE_NUMBER);
+
+        verify(registrationPinRepository, never()).expirePinsByIdIn(anyList(), any());
+        verify(registrationPinRepository, times(1))
+                .insertPin(USER_ID, PIN, timeNow.plusMinutes(PIN_VALID_TIME));
+    }
+
     @Test
     public void testGeneratePinForMissingUser() {
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
+        when(userDetailsService.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            invocation.<UserDetails>getArgument(0).setId(USER_ID);
+            return null;
+        }).when(userDetailsService).save(any(UserDetails.class));
         when(pinGenerator.generatePin()).thenReturn(PIN);
+
         pinService.generatePin(PHONE_NUMBER);
+
+        verify(userDetailsService, times(1)).save(any(UserDetails.class));
+        verify(registrationPinRepository, times(1))
+                .insertPin(USER_ID, PIN, timeNow.plusMinutes(PIN_VALID_TIME));
         verify(smsService, times(1)).sendPinCreationMessage(PHONE_NUMBER, PIN);
     }
 
     @Test
     public void testGeneratePinForStoreValidationUser() {
-        when(userDetailsService.findByPhoneNumber(VALIDATION_PHONE_NUMBER)).thenReturn(Optional.empty());
+        when(userDetailsService.findIdByPhoneNumber(VALIDATION_PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
         pinService.generatePin(VALIDATION_PHONE_NUMBER);
+        verify(registrationPinRepository, times(1))
+                .insertPin(USER_ID, DEFAULT_PIN, timeNow.plusMinutes(PIN_VALID_TIME));
         // Verify we won't send an SMS for the validation number
         verify(smsService, times(0)).sendPinCreationMessage(
                 eq(VALIDATION_PHONE_NUMBER), any());
@@ -97,56 +127,29 @@ class PinServiceImplTest {
 
     @Test
     public void testVerifyPin() {
-        RegistrationPin registrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock).plusMinutes(PIN_VALID_TIME))
-                .build();
-        UserDetails userDetails = UserDetails.builder()
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Collections.singletonList(registrationPin))
-                .build();
-        when(userDetailsService.findByPhoneNumberAndValidPin(PHONE_NUMBER, PIN, LocalDateTime.now(systemClock)))
-                .thenReturn(Optional.of(userDetails));
-        assertTrue(pinService.verifyPin(PHONE_NUMBER, PIN));
+        when(registrationPinRepository.existsValidPinByUserDetailsId(USER_ID, PIN, timeNow)).thenReturn(true);
+        assertTrue(pinService.verifyPin(USER_ID, PIN));
     }
 
     @Test
-    public void testInvalidatePins() {
-        RegistrationPin validRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock).plusMinutes(1L))
-                .build();
-        RegistrationPin expiredRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock).minusMinutes(1L))
-                .build();
-        RegistrationPin invalidRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .build();
-        UserDetails existingUser = UserDetails.builder()
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Arrays.asList(validRegistrationPin, expiredRegistrationPin, invalidRegistrationPin))
-                .build();
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(existingUser));
-
-        pinService.invalidatePins(PHONE_NUMBER);
-
-        RegistrationPin invalidatedRegistrationPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(LocalDateTime.now(systemClock))
-                .build();
-        UserDetails expectedUser = UserDetails.builder()
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Arrays.asList(invalidatedRegistrationPin,
-                        expiredRegistrationPin, invalidRegistrationPin))
-                .build();
-        verify(userDetailsService, times(1)).save(expectedUser);
+    public void testVerifyPinFailsWithoutValidPin() {
+        when(registrationPinRepository.existsValidPinByUserDetailsId(USER_ID, PIN, timeNow)).thenReturn(false);
+        assertFalse(pinService.verifyPin(USER_ID, PIN));
     }
 
+    @Test
+    public void testInvalidatePins() {
+        when(registrationPinRepository.expireActivePinsByUserDetailsId(USER_ID, timeNow)).thenReturn(2);
+
+        assertTrue(pinService.invalidatePins(USER_ID));
+
+        verify(userDetailsService, never()).findIdByPhoneNumber(any());
+        verify(userDetailsService, never()).save(any());
+    }
 
     @Test
-    public void testInvalidatePinsThrowsExceptionForMissingUser() {
-        when(userDetailsService.findByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.empty());
-        assertThrows(NoSuchElementException.class, () -> pinService.invalidatePins(PHONE_NUMBER));
+    public void testInvalidatePinsWithoutActivePins() {
+        when(registrationPinRepository.expireActivePinsByUserDetailsId(USER_ID, timeNow)).thenReturn(0);
+        assertFalse(pinService.invalidatePins(USER_ID));
     }
-}
\ No newline at end of file
+}
@@ -2,20 +2,26 @@ package io.virusafe.service.pushnotification;
 
 import ch.qos.logback.classic.Level;
 import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class LogOnlyPushNotificationServiceTest {
 
     private static final String TEST_TOKEN = "testToken";
+    private static final String TEST_TOKEN_1 = "testToken1";
     private static final String MESSAGE_TITLE = "messageTitle";
     private static final String MESSAGE_BODY = "messageBody";
     private static final String TEST_TOPIC = "testTopic";
     private static final String EXPECTED_SEND_NOTIFICATION_TO_TOKEN = "LogOnly sendNotificationToTokens push notifications pushTokens [testToken] and messageData PushNotificationDTO(title=messageTitle, body=messageBody, imageUrl=null)";
+    private static final String EXPECTED_SEND_NOTIFICATION_TO_TOKEN_CHUNK = "LogOnly sendNotificationToTokenChunks push notifications pushTokens [testToken, testToken1] and messageData PushNotificationDTO(title=messageTitle, body=messageBody, imageUrl=null)";
     private static final String EXPECTED_SEND_NOTIFICATION_TO_TOPIC = "LogOnly sendNotificationToTopic push notifications topic testTopic and messageData PushNotificationDTO(title=messageTitle, body=messageBody, imageUrl=null)";
     private static final String EXPECTED_SUBSCRIBE_USER_TO_TOPIC = "LogOnly subscribeUserToTopic push notifications topic testTopic and pushTokens [testToken]";
 
@@ -24,8 +30,36 @@ class LogOnlyPushNotificationServiceTest {
         PushNotificationService pushNotificationService = new LogOnlyPushNotificationService();
         LogCaptor<LogOnlyPushNotificationService> logCaptor = LogCaptor.forClass(LogOnlyPushNotificationService.class);
 
-        pushNotificationService.sendNotificationToTokens(Set.of(TEST_TOKEN), createMockPushNotificationDTO());
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokens(Set.of(TEST_TOKEN),
+                createMockPushNotificationDTO());
         assertEquals(EXPECTED_SEND_NOTIFICATION_TO_TOKEN, logCaptor.getLogs(Level.INFO).get(0));
+        assertEquals(1, result.getSuccessCount());
+    }
+
+    @Test
+    void sendNotificationToTokenChunks() {
+        PushNotificationService pushNotificationService = new LogOnlyPushNotificationService();
+        LogCaptor<LogOnlyPushNotificationService> logCaptor = LogCaptor.forClass(LogOnlyPushNotificationService.class);
+
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(List.of(TEST_TOKEN, TEST_TOKEN_1), List.of(TEST_TOKEN)), createMockPushNotificationDTO());
+        assertEquals(EXPECTED_SEND_NOTIFICATION_TO_TOKEN_CHUNK, logCaptor.getLogs(Level.INFO).get(0));
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(0, result.getFailureCount());
+        assertEquals(2, result.getChunkCount());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksReportsChunkResults() {
+        PushNotificationService pushNotificationService = new LogOnlyPushNotificationService();
+        List<PushNotificationResultDTO> chunkResults = new ArrayList<>();
+
+        pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(List.of(TEST_TOKEN, TEST_TOKEN_1), List.of(TEST_TOKEN)), createMockPushNotificationDTO(),
+                chunkResults::add);
+        assertEquals(2, chunkResults.size());
+        assertEquals(2, chunkResults.get(0).getSuccessCount());
+        assertEquals(1, chunkResults.get(1).getSuccessCount());
     }
 
     private PushNotificationDTO createMockPushNotificationDTO() {
@@ -29,13 +29,15 @@ class PushNotificationServiceImpIntegrationlTest {
     private static final String MESSAGE_TITLE = "messageTitle";
     private static final String MESSAGE_BODY = "messageBody";
     private static final String VIRUSAFE_DEV_FIREBASE_ADMINSDK_JSON = "firebase-adminsdk.json";
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
 
 
     private PushNotificationServiceImpl pushNotificationService;
 
     @BeforeEach
     public void setUp() throws IOException {
-        pushNotificationService = new PushNotificationServiceImpl(createFirebaseMessaging());
+        pushNotificationService = new PushNotificationServiceImpl(createFirebaseMessaging(), pushTokens -> 0,
+                MAX_CONCURRENT_REQUESTS);
     }
 
     @Test
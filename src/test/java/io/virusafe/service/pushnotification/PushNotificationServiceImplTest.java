@@ -1,5 +1,7 @@
 package io.virusafe.service.pushnotification;
 
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
@@ -7,6 +9,7 @@ import com.google.firebase.messaging.MulticastMessage;
 import com.google.firebase.messaging.SendResponse;
 import com.google.firebase.messaging.TopicManagementResponse;
 import io.virusafe.domain.dto.PushNotificationDTO;
+import io.virusafe.domain.dto.PushNotificationResultDTO;
 import io.virusafe.exception.PushNotificationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,14 +18,26 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,34 +49,46 @@ class PushNotificationServiceImplTest {
     private static final String MESSAGE_TITLE = "messageTitle";
     private static final String MESSAGE_BODY = "messageBody";
     private static final String TEST_ERROR_CODE = "testErrorCode";
+    private static final String UNREGISTERED_ERROR_CODE = "registration-token-not-registered";
+    private static final String INVALID_ARGUMENT_ERROR_CODE = "invalid-argument";
     private static final String TEST_TOPIC = "testTopic";
     private static final String TEST_REASON = "testReason";
+    private static final int MAX_MULTICAST_TOKENS = 500;
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
 
     @Mock
     private FirebaseMessaging firebaseMessaging;
 
+    @Mock
+    private PushTokenPruningService pushTokenPruningService;
+
     private PushNotificationServiceImpl pushNotificationService;
 
     @BeforeEach
     public void setUp() {
-        pushNotificationService = new PushNotificationServiceImpl(firebaseMessaging);
+        pushNotificationService = new PushNotificationServiceImpl(firebaseMessaging, pushTokenPruningService,
+                MAX_CONCURRENT_REQUESTS);
     }
 
     @Test
-    void sendNotificationToTokens() throws FirebaseMessagingException {
+    void sendNotificationToTokens() {
         BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getSuccessCount()).thenReturn(1);
         when(mockedBatchResponse.getFailureCount()).thenReturn(0);
-        when(firebaseMessaging.sendMulticast(any())).thenReturn(mockedBatchResponse);
-        pushNotificationService
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
+        PushNotificationResultDTO result = pushNotificationService
                 .sendNotificationToTokens(Set.of(PUSH_TOKEN),
                         createMockPushNotificationDTO());
         ArgumentCaptor<MulticastMessage> captotMulticastMessage = ArgumentCaptor.forClass(MulticastMessage.class);
-        verify(firebaseMessaging, times(1)).sendMulticast(captotMulticastMessage.capture());
+        verify(firebaseMessaging, times(1)).sendMulticastAsync(captotMulticastMessage.capture());
         assertNotNull(captotMulticastMessage.getValue());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(0, result.getFailureCount());
+        assertEquals(1, result.getChunkCount());
     }
 
     @Test
-    void sendNotificationToTokensProviderReturnBadRequest() throws FirebaseMessagingException {
+    void sendNotificationToTokensProviderReturnBadRequest() {
         BatchResponse mockedBatchResponse = mock(BatchResponse.class);
         when(mockedBatchResponse.getFailureCount()).thenReturn(1);
         SendResponse mockedSendResponse = mock(SendResponse.class);
@@ -70,7 +97,7 @@ class PushNotificationServiceImplTest {
         when(mockedSendResponse.getException()).thenReturn(mockedException);
         when(mockedBatchResponse.getResponses()).thenReturn(Collections.singletonList(mockedSendResponse));
 
-        when(firebaseMessaging.sendMulticast(any())).thenReturn(mockedBatchResponse);
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
         PushNotificationException exceptionThrown = assertThrows(PushNotificationException.class,
                 () -> pushNotificationService
                         .sendNotificationToTokens(Set.of(PUSH_TOKEN),
@@ -80,14 +107,239 @@ class PushNotificationServiceImplTest {
     }
 
     @Test
-    void sendNotificationToTokensProviderThrowException() throws FirebaseMessagingException {
-        when(firebaseMessaging.sendMulticast(any())).thenThrow(FirebaseMessagingException.class);
+    void sendNotificationToTokensProviderThrowException() {
+        when(firebaseMessaging.sendMulticastAsync(any()))
+                .thenReturn(ApiFutures.immediateFailedFuture(mock(FirebaseMessagingException.class)));
         assertThrows(PushNotificationException.class,
                 () -> pushNotificationService
                         .sendNotificationToTokens(Set.of(PUSH_TOKEN),
                                 createMockPushNotificationDTO()));
     }
 
+    @Test
+    void sendNotificationToTokensReportsPartialFailure() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getSuccessCount()).thenReturn(MAX_MULTICAST_TOKENS);
+        FirebaseMessagingException mockedException = mock(FirebaseMessagingException.class);
+        when(mockedException.getErrorCode()).thenReturn(TEST_ERROR_CODE);
+        when(firebaseMessaging.sendMulticastAsync(any()))
+                .thenReturn(ApiFutures.immediateFuture(mockedBatchResponse))
+                .thenReturn(ApiFutures.immediateFailedFuture(mockedException));
+
+        PushNotificationResultDTO result = pushNotificationService
+                .sendNotificationToTokens(createPushTokens(MAX_MULTICAST_TOKENS + 1), createMockPushNotificationDTO());
+        assertEquals(MAX_MULTICAST_TOKENS, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(2, result.getChunkCount());
+        assertEquals(1, result.getFailedChunkCount());
+        assertEquals(Map.of(TEST_ERROR_CODE, 1L), result.getErrorCodes());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksSplitsMulticastMessages() {
+        FirebaseMessagingException mockedException = mock(FirebaseMessagingException.class);
+        when(mockedException.getErrorCode()).thenReturn(TEST_ERROR_CODE);
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFailedFuture(mockedException));
+
+        List<String> pushTokens = new ArrayList<>(createPushTokens(2 * MAX_MULTICAST_TOKENS + 1));
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(pushTokens, List.of(PUSH_TOKEN)), createMockPushNotificationDTO());
+
+        // Chunks over the Firebase limit are split, smaller ones are sent as they are.
+        verify(firebaseMessaging, times(4)).sendMulticastAsync(any());
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(2 * MAX_MULTICAST_TOKENS + 2, result.getFailureCount());
+        assertEquals(4, result.getFailedChunkCount());
+        assertEquals(Map.of(TEST_ERROR_CODE, 2L * MAX_MULTICAST_TOKENS + 2), result.getErrorCodes());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksReportsChunkResults() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getSuccessCount()).thenReturn(1);
+        when(mockedBatchResponse.getFailureCount()).thenReturn(1);
+        SendResponse mockedSuccessResponse = mock(SendResponse.class);
+        when(mockedSuccessResponse.isSuccessful()).thenReturn(true);
+        SendResponse mockedFailureResponse = mock(SendResponse.class);
+        FirebaseMessagingException mockedException = mock(FirebaseMessagingException.class);
+        when(mockedException.getErrorCode()).thenReturn(TEST_ERROR_CODE);
+        when(mockedFailureResponse.getException()).thenReturn(mockedException);
+        when(mockedBatchResponse.getResponses()).thenReturn(List.of(mockedSuccessResponse, mockedFailureResponse));
+        when(firebaseMessaging.sendMulticastAsync(any()))
+                .thenReturn(ApiFutures.immediateFuture(mockedBatchResponse))
+                .thenReturn(ApiFutures.immediateFailedFuture(mockedException));
+
+        List<PushNotificationResultDTO> chunkResults = new ArrayList<>();
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(List.of(PUSH_TOKEN, PUSH_TOKEN + 1), List.of(PUSH_TOKEN + 2)),
+                createMockPushNotificationDTO(), chunkResults::add);
+
+        assertEquals(2, chunkResults.size());
+        assertEquals(1, chunkResults.get(0).getSuccessCount());
+        assertEquals(1, chunkResults.get(0).getFailureCount());
+        assertEquals(0, chunkResults.get(0).getFailedChunkCount());
+        assertEquals(Map.of(TEST_ERROR_CODE, 1L), chunkResults.get(0).getErrorCodes());
+        assertEquals(0, chunkResults.get(1).getSuccessCount());
+        assertEquals(1, chunkResults.get(1).getFailureCount());
+        assertEquals(1, chunkResults.get(1).getFailedChunkCount());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(2, result.getFailureCount());
+        assertEquals(Map.of(TEST_ERROR_CODE, 2L), result.getErrorCodes());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksPrunesDeadTokens() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getSuccessCount()).thenReturn(1);
+        when(mockedBatchResponse.getFailureCount()).thenReturn(3);
+        List<SendResponse> sendResponses = List.of(createFailedResponse(UNREGISTERED_ERROR_CODE),
+                createSuccessfulResponse(), createFailedResponse(INVALID_ARGUMENT_ERROR_CODE),
+                createFailedResponse(TEST_ERROR_CODE));
+        when(mockedBatchResponse.getResponses()).thenReturn(sendResponses);
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
+        when(pushTokenPruningService.pruneDeadTokens(List.of(PUSH_TOKEN + 0, PUSH_TOKEN + 2))).thenReturn(2);
+
+        List<PushNotificationResultDTO> chunkResults = new ArrayList<>();
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(List.of(PUSH_TOKEN + 0, PUSH_TOKEN + 1, PUSH_TOKEN + 2, PUSH_TOKEN + 3)),
+                createMockPushNotificationDTO(), chunkResults::add);
+
+        // Responses are matched to tokens by position, other errors may be temporary and keep their token.
+        assertEquals(2, chunkResults.get(0).getDeadTokenCount());
+        assertEquals(2, result.getDeadTokenCount());
+        assertEquals(2, result.getPrunedCount());
+        assertEquals(Map.of(UNREGISTERED_ERROR_CODE, 1L, INVALID_ARGUMENT_ERROR_CODE, 1L, TEST_ERROR_CODE, 1L),
+                result.getErrorCodes());
+    }
+
+    @Test
+    void sendNotificationToTokensKeepsTokensOfInvalidMessages() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getFailureCount()).thenReturn(2);
+        List<SendResponse> sendResponses = List.of(createFailedResponse(INVALID_ARGUMENT_ERROR_CODE),
+                createFailedResponse(INVALID_ARGUMENT_ERROR_CODE));
+        when(mockedBatchResponse.getResponses()).thenReturn(sendResponses);
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
+
+        // Every token failing as an invalid argument points at the message, not at the tokens.
+        assertThrows(PushNotificationException.class, () -> pushNotificationService
+                .sendNotificationToTokens(Set.of(PUSH_TOKEN, PUSH_TOKEN + 1), createMockPushNotificationDTO()));
+        verify(pushTokenPruningService, never()).pruneDeadTokens(any());
+    }
+
+    @Test
+    void sendNotificationToTokensPrunesUnregisteredTokenBeforeFailing() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getFailureCount()).thenReturn(1);
+        SendResponse unregisteredResponse = createFailedResponse(UNREGISTERED_ERROR_CODE);
+        when(mockedBatchResponse.getResponses()).thenReturn(List.of(unregisteredResponse));
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
+
+        assertThrows(PushNotificationException.class, () -> pushNotificationService
+                .sendNotificationToTokens(Set.of(PUSH_TOKEN), createMockPushNotificationDTO()));
+        verify(pushTokenPruningService).pruneDeadTokens(List.of(PUSH_TOKEN));
+    }
+
+    @Test
+    void sendNotificationToTokenChunksPrunesDeadTokensInBatches() {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getFailureCount()).thenReturn(MAX_MULTICAST_TOKENS);
+        SendResponse unregisteredResponse = createFailedResponse(UNREGISTERED_ERROR_CODE);
+        when(mockedBatchResponse.getResponses())
+                .thenReturn(Collections.nCopies(MAX_MULTICAST_TOKENS, unregisteredResponse));
+        when(firebaseMessaging.sendMulticastAsync(any())).thenReturn(ApiFutures.immediateFuture(mockedBatchResponse));
+        when(pushTokenPruningService.pruneDeadTokens(any())).thenReturn(MAX_MULTICAST_TOKENS);
+
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                Stream.of(new ArrayList<>(createPushTokens(2 * MAX_MULTICAST_TOKENS))), createMockPushNotificationDTO());
+
+        // Dead tokens are pruned as soon as a batch of them is collected, not only once everything is sent.
+        verify(pushTokenPruningService, times(2)).pruneDeadTokens(any());
+        assertEquals(2L * MAX_MULTICAST_TOKENS, result.getDeadTokenCount());
+        assertEquals(2L * MAX_MULTICAST_TOKENS, result.getPrunedCount());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksLimitsConcurrentRequests() throws InterruptedException {
+        BatchResponse mockedBatchResponse = mock(BatchResponse.class);
+        when(mockedBatchResponse.getSuccessCount()).thenReturn(1);
+        ExecutorService firebaseThreads = Executors.newCachedThreadPool();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        // Local stand-in for Firebase, completing every message on another thread a little later.
+        when(firebaseMessaging.sendMulticastAsync(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            SettableApiFuture<BatchResponse> future = SettableApiFuture.create();
+            firebaseThreads.execute(() -> {
+                sleep();
+                inFlight.decrementAndGet();
+                future.set(mockedBatchResponse);
+            });
+            return future;
+        });
+
+        try {
+            PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(
+                    IntStream.range(0, 10).mapToObj(chunk -> List.of(PUSH_TOKEN + chunk)),
+                    createMockPushNotificationDTO());
+            assertEquals(10, result.getSuccessCount());
+            assertEquals(10, result.getChunkCount());
+            assertEquals(0, inFlight.get());
+            assertEquals(MAX_CONCURRENT_REQUESTS, maxInFlight.get());
+        } finally {
+            firebaseThreads.shutdown();
+            assertTrue(firebaseThreads.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void sendNotificationToTokenChunksWithoutTokens() {
+        PushNotificationResultDTO result = pushNotificationService.sendNotificationToTokenChunks(Stream.empty(),
+                mock(PushNotificationDTO.class));
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(0, result.getChunkCount());
+        verify(firebaseMessaging, never()).sendMulticastAsync(any());
+    }
+
+    @Test
+    void sendNotificationToTokenChunksInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(PushNotificationException.class, () -> pushNotificationService
+                    .sendNotificationToTokenChunks(Stream.of(List.of(PUSH_TOKEN)), mock(PushNotificationDTO.class)));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        verify(firebaseMessaging, never()).sendMulticastAsync(any());
+    }
+
+    private static Set<String> createPushTokens(final int count) {
+        return IntStream.range(0, count).mapToObj(index -> PUSH_TOKEN + index).collect(Collectors.toSet());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SendResponse createSuccessfulResponse() {
+        SendResponse mockedSendResponse = mock(SendResponse.class);
+        when(mockedSendResponse.isSuccessful()).thenReturn(true);
+        return mockedSendResponse;
+    }
+
+    private static SendResponse createFailedResponse(final String errorCode) {
+        SendResponse mockedSendResponse = mock(SendResponse.class);
+        FirebaseMessagingException mockedException = mock(FirebaseMessagingException.class);
+        when(mockedException.getErrorCode()).thenReturn(errorCode);
+        when(mockedSendResponse.getException()).thenReturn(mockedException);
+        return mockedSendResponse;
+    }
+
     private PushNotificationDTO createMockPushNotificationDTO() {
         PushNotificationDTO mockPushNotificationDTO = mock(PushNotificationDTO.class);
         when(mockPushNotificationDTO.getTitle()).thenReturn(MESSAGE_TITLE);
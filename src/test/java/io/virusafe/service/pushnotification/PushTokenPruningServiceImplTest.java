@@ -0,0 +1,75 @@
+package io.virusafe.service.pushnotification;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.virusafe.repository.UserDetailsJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushTokenPruningServiceImplTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final List<String> DEAD_TOKENS = List.of("deadToken1", "deadToken2", "deadToken3");
+
+    @Mock
+    private UserDetailsJdbcRepository userDetailsJdbcRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testPruneDeadTokens() {
+        PushTokenPruningService pushTokenPruningService = createService(true);
+        when(userDetailsJdbcRepository.clearPushTokens(DEAD_TOKENS, BATCH_SIZE)).thenReturn(2);
+
+        assertEquals(2, pushTokenPruningService.pruneDeadTokens(DEAD_TOKENS));
+        assertEquals(3.0, meterRegistry.counter("push.tokens.dead").count());
+        assertEquals(2.0, meterRegistry.counter("push.tokens.pruned").count());
+    }
+
+    @Test
+    void testPruneNoTokens() {
+        PushTokenPruningService pushTokenPruningService = createService(true);
+
+        assertEquals(0, pushTokenPruningService.pruneDeadTokens(List.of()));
+        verifyNoInteractions(userDetailsJdbcRepository);
+        assertEquals(0.0, meterRegistry.counter("push.tokens.dead").count());
+    }
+
+    @Test
+    void testPruningDisabledOnlyCountsDeadTokens() {
+        PushTokenPruningService pushTokenPruningService = createService(false);
+
+        assertEquals(0, pushTokenPruningService.pruneDeadTokens(DEAD_TOKENS));
+        verifyNoInteractions(userDetailsJdbcRepository);
+        assertEquals(3.0, meterRegistry.counter("push.tokens.dead").count());
+        assertEquals(0.0, meterRegistry.counter("push.tokens.pruned").count());
+    }
+
+    @Test
+    void testPruningFailureIsNotRethrown() {
+        PushTokenPruningService pushTokenPruningService = createService(true);
+        when(userDetailsJdbcRepository.clearPushTokens(anyCollection(), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+
+        assertEquals(0, pushTokenPruningService.pruneDeadTokens(DEAD_TOKENS));
+        verify(userDetailsJdbcRepository).clearPushTokens(DEAD_TOKENS, BATCH_SIZE);
+        assertEquals(0.0, meterRegistry.counter("push.tokens.pruned").count());
+    }
+
+    private PushTokenPruningService createService(final boolean enabled) {
+        return new PushTokenPruningServiceImpl(userDetailsJdbcRepository, meterRegistry, enabled, BATCH_SIZE);
+    }
+}
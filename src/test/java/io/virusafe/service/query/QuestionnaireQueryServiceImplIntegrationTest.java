@@ -18,6 +18,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.HashSet;
 import java.util.Set;
 
 import static org.mockito.Mockito.mock;
@@ -44,7 +45,8 @@ class QuestionnaireQueryServiceImplIntegrationTest {
             when(matchAllQuery.generateQuery()).thenReturn(searchSourceBuilder);
 
             QuestionnaireQueryService questionnaireQueryService = new QuestionnaireQueryServiceImpl(client, BATCH_SIZE);
-            Set<String> results = questionnaireQueryService.searchInQuestionnaire(matchAllQuery);
+            Set<String> results = new HashSet<>();
+            questionnaireQueryService.scrollInQuestionnaire(matchAllQuery, results::addAll);
 
             System.out.println(results);
         }
@@ -64,7 +66,8 @@ class QuestionnaireQueryServiceImplIntegrationTest {
                             QuestionnaireQueryDTO.class));
 
             QuestionnaireQueryService questionnaireQueryService = new QuestionnaireQueryServiceImpl(client, BATCH_SIZE);
-            Set<String> results = questionnaireQueryService.searchInQuestionnaire(questionnaireQuery);
+            Set<String> results = new HashSet<>();
+            questionnaireQueryService.scrollInQuestionnaire(questionnaireQuery, results::addAll);
 
             System.out.println(results);
         }
@@ -5,7 +5,6 @@ import io.virusafe.exception.QueryExecuteException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.client.core.CountResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -17,10 +16,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -28,6 +33,11 @@ import static org.mockito.Mockito.when;
 @ExtendWith({MockitoExtension.class})
 class QuestionnaireQueryServiceImplTest {
     private static final int BATCH_SIZE = 1;
+    private static final String USER_GUID = "userGuid";
+    private static final String USER_GUID_1 = "userGuid1";
+    private static final String USER_GUID_2 = "userGuid2";
+    private static final String USER_GUID_3 = "userGuid3";
+    private static final String SCROLL_ID = "scrollId";
 
     @Mock
     private RestHighLevelClient client;
@@ -41,30 +51,9 @@ class QuestionnaireQueryServiceImplTest {
 
     @Test
     public void testNullQuery() {
-        assertThrows(NullPointerException.class, () -> questionnaireQueryService.searchInQuestionnaire(null));
-    }
-
-    @Test
-    public void testQueryExecuteException() throws IOException {
-        when(client.count(any(), any())).thenThrow(IOException.class);
-        assertThrows(QueryExecuteException.class, () -> questionnaireQueryService.searchInQuestionnaire(
-                getMockQuestionnaireQuery()));
-    }
-
-    @Test
-    public void testReturnCountResponseWithBadRequest() throws IOException {
-        CountResponse countResponse = mock(CountResponse.class);
-        when(countResponse.status()).thenReturn(RestStatus.BAD_REQUEST);
-        when(client.count(any(), any())).thenReturn(countResponse);
-        assertThrows(QueryExecuteException.class,
-                () -> questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery()));
-    }
-
-    @Test
-    public void testReturnCountResponseWithNull() throws IOException {
-        when(client.count(any(), any())).thenReturn(null);
-        assertThrows(QueryExecuteException.class,
-                () -> questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery()));
+        assertThrows(NullPointerException.class,
+                () -> questionnaireQueryService.scrollInQuestionnaire(null, userGuids -> {
+                }));
     }
 
     private QuestionnaireQuery getMockQuestionnaireQuery() {
@@ -74,65 +63,74 @@ class QuestionnaireQueryServiceImplTest {
     }
 
     @Test
-    public void testReturnSearchResponseWithBadRequest() throws IOException {
-        CountResponse countResponse = mock(CountResponse.class);
-        when(countResponse.status()).thenReturn(RestStatus.OK);
-        when(countResponse.getCount()).thenReturn(1L);
-        when(client.count(any(), any())).thenReturn(countResponse);
-        SearchResponse response = mock(SearchResponse.class);
-        when(response.status()).thenReturn(RestStatus.BAD_REQUEST);
-        when(client.search(any(), any(RequestOptions.class))).thenReturn(response);
-        assertThrows(QueryExecuteException.class,
-                () -> questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery()));
+    public void testScrollReadsEveryPage() throws IOException {
+        SearchResponse firstPage = mockSearchResponse(USER_GUID_1, USER_GUID_2);
+        SearchResponse secondPage = mockSearchResponse(USER_GUID_3);
+        SearchResponse lastPage = mockSearchResponse();
+        when(client.search(any(), any(RequestOptions.class))).thenReturn(firstPage);
+        when(client.scroll(any(), any(RequestOptions.class))).thenReturn(secondPage, lastPage);
+        List<List<String>> pages = new ArrayList<>();
+
+        long readCount = questionnaireQueryService.scrollInQuestionnaire(getMockQuestionnaireQuery(), pages::add);
+
+        assertEquals(3, readCount);
+        assertEquals(List.of(List.of(USER_GUID_1, USER_GUID_2), List.of(USER_GUID_3)), pages);
+        verify(client, times(2)).scroll(any(), any(RequestOptions.class));
+        verify(client, times(1)).clearScroll(any(), any(RequestOptions.class));
     }
 
     @Test
-    public void testReturnSearchResponseWithNull() throws IOException {
-        CountResponse countResponse = mock(CountResponse.class);
-        when(countResponse.status()).thenReturn(RestStatus.OK);
-        when(countResponse.getCount()).thenReturn(1L);
-        when(client.count(any(), any())).thenReturn(countResponse);
-        when(client.search(any(), any(RequestOptions.class))).thenReturn(null);
-        assertThrows(QueryExecuteException.class,
-                () -> questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery()));
+    public void testScrollIsClearedWhenConsumerThrows() throws IOException {
+        SearchResponse firstPage = mockSearchResponse(USER_GUID_1);
+        when(client.search(any(), any(RequestOptions.class))).thenReturn(firstPage);
+
+        assertThrows(IllegalStateException.class,
+                () -> questionnaireQueryService.scrollInQuestionnaire(getMockQuestionnaireQuery(), userGuids -> {
+                    throw new IllegalStateException();
+                }));
+        verify(client, never()).scroll(any(), any(RequestOptions.class));
+        verify(client, times(1)).clearScroll(any(), any(RequestOptions.class));
     }
 
     @Test
-    public void testReturnLessThanBatchSize() throws IOException {
-        CountResponse countResponse = mock(CountResponse.class);
-        when(countResponse.status()).thenReturn(RestStatus.OK);
-        when(countResponse.getCount()).thenReturn(1L);
-        when(client.count(any(), any())).thenReturn(countResponse);
-
-        mockValidSearchResponse();
+    public void testScrollWithBadRequest() throws IOException {
+        SearchResponse response = mock(SearchResponse.class);
+        when(response.status()).thenReturn(RestStatus.BAD_REQUEST);
+        when(client.search(any(), any(RequestOptions.class))).thenReturn(response);
 
-        questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery());
-        verify(client, times(1)).count(any(), any());
-        verify(client, times(1)).search(any(), any(RequestOptions.class));
+        assertThrows(QueryExecuteException.class,
+                () -> questionnaireQueryService.scrollInQuestionnaire(getMockQuestionnaireQuery(), userGuids -> {
+                }));
+        verify(client, never()).clearScroll(any(), any(RequestOptions.class));
     }
 
     @Test
-    public void testReturnMoreThanBatchSize() throws IOException {
-        CountResponse countResponse = mock(CountResponse.class);
-        when(countResponse.status()).thenReturn(RestStatus.OK);
-        when(countResponse.getCount()).thenReturn(2L);
-        when(client.count(any(), any())).thenReturn(countResponse);
+    public void testScrollQueryExecuteException() throws IOException {
+        SearchResponse firstPage = mockSearchResponse(USER_GUID_1);
+        when(client.search(any(), any(RequestOptions.class))).thenReturn(firstPage);
+        when(client.scroll(any(), any(RequestOptions.class))).thenThrow(IOException.class);
 
-        mockValidSearchResponse();
-
-        questionnaireQueryService.searchInQuestionnaire(getMockQuestionnaireQuery());
-        verify(client, times(1)).count(any(), any());
-        verify(client, times(2)).search(any(), any(RequestOptions.class));
+        assertThrows(QueryExecuteException.class,
+                () -> questionnaireQueryService.scrollInQuestionnaire(getMockQuestionnaireQuery(), userGuids -> {
+                }));
+        verify(client, times(1)).clearScroll(any(), any(RequestOptions.class));
     }
 
-    private void mockValidSearchResponse() throws IOException {
+    private SearchResponse mockSearchResponse(final String... userGuids) {
         SearchResponse response = mock(SearchResponse.class);
         when(response.status()).thenReturn(RestStatus.OK);
+        when(response.getScrollId()).thenReturn(SCROLL_ID);
         SearchHits mockSearchHits = mock(SearchHits.class);
-        SearchHit mockSearchHit = mock(SearchHit.class);
-        when(mockSearchHits.getHits()).thenReturn(new SearchHit[]{mockSearchHit});
+        SearchHit[] searchHits = Arrays.stream(userGuids)
+                .map(userGuid -> {
+                    SearchHit mockSearchHit = mock(SearchHit.class);
+                    when(mockSearchHit.getSourceAsMap()).thenReturn(Map.of(USER_GUID, userGuid));
+                    return mockSearchHit;
+                })
+                .toArray(SearchHit[]::new);
+        when(mockSearchHits.getHits()).thenReturn(searchHits);
         when(response.getHits()).thenReturn(mockSearchHits);
-        when(client.search(any(), any(RequestOptions.class))).thenReturn(response);
+        return response;
     }
 
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package io.virusafe.service.ratelimit;
 
+import io.virusafe.configuration.RateLimitConfiguration;
 import io.virusafe.domain.entity.RateLimitType;
-import io.virusafe.domain.entity.UserDetails;
-import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.exception.RateLimitTimeoutException;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.service.ratelimit.store.RateLimitStore;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,46 +12,80 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class RateLimitServiceImplTest {
 
     private static final RateLimitType DEFAULT_RATE_LIMIT = RateLimitType.PIN;
-    private static final UserDetails USER_DETAILS = UserDetails.builder().build();
+    private static final Long USER_ID = 1L;
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long DEFAULT_BUCKET_SIZE = 120L;
+    private static final long DEFAULT_BUCKET_SIZE_MILLIS = 120_000L;
+
     @Mock
-    private RateLimitRepository rateLimitRepository;
+    private RateLimitStore rateLimitStore;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
 
     private RateLimitService rateLimitService;
 
     @BeforeEach
     public void setUp() {
-        rateLimitService = new RateLimitServiceImpl(rateLimitRepository);
+        when(rateLimitStore.supports(any())).thenReturn(true);
+        rateLimitService = new RateLimitServiceImpl(rateLimitStore, rateLimitConfiguration, clock);
     }
 
     @Test
-    void findRateLimitByUserAndType_NullUserDetails() {
-        Assertions.assertThrows(NullPointerException.class,
-                () -> rateLimitService.findRateLimitByUserAndType(null, DEFAULT_RATE_LIMIT));
+    void constructor_UnsupportedAlgorithm() {
+        rateLimitConfiguration.setPinRequestAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW);
+        when(rateLimitStore.supports(RateLimitAlgorithm.SLIDING_WINDOW)).thenReturn(false);
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new RateLimitServiceImpl(rateLimitStore, rateLimitConfiguration, clock));
     }
 
     @Test
-    void findRateLimitByUserAndType_NullType() {
-        Assertions.assertThrows(NullPointerException.class,
-                () -> rateLimitService.findRateLimitByUserAndType(USER_DETAILS, null));
+    void registerRequest() {
+        when(rateLimitStore.tryAcquire(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS,
+                clock.millis())).thenReturn(0L);
+
+        rateLimitService.registerRequest(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE);
+
+        verify(rateLimitStore).tryAcquire(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, clock.millis());
     }
 
     @Test
-    void findRateLimitByUserAndType() {
-        rateLimitService.findRateLimitByUserAndType(USER_DETAILS, DEFAULT_RATE_LIMIT);
-        verify(rateLimitRepository, times(1)).findByUserDetails_IdAndType(any(), any());
+    void registerRequest_LimitExceeded() {
+        when(rateLimitStore.tryAcquire(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS,
+                clock.millis())).thenReturn(61_500L);
+
+        RateLimitTimeoutException exception = Assertions.assertThrows(RateLimitTimeoutException.class,
+                () -> rateLimitService.registerRequest(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT,
+                        DEFAULT_BUCKET_SIZE));
+        Assertions.assertEquals("62", exception.getMessage());
     }
 
     @Test
-    void save() {
-        rateLimitService.save(null);
-        verify(rateLimitRepository, times(1)).save(any());
+    void registerRequest_LimitExceededForLessThanASecond() {
+        when(rateLimitStore.tryAcquire(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS,
+                clock.millis())).thenReturn(1L);
+
+        RateLimitTimeoutException exception = Assertions.assertThrows(RateLimitTimeoutException.class,
+                () -> rateLimitService.registerRequest(USER_ID, DEFAULT_RATE_LIMIT, DEFAULT_LIMIT,
+                        DEFAULT_BUCKET_SIZE));
+        Assertions.assertEquals("1", exception.getMessage());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorImpl;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseRateLimitStoreTest {
+
+    private static final RateLimitType DEFAULT_TYPE = RateLimitType.PIN;
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long DEFAULT_BUCKET_SIZE_MILLIS = 120_000L;
+    private static final long USER_ID = 1L;
+
+    @Mock
+    private RateLimitRepository rateLimitRepository;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private DatabaseRateLimitStore databaseRateLimitStore;
+
+    @BeforeEach
+    public void setUp() {
+        RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver = new RateLimitBucketCalculatorResolver(
+                List.of(new RateLimitBucketCalculatorImpl()), new RateLimitConfiguration());
+        databaseRateLimitStore = new DatabaseRateLimitStore(rateLimitRepository, rateLimitBucketCalculatorResolver,
+                clock);
+    }
+
+    @Test
+    void testSlidingWindowNotSupported() {
+        assertAll(
+                () -> assertTrue(databaseRateLimitStore.supports(RateLimitAlgorithm.FIXED_WINDOW)),
+                () -> assertTrue(databaseRateLimitStore.supports(RateLimitAlgorithm.GCRA)),
+                () -> assertFalse(databaseRateLimitStore.supports(RateLimitAlgorithm.SLIDING_WINDOW))
+        );
+    }
+
+    @Test
+    void testNewRateLimitSaved() {
+        when(rateLimitRepository.findByUserDetailsIdAndType(USER_ID, DEFAULT_TYPE)).thenReturn(Optional.empty());
+
+        assertEquals(0L, tryAcquire());
+
+        ArgumentCaptor<RateLimit> captor = ArgumentCaptor.forClass(RateLimit.class);
+        verify(rateLimitRepository).save(captor.capture());
+        assertAll(
+                () -> assertEquals(USER_ID, captor.getValue().getUserDetailsId()),
+                () -> assertEquals(DEFAULT_TYPE, captor.getValue().getType()),
+                () -> assertEquals(LocalDateTime.of(2020, 9, 5, 0, 2, 0, 0), captor.getValue().getLastUpdateTime()),
+                () -> assertEquals(1L, captor.getValue().getBucketCount())
+        );
+    }
+
+    @Test
+    void testExistingRateLimitIncremented() {
+        RateLimit rateLimit = RateLimit.builder().userDetailsId(USER_ID).type(DEFAULT_TYPE)
+                .lastUpdateTime(LocalDateTime.of(2020, 9, 5, 0, 1, 0, 0)).bucketCount(2L).build();
+        when(rateLimitRepository.findByUserDetailsIdAndType(USER_ID, DEFAULT_TYPE))
+                .thenReturn(Optional.of(rateLimit));
+
+        assertEquals(0L, tryAcquire());
+
+        verify(rateLimitRepository).save(rateLimit);
+        assertAll(
+                () -> assertEquals(LocalDateTime.of(2020, 9, 5, 0, 1, 0, 0), rateLimit.getLastUpdateTime()),
+                () -> assertEquals(3L, rateLimit.getBucketCount())
+        );
+    }
+
+    @Test
+    void testRateLimitNotSavedWhenLimitReached() {
+        RateLimit rateLimit = RateLimit.builder().userDetailsId(USER_ID).type(DEFAULT_TYPE)
+                .lastUpdateTime(LocalDateTime.of(2020, 9, 5, 0, 1, 0, 0)).bucketCount(DEFAULT_LIMIT).build();
+        when(rateLimitRepository.findByUserDetailsIdAndType(USER_ID, DEFAULT_TYPE))
+                .thenReturn(Optional.of(rateLimit));
+
+        assertEquals(60_000L, tryAcquire());
+
+        verify(rateLimitRepository, never()).save(any());
+    }
+
+    @Test
+    void testNullUserDetails() {
+        assertThrows(NullPointerException.class, () -> databaseRateLimitStore.tryAcquire(null, DEFAULT_TYPE,
+                DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS, clock.millis()));
+    }
+
+    private long tryAcquire() {
+        return databaseRateLimitStore.tryAcquire(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, clock.millis());
+    }
+}
@@ -0,0 +1,145 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.service.GcraRateLimitBucketCalculator;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorImpl;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryRateLimitStoreTest {
+
+    private static final RateLimitType DEFAULT_TYPE = RateLimitType.PIN;
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long DEFAULT_BUCKET_SIZE = 120L;
+    private static final long DEFAULT_BUCKET_SIZE_MILLIS = 120_000L;
+    private static final Long USER_ID = 1L;
+    private static final Long OTHER_USER_ID = 2L;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+
+    private InMemoryRateLimitStore inMemoryRateLimitStore;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimitConfiguration.setPinRequestLimit(DEFAULT_LIMIT);
+        rateLimitConfiguration.setPinRequestBucketSize(DEFAULT_BUCKET_SIZE);
+        RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver = new RateLimitBucketCalculatorResolver(
+                List.of(new RateLimitBucketCalculatorImpl(), new GcraRateLimitBucketCalculator()),
+                rateLimitConfiguration);
+        inMemoryRateLimitStore = new InMemoryRateLimitStore(rateLimitBucketCalculatorResolver,
+                rateLimitConfiguration, clock);
+    }
+
+    @Test
+    void testRequestsAllowedUntilLimitReached() {
+        long now = clock.millis();
+        assertAll(
+                () -> assertEquals(0L, tryAcquire(USER_ID, now)),
+                () -> assertEquals(0L, tryAcquire(USER_ID, now + 1_000L)),
+                () -> assertEquals(0L, tryAcquire(USER_ID, now + 2_000L)),
+                () -> assertEquals(DEFAULT_BUCKET_SIZE_MILLIS - 3_000L, tryAcquire(USER_ID, now + 3_000L)),
+                // Other users have their own buckets.
+                () -> assertEquals(0L, tryAcquire(OTHER_USER_ID, now + 3_000L)),
+                // A new bucket is started once the existing one expires.
+                () -> assertEquals(0L, tryAcquire(USER_ID, now + DEFAULT_BUCKET_SIZE_MILLIS + 1L))
+        );
+    }
+
+    @Test
+    void testConfiguredAlgorithmUsedForType() {
+        rateLimitConfiguration.setPinRequestAlgorithm(RateLimitAlgorithm.GCRA);
+        long now = clock.millis();
+        assertAll(
+                () -> assertEquals(0L, tryAcquire(USER_ID, now)),
+                () -> assertEquals(0L, tryAcquire(USER_ID, now)),
+                () -> assertEquals(0L, tryAcquire(USER_ID, now)),
+                // Unlike fixed windows, a single emission interval frees up room for the next request.
+                () -> assertEquals(DEFAULT_BUCKET_SIZE_MILLIS / DEFAULT_LIMIT, tryAcquire(USER_ID, now)),
+                () -> assertEquals(0L, tryAcquire(USER_ID, now + DEFAULT_BUCKET_SIZE_MILLIS / DEFAULT_LIMIT))
+        );
+    }
+
+    @Test
+    void testTypesAreCountedSeparately() {
+        long now = clock.millis();
+        for (int i = 0; i < DEFAULT_LIMIT; i++) {
+            tryAcquire(USER_ID, now);
+        }
+        assertEquals(0L, inMemoryRateLimitStore.tryAcquire(USER_ID, RateLimitType.GPS_LOCATION,
+                DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS, now));
+    }
+
+    @Test
+    void testExpiredBucketsAreEvicted() {
+        long now = clock.millis();
+        // Bucket expired before the clock's current time.
+        tryAcquire(USER_ID, now - DEFAULT_BUCKET_SIZE_MILLIS - 1L);
+        tryAcquire(OTHER_USER_ID, now);
+        assertEquals(2, inMemoryRateLimitStore.size(DEFAULT_TYPE));
+
+        inMemoryRateLimitStore.evictExpiredBuckets();
+
+        assertEquals(1, inMemoryRateLimitStore.size(DEFAULT_TYPE));
+    }
+
+    @Test
+    void testConcurrentRequestsDoNotExceedLimit() throws Exception {
+        long now = clock.millis();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            Callable<Long> task = () -> tryAcquire(USER_ID, now);
+            long allowed = 0;
+            for (Future<Long> result : executorService.invokeAll(
+                    IntStream.range(0, 100).mapToObj(i -> task).collect(Collectors.toList()))) {
+                if (result.get() == 0L) {
+                    allowed++;
+                }
+            }
+            assertEquals(DEFAULT_LIMIT, allowed);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testNullUserDetails() {
+        assertThrows(NullPointerException.class, () -> tryAcquire(null, clock.millis()));
+    }
+
+    @Test
+    void testNullType() {
+        assertThrows(NullPointerException.class, () -> inMemoryRateLimitStore.tryAcquire(USER_ID,
+                null, DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS, clock.millis()));
+    }
+
+    private long tryAcquire(final Long userId, final long calculationTime) {
+        return inMemoryRateLimitStore.tryAcquire(userId, DEFAULT_TYPE, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, calculationTime);
+    }
+}
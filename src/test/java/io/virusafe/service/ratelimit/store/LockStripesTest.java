@@ -0,0 +1,28 @@
+package io.virusafe.service.ratelimit.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockStripesTest {
+
+    private final LockStripes lockStripes = new LockStripes();
+
+    @Test
+    void testSameKeyReturnsSameLock() {
+        assertSame(lockStripes.lockFor("USER_GUID"), lockStripes.lockFor(new String("USER_GUID")));
+    }
+
+    @Test
+    void testKeysAreSpreadOverStripes() {
+        Set<Object> locks = Collections.newSetFromMap(new IdentityHashMap<>());
+        LongStream.range(0, 1000).forEach(key -> locks.add(lockStripes.lockFor(key)));
+        assertTrue(locks.size() > 1);
+    }
+}
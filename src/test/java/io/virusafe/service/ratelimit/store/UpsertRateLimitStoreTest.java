@@ -0,0 +1,100 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitJdbcRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UpsertRateLimitStoreTest {
+
+    private static final RateLimitType DEFAULT_TYPE = RateLimitType.PIN;
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long DEFAULT_BUCKET_SIZE_MILLIS = 120_000L;
+    private static final long USER_ID = 1L;
+    private static final LocalDateTime CALCULATION_TIME = LocalDateTime.of(2020, 9, 5, 0, 0, 0);
+    private static final LocalDateTime NEW_BUCKET_END = LocalDateTime.of(2020, 9, 5, 0, 2, 0);
+
+    @Mock
+    private RateLimitJdbcRepository rateLimitJdbcRepository;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private UpsertRateLimitStore upsertRateLimitStore;
+
+    @BeforeEach
+    public void setUp() {
+        upsertRateLimitStore = new UpsertRateLimitStore(rateLimitJdbcRepository, clock);
+    }
+
+    @Test
+    void testOnlyFixedWindowSupported() {
+        assertAll(
+                () -> assertTrue(upsertRateLimitStore.supports(RateLimitAlgorithm.FIXED_WINDOW)),
+                () -> assertFalse(upsertRateLimitStore.supports(RateLimitAlgorithm.SLIDING_WINDOW)),
+                () -> assertFalse(upsertRateLimitStore.supports(RateLimitAlgorithm.GCRA))
+        );
+    }
+
+    @Test
+    void testRequestAllowedWithinLimit() {
+        when(rateLimitJdbcRepository.upsertBucket(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT, NEW_BUCKET_END,
+                CALCULATION_TIME)).thenReturn(DEFAULT_LIMIT);
+
+        assertEquals(0L, tryAcquire());
+
+        verify(rateLimitJdbcRepository, never()).findBucketEnd(USER_ID, DEFAULT_TYPE);
+    }
+
+    @Test
+    void testTimeoutReturnedWhenLimitExceeded() {
+        when(rateLimitJdbcRepository.upsertBucket(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT, NEW_BUCKET_END,
+                CALCULATION_TIME)).thenReturn(DEFAULT_LIMIT + 1);
+        when(rateLimitJdbcRepository.findBucketEnd(USER_ID, DEFAULT_TYPE))
+                .thenReturn(Optional.of(LocalDateTime.of(2020, 9, 5, 0, 1, 0)));
+
+        assertEquals(60_000L, tryAcquire());
+    }
+
+    @Test
+    void testMinimalTimeoutReturnedWhenBucketEndMissing() {
+        when(rateLimitJdbcRepository.upsertBucket(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT, NEW_BUCKET_END,
+                CALCULATION_TIME)).thenReturn(DEFAULT_LIMIT + 1);
+        when(rateLimitJdbcRepository.findBucketEnd(USER_ID, DEFAULT_TYPE)).thenReturn(Optional.empty());
+
+        assertEquals(1L, tryAcquire());
+    }
+
+    @Test
+    void testNullUserDetails() {
+        assertThrows(NullPointerException.class, () -> upsertRateLimitStore.tryAcquire(null, DEFAULT_TYPE,
+                DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS, clock.millis()));
+    }
+
+    private long tryAcquire() {
+        return upsertRateLimitStore.tryAcquire(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, clock.millis());
+    }
+}
@@ -0,0 +1,178 @@
+package io.virusafe.service.ratelimit.store;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.domain.command.RateLimitBucketUpdateCommand;
+import io.virusafe.domain.entity.RateLimit;
+import io.virusafe.domain.entity.RateLimitType;
+import io.virusafe.repository.RateLimitJdbcRepository;
+import io.virusafe.repository.RateLimitRepository;
+import io.virusafe.security.advice.calculator.model.RateLimitAlgorithm;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorImpl;
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindRateLimitStoreTest {
+
+    private static final RateLimitType DEFAULT_TYPE = RateLimitType.PIN;
+    private static final long DEFAULT_LIMIT = 3L;
+    private static final long DEFAULT_BUCKET_SIZE = 120L;
+    private static final long DEFAULT_BUCKET_SIZE_MILLIS = 120_000L;
+    private static final int BATCH_SIZE = 2;
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private RateLimitRepository rateLimitRepository;
+
+    @Mock
+    private RateLimitJdbcRepository rateLimitJdbcRepository;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WriteBehindRateLimitStore writeBehindRateLimitStore;
+
+    @BeforeEach
+    public void setUp() {
+        RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+        rateLimitConfiguration.setPinRequestLimit(DEFAULT_LIMIT);
+        rateLimitConfiguration.setPinRequestBucketSize(DEFAULT_BUCKET_SIZE);
+        RateLimitBucketCalculatorResolver rateLimitBucketCalculatorResolver = new RateLimitBucketCalculatorResolver(
+                List.of(new RateLimitBucketCalculatorImpl()), rateLimitConfiguration);
+        writeBehindRateLimitStore = new WriteBehindRateLimitStore(rateLimitRepository, rateLimitJdbcRepository,
+                rateLimitBucketCalculatorResolver, rateLimitConfiguration, clock, meterRegistry, BATCH_SIZE);
+    }
+
+    @Test
+    void testSlidingWindowNotSupported() {
+        assertAll(
+                () -> assertTrue(writeBehindRateLimitStore.supports(RateLimitAlgorithm.FIXED_WINDOW)),
+                () -> assertTrue(writeBehindRateLimitStore.supports(RateLimitAlgorithm.GCRA)),
+                () -> assertFalse(writeBehindRateLimitStore.supports(RateLimitAlgorithm.SLIDING_WINDOW))
+        );
+    }
+
+    @Test
+    void testBucketReadThroughOnMiss() {
+        when(rateLimitRepository.findByUserDetailsIdAndType(USER_ID, DEFAULT_TYPE))
+                .thenReturn(Optional.of(RateLimit.builder()
+                        .lastUpdateTime(LocalDateTime.of(2020, 9, 5, 0, 1, 0, 0))
+                        .bucketCount(DEFAULT_LIMIT).build()));
+
+        assertAll(
+                () -> assertEquals(60_000L, tryAcquire(USER_ID)),
+                () -> assertEquals(59_000L, writeBehindRateLimitStore.tryAcquire(USER_ID, DEFAULT_TYPE,
+                        DEFAULT_LIMIT, DEFAULT_BUCKET_SIZE_MILLIS, clock.millis() + 1_000L))
+        );
+        // The bucket is only loaded once.
+        verify(rateLimitRepository).findByUserDetailsIdAndType(USER_ID, DEFAULT_TYPE);
+
+        // Rejected requests don't change the bucket, so there's nothing to write.
+        writeBehindRateLimitStore.flush();
+        verify(rateLimitJdbcRepository, never()).writeBuckets(any(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangedBucketsFlushedInBatches() {
+        for (long userId = 1; userId <= 3; userId++) {
+            assertEquals(0L, tryAcquire(userId));
+        }
+        assertEquals(0L, tryAcquire(USER_ID));
+
+        writeBehindRateLimitStore.flush();
+
+        ArgumentCaptor<List<RateLimitBucketUpdateCommand>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rateLimitJdbcRepository, times(2)).writeBuckets(captor.capture(), anyInt());
+        RateLimitBucketUpdateCommand userCommand = captor.getAllValues().stream().flatMap(List::stream)
+                .filter(command -> USER_ID.equals(command.getUserId()))
+                .findFirst().orElseThrow();
+        assertAll(
+                () -> assertEquals(2L, userCommand.getBucketCount()),
+                () -> assertEquals(DEFAULT_TYPE, userCommand.getType()),
+                () -> assertEquals(LocalDateTime.of(2020, 9, 5, 0, 2, 0, 0), userCommand.getBucketEnd()),
+                () -> assertEquals(2L, meterRegistry.summary("rate.limit.write.behind.batch.size").count()),
+                () -> assertEquals(3.0, meterRegistry.summary("rate.limit.write.behind.batch.size").totalAmount()),
+                () -> assertEquals(3L, meterRegistry.timer("rate.limit.write.behind.flush.lag").count())
+        );
+
+        // Nothing changed since the last flush.
+        writeBehindRateLimitStore.flush();
+        verify(rateLimitJdbcRepository, times(2)).writeBuckets(any(), anyInt());
+    }
+
+    @Test
+    void testFailedBatchRetriedOnNextFlush() {
+        tryAcquire(USER_ID);
+        doThrow(new DataAccessResourceFailureException("Database unavailable"))
+                .doNothing()
+                .when(rateLimitJdbcRepository).writeBuckets(any(), anyInt());
+
+        writeBehindRateLimitStore.flush();
+        writeBehindRateLimitStore.flush();
+        writeBehindRateLimitStore.flush();
+
+        verify(rateLimitJdbcRepository, times(2)).writeBuckets(any(), anyInt());
+        assertEquals(1.0, meterRegistry.counter("rate.limit.write.behind.flush.failures").count());
+    }
+
+    @Test
+    void testOnlyWrittenExpiredBucketsEvicted() {
+        // Bucket expired before the clock's current time.
+        writeBehindRateLimitStore.tryAcquire(USER_ID, DEFAULT_TYPE, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, clock.millis() - DEFAULT_BUCKET_SIZE_MILLIS - 1L);
+
+        writeBehindRateLimitStore.evictExpiredBuckets();
+        assertEquals(1, writeBehindRateLimitStore.size(DEFAULT_TYPE));
+
+        doNothing().when(rateLimitJdbcRepository).writeBuckets(any(), anyInt());
+        writeBehindRateLimitStore.flush();
+        writeBehindRateLimitStore.evictExpiredBuckets();
+        assertEquals(0, writeBehindRateLimitStore.size(DEFAULT_TYPE));
+    }
+
+    @Test
+    void testNullUserDetails() {
+        assertThrows(NullPointerException.class, () -> tryAcquire(null));
+        verify(rateLimitRepository, never()).findByUserDetailsIdAndType(anyLong(), any());
+    }
+
+    private long tryAcquire(final Long userId) {
+        return writeBehindRateLimitStore.tryAcquire(userId, DEFAULT_TYPE, DEFAULT_LIMIT,
+                DEFAULT_BUCKET_SIZE_MILLIS, clock.millis());
+    }
+}
@@ -0,0 +1,75 @@
+package io.virusafe.service.ratelimit.throttle;
+
+import io.virusafe.security.advice.calculator.service.RateLimitBucketCalculatorImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundedThrottleTest {
+
+    private static final int MAX_ENTRIES = 2;
+    private static final long DEFAULT_LIMIT = 2L;
+    private static final long OVERFLOW_LIMIT = 1L;
+    private static final long DEFAULT_BUCKET_SIZE = 60_000L;
+    private static final long CALCULATION_TIME = Instant.parse("2020-09-05T00:00:00.00Z").toEpochMilli();
+
+    private final BoundedThrottle boundedThrottle = new BoundedThrottle(MAX_ENTRIES,
+            new RateLimitBucketCalculatorImpl());
+
+    @Test
+    void testRequestsAllowedUntilLimitReached() {
+        assertAll(
+                () -> assertEquals(0L, tryAcquire("first")),
+                () -> assertEquals(0L, tryAcquire("first")),
+                () -> assertEquals(DEFAULT_BUCKET_SIZE, tryAcquire("first")),
+                () -> assertEquals(0L, tryAcquire("second"))
+        );
+    }
+
+    @Test
+    void testNewKeysShareOverflowBucketAndExistingBucketsKeptWhenFull() {
+        tryAcquire("first");
+        tryAcquire("first");
+        tryAcquire("second");
+        assertAll(
+                () -> assertEquals(0L, tryAcquire("third")),
+                () -> assertEquals(DEFAULT_BUCKET_SIZE, tryAcquire("fourth")),
+                () -> assertEquals(MAX_ENTRIES, boundedThrottle.size()),
+                // The bucket of the first key is still open, so its limit is not reset by the new keys.
+                () -> assertEquals(DEFAULT_BUCKET_SIZE, tryAcquire("first")),
+                () -> assertEquals(0L, tryAcquire("second"))
+        );
+    }
+
+    @Test
+    void testExpiredBucketsEvictedInlineWhenFull() {
+        tryAcquire("first");
+        tryAcquire("second");
+        long afterBucketEnd = CALCULATION_TIME + DEFAULT_BUCKET_SIZE + 1L;
+        assertAll(
+                () -> assertEquals(0L, boundedThrottle.tryAcquire("third", DEFAULT_LIMIT, 0L, DEFAULT_BUCKET_SIZE,
+                        afterBucketEnd)),
+                () -> assertEquals(1, boundedThrottle.size())
+        );
+    }
+
+    @Test
+    void testExpiredBucketsEvictedToMakeRoom() {
+        tryAcquire("first");
+        tryAcquire("second");
+        long afterBucketEnd = CALCULATION_TIME + DEFAULT_BUCKET_SIZE + 1L;
+        assertAll(
+                () -> assertEquals(0, boundedThrottle.evictExpiredBuckets(CALCULATION_TIME, DEFAULT_BUCKET_SIZE)),
+                () -> assertEquals(MAX_ENTRIES,
+                        boundedThrottle.evictExpiredBuckets(afterBucketEnd, DEFAULT_BUCKET_SIZE)),
+                () -> assertEquals(0, boundedThrottle.size())
+        );
+    }
+
+    private long tryAcquire(final String key) {
+        return boundedThrottle.tryAcquire(key, DEFAULT_LIMIT, OVERFLOW_LIMIT, DEFAULT_BUCKET_SIZE, CALCULATION_TIME);
+    }
+}
@@ -0,0 +1,104 @@
+package io.virusafe.service.ratelimit.throttle;
+
+import io.virusafe.configuration.RateLimitConfiguration;
+import io.virusafe.exception.RateLimitTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RegistrationThrottleServiceImplTest {
+
+    private static final String PHONE_NUMBER = "+359888888888";
+    private static final String REMOTE_ADDRESS = "10.0.0.1";
+    private static final long DEFAULT_LIMIT = 1L;
+    private static final long DEFAULT_BUCKET_SIZE = 120L;
+    private static final int FLOOD_SIZE = 100;
+
+    private final Clock clock = Clock.fixed(
+            Instant.parse("2020-09-05T00:00:00.00Z"),
+            ZoneId.of("UTC")
+    );
+
+    private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+
+    private RegistrationThrottleServiceImpl registrationThrottleService;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimitConfiguration.setRegistrationPhoneNumberLimit(DEFAULT_LIMIT);
+        rateLimitConfiguration.setRegistrationPhoneNumberBucketSize(DEFAULT_BUCKET_SIZE);
+        rateLimitConfiguration.setRegistrationRemoteAddressLimit(DEFAULT_LIMIT);
+        rateLimitConfiguration.setRegistrationRemoteAddressBucketSize(DEFAULT_BUCKET_SIZE);
+        registrationThrottleService = new RegistrationThrottleServiceImpl(rateLimitConfiguration, clock);
+    }
+
+    @Test
+    void testPhoneNumberThrottled() {
+        registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER);
+        RateLimitTimeoutException exception = assertThrows(RateLimitTimeoutException.class,
+                () -> registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER));
+        assertEquals(String.valueOf(DEFAULT_BUCKET_SIZE), exception.getMessage());
+    }
+
+    @Test
+    void testRemoteAddressThrottled() {
+        registrationThrottleService.registerRemoteAddressRequest(REMOTE_ADDRESS);
+        assertThrows(RateLimitTimeoutException.class,
+                () -> registrationThrottleService.registerRemoteAddressRequest(REMOTE_ADDRESS));
+    }
+
+    @Test
+    void testPhoneNumbersAndRemoteAddressesCountedSeparately() {
+        registrationThrottleService.registerPhoneNumberRequest(REMOTE_ADDRESS);
+        assertDoesNotThrow(() -> registrationThrottleService.registerRemoteAddressRequest(REMOTE_ADDRESS));
+    }
+
+    @Test
+    void testRetryTimeRoundedUpToWholeSeconds() {
+        Clock steppingClock = mock(Clock.class);
+        when(steppingClock.millis()).thenReturn(clock.millis(), clock.millis() + 1L);
+        registrationThrottleService = new RegistrationThrottleServiceImpl(rateLimitConfiguration, steppingClock);
+        registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER);
+        // One millisecond later, just under the full bucket size is left.
+        RateLimitTimeoutException exception = assertThrows(RateLimitTimeoutException.class,
+                () -> registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER));
+        assertEquals(String.valueOf(DEFAULT_BUCKET_SIZE), exception.getMessage());
+    }
+
+    @Test
+    void testOpenBucketsNotEvicted() {
+        registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER);
+        registrationThrottleService.registerRemoteAddressRequest(REMOTE_ADDRESS);
+        registrationThrottleService.evictExpiredBuckets();
+        assertThrows(RateLimitTimeoutException.class,
+                () -> registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER));
+    }
+
+    @Test
+    void testFloodOfPhoneNumbersDoesNotLockOutNewPhoneNumber() {
+        rateLimitConfiguration.setRegistrationThrottleMaxEntries(FLOOD_SIZE);
+        rateLimitConfiguration.setRegistrationPhoneNumberOverflowLimit(FLOOD_SIZE);
+        registrationThrottleService = new RegistrationThrottleServiceImpl(rateLimitConfiguration, clock);
+        // Fill the throttle with distinct phone numbers, and keep flooding the overflow bucket with new ones.
+        for (int i = 0; i < 2 * FLOOD_SIZE - 1; i++) {
+            registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER + i);
+        }
+        assertDoesNotThrow(() -> registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER));
+    }
+
+    @Test
+    void testNotThrottledWithoutLimit() {
+        rateLimitConfiguration.setRegistrationPhoneNumberLimit(0L);
+        registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER);
+        assertDoesNotThrow(() -> registrationThrottleService.registerPhoneNumberRequest(PHONE_NUMBER));
+    }
+}
@@ -2,8 +2,8 @@ package io.virusafe.service.userdetails;
 
 import io.virusafe.domain.Gender;
 import io.virusafe.domain.command.PersonalInformationUpdateCommand;
-import io.virusafe.domain.entity.RegistrationPin;
 import io.virusafe.domain.entity.UserDetails;
+import io.virusafe.domain.projection.UserAuthenticationDetails;
 import io.virusafe.repository.UserDetailsRepositoryFacade;
 import io.virusafe.service.audit.PersonalInformationConsentAuditService;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,7 +16,6 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Collections;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -24,6 +23,9 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,8 +33,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UserDetailsServiceImplTest {
     private static final String USER_GUID = "USER_GUID";
+    private static final Long USER_ID = 1L;
     private static final String PHONE_NUMBER = "PHONE_NUMBER";
-    private static final String PIN = "PIN";
     private static final long BUCKET_COUNT = 1L;
     private static final int AGE = 34;
     private static final String IDENTIFICATION_NUMBER = "IDENTIFICATION_NUMBER";
@@ -49,6 +51,8 @@ class UserDetailsServiceImplTest {
     private UserDetailsRepositoryFacade userDetailsRepositoryFacade;
     @Mock
     private PersonalInformationConsentAuditService personalInformationConsentAuditService;
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
 
     private UserDetailsServiceImpl userDetailsService;
 
@@ -58,7 +62,7 @@ class UserDetailsServiceImplTest {
     @BeforeEach
     public void setUp() {
         this.userDetailsService = new UserDetailsServiceImpl(userDetailsRepositoryFacade,
-                personalInformationConsentAuditService);
+                personalInformationConsentAuditService, userPrincipalCache);
     }
 
     @Test
@@ -88,26 +92,23 @@ class UserDetailsServiceImplTest {
     }
 
     @Test
-    public void testFindByPhoneNumberAndPinProxiesToFacade() {
-        RegistrationPin expectedPin = RegistrationPin.builder()
-                .pin(PIN)
-                .validUntil(timeNow.plusMinutes(5))
-                .build();
-        UserDetails expectedUser = UserDetails.builder()
-                .userGuid(USER_GUID)
-                .phoneNumber(PHONE_NUMBER)
-                .registrationPins(Collections.singletonList(expectedPin))
-                .build();
-        when(userDetailsRepositoryFacade.findByPhoneNumberAndValidPin(PHONE_NUMBER,
-                PIN, timeNow)).thenReturn(Optional.of(expectedUser));
-        Optional<UserDetails> foundUser = userDetailsService.findByPhoneNumberAndValidPin(PHONE_NUMBER,
-                PIN, timeNow);
-        assertAll(
-                () -> assertEquals(expectedUser.getUserGuid(), foundUser.get().getUserGuid()),
-                () -> assertEquals(expectedUser.getPhoneNumber(), foundUser.get().getPhoneNumber()),
-                () -> assertEquals(expectedPin.getPin(), foundUser.get().getRegistrationPins().get(0).getPin()),
-                () -> assertTrue(timeNow.isBefore(foundUser.get().getRegistrationPins().get(0).getValidUntil()))
-        );
+    public void testFindAuthenticationDetailsByUserGuidProxiesToFacade() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userDetailsRepositoryFacade.findAuthenticationDetailsByUserGuid(USER_GUID))
+                .thenReturn(Optional.of(authenticationDetails));
+        assertEquals(Optional.of(authenticationDetails), userDetailsService.findAuthenticationDetailsByUserGuid(USER_GUID));
+    }
+
+    @Test
+    public void testHasIdentificationNumberProxiesToFacade() {
+        when(userDetailsRepositoryFacade.hasIdentificationNumber(USER_GUID)).thenReturn(true);
+        assertTrue(userDetailsService.hasIdentificationNumber(USER_GUID));
+    }
+
+    @Test
+    public void testFindIdByPhoneNumberProxiesToFacade() {
+        when(userDetailsRepositoryFacade.findIdByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(USER_ID));
+        assertEquals(Optional.of(USER_ID), userDetailsService.findIdByPhoneNumber(PHONE_NUMBER));
     }
 
     @Test
@@ -117,6 +118,12 @@ class UserDetailsServiceImplTest {
                 .save(userDetails);
     }
 
+    @Test
+    public void testSaveInvalidatesCachedPrincipal() {
+        userDetailsService.save(userDetails);
+        verify(userPrincipalCache).invalidate(USER_GUID);
+    }
+
     @Test
     public void testUpdatePersonalInformation() {
         PersonalInformationUpdateCommand personalInformationUpdateCommand = new PersonalInformationUpdateCommand();
@@ -147,43 +154,48 @@ class UserDetailsServiceImplTest {
 
     @Test
     public void testUpdatePushToken() {
-        when(userDetailsRepositoryFacade.findByUserGuid(USER_GUID)).thenReturn(Optional.of(userDetails));
-        UserDetails expectedUserDetails = UserDetails.builder()
-                .userGuid(USER_GUID)
-                .pushToken(PUSH_TOKEN)
-                .build();
+        when(userDetailsRepositoryFacade.updatePushToken(USER_GUID, PUSH_TOKEN)).thenReturn(true);
         userDetailsService.updatePushToken(USER_GUID, PUSH_TOKEN);
-        verify(userDetailsRepositoryFacade, times(1))
-                .save(expectedUserDetails);
+        verify(userDetailsRepositoryFacade, never()).findByUserGuid(USER_GUID);
+        verify(userDetailsRepositoryFacade, never()).save(any());
+        verify(userPrincipalCache, never()).invalidate(USER_GUID);
     }
 
     @Test
     public void testUpdatePushTokenFailsForMissingUser() {
-        when(userDetailsRepositoryFacade.findByUserGuid(USER_GUID)).thenReturn(Optional.empty());
+        when(userDetailsRepositoryFacade.updatePushToken(USER_GUID, PUSH_TOKEN)).thenReturn(false);
         assertThrows(NoSuchElementException.class,
                 () -> userDetailsService.updatePushToken(USER_GUID, PUSH_TOKEN));
+        verify(userPrincipalCache, never()).invalidate(USER_GUID);
     }
 
     @Test
     public void testUpdateTokenDetails() {
-        when(userDetailsRepositoryFacade.findByUserGuid(USER_GUID)).thenReturn(Optional.of(userDetails));
-        UserDetails expectedUserDetails = UserDetails.builder()
-                .userGuid(USER_GUID)
-                .tokenSecret(TOKEN_SECRET)
-                .refreshToken(REFRESH_TOKEN_HASH)
-                .build();
+        when(userDetailsRepositoryFacade.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN_HASH))
+                .thenReturn(true);
         userDetailsService.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN_HASH);
-        verify(userDetailsRepositoryFacade, times(1))
-                .save(expectedUserDetails);
+        verify(userDetailsRepositoryFacade, never()).findByUserGuid(USER_GUID);
+        verify(userDetailsRepositoryFacade, never()).save(any());
+        verify(userPrincipalCache, times(1)).invalidate(USER_GUID);
     }
 
     @Test
     public void testUpdateTokenDetailsFailsForMissingUser() {
-        when(userDetailsRepositoryFacade.findByUserGuid(USER_GUID)).thenReturn(Optional.empty());
+        when(userDetailsRepositoryFacade.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN_HASH))
+                .thenReturn(false);
         assertThrows(NoSuchElementException.class,
                 () -> userDetailsService.updateTokenDetails(USER_GUID, TOKEN_SECRET, REFRESH_TOKEN_HASH));
     }
 
+    @Test
+    public void testFindAuthenticationDetailsByPhoneNumberProxiesToFacade() {
+        UserAuthenticationDetails authenticationDetails = mock(UserAuthenticationDetails.class);
+        when(userDetailsRepositoryFacade.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER))
+                .thenReturn(Optional.of(authenticationDetails));
+        assertEquals(Optional.of(authenticationDetails),
+                userDetailsService.findAuthenticationDetailsByPhoneNumber(PHONE_NUMBER));
+    }
+
     @Test
     public void testFindByRefreshTokenProxiesToFacade() {
         UserDetails expectedUser = UserDetails.builder()
@@ -0,0 +1,98 @@
+package io.virusafe.service.userdetails;
+
+import io.virusafe.security.principal.UserPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserPrincipalCacheTest {
+
+    private static final String USER_GUID = "USER_GUID";
+    private static final String OTHER_USER_GUID = "OTHER_USER_GUID";
+    private static final String TOKEN_SECRET = "TOKEN_SECRET";
+    private static final String OTHER_TOKEN_SECRET = "OTHER_TOKEN_SECRET";
+    private static final Long CREATED_DATE = 1L;
+    private static final Long USER_ID = 1L;
+    private static final long TTL = 60_000L;
+    private static final int MAX_ENTRIES = 1;
+
+    private final Instant now = Instant.parse("2020-09-05T00:00:00.00Z");
+    private final UserPrincipal principal = UserPrincipal.builder().userId(USER_ID).userGuid(USER_GUID).build();
+
+    @Test
+    void testCachedPrincipalReturnedForMatchingClaims() {
+        UserPrincipalCache cache = createCache(Clock.fixed(now, ZoneId.of("UTC")));
+        cache.put(cache.getInvalidationStamp(), TOKEN_SECRET, CREATED_DATE, principal);
+
+        Optional<UserPrincipal> cached = cache.get(USER_GUID, TOKEN_SECRET, CREATED_DATE);
+        assertAll(
+                () -> assertEquals(Optional.of(principal), cached),
+                () -> assertNotSame(principal, cached.orElseThrow()),
+                () -> assertTrue(cache.get(USER_GUID, OTHER_TOKEN_SECRET, CREATED_DATE).isEmpty()),
+                () -> assertTrue(cache.get(USER_GUID, TOKEN_SECRET, CREATED_DATE + 1).isEmpty()),
+                () -> assertTrue(cache.get(OTHER_USER_GUID, TOKEN_SECRET, CREATED_DATE).isEmpty())
+        );
+    }
+
+    @Test
+    void testInvalidatedPrincipalNotReturned() {
+        UserPrincipalCache cache = createCache(Clock.fixed(now, ZoneId.of("UTC")));
+        cache.put(cache.getInvalidationStamp(), TOKEN_SECRET, CREATED_DATE, principal);
+        cache.invalidate(USER_GUID);
+
+        assertTrue(cache.get(USER_GUID, TOKEN_SECRET, CREATED_DATE).isEmpty());
+    }
+
+    @Test
+    void testPrincipalNotCachedAfterConcurrentInvalidation() {
+        UserPrincipalCache cache = createCache(Clock.fixed(now, ZoneId.of("UTC")));
+        long invalidationStamp = cache.getInvalidationStamp();
+        // The user is written while their details are being loaded.
+        cache.invalidate(USER_GUID);
+        cache.put(invalidationStamp, TOKEN_SECRET, CREATED_DATE, principal);
+
+        assertAll(
+                () -> assertTrue(cache.get(USER_GUID, TOKEN_SECRET, CREATED_DATE).isEmpty()),
+                () -> assertEquals(0, cache.size())
+        );
+    }
+
+    @Test
+    void testExpiredPrincipalNotReturnedAndEvicted() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(now.toEpochMilli(), now.toEpochMilli() + TTL + 1);
+        UserPrincipalCache cache = createCache(clock);
+        cache.put(cache.getInvalidationStamp(), TOKEN_SECRET, CREATED_DATE, principal);
+
+        assertTrue(cache.get(USER_GUID, TOKEN_SECRET, CREATED_DATE).isEmpty());
+        cache.evictExpiredPrincipals();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPrincipalNotCachedWhenFull() {
+        UserPrincipalCache cache = createCache(Clock.fixed(now, ZoneId.of("UTC")));
+        cache.put(cache.getInvalidationStamp(), TOKEN_SECRET, CREATED_DATE, principal);
+        cache.put(cache.getInvalidationStamp(), TOKEN_SECRET, CREATED_DATE,
+                UserPrincipal.builder().userGuid(OTHER_USER_GUID).build());
+
+        assertAll(
+                () -> assertEquals(MAX_ENTRIES, cache.size()),
+                () -> assertTrue(cache.get(OTHER_USER_GUID, TOKEN_SECRET, CREATED_DATE).isEmpty())
+        );
+    }
+
+    private UserPrincipalCache createCache(final Clock clock) {
+        return new UserPrincipalCache(clock, TTL, MAX_ENTRIES);
+    }
+}